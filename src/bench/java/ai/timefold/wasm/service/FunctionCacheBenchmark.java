@@ -0,0 +1,100 @@
+package ai.timefold.wasm.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ai.timefold.wasm.service.classgen.WasmObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+
+/**
+ * Compares the primitive {@link FunctionCache} with the record-keyed one it replaced,
+ * on a memoized bi-predicate over pairs of objects, like a joiner filter.
+ *
+ * {@code *Hit} calls the function for pairs that are all cached;
+ * {@code *InvalidateAndCall} invalidates one object before each call, like a move changing a planning variable,
+ * so every call misses and calls the function again.
+ * Run with {@code -prof gc} to see the allocation per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FunctionCacheBenchmark {
+    private static final ExportFunction OVERLAPS = arguments -> new long[] { (arguments[0] ^ arguments[1]) & 1 };
+
+    @Param({ "1000", "100000" })
+    int pairs;
+
+    private WasmObject[] firsts;
+    private WasmObject[] seconds;
+    private int next;
+
+    private FunctionCache primitiveCache;
+    private FunctionCache.Memoized overlaps;
+    private RecordKeyedFunctionCache recordKeyedCache;
+
+    @Setup
+    public void setup() {
+        var random = new Random(0);
+        firsts = new WasmObject[pairs];
+        seconds = new WasmObject[pairs];
+        for (int i = 0; i < pairs; i++) {
+            firsts[i] = WasmObject.wrappingInt(8 + 32 * random.nextInt(pairs));
+            seconds[i] = WasmObject.wrappingInt(8 + 32 * random.nextInt(pairs));
+        }
+        primitiveCache = new FunctionCache(2 * pairs);
+        overlaps = new FunctionCache.FunctionIds().memoize("overlaps", "room conflict/overlaps", 0, OVERLAPS);
+        recordKeyedCache = new RecordKeyedFunctionCache();
+        for (int i = 0; i < pairs; i++) {
+            primitiveCache.call(overlaps, firsts[i], seconds[i]);
+            recordKeyedCache.call("overlaps", "room conflict/overlaps", OVERLAPS, firsts[i], seconds[i]);
+        }
+    }
+
+    private int nextPair() {
+        int pair = next;
+        next = (pair + 1 == pairs) ? 0 : pair + 1;
+        return pair;
+    }
+
+    @Benchmark
+    public long primitiveHit() {
+        int pair = nextPair();
+        return primitiveCache.call(overlaps, firsts[pair], seconds[pair]);
+    }
+
+    @Benchmark
+    public long recordKeyedHit() {
+        int pair = nextPair();
+        return recordKeyedCache.call("overlaps", "room conflict/overlaps", OVERLAPS, firsts[pair], seconds[pair]);
+    }
+
+    @Benchmark
+    public long primitiveInvalidateAndCall() {
+        int pair = nextPair();
+        primitiveCache.invalidateEntity(firsts[pair].getMemoryPointer());
+        return primitiveCache.call(overlaps, firsts[pair], seconds[pair]);
+    }
+
+    @Benchmark
+    public long recordKeyedInvalidateAndCall() {
+        int pair = nextPair();
+        recordKeyedCache.invalidateEntity(firsts[pair].getMemoryPointer());
+        return recordKeyedCache.call("overlaps", "room conflict/overlaps", OVERLAPS, firsts[pair], seconds[pair]);
+    }
+}
@@ -0,0 +1,90 @@
+package ai.timefold.wasm.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the scalar and vector implementations of the int list host functions.
+ * Run with the vector profile too, which compiles {@link VectorIntArrays} in.
+ *
+ * The values are epoch days spread over ten years, like the unavailable dates of employees;
+ * {@code contains} looks for a value that is not there, so it scans the whole array.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntArraysBenchmark {
+    private static final int FIRST_DAY = 19_000;
+    private static final int DAYS = 3_650;
+
+    @Param({ "16", "1000", "100000" })
+    int size;
+
+    private final IntArrays.Operations scalar = IntArrays.SCALAR;
+    private final IntArrays.Operations vector = new VectorIntArrays();
+    private int[] values;
+
+    @Setup
+    public void setup() {
+        var random = new Random(0);
+        values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = FIRST_DAY + random.nextInt(DAYS);
+        }
+    }
+
+    @Benchmark
+    public boolean scalarContains() {
+        return scalar.contains(values, -1);
+    }
+
+    @Benchmark
+    public boolean vectorContains() {
+        return vector.contains(values, -1);
+    }
+
+    @Benchmark
+    public int scalarCountInRange() {
+        return scalar.countInRange(values, FIRST_DAY + 100, FIRST_DAY + 200);
+    }
+
+    @Benchmark
+    public int vectorCountInRange() {
+        return vector.countInRange(values, FIRST_DAY + 100, FIRST_DAY + 200);
+    }
+
+    @Benchmark
+    public int scalarMin() {
+        return scalar.min(values);
+    }
+
+    @Benchmark
+    public int vectorMin() {
+        return vector.min(values);
+    }
+
+    @Benchmark
+    public long scalarSum() {
+        return scalar.sum(values);
+    }
+
+    @Benchmark
+    public long vectorSum() {
+        return vector.sum(values);
+    }
+}
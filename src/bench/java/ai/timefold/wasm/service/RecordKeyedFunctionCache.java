@@ -0,0 +1,94 @@
+package ai.timefold.wasm.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ai.timefold.wasm.service.classgen.WasmObject;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+
+/**
+ * The lookup and invalidation of the {@link FunctionCache} before it used primitive tables,
+ * kept as the baseline of {@link FunctionCacheBenchmark}.
+ *
+ * Entries are keyed by records of the function name and the argument pointers, and the versions of entities
+ * are boxed in a {@link ConcurrentHashMap}, so every call allocates a key and hashes the name.
+ */
+final class RecordKeyedFunctionCache {
+    private long globalVersion = 0;
+    private final Map<Integer, Long> entityVersions = new ConcurrentHashMap<>();
+
+    private record Entry(long value, long version) {}
+
+    private record UnaryKey(String functionName, int p1) {}
+    private record BinaryKey(String functionName, int p1, int p2) {}
+    private record TernaryKey(String functionName, int p1, int p2, int p3) {}
+    private record QuadKey(String functionName, int p1, int p2, int p3, int p4) {}
+    private record PentaKey(String functionName, int p1, int p2, int p3, int p4, int p5) {}
+
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final class Counts {
+        long hits;
+        long misses;
+        long staleReads;
+    }
+
+    private final Map<String, Counts> counts = new LinkedHashMap<>();
+
+    long call(String functionName, String statsName, ExportFunction function, WasmObject... arguments) {
+        var pointers = new long[arguments.length];
+        long version = 0;
+        for (int i = 0; i < arguments.length; i++) {
+            pointers[i] = arguments[i].getMemoryPointer();
+            version = Math.max(version, getDependencyVersion(arguments[i]));
+        }
+        var key = keyOf(functionName, pointers);
+        var callCounts = counts.computeIfAbsent(statsName, _ -> new Counts());
+        var entry = entries.get(key);
+        if (entry != null) {
+            if (entry.version == version) {
+                callCounts.hits++;
+                return entry.value;
+            }
+            callCounts.staleReads++;
+        }
+        callCounts.misses++;
+        long value = function.apply(pointers)[0];
+        entries.put(key, new Entry(value, version));
+        return value;
+    }
+
+    private static Object keyOf(String functionName, long[] pointers) {
+        return switch (pointers.length) {
+            case 1 -> new UnaryKey(functionName, (int) pointers[0]);
+            case 2 -> new BinaryKey(functionName, (int) pointers[0], (int) pointers[1]);
+            case 3 -> new TernaryKey(functionName, (int) pointers[0], (int) pointers[1], (int) pointers[2]);
+            case 4 -> new QuadKey(functionName, (int) pointers[0], (int) pointers[1], (int) pointers[2],
+                    (int) pointers[3]);
+            case 5 -> new PentaKey(functionName, (int) pointers[0], (int) pointers[1], (int) pointers[2],
+                    (int) pointers[3], (int) pointers[4]);
+            default -> throw new IllegalArgumentException("Unexpected value: " + pointers.length);
+        };
+    }
+
+    private long getVersion(int pointer) {
+        return entityVersions.getOrDefault(pointer, 0L);
+    }
+
+    private long getDependencyVersion(WasmObject object) {
+        long version = getVersion(object.getMemoryPointer());
+        for (int i = 0, count = object.getPlanningVariableCount(); i < count; i++) {
+            var value = object.getPlanningVariableValue(i);
+            if (value != null) {
+                version = Math.max(version, getVersion(value.getMemoryPointer()));
+            }
+        }
+        return version;
+    }
+
+    void invalidateEntity(int pointer) {
+        entityVersions.put(pointer, ++globalVersion);
+    }
+}
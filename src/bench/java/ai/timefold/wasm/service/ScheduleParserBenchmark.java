@@ -0,0 +1,180 @@
+package ai.timefold.wasm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dylibso.chicory.runtime.HostFunction;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the streaming hparseSchedule, with and without its arena, with the tree-based one it replaced,
+ * on the test domain of {@link TestUtils}: shifts referring to employees by planning id.
+ *
+ * Both run as the host function of an instance whose {@code alloc} bumps a pointer,
+ * which is reset before every parse so memory does not run out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleParserBenchmark {
+    private static final Set<String> LIST_FUNCTIONS = Set.of("hnewList", "hgetItem", "happend");
+
+    @Param({ "10000", "200000" })
+    int shiftCount;
+
+    @Param({ "100" })
+    int shiftsPerEmployee;
+
+    private Instance arenaInstance;
+    private Instance streamingInstance;
+    private Instance treeInstance;
+    private int scheduleLength;
+    private int arenaSchedule;
+    private int streamingSchedule;
+    private int treeSchedule;
+
+    @Setup
+    public void setup() {
+        var objectMapper = new ObjectMapper();
+        var planningProblem = TestUtils.getPlanningProblem();
+        var schedule = createSchedule().getBytes(StandardCharsets.UTF_8);
+        scheduleLength = schedule.length;
+
+        var arenaFunctions = new HostFunctionProvider(objectMapper, planningProblem).createHostFunctions();
+        arenaInstance = createInstance(getParseSchedule(arenaFunctions), arenaFunctions);
+        arenaSchedule = writeSchedule(arenaInstance, schedule);
+
+        var streamingProvider = new HostFunctionProvider(objectMapper, 0);
+        streamingProvider.bind(planningProblem);
+        var streamingFunctions = streamingProvider.createHostFunctions();
+        streamingInstance = createInstance(getParseSchedule(streamingFunctions), streamingFunctions);
+        streamingSchedule = writeSchedule(streamingInstance, schedule);
+
+        var treeParser = new TreeScheduleParser(objectMapper, planningProblem.getDomainObjectMap());
+        treeInstance = createInstance(treeParser.createParseSchedule(), streamingFunctions);
+        treeSchedule = writeSchedule(treeInstance, schedule);
+    }
+
+    private static HostFunction getParseSchedule(List<HostFunction> hostFunctions) {
+        return hostFunctions.stream()
+                .filter(function -> function.name().equals("hparseSchedule"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private String createSchedule() {
+        var employeeCount = Math.max(1, shiftCount / shiftsPerEmployee);
+        var out = new StringBuilder("{\"employees\": [");
+        for (int i = 0; i < employeeCount; i++) {
+            out.append(i > 0 ? ", " : "").append("{\"id\": ").append(i).append('}');
+        }
+        out.append("], \"shifts\": [");
+        for (int i = 0; i < shiftCount; i++) {
+            out.append(i > 0 ? ", " : "").append("{\"employee\": {\"id\": ").append(i % employeeCount).append("}}");
+        }
+        return out.append("]}").toString();
+    }
+
+    private static Instance createInstance(HostFunction parseSchedule, Iterable<HostFunction> hostFunctions) {
+        var wasm = Wat2Wasm.parse("""
+                (module
+                    (import "host" "hparseSchedule" (func $hparseSchedule (param i32 i32) (result i32)))
+                    (import "host" "hnewList" (func $hnewList (result i32)))
+                    (import "host" "hgetItem" (func $hgetItem (param i32 i32) (result i32)))
+                    (import "host" "happend" (func $happend (param i32 i32)))
+                    (memory 1024)
+                    (global $heap (mut i32) (i32.const 8))
+                    (global $heapStart (mut i32) (i32.const 8))
+                    (func (export "alloc") (param $size i32) (result i32)
+                        (local $out i32)
+                        (local.set $out (global.get $heap))
+                        (global.set $heap (i32.and (i32.add (i32.add (global.get $heap) (local.get $size)) (i32.const 7)) (i32.const -8)))
+                        (local.get $out)
+                    )
+                    (func (export "markHeap")
+                        (global.set $heapStart (global.get $heap))
+                    )
+                    (func (export "resetHeap")
+                        (global.set $heap (global.get $heapStart))
+                    )
+                    (func (export "parseSchedule") (param $length i32) (param $schedule i32) (result i32)
+                        (local.get $length) (local.get $schedule) (call $hparseSchedule)
+                    )
+                    (func (export "newList") (result i32)
+                        (call $hnewList)
+                    )
+                    (func (export "getItem") (param $list i32) (param $index i32) (result i32)
+                        (local.get $list) (local.get $index) (call $hgetItem)
+                    )
+                    (func (export "append") (param $list i32) (param $item i32)
+                        (local.get $list) (local.get $item) (call $happend)
+                    )
+                )
+                """);
+        var module = new WasmModuleCache(1, Long.MAX_VALUE).getOrCompile(wasm);
+        var importFunctions = new ArrayList<HostFunction>();
+        importFunctions.add(parseSchedule);
+        for (var function : hostFunctions) {
+            if (LIST_FUNCTIONS.contains(function.name())) {
+                importFunctions.add(function);
+            }
+        }
+        return Instance.builder(module.module())
+                .withMachineFactory(module.machineFactory())
+                .withImportValues(ImportValues.builder()
+                        .addFunction(importFunctions.toArray(HostFunction[]::new))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Write the schedule below the memory reset between parses.
+     */
+    private static int writeSchedule(Instance instance, byte[] schedule) {
+        var pointer = (int) instance.export("alloc").apply(schedule.length)[0];
+        instance.memory().write(pointer, schedule);
+        instance.export("markHeap").apply();
+        return pointer;
+    }
+
+    private long parse(Instance instance, int schedule) {
+        instance.export("resetHeap").apply();
+        return instance.export("parseSchedule").apply(scheduleLength, schedule)[0];
+    }
+
+    @Benchmark
+    public long arena() {
+        return parse(arenaInstance, arenaSchedule);
+    }
+
+    @Benchmark
+    public long streaming() {
+        return parse(streamingInstance, streamingSchedule);
+    }
+
+    @Benchmark
+    public long tree() {
+        return parse(treeInstance, treeSchedule);
+    }
+}
@@ -0,0 +1,99 @@
+package ai.timefold.wasm.service;
+
+import java.util.concurrent.TimeUnit;
+
+import ai.timefold.wasm.service.dto.MemoryBackend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+
+/**
+ * Compares the memory backends on the field reads done by generated domain classes.
+ *
+ * {@code accessorGetter} calls an exported WASM getter per object, like the getters generated for
+ * fields with an accessor; {@code directFieldRead} reads the field from linear memory on the host,
+ * like {@code WasmObject.readIntField}. Objects are spread over a large memory, so the heap backend
+ * pays for a memory the size of a big problem.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentMemoryBenchmark {
+    private static final int OBJECT_SIZE = 16;
+    private static final int FIELD_OFFSET = 4;
+
+    @Param({ "HEAP", "OFF_HEAP", "MAPPED" })
+    MemoryBackend memoryBackend;
+
+    @Param({ "4096" })
+    int memoryPages;
+
+    @Param({ "100000" })
+    int objectCount;
+
+    private Memory memory;
+    private ExportFunction getter;
+    private int[] pointers;
+
+    @Setup
+    public void setup() {
+        var wasm = Wat2Wasm.parse("""
+                (module
+                    (memory (export "memory") %d)
+                    (func (export "getValue") (param i32) (result i32)
+                        (i32.load offset=%d (local.get 0))
+                    )
+                )
+                """.formatted(memoryPages, FIELD_OFFSET));
+        var module = new WasmModuleCache(1, Long.MAX_VALUE).getOrCompile(wasm);
+        var instance = Instance.builder(module.module())
+                .withMemoryFactory(WasmInstancePool.getMemoryFactory(memoryBackend))
+                .withMachineFactory(module.machineFactory())
+                .build();
+        memory = instance.memory();
+        getter = instance.export("getValue");
+
+        // Spread the objects evenly over the memory, as a parsed problem would be
+        var stride = (Memory.bytes(memoryPages) / objectCount) & -OBJECT_SIZE;
+        pointers = new int[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            pointers[i] = i * stride;
+            memory.writeI32(pointers[i] + FIELD_OFFSET, i);
+        }
+    }
+
+    @Benchmark
+    public long accessorGetter() {
+        long sum = 0;
+        for (var pointer : pointers) {
+            sum += getter.apply(pointer)[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long directFieldRead() {
+        long sum = 0;
+        for (var pointer : pointers) {
+            sum += memory.readInt(pointer + FIELD_OFFSET);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,460 @@
+package ai.timefold.wasm.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.timefold.wasm.service.dto.DomainObject;
+import ai.timefold.wasm.service.dto.FieldDescriptor;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningScore;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.HostFunction;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wasm.types.FunctionType;
+import com.dylibso.chicory.wasm.types.ValType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The tree-based hparseSchedule that {@link ScheduleParser} replaced, kept as the baseline of {@link ScheduleParserBenchmark}.
+ *
+ * It reads the whole problem into a {@link JsonNode} tree, walks the solution's collections twice
+ * and computes the layout of every object it writes.
+ */
+final class TreeScheduleParser {
+    private static final int WORD_SIZE = Integer.BYTES;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, DomainObject> domainObjectMap;
+
+    TreeScheduleParser(ObjectMapper objectMapper, Map<String, DomainObject> domainObjectMap) {
+        this.objectMapper = objectMapper;
+        this.domainObjectMap = domainObjectMap;
+    }
+
+    /**
+     * Find the solution class (the one with a DomainObjectMapper).
+     */
+    private String findSolutionClass() {
+        for (var entry : domainObjectMap.entrySet()) {
+            if (entry.getValue().getDomainObjectMapper() != null) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("No solution class found (must have a DomainObjectMapper)");
+    }
+
+    /**
+     * Calculate the size of a domain object in WASM memory.
+     * Accounts for alignment requirements matching Rust's LayoutCalculator.
+     */
+    private int calculateObjectSize(DomainObject def) {
+        int currentOffset = 0;
+        int maxAlignment = WORD_SIZE;
+
+        for (FieldDescriptor field : def.getFieldDescriptorMap().values()) {
+            int fieldAlignment = getFieldAlignment(field.getType());
+            int fieldSize = getFieldSize(field.getType());
+
+            // Align current offset for this field
+            currentOffset = alignOffset(currentOffset, fieldAlignment);
+            currentOffset += fieldSize;
+
+            maxAlignment = Math.max(maxAlignment, fieldAlignment);
+        }
+
+        // Align total size to max alignment
+        currentOffset = alignOffset(currentOffset, maxAlignment);
+
+        return Math.max(currentOffset, WORD_SIZE); // Minimum 1 word
+    }
+
+    /**
+     * Get the size of a field type in bytes.
+     */
+    private int getFieldSize(String type) {
+        return switch (type) {
+            case "long", "double", "LocalDate", "LocalDateTime" -> 8; // LocalDate/LocalDateTime stored as long
+            default -> WORD_SIZE; // int, float, pointers, arrays all use 4 bytes
+        };
+    }
+
+    /**
+     * Get the alignment of a field type in bytes.
+     * Alignment must match Rust's WasmMemoryType alignment.
+     */
+    private int getFieldAlignment(String type) {
+        return switch (type) {
+            case "long", "double", "LocalDate", "LocalDateTime" -> 8; // 64-bit types need 8-byte alignment
+            default -> WORD_SIZE; // 32-bit types need 4-byte alignment
+        };
+    }
+
+    /**
+     * Align an offset to the required alignment boundary.
+     */
+    private int alignOffset(int offset, int alignment) {
+        if (offset % alignment == 0) {
+            return offset;
+        }
+        return ((offset / alignment) + 1) * alignment;
+    }
+
+    /**
+     * Check if a type is a primitive (not an object reference or array).
+     */
+    private boolean isPrimitiveType(String type) {
+        return type.equals("int") || type.equals("long") ||
+               type.equals("float") || type.equals("double") ||
+               type.equals("boolean") || type.equals("String") ||
+               type.equals("LocalDate") || type.equals("LocalDateTime");
+    }
+
+    /**
+     * Check if a field has the PlanningScore annotation.
+     */
+    private boolean hasPlanningScoreAnnotation(FieldDescriptor field) {
+        if (field.getAnnotations() == null) return false;
+        return field.getAnnotations().stream()
+                .anyMatch(a -> a instanceof DomainPlanningScore);
+    }
+
+
+
+    /**
+     * hparseSchedule(length: i32, ptr: i32) -> i32
+     *
+     * Parses a JSON schedule string from WASM memory and creates native WASM objects
+     * dynamically based on the domain model.
+     * Returns pointer to the allocated schedule structure.
+     */
+    HostFunction createParseSchedule() {
+        return new HostFunction("host", "hparseSchedule",
+                FunctionType.of(List.of(ValType.I32, ValType.I32), List.of(ValType.I32)),
+                (instance, args) -> {
+                    var scheduleString = instance.memory().readString((int) args[1], (int) args[0]);
+                    var alloc = instance.export("alloc");
+                    var newList = instance.export("newList");
+                    var append = instance.export("append");
+
+                    try {
+                        var parsedJson = objectMapper.reader().readTree(scheduleString);
+
+                        // Find solution class and its definition
+                        String solutionClassName = findSolutionClass();
+                        DomainObject solutionDef = domainObjectMap.get(solutionClassName);
+
+                        // We need to parse collections first to build lookup maps for references
+                        Map<String, Map<Object, Integer>> entityMaps = new HashMap<>();
+
+                        // First pass: parse all collections and build entity maps
+                        int offset = 0;
+                        for (var entry : solutionDef.getFieldDescriptorMap().entrySet()) {
+                            String fieldName = entry.getKey();
+                            FieldDescriptor field = entry.getValue();
+
+                            // Align offset for this field's type
+                            int fieldAlignment = getFieldAlignment(field.getType());
+                            offset = alignOffset(offset, fieldAlignment);
+
+                            if (field.getType().endsWith("[]") && parsedJson.has(fieldName)) {
+                                String elementType = field.getType().replace("[]", "");
+                                DomainObject elementDef = domainObjectMap.get(elementType);
+
+                                if (elementDef != null) {
+                                    var arrayNode = parsedJson.get(fieldName);
+                                    Map<Object, Integer> entityMap = new HashMap<>();
+
+                                    for (int i = 0; i < arrayNode.size(); i++) {
+                                        JsonNode elementJson = arrayNode.get(i);
+                                        // Find the planning ID field to use as key
+                                        Object planningId = findPlanningId(elementDef, elementJson);
+                                        if (planningId != null) {
+                                            entityMap.put(planningId, i);
+                                        }
+                                    }
+
+                                    entityMaps.put(elementType, entityMap);
+                                }
+                            }
+                            offset += getFieldSize(field.getType());
+                        }
+
+                        // Allocate solution object
+                        int solutionSize = calculateObjectSize(solutionDef);
+                        int solution = (int) alloc.apply(solutionSize)[0];
+
+                        // Second pass: parse all fields and write to memory
+                        offset = 0;
+                        Map<String, Integer> listPointers = new HashMap<>();
+
+                        for (var entry : solutionDef.getFieldDescriptorMap().entrySet()) {
+                            String fieldName = entry.getKey();
+                            FieldDescriptor field = entry.getValue();
+
+                            // Align offset for this field's type
+                            int fieldAlignment = getFieldAlignment(field.getType());
+                            offset = alignOffset(offset, fieldAlignment);
+
+                            if (hasPlanningScoreAnnotation(field)) {
+                                // Skip score field - it's not in the input JSON
+                                offset += getFieldSize(field.getType());
+                                continue;
+                            }
+
+                            if (field.getType().endsWith("[]")) {
+                                // Collection field
+                                int listPtr = parseCollectionField(instance, alloc, newList, append,
+                                        fieldName, field, parsedJson, entityMaps, listPointers);
+                                instance.memory().writeI32(solution + offset, listPtr);
+                                listPointers.put(field.getType().replace("[]", ""), listPtr);
+                            } else if (parsedJson.has(fieldName)) {
+                                // Primitive or object field
+                                writePrimitiveField(instance, alloc, solution + offset,
+                                        field, parsedJson.get(fieldName));
+                            }
+
+                            offset += getFieldSize(field.getType());
+                        }
+
+                        return new long[] { solution };
+                    } catch (JsonProcessingException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+    }
+
+    /**
+     * Find the planning ID value from a JSON object based on domain definition.
+     */
+    private Object findPlanningId(DomainObject def, JsonNode json) {
+        for (var entry : def.getFieldDescriptorMap().entrySet()) {
+            FieldDescriptor field = entry.getValue();
+            if (field.getAnnotations() != null) {
+                boolean isPlanningId = field.getAnnotations().stream()
+                        .anyMatch(a -> a.getClass().getSimpleName().equals("DomainPlanningId"));
+                if (isPlanningId && json.has(entry.getKey())) {
+                    JsonNode idNode = json.get(entry.getKey());
+                    if (idNode.isInt()) return idNode.asInt();
+                    if (idNode.isLong()) return idNode.asLong();
+                    if (idNode.isTextual()) return idNode.asText();
+                    return idNode.toString();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse a collection field from JSON and return the list pointer.
+     */
+    private int parseCollectionField(Instance instance, ExportFunction alloc, ExportFunction newList,
+            ExportFunction append, String fieldName, FieldDescriptor field, JsonNode json,
+            Map<String, Map<Object, Integer>> entityMaps, Map<String, Integer> listPointers) {
+
+        String elementType = field.getType().replace("[]", "");
+        DomainObject elementDef = domainObjectMap.get(elementType);
+
+        int list = (int) newList.apply()[0];
+
+        if (!json.has(fieldName)) {
+            return list;
+        }
+
+        JsonNode arrayNode = json.get(fieldName);
+
+        for (int i = 0; i < arrayNode.size(); i++) {
+            JsonNode elementJson = arrayNode.get(i);
+            int element = parseObject(instance, alloc, newList, append, elementType, elementDef,
+                    elementJson, entityMaps, listPointers);
+            append.apply(list, element);
+        }
+
+        return list;
+    }
+
+    /**
+     * Parse a single object from JSON and return its pointer.
+     */
+    private int parseObject(Instance instance, ExportFunction alloc, ExportFunction newList,
+            ExportFunction append, String className,
+            DomainObject def, JsonNode json, Map<String, Map<Object, Integer>> entityMaps,
+            Map<String, Integer> listPointers) {
+
+        int size = calculateObjectSize(def);
+        int obj = (int) alloc.apply(size)[0];
+
+        int offset = 0;
+        for (var entry : def.getFieldDescriptorMap().entrySet()) {
+            String fieldName = entry.getKey();
+            FieldDescriptor field = entry.getValue();
+
+            // Align offset for this field's type
+            int fieldAlignment = getFieldAlignment(field.getType());
+            offset = alignOffset(offset, fieldAlignment);
+
+            if (field.getType().endsWith("[]")) {
+                // Nested array field - create list and populate it
+                int listPtr = parseNestedList(instance, alloc, newList, append,
+                        fieldName, field, json, entityMaps, listPointers);
+                instance.memory().writeI32(obj + offset, listPtr);
+            } else if (json.has(fieldName)) {
+                JsonNode fieldValue = json.get(fieldName);
+
+                if (isPrimitiveType(field.getType())) {
+                    writePrimitiveField(instance, alloc, obj + offset, field, fieldValue);
+                } else {
+                    // Object reference - look up by planning ID
+                    writeObjectReference(instance, obj + offset, field.getType(), fieldValue,
+                            entityMaps, listPointers);
+                }
+            }
+
+            offset += getFieldSize(field.getType());
+        }
+
+        return obj;
+    }
+
+    /**
+     * Parse a nested list field within an entity (e.g., Employee.unavailableDates).
+     * Returns a list pointer (never null - returns empty list if field missing).
+     */
+    private int parseNestedList(Instance instance, ExportFunction alloc, ExportFunction newList,
+            ExportFunction append, String fieldName, FieldDescriptor field, JsonNode parentJson,
+            Map<String, Map<Object, Integer>> entityMaps, Map<String, Integer> listPointers) {
+
+        String elementType = field.getType().replace("[]", "");
+        int list = (int) newList.apply()[0];
+
+        if (!parentJson.has(fieldName)) {
+            return list; // Return empty list if field not present
+        }
+
+        JsonNode arrayNode = parentJson.get(fieldName);
+        for (int i = 0; i < arrayNode.size(); i++) {
+            JsonNode elementJson = arrayNode.get(i);
+
+            if (isPrimitiveType(elementType)) {
+                int value = switch (elementType) {
+                    case "int", "boolean" -> elementJson.asInt();
+                    case "LocalDate" -> {
+                        if (elementJson.isNumber()) {
+                            yield elementJson.asInt();
+                        } else {
+                            yield (int) LocalDate.parse(elementJson.asText()).toEpochDay();
+                        }
+                    }
+                    case "String" -> {
+                        String str = elementJson.asText();
+                        int strPtr = (int) alloc.apply(str.getBytes().length + 1)[0];
+                        instance.memory().writeCString(strPtr, str);
+                        yield strPtr;
+                    }
+                    default -> throw new IllegalArgumentException("Unsupported primitive list element type: " + elementType);
+                };
+                append.apply(list, value);
+            } else {
+                DomainObject elementDef = domainObjectMap.get(elementType);
+                if (elementDef != null) {
+                    int element = parseObject(instance, alloc, newList, append,
+                            elementType, elementDef, elementJson, entityMaps, listPointers);
+                    append.apply(list, element);
+                }
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Write a primitive field value to WASM memory.
+     */
+    private void writePrimitiveField(Instance instance, ExportFunction alloc, int ptr,
+            FieldDescriptor field, JsonNode value) {
+        switch (field.getType()) {
+            case "int" -> instance.memory().writeI32(ptr, value.asInt());
+            case "long" -> {
+                // Write 64-bit value as two 32-bit writes (little-endian)
+                long longVal = value.asLong();
+                instance.memory().writeI32(ptr, (int) longVal);
+                instance.memory().writeI32(ptr + 4, (int) (longVal >> 32));
+            }
+            case "float" -> instance.memory().writeF32(ptr, (float) value.asDouble());
+            case "double" -> instance.memory().writeF64(ptr, value.asDouble());
+            case "boolean" -> instance.memory().writeI32(ptr, value.asBoolean() ? 1 : 0);
+            case "String" -> {
+                String str = value.asText();
+                int strPtr = (int) alloc.apply(str.getBytes().length + 1)[0];
+                instance.memory().writeCString(strPtr, str);
+                instance.memory().writeI32(ptr, strPtr);
+            }
+            case "LocalDate" -> {
+                // Store as epoch day (long)
+                // Accept either ISO date string (e.g., "2024-01-15") or epoch day integer
+                long epochDay;
+                if (value.isNumber()) {
+                    epochDay = value.asLong();
+                } else {
+                    LocalDate date = LocalDate.parse(value.asText());
+                    epochDay = date.toEpochDay();
+                }
+                instance.memory().writeI32(ptr, (int) epochDay);
+                instance.memory().writeI32(ptr + 4, (int) (epochDay >> 32));
+            }
+            case "LocalDateTime" -> {
+                // Parse ISO datetime string (e.g., "2024-01-15T14:30:00") and store as epoch second (long)
+                LocalDateTime dateTime = LocalDateTime.parse(value.asText());
+                long epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
+                instance.memory().writeI32(ptr, (int) epochSecond);
+                instance.memory().writeI32(ptr + 4, (int) (epochSecond >> 32));
+            }
+            default -> {
+                // Unknown primitive type, try to write as int
+                if (value.isInt()) {
+                    instance.memory().writeI32(ptr, value.asInt());
+                }
+            }
+        }
+    }
+
+    /**
+     * Write an object reference by looking up the referenced entity.
+     */
+    private void writeObjectReference(Instance instance, int ptr, String refType, JsonNode value,
+            Map<String, Map<Object, Integer>> entityMaps, Map<String, Integer> listPointers) {
+
+        if (value.isNull()) {
+            instance.memory().writeI32(ptr, 0);
+            return;
+        }
+
+        // Get the entity map for this type
+        Map<Object, Integer> entityMap = entityMaps.get(refType);
+        Integer listPtr = listPointers.get(refType);
+
+        if (entityMap == null || listPtr == null) {
+            instance.memory().writeI32(ptr, 0);
+            return;
+        }
+
+        // Find the planning ID in the reference
+        DomainObject refDef = domainObjectMap.get(refType);
+        Object planningId = findPlanningId(refDef, value);
+
+        if (planningId != null && entityMap.containsKey(planningId)) {
+            int index = entityMap.get(planningId);
+            // Get the actual pointer from the list
+            var getItem = instance.export("getItem");
+            int entityPtr = (int) getItem.apply(listPtr, index)[0];
+            instance.memory().writeI32(ptr, entityPtr);
+        } else {
+            instance.memory().writeI32(ptr, 0);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ai.timefold.wasm.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+
+/**
+ * Compares the ways of calling a small WASM export from Java, on a getter and a bi-predicate
+ * like the ones generated domain classes and constraint functions call.
+ *
+ * {@code lookupAndApply*} looks the export up and passes a new argument array, like the generated getters did;
+ * {@code apply*} calls a cached export with varargs; {@code call*} calls a {@link WasmExport},
+ * which reuses its argument arrays, and {@code checkedCallGetter} the variant taking the object's instance.
+ * Run with {@code -prof gc}: the typed calls only allocate the result array Chicory returns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WasmCallBenchmark {
+    private static final int OBJECT_SIZE = 16;
+
+    @Param({ "1024" })
+    int objectCount;
+
+    private Instance instance;
+    private ExportFunction getterFunction;
+    private ExportFunction overlapsFunction;
+    private WasmExport getter;
+    private WasmExport overlaps;
+    private int next;
+
+    @Setup
+    public void setup() {
+        var wasm = Wat2Wasm.parse("""
+                (module
+                    (memory (export "memory") 1)
+                    (func (export "getValue") (param i32) (result i32)
+                        (i32.load offset=4 (local.get 0))
+                    )
+                    (func (export "overlaps") (param i32 i32) (result i32)
+                        (i32.eq (i32.load offset=4 (local.get 0)) (i32.load offset=4 (local.get 1)))
+                    )
+                )
+                """);
+        var module = new WasmModuleCache(1, Long.MAX_VALUE).getOrCompile(wasm);
+        instance = Instance.builder(module.module())
+                .withMachineFactory(module.machineFactory())
+                .build();
+        for (int i = 0; i < objectCount; i++) {
+            instance.memory().writeI32(i * OBJECT_SIZE + 4, i % 7);
+        }
+        getterFunction = instance.export("getValue");
+        overlapsFunction = instance.export("overlaps");
+        getter = new WasmExport(instance, "getValue");
+        overlaps = new WasmExport(instance, "overlaps");
+    }
+
+    private int nextPointer() {
+        int object = next;
+        next = (object + 1 == objectCount) ? 0 : object + 1;
+        return object * OBJECT_SIZE;
+    }
+
+    @Benchmark
+    public long lookupAndApplyGetter() {
+        return instance.export("getValue").apply(new long[] { nextPointer() })[0];
+    }
+
+    @Benchmark
+    public long applyGetter() {
+        return getterFunction.apply(nextPointer())[0];
+    }
+
+    @Benchmark
+    public long callGetter() {
+        return getter.call(nextPointer());
+    }
+
+    @Benchmark
+    public long checkedCallGetter() {
+        return getter.call(instance, nextPointer());
+    }
+
+    @Benchmark
+    public long applyOverlaps() {
+        return overlapsFunction.apply(nextPointer(), nextPointer())[0];
+    }
+
+    @Benchmark
+    public long callOverlaps() {
+        return overlaps.call(nextPointer(), nextPointer());
+    }
+}
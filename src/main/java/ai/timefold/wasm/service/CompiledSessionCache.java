@@ -0,0 +1,205 @@
+package ai.timefold.wasm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.wasm.service.classgen.DomainObjectClassLoader;
+import ai.timefold.wasm.service.dto.PlanningProblem;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningListVariable;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningVariable;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Caches the classes generated for a planning problem's schema, and the {@link SolverFactory} built from them.
+ *
+ * Generating the domain and constraint provider classes and building a solver factory,
+ * which defines the constraints and builds their node network, only depends on the domain,
+ * the constraints, the environment mode and the module. Requests that agree on all of them
+ * reuse a {@link CompiledSession} instead of generating and building everything again.
+ *
+ * The generated constraint functions call WASM through the session's {@link ExportCache},
+ * which is bound to the request's instance when the session is acquired. A session is used
+ * by one request at a time; concurrent requests with the same schema compile their own
+ * session, and both are cached when released.
+ *
+ * At most {@code wasm.session-cache.max-entries} idle sessions are kept, dropping those of the
+ * least recently used schema first. Setting it to 0 disables the cache.
+ */
+@ApplicationScoped
+public class CompiledSessionCache {
+    private static final Logger LOG = Logger.getLogger(CompiledSessionCache.class);
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+
+    // Access-ordered, so iteration starts at the least recently used schema; guarded by itself
+    private final LinkedHashMap<String, ArrayDeque<CompiledSession>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleCount;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    /**
+     * The classes generated for one schema and the solver factory using them.
+     * {@code key} is null for sessions compiled while the cache is disabled.
+     */
+    public record CompiledSession(@Nullable String key, DomainObjectClassLoader classLoader, Class<?> solutionClass,
+            SolverFactory<Object> solverFactory, ExportCache exports) {
+    }
+
+    @Inject
+    public CompiledSessionCache(ObjectMapper objectMapper,
+            @ConfigProperty(name = "wasm.session-cache.max-entries", defaultValue = "16") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Compute the key of the session of a planning problem: everything its generated classes and solver factory depend on.
+     * The problem itself and the termination are left out; the termination is applied when building each solver.
+     */
+    public String computeSessionKey(CompiledWasmModule module, PlanningProblem planningProblem) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+        update(digest, module.hash());
+        update(digest, planningProblem.getEnvironmentMode().name());
+        for (var domainEntry : planningProblem.getDomainObjectMap().entrySet()) {
+            var domainObject = domainEntry.getValue();
+            update(digest, domainEntry.getKey());
+            update(digest, String.valueOf(domainObject.getDomainObjectMapper()));
+            for (var fieldEntry : domainObject.getFieldDescriptorMap().entrySet()) {
+                var field = fieldEntry.getValue();
+                update(digest, fieldEntry.getKey());
+                update(digest, field.getType());
+                update(digest, String.valueOf(field.getAccessor()));
+                if (field.getAnnotations() != null) {
+                    for (var annotation : field.getAnnotations()) {
+                        update(digest, annotation.getClass().getSimpleName());
+                        if (annotation instanceof DomainPlanningVariable planningVariable) {
+                            update(digest, String.valueOf(planningVariable.allowsUnassigned()));
+                        } else if (annotation instanceof DomainPlanningListVariable planningListVariable) {
+                            update(digest, String.valueOf(planningListVariable.allowsUnassignedValues()));
+                        }
+                    }
+                }
+            }
+        }
+        for (var constraint : planningProblem.getConstraintList()) {
+            update(digest, constraint.getName());
+            try {
+                // The stream components serialize every function name they reference
+                update(digest, objectMapper.writeValueAsString(constraint));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Failed to serialize constraint (%s).".formatted(constraint.getName()), e);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, @Nullable String value) {
+        // Length-prefixed, so adjacent values cannot be confused with each other
+        var bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * Take an idle session compiled for the given key, bound to the given instance, or null if there is none.
+     */
+    public @Nullable CompiledSession acquire(String key, Instance wasmInstance) {
+        CompiledSession session = null;
+        synchronized (idle) {
+            var sessions = idle.get(key);
+            if (sessions != null) {
+                session = sessions.pollFirst();
+                idleCount--;
+                if (sessions.isEmpty()) {
+                    idle.remove(key);
+                }
+            }
+        }
+        if (session == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        session.exports().bind(wasmInstance);
+        return session;
+    }
+
+    /**
+     * Unbind the session from its instance and keep it for the next request with the same key.
+     */
+    public void release(CompiledSession session) {
+        session.exports().unbind();
+        if (!isEnabled() || session.key() == null) {
+            return;
+        }
+        synchronized (idle) {
+            idle.computeIfAbsent(session.key(), _ -> new ArrayDeque<>()).addFirst(session);
+            idleCount++;
+
+            var iterator = idle.values().iterator();
+            while (idleCount > maxEntries) {
+                var eldest = iterator.next();
+                eldest.pollLast();
+                idleCount--;
+                evictions.incrementAndGet();
+                if (eldest.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+        LOG.debugf("Cached compiled session (key=%s)", session.key().substring(0, 16));
+    }
+
+    public void recordCompilation(long nanos) {
+        compileNanos.addAndGet(nanos);
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (idle) {
+            size = idleCount;
+        }
+        return new Stats(size, maxEntries, hits.get(), misses.get(), evictions.get(),
+                TimeUnit.NANOSECONDS.toMillis(compileNanos.get()));
+    }
+
+    /**
+     * Snapshot of the session cache counters.
+     * {@code size} counts idle sessions; sessions in use by a request are not counted.
+     */
+    public record Stats(int size, int maxEntries, long hits, long misses, long evictions, long compileTimeMillis) {
+    }
+}
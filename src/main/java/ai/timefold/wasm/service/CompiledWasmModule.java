@@ -0,0 +1,28 @@
+package ai.timefold.wasm.service;
+
+import java.util.function.Function;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Machine;
+import com.dylibso.chicory.wasm.WasmModule;
+
+/**
+ * A parsed WASM module together with the machine factory compiled from it.
+ *
+ * The machine factory only accepts instances built from this exact
+ * {@link WasmModule} object, so the two must always be used together.
+ * {@code weight} is the approximate number of bytes the entry retains:
+ * the WASM binary plus the JVM classes compiled from it.
+ */
+public record CompiledWasmModule(String hash, WasmModule module, Function<Instance, Machine> machineFactory, long weight) {
+    /**
+     * The weight including classes compiled since the module was created,
+     * which is more than {@link #weight()} for modules compiled in the background.
+     */
+    public long currentWeight() {
+        if (machineFactory instanceof TieredMachineFactory tieredMachineFactory) {
+            return weight + tieredMachineFactory.getCompiledClassBytes();
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,205 @@
+package ai.timefold.wasm.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.timefold.wasm.service.dto.DomainObject;
+import ai.timefold.wasm.service.dto.FieldDescriptor;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningId;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningListVariable;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningScore;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The layout of a domain object in WASM memory: its size and the offset and type of each field.
+ *
+ * Layouts are computed once per domain model, instead of once per object read from or written to memory.
+ * Offsets account for alignment the same way as Rust's LayoutCalculator.
+ */
+public final class DomainLayout {
+    // Standard WASM word size: 4 bytes (32 bits = i32)
+    private static final int WORD_SIZE = Integer.BYTES;
+
+    public enum FieldType {
+        INT,
+        LONG,
+        FLOAT,
+        DOUBLE,
+        BOOLEAN,
+        STRING,
+        // Stored as epoch day (long)
+        LOCAL_DATE,
+        // Stored as epoch second (long)
+        LOCAL_DATE_TIME,
+        // Pointer to a list
+        LIST,
+        // Pointer to a domain object
+        OBJECT;
+
+        public static FieldType of(String type) {
+            if (type.endsWith("[]")) {
+                return LIST;
+            }
+            return switch (type) {
+                case "int" -> INT;
+                case "long" -> LONG;
+                case "float" -> FLOAT;
+                case "double" -> DOUBLE;
+                case "boolean" -> BOOLEAN;
+                case "String" -> STRING;
+                case "LocalDate" -> LOCAL_DATE;
+                case "LocalDateTime" -> LOCAL_DATE_TIME;
+                default -> OBJECT;
+            };
+        }
+
+        public boolean isPrimitive() {
+            return this != LIST && this != OBJECT;
+        }
+
+        /**
+         * Size and alignment in bytes, which must match Rust's WasmMemoryType.
+         */
+        int getSize() {
+            return switch (this) {
+                case LONG, DOUBLE, LOCAL_DATE, LOCAL_DATE_TIME -> 8;
+                default -> WORD_SIZE; // int, float, pointers, arrays all use 4 bytes
+            };
+        }
+    }
+
+    /**
+     * @param elementType the element type name, for list fields
+     * @param elementFieldType the element type, for list fields
+     * @param planningListVariable true for planning list variables, whose elements refer to those of the solution's collections
+     */
+    public record FieldLayout(int index, String name, String type, FieldType fieldType, int offset,
+            @Nullable String elementType, @Nullable FieldType elementFieldType, boolean planningScore,
+            boolean planningListVariable) {
+    }
+
+    private final String name;
+    private final boolean solution;
+    private final int size;
+    private final int alignment;
+    private final List<FieldLayout> fields;
+    private final Map<String, FieldLayout> fieldsByName;
+    private final @Nullable FieldLayout planningIdField;
+    private final boolean hasListFields;
+
+    private DomainLayout(String name, DomainObject domainObject) {
+        this.name = name;
+        this.solution = domainObject.getDomainObjectMapper() != null;
+
+        var fieldList = new ArrayList<FieldLayout>(domainObject.getFieldDescriptorMap().size());
+        FieldLayout idField = null;
+        int offset = 0;
+        int maxAlignment = WORD_SIZE;
+        for (var entry : domainObject.getFieldDescriptorMap().entrySet()) {
+            var field = entry.getValue();
+            var fieldType = FieldType.of(field.getType());
+            String elementType = null;
+            FieldType elementFieldType = null;
+            if (fieldType == FieldType.LIST) {
+                elementType = field.getType().substring(0, field.getType().length() - 2);
+                elementFieldType = FieldType.of(elementType);
+            }
+
+            // Each field is aligned to its own size
+            offset = alignOffset(offset, fieldType.getSize());
+            var fieldLayout = new FieldLayout(fieldList.size(), entry.getKey(), field.getType(), fieldType, offset,
+                    elementType, elementFieldType, hasAnnotation(field, DomainPlanningScore.class),
+                    fieldType == FieldType.LIST && hasAnnotation(field, DomainPlanningListVariable.class));
+            fieldList.add(fieldLayout);
+            if (idField == null && hasAnnotation(field, DomainPlanningId.class)) {
+                idField = fieldLayout;
+            }
+            offset += fieldType.getSize();
+            maxAlignment = Math.max(maxAlignment, fieldType.getSize());
+        }
+
+        this.fields = List.copyOf(fieldList);
+        this.fieldsByName = HashMap.newHashMap(fieldList.size());
+        for (var field : fieldList) {
+            fieldsByName.put(field.name(), field);
+        }
+        this.planningIdField = idField;
+        this.hasListFields = fieldList.stream().anyMatch(field -> field.fieldType() == FieldType.LIST);
+        // Align total size to max alignment; minimum 1 word
+        this.size = Math.max(alignOffset(offset, maxAlignment), WORD_SIZE);
+        this.alignment = maxAlignment;
+    }
+
+    /**
+     * Compute the layouts of all objects of a domain model, by class name.
+     */
+    public static Map<String, DomainLayout> of(Map<String, DomainObject> domainObjectMap) {
+        var out = new LinkedHashMap<String, DomainLayout>();
+        for (var entry : domainObjectMap.entrySet()) {
+            out.put(entry.getKey(), new DomainLayout(entry.getKey(), entry.getValue()));
+        }
+        return out;
+    }
+
+    private static boolean hasAnnotation(FieldDescriptor field, Class<?> annotationClass) {
+        return field.getAnnotations() != null && field.getAnnotations().stream().anyMatch(annotationClass::isInstance);
+    }
+
+    /**
+     * Align an offset to the required alignment boundary.
+     */
+    private static int alignOffset(int offset, int alignment) {
+        if (offset % alignment == 0) {
+            return offset;
+        }
+        return ((offset / alignment) + 1) * alignment;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * True for the solution class, the one with a DomainObjectMapper.
+     */
+    public boolean isSolution() {
+        return solution;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The alignment of the object, that of its most aligned field.
+     */
+    public int getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * The fields in declaration order, which is also their order in memory.
+     */
+    public List<FieldLayout> getFields() {
+        return fields;
+    }
+
+    public @Nullable FieldLayout getField(String fieldName) {
+        return fieldsByName.get(fieldName);
+    }
+
+    /**
+     * The first field annotated with {@link DomainPlanningId}, or null if there is none.
+     */
+    public @Nullable FieldLayout getPlanningIdField() {
+        return planningIdField;
+    }
+
+    public boolean hasListFields() {
+        return hasListFields;
+    }
+}
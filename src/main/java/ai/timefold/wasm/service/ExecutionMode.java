@@ -0,0 +1,17 @@
+package ai.timefold.wasm.service;
+
+/**
+ * How WASM functions are executed, configured through {@code wasm.execution-mode}.
+ */
+public enum ExecutionMode {
+    /**
+     * Compile the whole module to JVM bytecode before its first instance runs.
+     * Best for long solves, which amortize the compilation.
+     */
+    COMPILED,
+    /**
+     * Start on the interpreter and switch to compiled code once the background compilation finishes.
+     * Best for short solves, where compiling upfront would be most of the latency.
+     */
+    TIERED
+}
@@ -3,7 +3,8 @@ package ai.timefold.wasm.service;
 import java.util.HashMap;
 import java.util.Map;
 
-import com.dylibso.chicory.runtime.ExportFunction;
+import org.jspecify.annotations.Nullable;
+
 import com.dylibso.chicory.runtime.Instance;
 
 /**
@@ -12,10 +13,14 @@ import com.dylibso.chicory.runtime.Instance;
  * Each call to instance.export(name) does a string lookup in the export table.
  * Since constraint evaluation calls the same functions thousands of times per solve,
  * caching these lookups significantly reduces overhead.
+ *
+ * The cached exports follow the instance the cache is bound to, so functions built on them
+ * keep working when a {@link CompiledSessionCache.CompiledSession} is reused with another instance.
  */
 public class ExportCache {
-    private final Instance instance;
-    private final Map<String, ExportFunction> cache = new HashMap<>();
+    private @Nullable Instance instance;
+    private final Map<String, WasmExport> cache = new HashMap<>();
+    private final FunctionCache.FunctionIds functionIds = new FunctionCache.FunctionIds();
 
     public ExportCache(Instance instance) {
         this.instance = instance;
@@ -23,9 +28,29 @@ public class ExportCache {
 
     /**
      * Get an exported function by name, using cache if available.
+     * The returned function calls the export of whichever instance the cache is bound to at call time.
+     */
+    public WasmExport get(String name) {
+        return cache.computeIfAbsent(name, exportName -> new WasmExport(instance, exportName));
+    }
+
+    /**
+     * Memoize an export for the {@link FunctionCache}, with ids that are dense among the functions of this cache.
+     *
+     * @param statsName the name the hits and misses of the function are counted under
+     * @param maxEntries the most results of the function that are cached, or 0 for no limit but the cache's
+     */
+    public FunctionCache.Memoized memoize(String name, String statsName, int maxEntries) {
+        return functionIds.memoize(name, statsName, maxEntries, get(name));
+    }
+
+    /**
+     * Get an export of the current request's cache, for the static fields of generated classes.
+     * Outside of a request, the export is not bound to any instance, so its calls look the export up.
      */
-    public ExportFunction get(String name) {
-        return cache.computeIfAbsent(name, instance::export);
+    public static WasmExport current(String name) {
+        var exports = SolverResource.EXPORT_CACHE.get();
+        return (exports != null) ? exports.get(name) : new WasmExport(null, name);
     }
 
     /**
@@ -34,4 +59,24 @@ public class ExportCache {
     public Instance getInstance() {
         return instance;
     }
+
+    /**
+     * Point every cached export at the same export of another instance of the module.
+     */
+    public void bind(Instance instance) {
+        this.instance = instance;
+        for (var export : cache.values()) {
+            export.bind(instance);
+        }
+    }
+
+    /**
+     * Drop the references to the instance, so a cached session does not keep it alive.
+     */
+    public void unbind() {
+        instance = null;
+        for (var export : cache.values()) {
+            export.bind(null);
+        }
+    }
 }
@@ -1,359 +1,521 @@
 package ai.timefold.wasm.service;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
-import org.jboss.logging.Logger;
+import ai.timefold.wasm.service.classgen.WasmObject;
+import ai.timefold.wasm.service.dto.FunctionCacheStats;
+import ai.timefold.wasm.service.dto.MemoizedFunctionStats;
+
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.ExportFunction;
 
 /**
- * Caches ALL WASM function call results to avoid redundant calls.
+ * Caches the results of memoized WASM functions (see {@code "memoize"} in a constraint's functions),
+ * so the constraint streams re-evaluating a tuple do not call into WASM again.
  *
  * Uses VERSION-BASED LAZY INVALIDATION:
- * - Each entity pointer has a version number
- * - Cache entries store versions at time of caching
- * - On lookup, version mismatch = cache miss (no iteration needed)
- * - invalidateEntity() is O(1) - just increment version
+ * - Each entity pointer has a version, stamped from a counter every time it is invalidated
+ * - A call depends on its arguments and on the objects their planning variables point to,
+ *   since a function may navigate to them; its entry stores the latest version among them
+ * - On lookup, a later version = cache miss (no iteration needed)
+ * - invalidateEntity() is O(1) - just stamps a new version
+ *
+ * Setting a planning variable invalidates the entity and the objects it pointed to and now points to,
+ * whose set of referring entities changed; so a fact navigating back to the entities assigned to it
+ * is invalidated along with them.
+ * Navigation beyond that, such as from a fact to the facts of the entities assigned to it, is not tracked;
+ * functions doing it must not be memoized.
  *
- * This solves the scaling problem where iterating through all keys
- * for an entity became O(n) with large datasets.
+ * A cache belongs to the one solver thread of a request, so its tables are plain open addressing arrays:
+ * functions are keyed by an id from {@link FunctionIds#memoize} and their argument pointers packed into longs,
+ * so a hit neither allocates nor hashes a string.
+ * The ids are dense within the {@link ExportCache} of a compiled session, so the per-function counters
+ * are sized by the functions of the session and the ids are collected with it.
+ *
+ * The cache holds at most {@code maxEntries} results,
+ * and a function at most the {@code maxEntries} it was memoized with.
+ * Beyond that, a CLOCK hand evicts entries that were not hit since it last passed them.
+ * Each insert also moves a purge hand over a few entries, removing those with an argument invalidated since,
+ * so the results for moves the solver did not keep do not pile up until the cache is full.
  */
 public class FunctionCache {
-    private static final Logger LOG = Logger.getLogger(FunctionCache.class);
-
-    // Debug counters
-    private final AtomicLong hits = new AtomicLong();
-    private final AtomicLong misses = new AtomicLong();
-    private final AtomicLong invalidations = new AtomicLong();
-    private final AtomicLong staleReads = new AtomicLong();
+    private static final int INITIAL_CAPACITY = 1024;
+    // Up to 5 argument pointers, two per long
+    private static final int KEY_STRIDE = 3;
+    private static final int ARITY_BITS = 3;
+    private static final int TOMBSTONE = -1;
+    // Entries the purge hand checks per insert
+    private static final int PURGE_STEPS = 2;
+    // Entries the CLOCK hand passes looking for an entry of a function at its budget, before giving up caching it
+    private static final int BUDGET_EVICTION_STEPS = 64;
+    // Function, 3 argument longs, value, version and reference bit
+    private static final int ENTRY_BYTES = Integer.BYTES + (KEY_STRIDE + 2) * Long.BYTES + 1;
+    private static final int VERSION_ENTRY_BYTES = Integer.BYTES + Long.BYTES;
 
-    // Version per entity pointer - O(1) invalidation
-    private final Map<Integer, Long> entityVersions = new ConcurrentHashMap<>();
-    private long globalVersion = 0;
-
-    // Cache entry includes versions of all involved entities
-    private record BoolEntry(boolean value, long v1) {}
-    private record BoolEntry2(boolean value, long v1, long v2) {}
-    private record BoolEntry3(boolean value, long v1, long v2, long v3) {}
-    private record BoolEntry4(boolean value, long v1, long v2, long v3, long v4) {}
-    private record BoolEntry5(boolean value, long v1, long v2, long v3, long v4, long v5) {}
-
-    private record IntEntry(int value, long v1) {}
-    private record IntEntry2(int value, long v1, long v2) {}
-    private record IntEntry3(int value, long v1, long v2, long v3) {}
-    private record IntEntry4(int value, long v1, long v2, long v3, long v4) {}
-    private record IntEntry5(int value, long v1, long v2, long v3, long v4, long v5) {}
-
-    private record LongEntry(long value, long v1) {}
-    private record LongEntry2(long value, long v1, long v2) {}
-    private record LongEntry3(long value, long v1, long v2, long v3) {}
-    private record LongEntry4(long value, long v1, long v2, long v3, long v4) {}
-
-    // Cache keys (without version - version checked on read)
-    private record UnaryKey(String functionName, int p1) {}
-    private record BinaryKey(String functionName, int p1, int p2) {}
-    private record TernaryKey(String functionName, int p1, int p2, int p3) {}
-    private record QuadKey(String functionName, int p1, int p2, int p3, int p4) {}
-    private record PentaKey(String functionName, int p1, int p2, int p3, int p4, int p5) {}
-
-    // Boolean caches
-    private final Map<UnaryKey, BoolEntry> boolUnary = new ConcurrentHashMap<>();
-    private final Map<BinaryKey, BoolEntry2> boolBinary = new ConcurrentHashMap<>();
-    private final Map<TernaryKey, BoolEntry3> boolTernary = new ConcurrentHashMap<>();
-    private final Map<QuadKey, BoolEntry4> boolQuad = new ConcurrentHashMap<>();
-    private final Map<PentaKey, BoolEntry5> boolPenta = new ConcurrentHashMap<>();
-
-    // Integer caches
-    private final Map<UnaryKey, IntEntry> intUnary = new ConcurrentHashMap<>();
-    private final Map<BinaryKey, IntEntry2> intBinary = new ConcurrentHashMap<>();
-    private final Map<TernaryKey, IntEntry3> intTernary = new ConcurrentHashMap<>();
-    private final Map<QuadKey, IntEntry4> intQuad = new ConcurrentHashMap<>();
-    private final Map<PentaKey, IntEntry5> intPenta = new ConcurrentHashMap<>();
-
-    // Long caches
-    private final Map<UnaryKey, LongEntry> longUnary = new ConcurrentHashMap<>();
-    private final Map<BinaryKey, LongEntry2> longBinary = new ConcurrentHashMap<>();
-    private final Map<TernaryKey, LongEntry3> longTernary = new ConcurrentHashMap<>();
-    private final Map<QuadKey, LongEntry4> longQuad = new ConcurrentHashMap<>();
-
-    private long getVersion(int pointer) {
-        return entityVersions.getOrDefault(pointer, 0L);
+    /**
+     * A memoized WASM function, with the ids of its name and of the name its calls are counted under.
+     *
+     * @param maxEntries the most results of the function that are cached, or 0 for no limit but the cache's
+     */
+    public record Memoized(int id, int statsId, String statsName, int maxEntries, ExportFunction function) {
     }
 
-    // ========== Boolean (Predicate) Methods ==========
-
-    public Boolean getBool1(String fn, int p1) {
-        var entry = boolUnary.get(new UnaryKey(fn, p1));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1)) {
-            staleReads.incrementAndGet();
-            return null;
+    /**
+     * Assigns dense ids to the names of the memoized functions of a compiled session
+     * and of the constraint and function pairs their calls are counted under.
+     * A session's functions are created by one request at a time, so the ids are not synchronized.
+     */
+    public static final class FunctionIds {
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        /**
+         * Memoize a function, resolving the ids of its names.
+         *
+         * @param statsName the name the hits and misses of the function are counted under
+         * @param maxEntries the most results of the function that are cached, or 0 for no limit but the cache's
+         */
+        public Memoized memoize(String functionName, String statsName, int maxEntries, ExportFunction function) {
+            return new Memoized(idOf(functionName), idOf(statsName), statsName, maxEntries, function);
         }
-        hits.incrementAndGet();
-        return entry.value;
-    }
-
-    public void putBool1(String fn, int p1, boolean result) {
-        misses.incrementAndGet();
-        boolUnary.put(new UnaryKey(fn, p1), new BoolEntry(result, getVersion(p1)));
-    }
 
-    public Boolean getBool2(String fn, int p1, int p2) {
-        var entry = boolBinary.get(new BinaryKey(fn, p1, p2));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2)) {
-            staleReads.incrementAndGet();
-            return null;
-        }
-        long h = hits.incrementAndGet();
-        if (h % 10000 == 0) {
-            LOG.infof("Cache stats: hits=%d, misses=%d, stale=%d, invalidations=%d",
-                    h, misses.get(), staleReads.get(), invalidations.get());
+        private int idOf(String name) {
+            return ids.computeIfAbsent(name, _ -> ids.size());
         }
-        return entry.value;
     }
 
-    public void putBool2(String fn, int p1, int p2, boolean result) {
-        misses.incrementAndGet();
-        boolBinary.put(new BinaryKey(fn, p1, p2), new BoolEntry2(result, getVersion(p1), getVersion(p2)));
-    }
+    private final int maxEntries;
+    private final int maxCapacity;
+
+    // Stamped on every invalidation, so versions only grow; unchanged dependencies keep the latest the same
+    private long globalVersion = 0;
 
-    public Boolean getBool3(String fn, int p1, int p2, int p3) {
-        var entry = boolTernary.get(new TernaryKey(fn, p1, p2, p3));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3)) {
-            staleReads.incrementAndGet();
-            return null;
+    // Open addressing on the entity pointer, which is never 0 for an object
+    private int[] versionPointers = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int versionCount;
+
+    // Open addressing on the function id and arity (never 0) and the packed argument pointers;
+    // evicted entries leave a tombstone, which inserts reuse
+    private int[] entryFunctions;
+    private long[] entryArguments;
+    private long[] entryValues;
+    private long[] entryVersions;
+    private boolean[] entryReferenced;
+    private int entryCount;
+    private int tombstoneCount;
+    private int clockHand;
+    private int purgeHand;
+    private long evictions;
+    private long purged;
+
+    // Entries by function id
+    private int[] functionEntryCounts = new int[0];
+
+    // Per constraint and function, by stats id
+    private long[] hits = new long[0];
+    private long[] misses = new long[0];
+    private long[] staleReads = new long[0];
+    private String[] statsNames = new String[0];
+
+    // Arguments of the calls on a miss, by arity; WASM copies them on entry, so they can be reused
+    private final long[][] callArguments = { null, new long[1], new long[2], new long[3], new long[4], new long[5] };
+
+    public FunctionCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries (%d) must be positive".formatted(maxEntries));
         }
-        hits.incrementAndGet();
-        return entry.value;
+        this.maxEntries = maxEntries;
+        this.maxCapacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(maxEntries) << 2);
+        int capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+        this.entryFunctions = new int[capacity];
+        this.entryArguments = new long[capacity * KEY_STRIDE];
+        this.entryValues = new long[capacity];
+        this.entryVersions = new long[capacity];
+        this.entryReferenced = new boolean[capacity];
     }
 
-    public void putBool3(String fn, int p1, int p2, int p3, boolean result) {
-        misses.incrementAndGet();
-        boolTernary.put(new TernaryKey(fn, p1, p2, p3), new BoolEntry3(result, getVersion(p1), getVersion(p2), getVersion(p3)));
+    public long call(Memoized function, WasmObject a) {
+        return call(function, 1, a, null, null, null, null);
     }
 
-    public Boolean getBool4(String fn, int p1, int p2, int p3, int p4) {
-        var entry = boolQuad.get(new QuadKey(fn, p1, p2, p3, p4));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3) || entry.v4 != getVersion(p4)) {
-            staleReads.incrementAndGet();
-            return null;
-        }
-        hits.incrementAndGet();
-        return entry.value;
+    public long call(Memoized function, WasmObject a, WasmObject b) {
+        return call(function, 2, a, b, null, null, null);
     }
 
-    public void putBool4(String fn, int p1, int p2, int p3, int p4, boolean result) {
-        misses.incrementAndGet();
-        boolQuad.put(new QuadKey(fn, p1, p2, p3, p4), new BoolEntry4(result, getVersion(p1), getVersion(p2), getVersion(p3), getVersion(p4)));
+    public long call(Memoized function, WasmObject a, WasmObject b, WasmObject c) {
+        return call(function, 3, a, b, c, null, null);
     }
 
-    public Boolean getBool5(String fn, int p1, int p2, int p3, int p4, int p5) {
-        var entry = boolPenta.get(new PentaKey(fn, p1, p2, p3, p4, p5));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3) ||
-                entry.v4 != getVersion(p4) || entry.v5 != getVersion(p5)) {
-            staleReads.incrementAndGet();
-            return null;
-        }
-        hits.incrementAndGet();
-        return entry.value;
+    public long call(Memoized function, WasmObject a, WasmObject b, WasmObject c, WasmObject d) {
+        return call(function, 4, a, b, c, d, null);
     }
 
-    public void putBool5(String fn, int p1, int p2, int p3, int p4, int p5, boolean result) {
-        misses.incrementAndGet();
-        boolPenta.put(new PentaKey(fn, p1, p2, p3, p4, p5),
-                new BoolEntry5(result, getVersion(p1), getVersion(p2), getVersion(p3), getVersion(p4), getVersion(p5)));
+    public long call(Memoized function, WasmObject a, WasmObject b, WasmObject c, WasmObject d, WasmObject e) {
+        return call(function, 5, a, b, c, d, e);
     }
 
-    // ========== Integer (Mapper/ToInt) Methods ==========
+    /**
+     * Call the function with the pointers of the given objects, unless it was called with them before
+     * and neither they nor the objects their planning variables point to were invalidated since.
+     *
+     * @return the first result of the function
+     */
+    private long call(Memoized function, int arity, WasmObject a, @Nullable WasmObject b, @Nullable WasmObject c,
+            @Nullable WasmObject d, @Nullable WasmObject e) {
+        int p1 = a.getMemoryPointer();
+        int p2 = (b != null) ? b.getMemoryPointer() : 0;
+        int p3 = (c != null) ? c.getMemoryPointer() : 0;
+        int p4 = (d != null) ? d.getMemoryPointer() : 0;
+        int p5 = (e != null) ? e.getMemoryPointer() : 0;
+        long version = getDependencyVersion(a);
+        if (b != null) {
+            version = Math.max(version, getDependencyVersion(b));
+        }
+        if (c != null) {
+            version = Math.max(version, getDependencyVersion(c));
+        }
+        if (d != null) {
+            version = Math.max(version, getDependencyVersion(d));
+        }
+        if (e != null) {
+            version = Math.max(version, getDependencyVersion(e));
+        }
 
-    public Integer getInt1(String fn, int p1) {
-        var entry = intUnary.get(new UnaryKey(fn, p1));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1)) {
-            staleReads.incrementAndGet();
-            return null;
+        int tag = (function.id() << ARITY_BITS) | arity;
+        long key1 = pack(p1, p2);
+        long key2 = pack(p3, p4);
+        long key3 = pack(p5, 0);
+        int statsId = function.statsId();
+        if (statsId >= hits.length) {
+            growCounts(statsId + 1);
+        }
+        int slot = slotOf(tag, key1, key2, key3);
+        if (slot >= 0) {
+            if (entryVersions[slot] == version) {
+                hits[statsId]++;
+                entryReferenced[slot] = true;
+                return entryValues[slot];
+            }
+            staleReads[statsId]++;
+        }
+        misses[statsId]++;
+        statsNames[statsId] = function.statsName();
+        var arguments = callArguments[arity];
+        arguments[0] = p1;
+        if (arity > 1) {
+            arguments[1] = p2;
         }
-        hits.incrementAndGet();
-        return entry.value;
+        if (arity > 2) {
+            arguments[2] = p3;
+        }
+        if (arity > 3) {
+            arguments[3] = p4;
+        }
+        if (arity > 4) {
+            arguments[4] = p5;
+        }
+        long value = function.function().apply(arguments)[0];
+        if (slot < 0) {
+            slot = insert(function, tag, key1, key2, key3);
+            if (slot < 0) {
+                // The function is at its budget and none of its entries could be evicted
+                return value;
+            }
+        }
+        entryValues[slot] = value;
+        entryVersions[slot] = version;
+        entryReferenced[slot] = true;
+        return value;
     }
 
-    public void putInt1(String fn, int p1, int result) {
-        misses.incrementAndGet();
-        intUnary.put(new UnaryKey(fn, p1), new IntEntry(result, getVersion(p1)));
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFF_FFFFL);
     }
 
-    public Integer getInt2(String fn, int p1, int p2) {
-        var entry = intBinary.get(new BinaryKey(fn, p1, p2));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2)) {
-            staleReads.incrementAndGet();
-            return null;
-        }
-        hits.incrementAndGet();
-        return entry.value;
+    private static int hash(int tag, long key1, long key2, long key3) {
+        long hash = tag * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ key1) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ key2) * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ key3) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
     }
 
-    public void putInt2(String fn, int p1, int p2, int result) {
-        misses.incrementAndGet();
-        intBinary.put(new BinaryKey(fn, p1, p2), new IntEntry2(result, getVersion(p1), getVersion(p2)));
+    /**
+     * The slot of the given key, or -1 if it has none.
+     */
+    private int slotOf(int tag, long key1, long key2, long key3) {
+        int mask = entryFunctions.length - 1;
+        for (int slot = hash(tag, key1, key2, key3) & mask; entryFunctions[slot] != 0; slot = (slot + 1) & mask) {
+            if (entryFunctions[slot] == tag && entryArguments[slot * KEY_STRIDE] == key1
+                    && entryArguments[slot * KEY_STRIDE + 1] == key2 && entryArguments[slot * KEY_STRIDE + 2] == key3) {
+                return slot;
+            }
+        }
+        return -1;
     }
 
-    public Integer getInt3(String fn, int p1, int p2, int p3) {
-        var entry = intTernary.get(new TernaryKey(fn, p1, p2, p3));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3)) {
-            staleReads.incrementAndGet();
-            return null;
+    /**
+     * The first empty slot or tombstone for the given key, which is not in the table.
+     */
+    private int freeSlotOf(int tag, long key1, long key2, long key3) {
+        int mask = entryFunctions.length - 1;
+        int slot = hash(tag, key1, key2, key3) & mask;
+        while (entryFunctions[slot] > 0) {
+            slot = (slot + 1) & mask;
         }
-        hits.incrementAndGet();
-        return entry.value;
+        return slot;
     }
 
-    public void putInt3(String fn, int p1, int p2, int p3, int result) {
-        misses.incrementAndGet();
-        intTernary.put(new TernaryKey(fn, p1, p2, p3), new IntEntry3(result, getVersion(p1), getVersion(p2), getVersion(p3)));
+    /**
+     * Make room for and add the key of a new entry, whose value the caller sets.
+     *
+     * @return its slot, or -1 if its function is at its budget and none of its entries could be evicted
+     */
+    private int insert(Memoized function, int tag, long key1, long key2, long key3) {
+        int functionId = function.id();
+        if (functionId >= functionEntryCounts.length) {
+            functionEntryCounts = Arrays.copyOf(functionEntryCounts, functionId + 1);
+        }
+        purgeStale();
+        if (function.maxEntries() > 0 && functionEntryCounts[functionId] >= function.maxEntries()
+                && !evict(functionId, BUDGET_EVICTION_STEPS)) {
+            return -1;
+        }
+        if (entryCount >= maxEntries) {
+            evict(-1, Integer.MAX_VALUE);
+        }
+        int capacity = entryFunctions.length;
+        if ((entryCount + 1) * 2 > capacity && capacity < maxCapacity) {
+            rehash(capacity * 2);
+        } else if ((entryCount + tombstoneCount + 1) * 4 > capacity * 3) {
+            rehash(capacity);
+        }
+        int slot = freeSlotOf(tag, key1, key2, key3);
+        if (entryFunctions[slot] == TOMBSTONE) {
+            tombstoneCount--;
+        }
+        entryCount++;
+        functionEntryCounts[functionId]++;
+        entryFunctions[slot] = tag;
+        entryArguments[slot * KEY_STRIDE] = key1;
+        entryArguments[slot * KEY_STRIDE + 1] = key2;
+        entryArguments[slot * KEY_STRIDE + 2] = key3;
+        return slot;
     }
 
-    public Integer getInt4(String fn, int p1, int p2, int p3, int p4) {
-        var entry = intQuad.get(new QuadKey(fn, p1, p2, p3, p4));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3) || entry.v4 != getVersion(p4)) {
-            staleReads.incrementAndGet();
-            return null;
+    /**
+     * Move the CLOCK hand until it evicts an entry: a stale one, or one that was not hit since the hand last passed.
+     *
+     * @param functionId the function whose entries to evict, or -1 for any
+     * @param maxSteps the most slots to pass
+     * @return whether an entry was evicted
+     */
+    private boolean evict(int functionId, int maxSteps) {
+        int mask = entryFunctions.length - 1;
+        for (int step = 0; step < maxSteps && entryCount > 0; step++) {
+            int slot = clockHand;
+            clockHand = (slot + 1) & mask;
+            int function = entryFunctions[slot];
+            if (function <= 0 || (functionId >= 0 && (function >>> ARITY_BITS) != functionId)) {
+                continue;
+            }
+            if (isStale(slot)) {
+                remove(slot);
+                purged++;
+                return true;
+            }
+            if (entryReferenced[slot]) {
+                entryReferenced[slot] = false;
+            } else {
+                remove(slot);
+                evictions++;
+                return true;
+            }
         }
-        hits.incrementAndGet();
-        return entry.value;
+        return false;
     }
 
-    public void putInt4(String fn, int p1, int p2, int p3, int p4, int result) {
-        misses.incrementAndGet();
-        intQuad.put(new QuadKey(fn, p1, p2, p3, p4), new IntEntry4(result, getVersion(p1), getVersion(p2), getVersion(p3), getVersion(p4)));
+    /**
+     * Move the purge hand over a few slots, removing the entries one of whose arguments was invalidated since.
+     */
+    private void purgeStale() {
+        if (versionCount == 0) {
+            return;
+        }
+        int mask = entryFunctions.length - 1;
+        for (int step = 0; step < PURGE_STEPS; step++) {
+            int slot = purgeHand;
+            purgeHand = (slot + 1) & mask;
+            if (entryFunctions[slot] > 0 && isStale(slot)) {
+                remove(slot);
+                purged++;
+            }
+        }
     }
 
-    public Integer getInt5(String fn, int p1, int p2, int p3, int p4, int p5) {
-        var entry = intPenta.get(new PentaKey(fn, p1, p2, p3, p4, p5));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3) ||
-                entry.v4 != getVersion(p4) || entry.v5 != getVersion(p5)) {
-            staleReads.incrementAndGet();
-            return null;
+    /**
+     * Whether one of the arguments of the entry was invalidated after it was cached.
+     * The objects their planning variables point to are not known from the pointers, so it may be stale nonetheless.
+     */
+    private boolean isStale(int slot) {
+        int arity = entryFunctions[slot] & ((1 << ARITY_BITS) - 1);
+        long version = entryVersions[slot];
+        for (int i = 0; i < arity; i++) {
+            long key = entryArguments[slot * KEY_STRIDE + i / 2];
+            int pointer = (i % 2 == 0) ? (int) (key >>> 32) : (int) key;
+            if (getVersion(pointer) > version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(int slot) {
+        functionEntryCounts[entryFunctions[slot] >>> ARITY_BITS]--;
+        entryFunctions[slot] = TOMBSTONE;
+        entryReferenced[slot] = false;
+        entryCount--;
+        tombstoneCount++;
+    }
+
+    private void rehash(int capacity) {
+        var oldFunctions = entryFunctions;
+        var oldArguments = entryArguments;
+        var oldValues = entryValues;
+        var oldVersions = entryVersions;
+        var oldReferenced = entryReferenced;
+        entryFunctions = new int[capacity];
+        entryArguments = new long[capacity * KEY_STRIDE];
+        entryValues = new long[capacity];
+        entryVersions = new long[capacity];
+        entryReferenced = new boolean[capacity];
+        tombstoneCount = 0;
+        clockHand = 0;
+        purgeHand = 0;
+        for (int i = 0; i < oldFunctions.length; i++) {
+            if (oldFunctions[i] > 0) {
+                long key1 = oldArguments[i * KEY_STRIDE];
+                long key2 = oldArguments[i * KEY_STRIDE + 1];
+                long key3 = oldArguments[i * KEY_STRIDE + 2];
+                int slot = freeSlotOf(oldFunctions[i], key1, key2, key3);
+                entryFunctions[slot] = oldFunctions[i];
+                entryArguments[slot * KEY_STRIDE] = key1;
+                entryArguments[slot * KEY_STRIDE + 1] = key2;
+                entryArguments[slot * KEY_STRIDE + 2] = key3;
+                entryValues[slot] = oldValues[i];
+                entryVersions[slot] = oldVersions[i];
+                entryReferenced[slot] = oldReferenced[i];
+            }
         }
-        hits.incrementAndGet();
-        return entry.value;
     }
 
-    public void putInt5(String fn, int p1, int p2, int p3, int p4, int p5, int result) {
-        misses.incrementAndGet();
-        intPenta.put(new PentaKey(fn, p1, p2, p3, p4, p5),
-                new IntEntry5(result, getVersion(p1), getVersion(p2), getVersion(p3), getVersion(p4), getVersion(p5)));
+    private void growCounts(int size) {
+        hits = Arrays.copyOf(hits, size);
+        misses = Arrays.copyOf(misses, size);
+        staleReads = Arrays.copyOf(staleReads, size);
+        statsNames = Arrays.copyOf(statsNames, size);
     }
 
-    // ========== Long (ToLong) Methods ==========
+    // ========== Versions ==========
 
-    public Long getLong1(String fn, int p1) {
-        var entry = longUnary.get(new UnaryKey(fn, p1));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1)) {
-            staleReads.incrementAndGet();
-            return null;
+    private long getVersion(int pointer) {
+        if (pointer == 0 || versionCount == 0) {
+            return 0;
         }
-        hits.incrementAndGet();
-        return entry.value;
-    }
-
-    public void putLong1(String fn, int p1, long result) {
-        misses.incrementAndGet();
-        longUnary.put(new UnaryKey(fn, p1), new LongEntry(result, getVersion(p1)));
+        int slot = versionSlotOf(pointer, versionPointers);
+        return (versionPointers[slot] == pointer) ? versions[slot] : 0;
     }
 
-    public Long getLong2(String fn, int p1, int p2) {
-        var entry = longBinary.get(new BinaryKey(fn, p1, p2));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2)) {
-            staleReads.incrementAndGet();
-            return null;
+    /**
+     * The latest version of the object and the objects its planning variables point to.
+     */
+    private long getDependencyVersion(WasmObject object) {
+        long version = getVersion(object.getMemoryPointer());
+        for (int i = 0, count = object.getPlanningVariableCount(); i < count; i++) {
+            var value = object.getPlanningVariableValue(i);
+            if (value != null) {
+                version = Math.max(version, getVersion(value.getMemoryPointer()));
+            }
         }
-        hits.incrementAndGet();
-        return entry.value;
+        return version;
     }
 
-    public void putLong2(String fn, int p1, int p2, long result) {
-        misses.incrementAndGet();
-        longBinary.put(new BinaryKey(fn, p1, p2), new LongEntry2(result, getVersion(p1), getVersion(p2)));
-    }
-
-    public Long getLong3(String fn, int p1, int p2, int p3) {
-        var entry = longTernary.get(new TernaryKey(fn, p1, p2, p3));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3)) {
-            staleReads.incrementAndGet();
-            return null;
+    private static int versionSlotOf(int pointer, int[] pointers) {
+        int mask = pointers.length - 1;
+        int hash = pointer * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (pointers[slot] != 0 && pointers[slot] != pointer) {
+            slot = (slot + 1) & mask;
         }
-        hits.incrementAndGet();
-        return entry.value;
-    }
-
-    public void putLong3(String fn, int p1, int p2, int p3, long result) {
-        misses.incrementAndGet();
-        longTernary.put(new TernaryKey(fn, p1, p2, p3), new LongEntry3(result, getVersion(p1), getVersion(p2), getVersion(p3)));
-    }
-
-    public Long getLong4(String fn, int p1, int p2, int p3, int p4) {
-        var entry = longQuad.get(new QuadKey(fn, p1, p2, p3, p4));
-        if (entry == null) return null;
-        if (entry.v1 != getVersion(p1) || entry.v2 != getVersion(p2) || entry.v3 != getVersion(p3) || entry.v4 != getVersion(p4)) {
-            staleReads.incrementAndGet();
-            return null;
+        return slot;
+    }
+
+    private void resizeVersions(int capacity) {
+        var oldPointers = versionPointers;
+        var oldVersions = versions;
+        versionPointers = new int[capacity];
+        versions = new long[capacity];
+        for (int i = 0; i < oldPointers.length; i++) {
+            if (oldPointers[i] != 0) {
+                int slot = versionSlotOf(oldPointers[i], versionPointers);
+                versionPointers[slot] = oldPointers[i];
+                versions[slot] = oldVersions[i];
+            }
         }
-        hits.incrementAndGet();
-        return entry.value;
-    }
-
-    public void putLong4(String fn, int p1, int p2, int p3, int p4, long result) {
-        misses.incrementAndGet();
-        longQuad.put(new QuadKey(fn, p1, p2, p3, p4), new LongEntry4(result, getVersion(p1), getVersion(p2), getVersion(p3), getVersion(p4)));
     }
 
     // ========== O(1) Invalidation ==========
 
     /**
      * Invalidate all cached results involving the given entity pointer.
-     * O(1) - just bumps the version number. Stale entries detected lazily on read.
+     * O(1) - just stamps a new version. Stale entries detected lazily on read, or by the purge hand.
      */
     public void invalidateEntity(int pointer) {
-        long newVersion = entityVersions.compute(pointer, (k, v) -> (v == null ? 0L : v) + 1);
-        long inv = invalidations.incrementAndGet();
-        globalVersion++;
+        if (pointer == 0) {
+            return;
+        }
+        int slot = versionSlotOf(pointer, versionPointers);
+        if (versionPointers[slot] == 0) {
+            if ((versionCount + 1) * 2 > versionPointers.length) {
+                resizeVersions(versionPointers.length * 2);
+                slot = versionSlotOf(pointer, versionPointers);
+            }
+            versionCount++;
+            versionPointers[slot] = pointer;
+        }
+        versions[slot] = ++globalVersion;
+    }
 
-        if (inv % 1000 == 0) {
-            int totalEntries = boolUnary.size() + boolBinary.size() + boolTernary.size() + boolQuad.size() + boolPenta.size() +
-                    intUnary.size() + intBinary.size() + intTernary.size() + intQuad.size() + intPenta.size() +
-                    longUnary.size() + longBinary.size() + longTernary.size() + longQuad.size();
-            LOG.infof("Inv#%d ptr=%x newVer=%d entities=%d entries=%d",
-                    inv, pointer, newVersion, entityVersions.size(), totalEntries);
+    /**
+     * Invalidate the entity and the objects its planning variables point to;
+     * called both before and after a planning variable is set, so the old and the new value are invalidated.
+     */
+    public void invalidatePlanningVariables(WasmObject entity) {
+        if (entryCount == 0) {
+            // Nothing to invalidate; entries put later record the versions as they are then
+            return;
+        }
+        invalidateEntity(entity.getMemoryPointer());
+        for (int i = 0, count = entity.getPlanningVariableCount(); i < count; i++) {
+            var value = entity.getPlanningVariableValue(i);
+            if (value != null) {
+                invalidateEntity(value.getMemoryPointer());
+            }
         }
     }
 
     public void clear() {
-        boolUnary.clear();
-        boolBinary.clear();
-        boolTernary.clear();
-        boolQuad.clear();
-        boolPenta.clear();
-        intUnary.clear();
-        intBinary.clear();
-        intTernary.clear();
-        intQuad.clear();
-        intPenta.clear();
-        longUnary.clear();
-        longBinary.clear();
-        longTernary.clear();
-        longQuad.clear();
-        entityVersions.clear();
+        Arrays.fill(entryFunctions, 0);
+        Arrays.fill(entryReferenced, false);
+        Arrays.fill(functionEntryCounts, 0);
+        entryCount = 0;
+        tombstoneCount = 0;
+        Arrays.fill(versionPointers, 0);
+        versionCount = 0;
         globalVersion++;
     }
 
@@ -361,11 +523,26 @@ public class FunctionCache {
         return globalVersion;
     }
 
+    /**
+     * The occupancy of the cache and the hits and misses of the memoized functions called so far,
+     * by constraint and function.
+     */
+    public FunctionCacheStats getFunctionStats() {
+        var functions = new LinkedHashMap<String, MemoizedFunctionStats>();
+        for (int id = 0; id < hits.length; id++) {
+            if (hits[id] + misses[id] > 0) {
+                functions.put(statsNames[id], MemoizedFunctionStats.of(hits[id], misses[id], staleReads[id]));
+            }
+        }
+        long bytes = (long) entryFunctions.length * ENTRY_BYTES + (long) versionPointers.length * VERSION_ENTRY_BYTES;
+        return new FunctionCacheStats(entryCount, maxEntries, (double) entryCount / maxEntries, evictions, purged,
+                bytes, functions);
+    }
+
     public String getStats() {
-        int boolCount = boolUnary.size() + boolBinary.size() + boolTernary.size() + boolQuad.size() + boolPenta.size();
-        int intCount = intUnary.size() + intBinary.size() + intTernary.size() + intQuad.size() + intPenta.size();
-        int longCount = longUnary.size() + longBinary.size() + longTernary.size() + longQuad.size();
-        return String.format("FunctionCache[bool=%d, int=%d, long=%d, entities=%d, hits=%d, misses=%d, stale=%d]",
-                boolCount, intCount, longCount, entityVersions.size(), hits.get(), misses.get(), staleReads.get());
+        return String.format(
+                "FunctionCache[entries=%d, entities=%d, hits=%d, misses=%d, stale=%d, evictions=%d, purged=%d]",
+                entryCount, versionCount, Arrays.stream(hits).sum(), Arrays.stream(misses).sum(),
+                Arrays.stream(staleReads).sum(), evictions, purged);
     }
 }
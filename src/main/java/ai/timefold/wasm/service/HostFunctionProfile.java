@@ -0,0 +1,144 @@
+package ai.timefold.wasm.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.timefold.wasm.service.dto.HostFunctionCallStats;
+
+import com.dylibso.chicory.runtime.HostFunction;
+
+/**
+ * Call counts and latency histograms of host functions, recorded by wrapping their handles.
+ *
+ * A {@link HostFunctionProvider} records into its own profile, which is only called from the thread
+ * running its instance; the instance pool merges them into a service-wide one, which is synchronized.
+ *
+ * Latencies go into log-linear buckets: one per power of two, split in {@value #SUB_BUCKETS} linear steps,
+ * so a percentile is known within 1/8 of its value with a few hundred counters per function.
+ */
+final class HostFunctionProfile {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final String[] names;
+    private final long[] calls;
+    private final long[] totalNanos;
+    private final long[][] histograms;
+
+    HostFunctionProfile(List<String> names) {
+        this.names = names.toArray(String[]::new);
+        this.calls = new long[this.names.length];
+        this.totalNanos = new long[this.names.length];
+        this.histograms = new long[this.names.length][BUCKETS];
+    }
+
+    /**
+     * A profile of the same functions without any calls.
+     */
+    HostFunctionProfile emptyCopy() {
+        return new HostFunctionProfile(List.of(names));
+    }
+
+    /**
+     * The given host functions, with handles recording each call into this profile;
+     * the functions must be the ones this profile was created with, in the same order.
+     */
+    List<HostFunction> instrument(List<HostFunction> hostFunctions) {
+        var instrumented = new ArrayList<HostFunction>(hostFunctions.size());
+        for (int i = 0; i < hostFunctions.size(); i++) {
+            int function = i;
+            var hostFunction = hostFunctions.get(function);
+            var handle = hostFunction.handle();
+            instrumented.add(new HostFunction(hostFunction.module(), hostFunction.name(), hostFunction.functionType(),
+                    (instance, args) -> {
+                        long start = System.nanoTime();
+                        try {
+                            return handle.apply(instance, args);
+                        } finally {
+                            record(function, System.nanoTime() - start);
+                        }
+                    }));
+        }
+        return instrumented;
+    }
+
+    void record(int function, long nanos) {
+        calls[function]++;
+        totalNanos[function] += nanos;
+        histograms[function][bucketOf(nanos)]++;
+    }
+
+    void reset() {
+        Arrays.fill(calls, 0);
+        Arrays.fill(totalNanos, 0);
+        for (var histogram : histograms) {
+            Arrays.fill(histogram, 0);
+        }
+    }
+
+    /**
+     * Add the calls recorded in another profile of the same functions to this one.
+     */
+    synchronized void add(HostFunctionProfile other) {
+        for (int function = 0; function < names.length; function++) {
+            calls[function] += other.calls[function];
+            totalNanos[function] += other.totalNanos[function];
+            var histogram = histograms[function];
+            var otherHistogram = other.histograms[function];
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                histogram[bucket] += otherHistogram[bucket];
+            }
+        }
+    }
+
+    /**
+     * The stats of the host functions that were called, by name.
+     */
+    synchronized Map<String, HostFunctionCallStats> getStats() {
+        var stats = new LinkedHashMap<String, HostFunctionCallStats>();
+        for (int function = 0; function < names.length; function++) {
+            if (calls[function] > 0) {
+                stats.put(names[function], new HostFunctionCallStats(calls[function], totalNanos[function],
+                        percentile(function, 0.5), percentile(function, 0.99)));
+            }
+        }
+        return stats;
+    }
+
+    private long percentile(int function, double quantile) {
+        long rank = (long) Math.ceil(quantile * calls[function]);
+        long seen = 0;
+        var histogram = histograms[function];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= rank) {
+                return bucketUpperBound(bucket);
+            }
+        }
+        return bucketUpperBound(BUCKETS - 1);
+    }
+
+    // Values below SUB_BUCKETS have a bucket each; above, the exponent selects the range
+    // and the SUB_BUCKET_BITS bits below the highest one the step within it
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) | (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowerBound = (long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lowerBound + ((1L << shift) - 1);
+    }
+}
@@ -1,25 +1,22 @@
 package ai.timefold.wasm.service;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
-import ai.timefold.wasm.service.dto.DomainObject;
-import ai.timefold.wasm.service.dto.FieldDescriptor;
 import ai.timefold.wasm.service.dto.PlanningProblem;
-import ai.timefold.wasm.service.dto.annotation.DomainPlanningScore;
 
-import com.dylibso.chicory.runtime.ExportFunction;
+import org.jspecify.annotations.Nullable;
+
 import com.dylibso.chicory.runtime.HostFunction;
 import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
 import com.dylibso.chicory.wasm.types.FunctionType;
 import com.dylibso.chicory.wasm.types.ValType;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 
 /**
  * Provides host functions required by WASM modules for solving planning problems.
@@ -38,129 +35,171 @@ public class HostFunctionProvider {
 
     // List structure offsets (12 bytes total):
     // [size: i32][capacity: i32][backing_array_ptr: i32]
-    private static final int SIZE_OFFSET = 0;
-    private static final int CAPACITY_OFFSET = WORD_SIZE;
-    private static final int BACKING_ARRAY_OFFSET = WORD_SIZE * 2;
-    private static final int LIST_HEADER_SIZE = WORD_SIZE * 3;
-    private static final int INITIAL_CAPACITY = 4;
+    static final int SIZE_OFFSET = 0;
+    static final int CAPACITY_OFFSET = WORD_SIZE;
+    static final int BACKING_ARRAY_OFFSET = WORD_SIZE * 2;
+    static final int LIST_HEADER_SIZE = WORD_SIZE * 3;
+    static final int INITIAL_CAPACITY = 4;
+
+    static final int DEFAULT_ARENA_CHUNK_SIZE = 1024 * 1024;
+
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+    private static final int MIN_SCHEDULE_STRING_CAPACITY = 4096;
 
     private final ObjectMapper objectMapper;
-    private final Map<String, DomainObject> domainObjectMap;
+    private final int arenaChunkSize;
+    private final boolean profiled;
+    // Calls of the functions of createHostFunctions() during the current request, if profiled
+    private @Nullable HostFunctionProfile profile;
+    private Map<String, DomainLayout> domainLayouts;
+    private @Nullable String deallocator;
+    // Expected size of the next hscheduleString, from the previous one; solutions of a problem are of similar size
+    private int scheduleStringCapacity = MIN_SCHEDULE_STRING_CAPACITY;
+    // The strings of the problem, which the first hparseSchedule after bind() interns.
+    // Later ones parse clones of the solution, whose strings the module frees with them, so they are not interned.
+    private @Nullable StringTable stringTable;
+    // Indexes of the problem's lists, which are dropped as the lists are changed
+    private @Nullable ListIndexes listIndexes;
+    private boolean problemParsed;
 
     public HostFunctionProvider(ObjectMapper objectMapper, PlanningProblem planningProblem) {
-        this.objectMapper = objectMapper;
-        this.domainObjectMap = planningProblem.getDomainObjectMap();
+        this(objectMapper);
+        bind(planningProblem);
     }
 
     /**
-     * Creates all host functions needed by the WASM module.
-     *
-     * @return List of host functions to be imported into the WASM instance
+     * Creates a provider that is not bound to a planning problem yet.
+     * Pooled WASM instances keep their host functions for their whole lifetime,
+     * so the provider is rebound to the domain model of each request that uses the instance.
      */
-    public List<HostFunction> createHostFunctions() {
-        return List.of(
-                createParseSchedule(),
-                createScheduleString(),
-                createNewList(),
-                createGetItem(),
-                createSetItem(),
-                createSize(),
-                createAppend(),
-                createInsert(),
-                createRemove(),
-                createRound(),
-                createStringEquals(),
-                createListContainsString()
-        );
+    public HostFunctionProvider(ObjectMapper objectMapper) {
+        this(objectMapper, DEFAULT_ARENA_CHUNK_SIZE);
     }
 
-    // ========== Domain Model Helpers ==========
-
     /**
-     * Find the solution class (the one with a DomainObjectMapper).
+     * @param arenaChunkSize the size of the first chunk of memory {@code hparseSchedule} allocates
+     *        for a schedule's objects, or 0 to allocate every object separately
      */
-    private String findSolutionClass() {
-        for (var entry : domainObjectMap.entrySet()) {
-            if (entry.getValue().getDomainObjectMapper() != null) {
-                return entry.getKey();
-            }
-        }
-        throw new IllegalStateException("No solution class found (must have a DomainObjectMapper)");
+    public HostFunctionProvider(ObjectMapper objectMapper, int arenaChunkSize) {
+        this(objectMapper, arenaChunkSize, false);
     }
 
     /**
-     * Calculate the size of a domain object in WASM memory.
-     * Accounts for alignment requirements matching Rust's LayoutCalculator.
+     * @param profiled whether to count the calls of the host functions and measure their latency;
+     *        otherwise their handles are not wrapped at all
      */
-    private int calculateObjectSize(DomainObject def) {
-        int currentOffset = 0;
-        int maxAlignment = WORD_SIZE;
-
-        for (FieldDescriptor field : def.getFieldDescriptorMap().values()) {
-            int fieldAlignment = getFieldAlignment(field.getType());
-            int fieldSize = getFieldSize(field.getType());
-
-            // Align current offset for this field
-            currentOffset = alignOffset(currentOffset, fieldAlignment);
-            currentOffset += fieldSize;
+    public HostFunctionProvider(ObjectMapper objectMapper, int arenaChunkSize, boolean profiled) {
+        this.objectMapper = objectMapper;
+        this.arenaChunkSize = arenaChunkSize;
+        this.profiled = profiled;
+        this.domainLayouts = Map.of();
+    }
 
-            maxAlignment = Math.max(maxAlignment, fieldAlignment);
+    /**
+     * Use the domain model of the given planning problem for the host functions that depend on it.
+     * The memory layouts of its objects are computed here, once per request.
+     */
+    public void bind(PlanningProblem planningProblem) {
+        this.domainLayouts = DomainLayout.of(planningProblem.getDomainObjectMap());
+        this.deallocator = planningProblem.getDeallocator();
+        this.stringTable = null;
+        this.listIndexes = null;
+        this.problemParsed = false;
+        if (profile != null) {
+            profile.reset();
         }
+    }
 
-        // Align total size to max alignment
-        currentOffset = alignOffset(currentOffset, maxAlignment);
+    public void unbind() {
+        this.domainLayouts = Map.of();
+        this.deallocator = null;
+        this.scheduleStringCapacity = MIN_SCHEDULE_STRING_CAPACITY;
+        this.stringTable = null;
+        this.listIndexes = null;
+        this.problemParsed = false;
+    }
 
-        return Math.max(currentOffset, WORD_SIZE); // Minimum 1 word
+    /**
+     * The strings interned while parsing the problem, to be kept along with a snapshot of its memory.
+     */
+    @Nullable
+    StringTable getStringTable() {
+        return stringTable;
     }
 
     /**
-     * Get the size of a field type in bytes.
+     * The indexes of the problem's lists, to be kept along with a snapshot of its memory.
      */
-    private int getFieldSize(String type) {
-        return switch (type) {
-            case "long", "double", "LocalDate", "LocalDateTime" -> 8; // LocalDate/LocalDateTime stored as long
-            default -> WORD_SIZE; // int, float, pointers, arrays all use 4 bytes
-        };
+    @Nullable
+    ListIndexes getListIndexes() {
+        return listIndexes;
     }
 
     /**
-     * Get the alignment of a field type in bytes.
-     * Alignment must match Rust's WasmMemoryType alignment.
+     * The calls of the host functions since the provider was bound, or null if they are not profiled.
      */
-    private int getFieldAlignment(String type) {
-        return switch (type) {
-            case "long", "double", "LocalDate", "LocalDateTime" -> 8; // 64-bit types need 8-byte alignment
-            default -> WORD_SIZE; // 32-bit types need 4-byte alignment
-        };
+    @Nullable
+    HostFunctionProfile getProfile() {
+        return profile;
     }
 
     /**
-     * Align an offset to the required alignment boundary.
+     * Use the strings and list indexes of a problem whose memory was restored from a snapshot instead of parsed.
      */
-    private int alignOffset(int offset, int alignment) {
-        if (offset % alignment == 0) {
-            return offset;
-        }
-        return ((offset / alignment) + 1) * alignment;
+    void restoreProblemIndexes(@Nullable StringTable stringTable, @Nullable ListIndexes listIndexes) {
+        this.stringTable = stringTable;
+        // Changed lists are invalidated in a copy, so the snapshot's indexes stay valid
+        this.listIndexes = (listIndexes != null) ? listIndexes.copy() : null;
+        this.problemParsed = true;
     }
 
     /**
-     * Check if a type is a primitive (not an object reference or array).
+     * Creates all host functions needed by the WASM module.
+     *
+     * @return List of host functions to be imported into the WASM instance
      */
-    private boolean isPrimitiveType(String type) {
-        return type.equals("int") || type.equals("long") ||
-               type.equals("float") || type.equals("double") ||
-               type.equals("boolean") || type.equals("String") ||
-               type.equals("LocalDate") || type.equals("LocalDateTime");
+    public List<HostFunction> createHostFunctions() {
+        var hostFunctions = List.of(
+                createParseSchedule(),
+                createScheduleString(),
+                createNewList(),
+                createGetItem(),
+                createSetItem(),
+                createSize(),
+                createAppend(),
+                createInsert(),
+                createRemove(),
+                createRound(),
+                createStringEquals(),
+                createListContainsString(),
+                createListContainsInt(),
+                createListCountInRange(),
+                createListMin(),
+                createListMax(),
+                createListSum(),
+                createListSortedIntersectionSize()
+        );
+        if (!profiled) {
+            return hostFunctions;
+        }
+        if (profile == null) {
+            profile = new HostFunctionProfile(hostFunctions.stream().map(HostFunction::name).toList());
+        }
+        return profile.instrument(hostFunctions);
     }
 
+    // ========== Domain Model Helpers ==========
+
     /**
-     * Check if a field has the PlanningScore annotation.
+     * Find the layout of the solution class (the one with a DomainObjectMapper).
      */
-    private boolean hasPlanningScoreAnnotation(FieldDescriptor field) {
-        if (field.getAnnotations() == null) return false;
-        return field.getAnnotations().stream()
-                .anyMatch(a -> a instanceof DomainPlanningScore);
+    private DomainLayout findSolutionLayout() {
+        for (var layout : domainLayouts.values()) {
+            if (layout.isSolution()) {
+                return layout;
+            }
+        }
+        throw new IllegalStateException("No solution class found (must have a DomainObjectMapper)");
     }
 
     // ========== hparseSchedule ==========
@@ -171,330 +210,77 @@ public class HostFunctionProvider {
      * Parses a JSON schedule string from WASM memory and creates native WASM objects
      * dynamically based on the domain model.
      * Returns pointer to the allocated schedule structure.
+     *
+     * The schedule may also be encoded as CBOR, which is recognized by its first byte.
+     *
+     * When the module uses the host's lists, the objects of the problem are placed in a few large chunks,
+     * instead of calling alloc and append for each of them (see {@link ParseArena}).
+     * Clones of the solution are parsed with alloc, since the module frees them object by object.
+     *
+     * The strings of the problem are interned in a {@link StringTable},
+     * so {@code hstringEquals} compares them by pointer.
+     * When the module uses the host's lists, the problem's lists of ints and strings are also indexed
+     * in {@link ListIndexes} for the membership functions; the host list functions drop the index of a list
+     * they change, but a module with its own lists changes them unseen, so its lists are scanned.
      */
     private HostFunction createParseSchedule() {
         return new HostFunction("host", "hparseSchedule",
                 FunctionType.of(List.of(ValType.I32, ValType.I32), List.of(ValType.I32)),
                 (instance, args) -> {
-                    var scheduleString = instance.memory().readString((int) args[1], (int) args[0]);
-                    var alloc = instance.export("alloc");
-                    var newList = instance.export("newList");
-                    var append = instance.export("append");
-
-                    try {
-                        var parsedJson = objectMapper.reader().readTree(scheduleString);
-
-                        // Find solution class and its definition
-                        String solutionClassName = findSolutionClass();
-                        DomainObject solutionDef = domainObjectMap.get(solutionClassName);
-
-                        // We need to parse collections first to build lookup maps for references
-                        Map<String, Map<Object, Integer>> entityMaps = new HashMap<>();
-
-                        // First pass: parse all collections and build entity maps
-                        int offset = 0;
-                        for (var entry : solutionDef.getFieldDescriptorMap().entrySet()) {
-                            String fieldName = entry.getKey();
-                            FieldDescriptor field = entry.getValue();
-
-                            // Align offset for this field's type
-                            int fieldAlignment = getFieldAlignment(field.getType());
-                            offset = alignOffset(offset, fieldAlignment);
-
-                            if (field.getType().endsWith("[]") && parsedJson.has(fieldName)) {
-                                String elementType = field.getType().replace("[]", "");
-                                DomainObject elementDef = domainObjectMap.get(elementType);
-
-                                if (elementDef != null) {
-                                    var arrayNode = parsedJson.get(fieldName);
-                                    Map<Object, Integer> entityMap = new HashMap<>();
-
-                                    for (int i = 0; i < arrayNode.size(); i++) {
-                                        JsonNode elementJson = arrayNode.get(i);
-                                        // Find the planning ID field to use as key
-                                        Object planningId = findPlanningId(elementDef, elementJson);
-                                        if (planningId != null) {
-                                            entityMap.put(planningId, i);
-                                        }
-                                    }
-
-                                    entityMaps.put(elementType, entityMap);
-                                }
-                            }
-                            offset += getFieldSize(field.getType());
+                    var schedule = instance.memory().readBytes((int) args[1], (int) args[0]);
+                    try (var parser = createScheduleParser(schedule)) {
+                        var hostLists = usesHostLists(instance);
+                        // Clones are freed by the module's deallocator, so only the problem may live in chunks
+                        var arena = (!problemParsed && arenaChunkSize > 0 && hostLists)
+                                ? new ParseArena(instance.memory(), instance.export("alloc"), arenaChunkSize)
+                                : null;
+                        var strings = problemParsed ? null : new StringTable();
+                        var lists = (!problemParsed && hostLists) ? new ListIndexes() : null;
+                        problemParsed = true;
+                        var scheduleParser = new ScheduleParser(instance, domainLayouts, parser, arena, strings, lists);
+                        int solution = scheduleParser.parseSolution(findSolutionLayout());
+                        if (strings != null) {
+                            stringTable = strings;
+                            listIndexes = lists;
                         }
-
-                        // Allocate solution object
-                        int solutionSize = calculateObjectSize(solutionDef);
-                        int solution = (int) alloc.apply(solutionSize)[0];
-
-                        // Second pass: parse all fields and write to memory
-                        offset = 0;
-                        Map<String, Integer> listPointers = new HashMap<>();
-
-                        for (var entry : solutionDef.getFieldDescriptorMap().entrySet()) {
-                            String fieldName = entry.getKey();
-                            FieldDescriptor field = entry.getValue();
-
-                            // Align offset for this field's type
-                            int fieldAlignment = getFieldAlignment(field.getType());
-                            offset = alignOffset(offset, fieldAlignment);
-
-                            if (hasPlanningScoreAnnotation(field)) {
-                                // Skip score field - it's not in the input JSON
-                                offset += getFieldSize(field.getType());
-                                continue;
-                            }
-
-                            if (field.getType().endsWith("[]")) {
-                                // Collection field
-                                int listPtr = parseCollectionField(instance, alloc, newList, append,
-                                        fieldName, field, parsedJson, entityMaps, listPointers);
-                                instance.memory().writeI32(solution + offset, listPtr);
-                                listPointers.put(field.getType().replace("[]", ""), listPtr);
-                            } else if (parsedJson.has(fieldName)) {
-                                // Primitive or object field
-                                writePrimitiveField(instance, alloc, solution + offset,
-                                        field, parsedJson.get(fieldName));
-                            }
-
-                            offset += getFieldSize(field.getType());
-                        }
-
                         return new long[] { solution };
-                    } catch (JsonProcessingException e) {
+                    } catch (IOException e) {
                         throw new RuntimeException(e);
                     }
                 });
     }
 
-    /**
-     * Find the planning ID value from a JSON object based on domain definition.
-     */
-    private Object findPlanningId(DomainObject def, JsonNode json) {
-        for (var entry : def.getFieldDescriptorMap().entrySet()) {
-            FieldDescriptor field = entry.getValue();
-            if (field.getAnnotations() != null) {
-                boolean isPlanningId = field.getAnnotations().stream()
-                        .anyMatch(a -> a.getClass().getSimpleName().equals("DomainPlanningId"));
-                if (isPlanningId && json.has(entry.getKey())) {
-                    JsonNode idNode = json.get(entry.getKey());
-                    if (idNode.isInt()) return idNode.asInt();
-                    if (idNode.isLong()) return idNode.asLong();
-                    if (idNode.isTextual()) return idNode.asText();
-                    return idNode.toString();
-                }
-            }
-        }
-        return null;
+    private JsonParser createScheduleParser(byte[] schedule) throws IOException {
+        return isCbor(schedule) ? CBOR_FACTORY.createParser(schedule) : objectMapper.getFactory().createParser(schedule);
     }
 
     /**
-     * Parse a collection field from JSON and return the list pointer.
+     * A CBOR schedule starts with a map, or with the self-describe tag 55799;
+     * a JSON one with an ASCII character.
      */
-    private int parseCollectionField(Instance instance, ExportFunction alloc, ExportFunction newList,
-            ExportFunction append, String fieldName, FieldDescriptor field, JsonNode json,
-            Map<String, Map<Object, Integer>> entityMaps, Map<String, Integer> listPointers) {
-
-        String elementType = field.getType().replace("[]", "");
-        DomainObject elementDef = domainObjectMap.get(elementType);
-
-        int list = (int) newList.apply()[0];
-
-        if (!json.has(fieldName)) {
-            return list;
+    static boolean isCbor(byte[] schedule) {
+        if (schedule.length == 0) {
+            return false;
         }
-
-        JsonNode arrayNode = json.get(fieldName);
-
-        for (int i = 0; i < arrayNode.size(); i++) {
-            JsonNode elementJson = arrayNode.get(i);
-            int element = parseObject(instance, alloc, newList, append, elementType, elementDef,
-                    elementJson, entityMaps, listPointers);
-            append.apply(list, element);
-        }
-
-        return list;
+        int first = schedule[0] & 0xFF;
+        return (first & 0xE0) == 0xA0
+                || (first == 0xD9 && schedule.length > 2 && (schedule[1] & 0xFF) == 0xD9 && (schedule[2] & 0xFF) == 0xF7);
     }
 
     /**
-     * Parse a single object from JSON and return its pointer.
+     * Whether the module's lists are the ones created by {@link #createNewList()},
+     * whose header can be written without calling into the module.
      */
-    private int parseObject(Instance instance, ExportFunction alloc, ExportFunction newList,
-            ExportFunction append, String className,
-            DomainObject def, JsonNode json, Map<String, Map<Object, Integer>> entityMaps,
-            Map<String, Integer> listPointers) {
-
-        int size = calculateObjectSize(def);
-        int obj = (int) alloc.apply(size)[0];
-
-        int offset = 0;
-        for (var entry : def.getFieldDescriptorMap().entrySet()) {
-            String fieldName = entry.getKey();
-            FieldDescriptor field = entry.getValue();
-
-            // Align offset for this field's type
-            int fieldAlignment = getFieldAlignment(field.getType());
-            offset = alignOffset(offset, fieldAlignment);
-
-            if (field.getType().endsWith("[]")) {
-                // Nested array field - create list and populate it
-                int listPtr = parseNestedList(instance, alloc, newList, append,
-                        fieldName, field, json, entityMaps, listPointers);
-                instance.memory().writeI32(obj + offset, listPtr);
-            } else if (json.has(fieldName)) {
-                JsonNode fieldValue = json.get(fieldName);
-
-                if (isPrimitiveType(field.getType())) {
-                    writePrimitiveField(instance, alloc, obj + offset, field, fieldValue);
-                } else {
-                    // Object reference - look up by planning ID
-                    writeObjectReference(instance, obj + offset, field.getType(), fieldValue,
-                            entityMaps, listPointers);
-                }
-            }
-
-            offset += getFieldSize(field.getType());
-        }
-
-        return obj;
+    public static boolean usesHostLists(Instance instance) {
+        return instance.module().importSection().stream()
+                .anyMatch(wasmImport -> wasmImport.module().equals("host") && wasmImport.name().equals("hnewList"));
     }
 
     /**
-     * Parse a nested list field within an entity (e.g., Employee.unavailableDates).
-     * Returns a list pointer (never null - returns empty list if field missing).
+     * The pointer to the items of a list created by {@link #createNewList()}, stored as consecutive i32s.
      */
-    private int parseNestedList(Instance instance, ExportFunction alloc, ExportFunction newList,
-            ExportFunction append, String fieldName, FieldDescriptor field, JsonNode parentJson,
-            Map<String, Map<Object, Integer>> entityMaps, Map<String, Integer> listPointers) {
-
-        String elementType = field.getType().replace("[]", "");
-        int list = (int) newList.apply()[0];
-
-        if (!parentJson.has(fieldName)) {
-            return list; // Return empty list if field not present
-        }
-
-        JsonNode arrayNode = parentJson.get(fieldName);
-        for (int i = 0; i < arrayNode.size(); i++) {
-            JsonNode elementJson = arrayNode.get(i);
-
-            if (isPrimitiveType(elementType)) {
-                int value = switch (elementType) {
-                    case "int", "boolean" -> elementJson.asInt();
-                    case "LocalDate" -> {
-                        if (elementJson.isNumber()) {
-                            yield elementJson.asInt();
-                        } else {
-                            yield (int) LocalDate.parse(elementJson.asText()).toEpochDay();
-                        }
-                    }
-                    case "String" -> {
-                        String str = elementJson.asText();
-                        int strPtr = (int) alloc.apply(str.getBytes().length + 1)[0];
-                        instance.memory().writeCString(strPtr, str);
-                        yield strPtr;
-                    }
-                    default -> throw new IllegalArgumentException("Unsupported primitive list element type: " + elementType);
-                };
-                append.apply(list, value);
-            } else {
-                DomainObject elementDef = domainObjectMap.get(elementType);
-                if (elementDef != null) {
-                    int element = parseObject(instance, alloc, newList, append,
-                            elementType, elementDef, elementJson, entityMaps, listPointers);
-                    append.apply(list, element);
-                }
-            }
-        }
-
-        return list;
-    }
-
-    /**
-     * Write a primitive field value to WASM memory.
-     */
-    private void writePrimitiveField(Instance instance, ExportFunction alloc, int ptr,
-            FieldDescriptor field, JsonNode value) {
-        switch (field.getType()) {
-            case "int" -> instance.memory().writeI32(ptr, value.asInt());
-            case "long" -> {
-                // Write 64-bit value as two 32-bit writes (little-endian)
-                long longVal = value.asLong();
-                instance.memory().writeI32(ptr, (int) longVal);
-                instance.memory().writeI32(ptr + 4, (int) (longVal >> 32));
-            }
-            case "float" -> instance.memory().writeF32(ptr, (float) value.asDouble());
-            case "double" -> instance.memory().writeF64(ptr, value.asDouble());
-            case "boolean" -> instance.memory().writeI32(ptr, value.asBoolean() ? 1 : 0);
-            case "String" -> {
-                String str = value.asText();
-                int strPtr = (int) alloc.apply(str.getBytes().length + 1)[0];
-                instance.memory().writeCString(strPtr, str);
-                instance.memory().writeI32(ptr, strPtr);
-            }
-            case "LocalDate" -> {
-                // Store as epoch day (long)
-                // Accept either ISO date string (e.g., "2024-01-15") or epoch day integer
-                long epochDay;
-                if (value.isNumber()) {
-                    epochDay = value.asLong();
-                } else {
-                    LocalDate date = LocalDate.parse(value.asText());
-                    epochDay = date.toEpochDay();
-                }
-                instance.memory().writeI32(ptr, (int) epochDay);
-                instance.memory().writeI32(ptr + 4, (int) (epochDay >> 32));
-            }
-            case "LocalDateTime" -> {
-                // Parse ISO datetime string (e.g., "2024-01-15T14:30:00") and store as epoch second (long)
-                LocalDateTime dateTime = LocalDateTime.parse(value.asText());
-                long epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
-                instance.memory().writeI32(ptr, (int) epochSecond);
-                instance.memory().writeI32(ptr + 4, (int) (epochSecond >> 32));
-            }
-            default -> {
-                // Unknown primitive type, try to write as int
-                if (value.isInt()) {
-                    instance.memory().writeI32(ptr, value.asInt());
-                }
-            }
-        }
-    }
-
-    /**
-     * Write an object reference by looking up the referenced entity.
-     */
-    private void writeObjectReference(Instance instance, int ptr, String refType, JsonNode value,
-            Map<String, Map<Object, Integer>> entityMaps, Map<String, Integer> listPointers) {
-
-        if (value.isNull()) {
-            instance.memory().writeI32(ptr, 0);
-            return;
-        }
-
-        // Get the entity map for this type
-        Map<Object, Integer> entityMap = entityMaps.get(refType);
-        Integer listPtr = listPointers.get(refType);
-
-        if (entityMap == null || listPtr == null) {
-            instance.memory().writeI32(ptr, 0);
-            return;
-        }
-
-        // Find the planning ID in the reference
-        DomainObject refDef = domainObjectMap.get(refType);
-        Object planningId = findPlanningId(refDef, value);
-
-        if (planningId != null && entityMap.containsKey(planningId)) {
-            int index = entityMap.get(planningId);
-            // Get the actual pointer from the list
-            var getItem = instance.export("getItem");
-            int entityPtr = (int) getItem.apply(listPtr, index)[0];
-            instance.memory().writeI32(ptr, entityPtr);
-        } else {
-            instance.memory().writeI32(ptr, 0);
-        }
+    public static int hostListData(Memory memory, int list) {
+        return memory.readInt(list + BACKING_ARRAY_OFFSET);
     }
 
     // ========== hscheduleString ==========
@@ -504,252 +290,37 @@ public class HostFunctionProvider {
      *
      * Serializes a WASM schedule object back to JSON string dynamically based on domain model.
      * Returns pointer to the allocated string in WASM memory.
+     *
+     * The UTF-8 bytes are written straight into a buffer in WASM memory, sized after the previous schedule
+     * and grown if needed, without building a Java string.
      */
     private HostFunction createScheduleString() {
         return new HostFunction("host", "hscheduleString",
                 FunctionType.of(List.of(ValType.I32), List.of(ValType.I32)),
                 (instance, args) -> {
                     int schedule = (int) args[0];
-                    var alloc = instance.export("alloc");
-                    var listSize = instance.export("size");
-                    var getItem = instance.export("getItem");
-
-                    String solutionClassName = findSolutionClass();
-                    DomainObject solutionDef = domainObjectMap.get(solutionClassName);
-
-                    StringBuilder out = new StringBuilder("{");
-                    serializeSolutionObject(instance, listSize, getItem, schedule, solutionDef, out);
-                    out.append("}");
-
-                    var outString = out.toString();
-                    var memoryString = (int) alloc.apply(outString.getBytes().length + 1)[0];
-                    instance.memory().writeCString(memoryString, outString);
+                    var out = new LinearMemoryOutputStream(instance, deallocator, scheduleStringCapacity);
+                    try (var generator = objectMapper.getFactory().createGenerator(out)) {
+                        new ScheduleWriter(instance, domainLayouts, generator).writeSolution(schedule, findSolutionLayout());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    int memoryString = out.finish();
+                    // Leave some room for the next schedule, which may be a bit larger
+                    scheduleStringCapacity = Math.max(MIN_SCHEDULE_STRING_CAPACITY, out.size() + out.size() / 8 + 1);
                     return new long[] { memoryString };
                 });
     }
 
-    /**
-     * Serialize a solution object to JSON.
-     */
-    private void serializeSolutionObject(Instance instance, ExportFunction listSize,
-            ExportFunction getItem, int ptr, DomainObject def, StringBuilder out) {
-
-        boolean first = true;
-        int offset = 0;
-
-        for (var entry : def.getFieldDescriptorMap().entrySet()) {
-            String fieldName = entry.getKey();
-            FieldDescriptor field = entry.getValue();
-
-            // Align offset for this field's type
-            int fieldAlignment = getFieldAlignment(field.getType());
-            offset = alignOffset(offset, fieldAlignment);
-
-            // Skip score field in serialization
-            if (hasPlanningScoreAnnotation(field)) {
-                offset += getFieldSize(field.getType());
-                continue;
-            }
-
-            if (!first) out.append(", ");
-            first = false;
-
-            out.append("\"").append(fieldName).append("\": ");
-
-            if (field.getType().endsWith("[]")) {
-                serializeCollection(instance, listSize, getItem, ptr + offset, field, out);
-            } else if (isPrimitiveType(field.getType())) {
-                serializePrimitive(instance, ptr + offset, field.getType(), out);
-            } else {
-                serializeObjectReference(instance, listSize, getItem, ptr + offset, field.getType(), out);
-            }
-
-            offset += getFieldSize(field.getType());
-        }
-    }
-
-    /**
-     * Serialize a collection field to JSON.
-     */
-    private void serializeCollection(Instance instance, ExportFunction listSize,
-            ExportFunction getItem, int ptr, FieldDescriptor field, StringBuilder out) {
-
-        String elementType = field.getType().replace("[]", "");
-        DomainObject elementDef = domainObjectMap.get(elementType);
-
-        int listPtr = instance.memory().readInt(ptr);
-        int length = (int) listSize.apply((long) listPtr)[0];
-
-        out.append("[");
-        for (int i = 0; i < length; i++) {
-            if (i > 0) out.append(", ");
-            int elementPtr = (int) getItem.apply((long) listPtr, (long) i)[0];
-            out.append("{");
-            serializeEntityObject(instance, listSize, getItem, elementPtr, elementDef, out);
-            out.append("}");
-        }
-        out.append("]");
-    }
-
-    /**
-     * Serialize a nested collection field (array inside an entity) to JSON.
-     * Handles String[], LocalDate[], and object arrays.
-     */
-    private void serializeNestedCollection(Instance instance, ExportFunction listSize,
-            ExportFunction getItem, int ptr, FieldDescriptor field, StringBuilder out) {
-
-        String elementType = field.getType().replace("[]", "");
-        int listPtr = instance.memory().readInt(ptr);
-
-        if (listPtr == 0) {
-            out.append("[]");
-            return;
-        }
-
-        int length = (int) listSize.apply((long) listPtr)[0];
-
-        out.append("[");
-        for (int i = 0; i < length; i++) {
-            if (i > 0) out.append(", ");
-            int elementPtr = (int) getItem.apply((long) listPtr, (long) i)[0];
-
-            if (elementType.equals("String")) {
-                if (elementPtr == 0) {
-                    out.append("null");
-                } else {
-                    String str = instance.memory().readCString(elementPtr);
-                    out.append("\"").append(escapeJson(str)).append("\"");
-                }
-            } else if (elementType.equals("LocalDate")) {
-                // elementPtr is the epoch day value directly (wrapped as int)
-                long epochDay = elementPtr;
-                LocalDate date = LocalDate.ofEpochDay(epochDay);
-                out.append(epochDay);  // Output as number for date arrays
-            } else if (elementType.equals("LocalDateTime")) {
-                // elementPtr is the epoch second value directly
-                out.append(elementPtr);
-            } else {
-                // Object type - serialize recursively
-                DomainObject elementDef = domainObjectMap.get(elementType);
-                if (elementDef != null) {
-                    out.append("{");
-                    serializeEntityObject(instance, listSize, getItem, elementPtr, elementDef, out);
-                    out.append("}");
-                } else {
-                    out.append("null");
-                }
-            }
-        }
-        out.append("]");
-    }
-
-    /**
-     * Serialize an entity object (not the solution) to JSON.
-     */
-    private void serializeEntityObject(Instance instance, ExportFunction listSize,
-            ExportFunction getItem, int ptr, DomainObject def, StringBuilder out) {
-
-        boolean first = true;
-        int offset = 0;
-
-        for (var entry : def.getFieldDescriptorMap().entrySet()) {
-            String fieldName = entry.getKey();
-            FieldDescriptor field = entry.getValue();
-
-            // Align offset for this field's type
-            int fieldAlignment = getFieldAlignment(field.getType());
-            offset = alignOffset(offset, fieldAlignment);
-
-            if (!first) out.append(", ");
-            first = false;
-
-            out.append("\"").append(fieldName).append("\": ");
-
-            if (field.getType().endsWith("[]")) {
-                // Serialize nested arrays in entities
-                serializeNestedCollection(instance, listSize, getItem, ptr + offset, field, out);
-            } else if (isPrimitiveType(field.getType())) {
-                serializePrimitive(instance, ptr + offset, field.getType(), out);
-            } else {
-                serializeObjectReference(instance, listSize, getItem, ptr + offset, field.getType(), out);
-            }
-
-            offset += getFieldSize(field.getType());
-        }
-    }
-
-    /**
-     * Serialize a primitive field to JSON.
-     */
-    private void serializePrimitive(Instance instance, int ptr, String type, StringBuilder out) {
-        switch (type) {
-            case "int" -> out.append(instance.memory().readInt(ptr));
-            case "long" -> out.append(instance.memory().readLong(ptr));
-            case "float" -> out.append(instance.memory().readFloat(ptr));
-            case "double" -> out.append(instance.memory().readDouble(ptr));
-            case "boolean" -> out.append(instance.memory().readInt(ptr) != 0);
-            case "String" -> {
-                int strPtr = instance.memory().readInt(ptr);
-                if (strPtr == 0) {
-                    out.append("null");
-                } else {
-                    String str = instance.memory().readCString(strPtr);
-                    out.append("\"").append(escapeJson(str)).append("\"");
-                }
-            }
-            case "LocalDate" -> {
-                // Read epoch day (long) and convert back to ISO date string
-                long epochDay = instance.memory().readLong(ptr);
-                LocalDate date = LocalDate.ofEpochDay(epochDay);
-                out.append("\"").append(date.toString()).append("\"");
-            }
-            case "LocalDateTime" -> {
-                // Read epoch second (long) and convert back to ISO datetime string
-                long epochSecond = instance.memory().readLong(ptr);
-                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
-                out.append("\"").append(dateTime.toString()).append("\"");
-            }
-            default -> out.append(instance.memory().readInt(ptr));
-        }
-    }
-
-    /**
-     * Serialize an object reference to JSON.
-     */
-    private void serializeObjectReference(Instance instance, ExportFunction listSize,
-            ExportFunction getItem, int ptr, String refType, StringBuilder out) {
-
-        int refPtr = instance.memory().readInt(ptr);
-
-        if (refPtr == 0) {
-            out.append("null");
-            return;
-        }
+    // ========== List Operations ==========
 
-        DomainObject refDef = domainObjectMap.get(refType);
-        if (refDef == null) {
-            out.append("null");
-            return;
+    private void invalidateListIndex(int list) {
+        var lists = listIndexes;
+        if (lists != null) {
+            lists.invalidate(list);
         }
-
-        out.append("{");
-        serializeEntityObject(instance, listSize, getItem, refPtr, refDef, out);
-        out.append("}");
     }
 
-    /**
-     * Escape special characters in JSON strings.
-     */
-    private String escapeJson(String str) {
-        return str.replace("\\", "\\\\")
-                  .replace("\"", "\\\"")
-                  .replace("\n", "\\n")
-                  .replace("\r", "\\r")
-                  .replace("\t", "\\t");
-    }
-
-    // ========== List Operations ==========
-
     /**
      * hnewList() -> i32
      *
@@ -769,6 +340,8 @@ public class HostFunctionProvider {
                     instance.memory().writeI32(listInstance + SIZE_OFFSET, 0);
                     instance.memory().writeI32(listInstance + CAPACITY_OFFSET, INITIAL_CAPACITY);
                     instance.memory().writeI32(listInstance + BACKING_ARRAY_OFFSET, backingArray);
+                    // The memory of an indexed list may have been freed and reused
+                    invalidateListIndex(listInstance);
 
                     return new long[] { listInstance };
                 });
@@ -806,6 +379,7 @@ public class HostFunctionProvider {
                     int itemIndex = (int) args[1];
                     var item = (int) args[2];
                     instance.memory().writeI32(backingArray + (WORD_SIZE * itemIndex), item);
+                    invalidateListIndex(listInstance);
                     return new long[] {};
                 });
     }
@@ -855,6 +429,7 @@ public class HostFunctionProvider {
 
                     instance.memory().writeI32(listInstance + SIZE_OFFSET, newSize);
                     instance.memory().writeI32(backingArray + oldSize * WORD_SIZE, item);
+                    invalidateListIndex(listInstance);
 
                     return new long[] {};
                 });
@@ -863,33 +438,78 @@ public class HostFunctionProvider {
     /**
      * hinsert(list: i32, index: i32, item: i32)
      *
-     * Inserts an item at the specified index in a list.
-     * Not implemented - only needed for list planning variables.
+     * Inserts an item at the specified index in a list, as needed by planning list variables.
+     * The items after it are shifted with a single memory copy.
+     * When the capacity is exceeded, the items are copied around the gap into a backing array twice as large.
      */
     private HostFunction createInsert() {
         return new HostFunction("host", "hinsert",
                 FunctionType.of(List.of(ValType.I32, ValType.I32, ValType.I32), List.of()),
                 (instance, args) -> {
-                    // Not needed for simple planning variables
-                    throw new UnsupportedOperationException();
+                    var memory = instance.memory();
+                    var listInstance = (int) args[0];
+                    int itemIndex = (int) args[1];
+                    var item = (int) args[2];
+
+                    var oldSize = memory.readInt(listInstance + SIZE_OFFSET);
+                    // Unlike reads, shifts out of bounds would overwrite whatever follows the backing array
+                    Objects.checkIndex(itemIndex, oldSize + 1);
+                    var newSize = oldSize + 1;
+                    var capacity = memory.readInt(listInstance + CAPACITY_OFFSET);
+                    var backingArray = memory.readInt(listInstance + BACKING_ARRAY_OFFSET);
+                    int tailBytes = (oldSize - itemIndex) * WORD_SIZE;
+
+                    if (newSize > capacity) {
+                        var newCapacity = Math.max(newSize, capacity * 2);
+                        var newBackingArray = (int) instance.export("alloc").apply((long) WORD_SIZE * newCapacity)[0];
+                        memory.copy(newBackingArray, backingArray, itemIndex * WORD_SIZE);
+                        memory.copy(newBackingArray + (itemIndex + 1) * WORD_SIZE, backingArray + itemIndex * WORD_SIZE,
+                                tailBytes);
+                        memory.writeI32(listInstance + CAPACITY_OFFSET, newCapacity);
+                        memory.writeI32(listInstance + BACKING_ARRAY_OFFSET, newBackingArray);
+                        backingArray = newBackingArray;
+                    } else {
+                        // Overlapping ranges are copied like memmove
+                        memory.copy(backingArray + (itemIndex + 1) * WORD_SIZE, backingArray + itemIndex * WORD_SIZE,
+                                tailBytes);
+                    }
+
+                    memory.writeI32(backingArray + itemIndex * WORD_SIZE, item);
+                    memory.writeI32(listInstance + SIZE_OFFSET, newSize);
+                    invalidateListIndex(listInstance);
+
+                    return new long[] {};
                 });
     }
 
     /**
      * hremove(list: i32, index: i32)
      *
-     * Removes an item at the specified index from a list.
-     * Not implemented - only needed for list planning variables.
+     * Removes an item at the specified index from a list, as needed by planning list variables.
+     * The items after it are shifted with a single memory copy; the capacity is kept.
      */
     private HostFunction createRemove() {
         return new HostFunction("host", "hremove",
                 FunctionType.of(List.of(ValType.I32, ValType.I32), List.of()),
                 (instance, args) -> {
-                    // Not needed for simple planning variables
-                    throw new UnsupportedOperationException();
+                    var memory = instance.memory();
+                    var listInstance = (int) args[0];
+                    int itemIndex = (int) args[1];
+
+                    var oldSize = memory.readInt(listInstance + SIZE_OFFSET);
+                    Objects.checkIndex(itemIndex, oldSize);
+                    var backingArray = memory.readInt(listInstance + BACKING_ARRAY_OFFSET);
+
+                    memory.copy(backingArray + itemIndex * WORD_SIZE, backingArray + (itemIndex + 1) * WORD_SIZE,
+                            (oldSize - itemIndex - 1) * WORD_SIZE);
+                    memory.writeI32(listInstance + SIZE_OFFSET, oldSize - 1);
+                    invalidateListIndex(listInstance);
+
+                    return new long[] {};
                 });
     }
 
+
     /**
      * hround(value: f32) -> i32
      *
@@ -910,7 +530,9 @@ public class HostFunctionProvider {
      *
      * This function is needed because strings allocated in WASM memory
      * may have different pointers even when they have identical content.
-     * Pointer comparison alone is insufficient for string equality.
+     * Pointer comparison alone is insufficient for string equality,
+     * except between strings of the problem, which are interned when it is parsed.
+     * Other strings are compared byte by byte, without decoding them.
      */
     private HostFunction createStringEquals() {
         return new HostFunction("host", "hstringEquals",
@@ -929,11 +551,13 @@ public class HostFunctionProvider {
                         return new long[] { 0 };
                     }
 
-                    // Read C strings from memory and compare
-                    String str1 = instance.memory().readCString(ptr1);
-                    String str2 = instance.memory().readCString(ptr2);
+                    // Distinct interned strings have distinct content
+                    var strings = stringTable;
+                    if (strings != null && strings.contains(ptr1) && strings.contains(ptr2)) {
+                        return new long[] { 0 };
+                    }
 
-                    return new long[] { str1.equals(str2) ? 1 : 0 };
+                    return new long[] { StringTable.contentEquals(instance.memory(), ptr1, ptr2) ? 1 : 0 };
                 });
     }
 
@@ -942,6 +566,10 @@ public class HostFunctionProvider {
      *
      * Checks if a list contains a string element.
      * Returns 1 if the element is found, 0 otherwise.
+     *
+     * Lists of the problem are looked up in their index (see {@link ListIndexes}).
+     * When scanning, interned items are compared to an interned element by pointer,
+     * and to any other element by their length and hash first.
      */
     private HostFunction createListContainsString() {
         return new HostFunction("host", "hlistContainsString",
@@ -955,6 +583,13 @@ public class HostFunctionProvider {
                         return new long[] { 0 };
                     }
 
+                    var strings = stringTable;
+                    var lists = listIndexes;
+                    var index = (lists != null) ? lists.get(listPtr) : null;
+                    if (strings != null && index != null && index.isOfStrings()) {
+                        return new long[] { index.containsString(instance.memory(), strings, elementPtr) ? 1 : 0 };
+                    }
+
                     // Read list size from memory (first i32 in the list struct)
                     int size = instance.memory().readInt(listPtr);
 
@@ -971,24 +606,149 @@ public class HostFunctionProvider {
                         return new long[] { 0 };
                     }
 
-                    // Read the target string
-                    String targetStr = instance.memory().readCString(elementPtr);
+                    var memory = instance.memory();
+                    boolean internedElement = strings != null && strings.contains(elementPtr);
+                    // Computed on the first interned item, if the element is not interned
+                    int elementLength = -1;
+                    int elementHash = 0;
 
                     // Read array pointer
-                    int arrayPtr = instance.memory().readInt(listPtr + 8);
+                    int arrayPtr = memory.readInt(listPtr + 8);
 
                     // Iterate through list and compare strings
                     for (int i = 0; i < size; i++) {
-                        int itemPtr = instance.memory().readInt(arrayPtr + (i * 4));
-                        if (itemPtr != 0) {
-                            String itemStr = instance.memory().readCString(itemPtr);
-                            if (targetStr.equals(itemStr)) {
-                                return new long[] { 1 };
+                        int itemPtr = memory.readInt(arrayPtr + (i * 4));
+                        if (itemPtr == elementPtr) {
+                            return new long[] { 1 };
+                        }
+                        if (itemPtr == 0) {
+                            continue;
+                        }
+                        int slot = (strings != null) ? strings.indexOf(itemPtr) : -1;
+                        if (slot >= 0) {
+                            if (internedElement) {
+                                continue;
                             }
+                            if (elementLength < 0) {
+                                elementLength = StringTable.length(memory, elementPtr);
+                                elementHash = StringTable.hash(memory, elementPtr, elementLength);
+                            }
+                            if (strings.lengthAt(slot) != elementLength || strings.hashAt(slot) != elementHash) {
+                                continue;
+                            }
+                        }
+                        if (StringTable.contentEquals(memory, itemPtr, elementPtr)) {
+                            return new long[] { 1 };
                         }
                     }
 
                     return new long[] { 0 };
                 });
     }
+
+    /**
+     * hlistContainsInt(listPtr: i32, value: i32) -> i32
+     *
+     * Checks if a list of ints contains a value.
+     * Returns 1 if the value is found, 0 otherwise.
+     *
+     * Lists of the problem are looked up in their index (see {@link ListIndexes}); others are scanned.
+     */
+    private HostFunction createListContainsInt() {
+        return new HostFunction("host", "hlistContainsInt",
+                FunctionType.of(List.of(ValType.I32, ValType.I32), List.of(ValType.I32)),
+                (instance, args) -> {
+                    int listPtr = (int) args[0];
+                    int value = (int) args[1];
+
+                    if (listPtr == 0) {
+                        return new long[] { 0 };
+                    }
+
+                    var lists = listIndexes;
+                    var index = (lists != null) ? lists.get(listPtr) : null;
+                    if (index != null && !index.isOfStrings()) {
+                        return new long[] { index.containsInt(value) ? 1 : 0 };
+                    }
+
+                    return new long[] { IntArrays.contains(readIntList(instance, listPtr), value) ? 1 : 0 };
+                });
+    }
+
+    // ========== Int List Intrinsics ==========
+    // Scans and reductions of lists of ints and dates, which are read with a single copy
+    // and processed with vector instructions where the JVM supports them (see IntArrays).
+    // A null list is empty.
+
+    private static int[] readIntList(Instance instance, int listPtr) {
+        if (listPtr == 0) {
+            return new int[0];
+        }
+        var memory = instance.memory();
+        return IntArrays.read(memory, memory.readInt(listPtr + BACKING_ARRAY_OFFSET),
+                memory.readInt(listPtr + SIZE_OFFSET));
+    }
+
+    /**
+     * hlistCountInRange(listPtr: i32, min: i32, max: i32) -> i32
+     *
+     * Counts the items of a list of ints between min and max, both inclusive;
+     * such as the unavailable dates of an employee within a shift.
+     */
+    private HostFunction createListCountInRange() {
+        return new HostFunction("host", "hlistCountInRange",
+                FunctionType.of(List.of(ValType.I32, ValType.I32, ValType.I32), List.of(ValType.I32)),
+                (instance, args) -> new long[] {
+                        IntArrays.countInRange(readIntList(instance, (int) args[0]), (int) args[1], (int) args[2])
+                });
+    }
+
+    /**
+     * hlistMin(listPtr: i32) -> i32
+     *
+     * Returns the smallest item of a list of ints, or i32::MAX if it is empty.
+     */
+    private HostFunction createListMin() {
+        return new HostFunction("host", "hlistMin",
+                FunctionType.of(List.of(ValType.I32), List.of(ValType.I32)),
+                (instance, args) -> new long[] { IntArrays.min(readIntList(instance, (int) args[0])) });
+    }
+
+    /**
+     * hlistMax(listPtr: i32) -> i32
+     *
+     * Returns the largest item of a list of ints, or i32::MIN if it is empty.
+     */
+    private HostFunction createListMax() {
+        return new HostFunction("host", "hlistMax",
+                FunctionType.of(List.of(ValType.I32), List.of(ValType.I32)),
+                (instance, args) -> new long[] { IntArrays.max(readIntList(instance, (int) args[0])) });
+    }
+
+    /**
+     * hlistSum(listPtr: i32) -> i64
+     *
+     * Returns the sum of the items of a list of ints, as an i64 so it does not overflow.
+     */
+    private HostFunction createListSum() {
+        return new HostFunction("host", "hlistSum",
+                FunctionType.of(List.of(ValType.I32), List.of(ValType.I64)),
+                (instance, args) -> new long[] { IntArrays.sum(readIntList(instance, (int) args[0])) });
+    }
+
+    /**
+     * hlistSortedIntersectionSize(listPtr1: i32, listPtr2: i32) -> i32
+     *
+     * Counts the items two lists of ints sorted in ascending order have in common;
+     * such as the dates an employee is unavailable on that a shift spans.
+     * An item in both lists more than once is counted as often as it is in the list with fewer of it.
+     */
+    private HostFunction createListSortedIntersectionSize() {
+        return new HostFunction("host", "hlistSortedIntersectionSize",
+                FunctionType.of(List.of(ValType.I32, ValType.I32), List.of(ValType.I32)),
+                (instance, args) -> new long[] {
+                        IntArrays.sortedIntersectionSize(readIntList(instance, (int) args[0]),
+                                readIntList(instance, (int) args[1]))
+                });
+    }
 }
@@ -0,0 +1,183 @@
+package ai.timefold.wasm.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.Memory;
+
+/**
+ * Scans and reductions over the items of int lists, copied out of WASM memory at once,
+ * for the host functions modules call on lists of ints and dates.
+ *
+ * They run on {@code VectorIntArrays} if it was compiled in, with the {@code vector} Maven profile,
+ * and the JVM was started with {@code --add-modules jdk.incubator.vector};
+ * and on the scalar loops of {@link Scalar} otherwise.
+ * {@code VectorIntArrays} is in {@code src/vector/java} and loaded by name, so the default build does not
+ * depend on the incubator module.
+ */
+final class IntArrays {
+    /**
+     * The operations that have a vector implementation.
+     */
+    interface Operations {
+        boolean contains(int[] values, int value);
+
+        int countInRange(int[] values, int min, int max);
+
+        int min(int[] values);
+
+        int max(int[] values);
+
+        long sum(int[] values);
+    }
+
+    static final Operations SCALAR = new Scalar();
+    // Null unless the vector implementation was compiled in, the module is present and the CPU has int vectors
+    static final @Nullable Operations VECTOR = loadVector();
+    static final boolean VECTORIZED = VECTOR != null;
+    private static final Operations OPERATIONS = VECTORIZED ? VECTOR : SCALAR;
+
+    private IntArrays() {
+    }
+
+    private static @Nullable Operations loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            var vectorClass = Class.forName(IntArrays.class.getPackageName() + ".VectorIntArrays");
+            if (!(boolean) vectorClass.getDeclaredMethod("isAccelerated").invoke(null)) {
+                return null;
+            }
+            return (Operations) vectorClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            // Built without the vector profile
+            return null;
+        }
+    }
+
+    /**
+     * The first {@code size} i32s at the given pointer, copied with a single read.
+     */
+    static int[] read(Memory memory, int pointer, int size) {
+        var values = new int[size];
+        if (size > 0) {
+            ByteBuffer.wrap(memory.readBytes(pointer, size * Integer.BYTES))
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer()
+                    .get(values);
+        }
+        return values;
+    }
+
+    static boolean contains(int[] values, int value) {
+        return OPERATIONS.contains(values, value);
+    }
+
+    /**
+     * The number of values between {@code min} and {@code max}, both inclusive.
+     */
+    static int countInRange(int[] values, int min, int max) {
+        return OPERATIONS.countInRange(values, min, max);
+    }
+
+    /**
+     * The smallest value, or {@link Integer#MAX_VALUE} if there are none.
+     */
+    static int min(int[] values) {
+        return OPERATIONS.min(values);
+    }
+
+    /**
+     * The largest value, or {@link Integer#MIN_VALUE} if there are none.
+     */
+    static int max(int[] values) {
+        return OPERATIONS.max(values);
+    }
+
+    /**
+     * The sum of the values, which does not overflow.
+     */
+    static long sum(int[] values) {
+        return OPERATIONS.sum(values);
+    }
+
+    /**
+     * The number of values two ascending arrays have in common, counting a value as often as it occurs in both.
+     *
+     * A merge branches on every pair of values, which does not map to lanes, so this is scalar either way.
+     */
+    static int sortedIntersectionSize(int[] values1, int[] values2) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < values1.length && j < values2.length) {
+            int comparison = Integer.compare(values1[i], values2[j]);
+            if (comparison == 0) {
+                count++;
+                i++;
+                j++;
+            } else if (comparison < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    static final class Scalar implements Operations {
+        private Scalar() {
+        }
+
+        @Override
+        public boolean contains(int[] values, int value) {
+            for (int v : values) {
+                if (v == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int countInRange(int[] values, int min, int max) {
+            int count = 0;
+            for (int v : values) {
+                if (v >= min && v <= max) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int min(int[] values) {
+            int min = Integer.MAX_VALUE;
+            for (int v : values) {
+                min = Math.min(min, v);
+            }
+            return min;
+        }
+
+        @Override
+        public int max(int[] values) {
+            int max = Integer.MIN_VALUE;
+            for (int v : values) {
+                max = Math.max(max, v);
+            }
+            return max;
+        }
+
+        @Override
+        public long sum(int[] values) {
+            long sum = 0;
+            for (int v : values) {
+                sum += v;
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ai.timefold.wasm.service;
+
+import java.io.OutputStream;
+
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+
+/**
+ * Writes bytes straight into a buffer allocated in WASM memory by the module's {@code alloc},
+ * which is reallocated with twice the capacity when it is full.
+ * {@link #finish()} terminates the bytes with a 0, so the buffer can be returned as a C string.
+ */
+final class LinearMemoryOutputStream extends OutputStream {
+    private final Memory memory;
+    private final ExportFunction alloc;
+    // Frees outgrown buffers; they are kept if the module's deallocator is unknown
+    private final @Nullable ExportFunction dealloc;
+
+    private int pointer;
+    private int capacity;
+    private int size;
+
+    LinearMemoryOutputStream(Instance instance, @Nullable String deallocator, int initialCapacity) {
+        this.memory = instance.memory();
+        this.alloc = instance.export("alloc");
+        this.dealloc = (deallocator != null) ? instance.export(deallocator) : null;
+        this.capacity = Math.max(initialCapacity, 1);
+        this.pointer = (int) alloc.apply(capacity)[0];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(size + 1);
+        memory.writeByte(pointer + size, (byte) b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureCapacity(size + length);
+        memory.write(pointer + size, bytes, offset, length);
+        size += length;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, (long) capacity * 2));
+        int newPointer = (int) alloc.apply(newCapacity)[0];
+        memory.copy(newPointer, pointer, size);
+        if (dealloc != null) {
+            dealloc.apply(pointer);
+        }
+        pointer = newPointer;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Terminate the bytes written so far with a 0 and return the pointer to them.
+     */
+    int finish() {
+        ensureCapacity(size + 1);
+        memory.writeByte(pointer + size, (byte) 0);
+        return pointer;
+    }
+
+    /**
+     * The number of bytes written, without the terminating 0.
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,239 @@
+package ai.timefold.wasm.service;
+
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.Memory;
+
+/**
+ * Hash indexes of the int and string lists {@code hparseSchedule} wrote for a problem, by list pointer,
+ * so {@code hlistContainsInt} and {@code hlistContainsString} do not scan them.
+ *
+ * Lists of facts are not changed while solving, so their index is built once, while parsing.
+ * A list that is changed through the host's list functions anyway loses its index and is scanned from then on.
+ * Lists shorter than {@value #MIN_INDEXED_SIZE} are not indexed; scanning them is as fast.
+ */
+final class ListIndexes {
+    static final int MIN_INDEXED_SIZE = 8;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Open addressing on the list pointer, which is never 0 for a list;
+    // an invalidated list keeps its key with a null index
+    private int[] lists;
+    private @Nullable Index[] indexes;
+    private int size;
+
+    ListIndexes() {
+        this.lists = new int[INITIAL_CAPACITY];
+        this.indexes = new Index[INITIAL_CAPACITY];
+    }
+
+    /**
+     * A copy whose indexes can be invalidated without affecting this one, which is kept with a problem snapshot.
+     */
+    ListIndexes copy() {
+        var copy = new ListIndexes();
+        copy.lists = lists.clone();
+        copy.indexes = indexes.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    void indexInts(int list, int[] elements, int size) {
+        if (size >= MIN_INDEXED_SIZE) {
+            put(list, Index.ofInts(elements, size));
+        }
+    }
+
+    /**
+     * @param strings the table the elements were interned in, which has their hashes
+     */
+    void indexStrings(int list, int[] elements, int size, StringTable strings) {
+        var index = (size >= MIN_INDEXED_SIZE) ? Index.ofStrings(elements, size, strings) : null;
+        if (index != null) {
+            put(list, index);
+        }
+    }
+
+    /**
+     * Drop the index of a list that was changed, if it has one.
+     */
+    void invalidate(int list) {
+        int slot = slotOf(list, lists);
+        if (lists[slot] == list) {
+            indexes[slot] = null;
+        }
+    }
+
+    /**
+     * The index of the given list, or null if it has none and must be scanned.
+     */
+    @Nullable
+    Index get(int list) {
+        if (list == 0) {
+            return null;
+        }
+        int slot = slotOf(list, lists);
+        return (lists[slot] == list) ? indexes[slot] : null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void put(int list, Index index) {
+        if ((size + 1) * 2 > lists.length) {
+            resize(lists.length * 2);
+        }
+        int slot = slotOf(list, lists);
+        if (lists[slot] == 0) {
+            size++;
+        }
+        lists[slot] = list;
+        indexes[slot] = index;
+    }
+
+    private static int slotOf(int key, int[] keys) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void resize(int capacity) {
+        var oldLists = lists;
+        var oldIndexes = indexes;
+        lists = new int[capacity];
+        indexes = new Index[capacity];
+        for (int i = 0; i < oldLists.length; i++) {
+            if (oldLists[i] != 0) {
+                int slot = slotOf(oldLists[i], lists);
+                lists[slot] = oldLists[i];
+                indexes[slot] = oldIndexes[i];
+            }
+        }
+    }
+
+    /**
+     * The distinct elements of a list in an open addressing table;
+     * ints by their value, strings by the hash of their content.
+     */
+    static final class Index {
+        private final int[] keys;
+        // The string with each key, for lists of strings
+        private final int @Nullable [] strings;
+        private final boolean[] occupied;
+        private final boolean containsNull;
+
+        private Index(int capacity, boolean ofStrings, boolean containsNull) {
+            this.keys = new int[capacity];
+            this.strings = ofStrings ? new int[capacity] : null;
+            this.occupied = new boolean[capacity];
+            this.containsNull = containsNull;
+        }
+
+        private static int capacityFor(int size) {
+            return Integer.highestOneBit(size * 2 - 1) << 1;
+        }
+
+        static Index ofInts(int[] elements, int size) {
+            var index = new Index(capacityFor(size), false, false);
+            int mask = index.keys.length - 1;
+            for (int i = 0; i < size; i++) {
+                int value = elements[i];
+                int slot = mix(value) & mask;
+                while (index.occupied[slot] && index.keys[slot] != value) {
+                    slot = (slot + 1) & mask;
+                }
+                index.occupied[slot] = true;
+                index.keys[slot] = value;
+            }
+            return index;
+        }
+
+        /**
+         * The index of a list of interned strings, or null if some of them are not interned.
+         */
+        static @Nullable Index ofStrings(int[] elements, int size, StringTable stringTable) {
+            boolean containsNull = false;
+            for (int i = 0; i < size; i++) {
+                containsNull |= elements[i] == 0;
+            }
+            var index = new Index(capacityFor(size), true, containsNull);
+            var strings = index.strings;
+            int mask = index.keys.length - 1;
+            for (int i = 0; i < size; i++) {
+                int string = elements[i];
+                if (string == 0) {
+                    continue;
+                }
+                int stringSlot = stringTable.indexOf(string);
+                if (stringSlot < 0) {
+                    return null;
+                }
+                int hash = stringTable.hashAt(stringSlot);
+                int slot = mix(hash) & mask;
+                // Interned strings are equal if their pointers are
+                while (index.occupied[slot] && strings[slot] != string) {
+                    slot = (slot + 1) & mask;
+                }
+                index.occupied[slot] = true;
+                index.keys[slot] = hash;
+                strings[slot] = string;
+            }
+            return index;
+        }
+
+        boolean isOfStrings() {
+            return strings != null;
+        }
+
+        boolean containsInt(int value) {
+            int mask = keys.length - 1;
+            for (int slot = mix(value) & mask; occupied[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Whether the list contains the string, which only has to be read from memory if it is not interned.
+         */
+        boolean containsString(Memory memory, StringTable stringTable, int string) {
+            if (string == 0) {
+                return containsNull;
+            }
+            var strings = this.strings;
+            int stringSlot = stringTable.indexOf(string);
+            boolean interned = stringSlot >= 0;
+            int hash;
+            if (interned) {
+                hash = stringTable.hashAt(stringSlot);
+            } else {
+                hash = StringTable.hash(memory, string, StringTable.length(memory, string));
+            }
+            int mask = keys.length - 1;
+            for (int slot = mix(hash) & mask; occupied[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] != hash) {
+                    continue;
+                }
+                if (strings[slot] == string) {
+                    return true;
+                }
+                if (!interned && StringTable.contentEquals(memory, strings[slot], string)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ai.timefold.wasm.service;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.wasm.types.MutabilityType;
+
+/**
+ * A copy of the mutable state of a WASM instance: its linear memory and its mutable globals.
+ *
+ * Restoring a snapshot puts the instance back into the state it was captured in,
+ * which lets a pooled instance be reused without running its initialization again.
+ * A snapshot can also be restored into another instance of the same module.
+ * Linear memory cannot shrink, so pages grown after the capture are kept but zeroed.
+ * Tables are not captured; modules are expected not to mutate them after initialization.
+ */
+public final class MemorySnapshot {
+    private final byte[] memory;
+    private final int[] globalIndices;
+    private final long[] globalLowValues;
+    private final long[] globalHighValues;
+
+    private MemorySnapshot(byte[] memory, int[] globalIndices, long[] globalLowValues, long[] globalHighValues) {
+        this.memory = memory;
+        this.globalIndices = globalIndices;
+        this.globalLowValues = globalLowValues;
+        this.globalHighValues = globalHighValues;
+    }
+
+    public static MemorySnapshot capture(Instance instance) {
+        var memory = instance.memory();
+        var memoryBytes = (memory != null) ? memory.readBytes(0, Memory.bytes(memory.pages())) : new byte[0];
+
+        // Imported globals belong to the host and are not part of the instance's state
+        var globalSection = instance.module().globalSection();
+        var importedGlobalCount = instance.imports().globalCount();
+        var definedGlobalCount = globalSection.globalCount();
+
+        int mutableGlobalCount = 0;
+        for (int i = 0; i < definedGlobalCount; i++) {
+            if (globalSection.getGlobal(i).mutabilityType() == MutabilityType.Var) {
+                mutableGlobalCount++;
+            }
+        }
+
+        var globalIndices = new int[mutableGlobalCount];
+        var globalLowValues = new long[mutableGlobalCount];
+        var globalHighValues = new long[mutableGlobalCount];
+        int index = 0;
+        for (int i = 0; i < definedGlobalCount; i++) {
+            if (globalSection.getGlobal(i).mutabilityType() == MutabilityType.Var) {
+                var global = instance.global(importedGlobalCount + i);
+                globalIndices[index] = importedGlobalCount + i;
+                globalLowValues[index] = global.getValueLow();
+                globalHighValues[index] = global.getValueHigh();
+                index++;
+            }
+        }
+        return new MemorySnapshot(memoryBytes, globalIndices, globalLowValues, globalHighValues);
+    }
+
+    public void restore(Instance instance) {
+        var memory = instance.memory();
+        if (memory != null) {
+            var snapshotPages = this.memory.length / Memory.PAGE_SIZE;
+            if (memory.pages() < snapshotPages && memory.grow(snapshotPages - memory.pages()) == -1) {
+                throw new IllegalStateException("Cannot grow memory to the %d pages of the snapshot."
+                        .formatted(snapshotPages));
+            }
+            memory.write(0, this.memory, 0, this.memory.length);
+            var currentSize = Memory.bytes(memory.pages());
+            if (currentSize > this.memory.length) {
+                memory.fill((byte) 0, this.memory.length, currentSize);
+            }
+        }
+
+        for (int i = 0; i < globalIndices.length; i++) {
+            var global = instance.global(globalIndices[i]);
+            global.setValueLow(globalLowValues[i]);
+            global.setValueHigh(globalHighValues[i]);
+        }
+    }
+
+    /**
+     * The number of bytes of linear memory held by this snapshot.
+     */
+    public int size() {
+        return memory.length;
+    }
+}
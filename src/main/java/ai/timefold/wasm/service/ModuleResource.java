@@ -0,0 +1,53 @@
+package ai.timefold.wasm.service;
+
+import java.util.List;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import ai.timefold.wasm.service.dto.RegisteredModule;
+
+@Path("/modules")
+public class ModuleResource {
+    public static final String APPLICATION_WASM = "application/wasm";
+
+    @Inject
+    WasmModuleRegistry moduleRegistry;
+
+    @POST
+    @Consumes(APPLICATION_WASM)
+    @Produces(MediaType.APPLICATION_JSON)
+    public RegisteredModule register(byte[] wasm) {
+        return moduleRegistry.register(wasm);
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<RegisteredModule> list() {
+        return moduleRegistry.list();
+    }
+
+    @GET
+    @Path("{hash}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get(@PathParam("hash") String hash) {
+        return moduleRegistry.get(hash)
+                .map(module -> Response.ok(module).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    @DELETE
+    @Path("{hash}")
+    public Response unregister(@PathParam("hash") String hash) {
+        var status = moduleRegistry.unregister(hash) ? Response.Status.NO_CONTENT : Response.Status.NOT_FOUND;
+        return Response.status(status).build();
+    }
+}
@@ -0,0 +1,93 @@
+package ai.timefold.wasm.service;
+
+import static ai.timefold.wasm.service.HostFunctionProvider.BACKING_ARRAY_OFFSET;
+import static ai.timefold.wasm.service.HostFunctionProvider.CAPACITY_OFFSET;
+import static ai.timefold.wasm.service.HostFunctionProvider.INITIAL_CAPACITY;
+import static ai.timefold.wasm.service.HostFunctionProvider.LIST_HEADER_SIZE;
+import static ai.timefold.wasm.service.HostFunctionProvider.SIZE_OFFSET;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.Memory;
+
+/**
+ * Memory for the objects, strings and lists of a parsed schedule, bump-allocated on the host
+ * from a few large chunks that are each allocated by the module's {@code alloc}.
+ *
+ * Lists are written with the header of {@code hnewList} directly, so they must only be used
+ * by modules whose lists are the host's. Objects in a chunk are not allocated individually,
+ * so they must never be passed to the module's deallocator one by one.
+ */
+final class ParseArena {
+    // Chunks double in size, up to this many times the first chunk
+    private static final int MAX_CHUNK_GROWTH = 16;
+
+    private final Memory memory;
+    private final ExportFunction alloc;
+    private final int maxChunkSize;
+
+    private int nextChunkSize;
+    private int position;
+    private int limit;
+    private int chunkCount;
+
+    // Little-endian scratch space for list backing arrays, written to memory in one call
+    private ByteBuffer backingArray = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+    ParseArena(Memory memory, ExportFunction alloc, int chunkSize) {
+        this.memory = memory;
+        this.alloc = alloc;
+        this.nextChunkSize = chunkSize;
+        this.maxChunkSize = (int) Math.min(Integer.MAX_VALUE / 2, (long) chunkSize * MAX_CHUNK_GROWTH);
+    }
+
+    int allocate(int size, int alignment) {
+        int start = align(position, alignment);
+        if (chunkCount == 0 || start + size > limit) {
+            allocateChunk(size + alignment);
+            start = align(position, alignment);
+        }
+        position = start + size;
+        return start;
+    }
+
+    private void allocateChunk(int minSize) {
+        int size = Math.max(nextChunkSize, minSize);
+        position = (int) alloc.apply(size)[0];
+        limit = position + size;
+        nextChunkSize = Math.min(nextChunkSize * 2, maxChunkSize);
+        chunkCount++;
+    }
+
+    private static int align(int pointer, int alignment) {
+        return (pointer + alignment - 1) & -alignment;
+    }
+
+    /**
+     * Write a list holding the given items, with room for at least {@code INITIAL_CAPACITY} of them.
+     */
+    int allocateList(int[] items, int size) {
+        int capacity = Math.max(size, INITIAL_CAPACITY);
+        int list = allocate(LIST_HEADER_SIZE, Integer.BYTES);
+        int backingArrayPointer = allocate(capacity * Integer.BYTES, Integer.BYTES);
+        memory.writeI32(list + SIZE_OFFSET, size);
+        memory.writeI32(list + CAPACITY_OFFSET, capacity);
+        memory.writeI32(list + BACKING_ARRAY_OFFSET, backingArrayPointer);
+        if (size > 0) {
+            if (backingArray.capacity() < size * Integer.BYTES) {
+                backingArray = ByteBuffer.allocate(Integer.highestOneBit(size * Integer.BYTES) * 2)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            backingArray.clear();
+            backingArray.asIntBuffer().put(items, 0, size);
+            memory.write(backingArrayPointer, backingArray.array(), 0, size * Integer.BYTES);
+        }
+        return list;
+    }
+
+    int getChunkCount() {
+        return chunkCount;
+    }
+}
@@ -0,0 +1,185 @@
+package ai.timefold.wasm.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import ai.timefold.wasm.service.dto.PlanningProblem;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jspecify.annotations.Nullable;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Caches the state of a WASM instance right after a problem was parsed into its memory.
+ *
+ * Parsing is deterministic: the same module, domain model and problem JSON always
+ * produce the same memory contents. A later request for the same problem restores
+ * the snapshot with a bulk copy and wraps the cached solution pointer, instead of
+ * parsing the JSON again.
+ *
+ * Like {@link WasmModuleCache}, this is an LRU bounded by entry count
+ * ({@code wasm.problem-cache.max-entries}) and total snapshot size
+ * ({@code wasm.problem-cache.max-bytes}). Setting max-entries to 0 disables it.
+ */
+@ApplicationScoped
+public class ProblemSnapshotCache {
+    private static final Logger LOG = Logger.getLogger(ProblemSnapshotCache.class);
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by itself
+    private final LinkedHashMap<String, ProblemSnapshot> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong restoreNanos = new AtomicLong();
+
+    /**
+     * The instance state after parsing, the pointer to the solution the parser returned,
+     * and the strings it interned and lists it indexed, if it was the host's parser.
+     */
+    public record ProblemSnapshot(MemorySnapshot memory, int solutionPointer, @Nullable StringTable strings,
+            @Nullable ListIndexes lists) {
+    }
+
+    @Inject
+    public ProblemSnapshotCache(@ConfigProperty(name = "wasm.problem-cache.max-entries", defaultValue = "16") int maxEntries,
+            @ConfigProperty(name = "wasm.problem-cache.max-bytes", defaultValue = "256M") MemorySize maxBytes) {
+        this(maxEntries, maxBytes.asLongValue());
+    }
+
+    ProblemSnapshotCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Compute the key of the parsed state of a planning problem: everything the parser's output depends on.
+     */
+    public static String computeProblemKey(CompiledWasmModule module, PlanningProblem planningProblem) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+        update(digest, module.hash());
+        update(digest, planningProblem.getAllocator());
+        update(digest, planningProblem.getDeallocator());
+        update(digest, planningProblem.getListAccessor().toString());
+        for (var domainEntry : planningProblem.getDomainObjectMap().entrySet()) {
+            var domainObject = domainEntry.getValue();
+            update(digest, domainEntry.getKey());
+            update(digest, String.valueOf(domainObject.getDomainObjectMapper()));
+            for (var fieldEntry : domainObject.getFieldDescriptorMap().entrySet()) {
+                var field = fieldEntry.getValue();
+                update(digest, fieldEntry.getKey());
+                update(digest, field.getType());
+                update(digest, String.valueOf(field.getAccessor()));
+                if (field.getAnnotations() != null) {
+                    for (var annotation : field.getAnnotations()) {
+                        update(digest, annotation.getClass().getSimpleName());
+                    }
+                }
+            }
+        }
+        update(digest, planningProblem.getProblem());
+        var binaryProblem = planningProblem.getBinaryProblem();
+        update(digest, (binaryProblem != null) ? binaryProblem : new byte[0]);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, @Nullable String value) {
+        update(digest, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void update(MessageDigest digest, byte[] bytes) {
+        // Length-prefixed, so adjacent values cannot be confused with each other
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    public @Nullable ProblemSnapshot get(String key) {
+        ProblemSnapshot snapshot;
+        synchronized (cache) {
+            snapshot = cache.get(key);
+        }
+        if (snapshot != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Whether a snapshot of the given number of bytes of linear memory may be cached,
+     * to be checked before capturing one, which copies all of it.
+     */
+    public boolean fits(long bytes) {
+        return isEnabled() && bytes <= maxBytes;
+    }
+
+    public void put(String key, ProblemSnapshot snapshot) {
+        if (!fits(snapshot.memory().size())) {
+            return;
+        }
+        synchronized (cache) {
+            var previous = cache.put(key, snapshot);
+            if (previous != null) {
+                totalBytes -= previous.memory().size();
+            }
+            totalBytes += snapshot.memory().size();
+
+            var iterator = cache.values().iterator();
+            while (cache.size() > maxEntries || totalBytes > maxBytes) {
+                var eldest = iterator.next();
+                iterator.remove();
+                totalBytes -= eldest.memory().size();
+                evictions.incrementAndGet();
+            }
+        }
+        LOG.debugf("Cached parsed problem (key=%s, size=%d bytes)", key.substring(0, 16), snapshot.memory().size());
+    }
+
+    public void recordRestore(long nanos) {
+        restoreNanos.addAndGet(nanos);
+    }
+
+    public Stats getStats() {
+        int size;
+        long bytes;
+        synchronized (cache) {
+            size = cache.size();
+            bytes = totalBytes;
+        }
+        return new Stats(size, bytes, hits.get(), misses.get(), evictions.get(),
+                TimeUnit.NANOSECONDS.toMillis(restoreNanos.get()));
+    }
+
+    /**
+     * Snapshot of the problem cache counters.
+     */
+    public record Stats(int size, long bytes, long hits, long misses, long evictions, long restoreTimeMillis) {
+    }
+}
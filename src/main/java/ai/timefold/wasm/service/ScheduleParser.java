@@ -0,0 +1,417 @@
+package ai.timefold.wasm.service;
+
+import static ai.timefold.wasm.service.HostFunctionProvider.BACKING_ARRAY_OFFSET;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import ai.timefold.wasm.service.DomainLayout.FieldLayout;
+import ai.timefold.wasm.service.DomainLayout.FieldType;
+
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Parses a JSON schedule into WASM memory in a single pass over the parser's tokens.
+ *
+ * Each object is allocated when its opening brace is read, and each field is written at the offset
+ * its {@link DomainLayout} gives it as soon as its value is read; no tree of the problem is built.
+ * References to elements of the solution's collections are written once the whole schedule has been read,
+ * so a reference may come before the element it refers to.
+ * The elements of planning list variables are such references too.
+ *
+ * The elements of a list are collected until its end, so the list is created with all of them at once.
+ * Given a {@link ParseArena}, objects, strings and lists are placed in its chunks
+ * instead of being allocated by the module one by one.
+ * Given a {@link StringTable}, each distinct string is written once and recorded in the table,
+ * so equal strings share a pointer, and lists of ints and strings are indexed in the given {@link ListIndexes}.
+ *
+ * A parser is used for one schedule only.
+ */
+final class ScheduleParser {
+    private static final int[] NO_ELEMENTS = new int[0];
+
+    private final Instance instance;
+    private final Memory memory;
+    private final ExportFunction alloc;
+    private final ExportFunction newList;
+    private final ExportFunction append;
+    private final Map<String, DomainLayout> domainLayouts;
+    private final JsonParser parser;
+    private final @Nullable ParseArena arena;
+    private final @Nullable StringTable strings;
+    private final @Nullable ListIndexes lists;
+    // Pointer of each string written so far, when interning
+    private final Map<String, Integer> stringPointers = new HashMap<>();
+
+    // Pointer of the elements of the solution's collections, by element type and planning id
+    private final Map<String, Map<Object, Integer>> collectionElements = new HashMap<>();
+    private final ArrayList<PendingReference> pendingReferences = new ArrayList<>();
+    // The references in the planning list variable being read, which are written to its backing array
+    private final ArrayList<ListReference> listReferences = new ArrayList<>();
+
+    // The elements of the lists being read, one buffer per nesting depth, reused from one list to the next
+    private final ArrayList<int[]> elementBuffers = new ArrayList<>();
+    private int listDepth;
+
+    private record PendingReference(int pointer, String type, Object planningId) {
+    }
+
+    private record ListReference(int index, Object planningId) {
+    }
+
+    ScheduleParser(Instance instance, Map<String, DomainLayout> domainLayouts, JsonParser parser) {
+        this(instance, domainLayouts, parser, null, null, null);
+    }
+
+    ScheduleParser(Instance instance, Map<String, DomainLayout> domainLayouts, JsonParser parser,
+            @Nullable ParseArena arena) {
+        this(instance, domainLayouts, parser, arena, null, null);
+    }
+
+    ScheduleParser(Instance instance, Map<String, DomainLayout> domainLayouts, JsonParser parser,
+            @Nullable ParseArena arena, @Nullable StringTable strings, @Nullable ListIndexes lists) {
+        this.instance = instance;
+        this.memory = instance.memory();
+        this.alloc = instance.export("alloc");
+        this.newList = instance.export("newList");
+        this.append = instance.export("append");
+        this.domainLayouts = domainLayouts;
+        this.parser = parser;
+        this.arena = arena;
+        this.strings = strings;
+        this.lists = lists;
+    }
+
+    /**
+     * Parse the schedule and return the pointer to the solution object.
+     */
+    int parseSolution(DomainLayout solutionLayout) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("The problem must be a JSON object.");
+        }
+        int solution = allocate(solutionLayout.getSize(), solutionLayout.getAlignment());
+        var seen = new boolean[solutionLayout.getFields().size()];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = solutionLayout.getField(parser.currentName());
+            parser.nextToken();
+            if (field == null || field.planningScore()) {
+                // The score is not part of the input
+                parser.skipChildren();
+                continue;
+            }
+            seen[field.index()] = true;
+            if (field.fieldType() == FieldType.LIST) {
+                memory.writeI32(solution + field.offset(), parseList(field, true));
+            } else {
+                writeValue(solution + field.offset(), field.fieldType());
+            }
+        }
+        // Collections missing from the input are empty
+        for (var field : solutionLayout.getFields()) {
+            if (field.fieldType() == FieldType.LIST && !field.planningScore() && !seen[field.index()]) {
+                memory.writeI32(solution + field.offset(), createList());
+            }
+        }
+        resolvePendingReferences();
+        return solution;
+    }
+
+    /**
+     * Parse a list; the current token is its value.
+     *
+     * @param solutionCollection true for the solution's collections, whose elements can be referred to by planning id
+     */
+    private int parseList(FieldLayout field, boolean solutionCollection) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            // null, or anything else that is not an array, is an empty list
+            parser.skipChildren();
+            return createList();
+        }
+        var elementType = field.elementType();
+        var elementFieldType = field.elementFieldType();
+        var elementLayout = (elementFieldType == FieldType.OBJECT) ? domainLayouts.get(elementType) : null;
+        var elementsById = (elementLayout != null && solutionCollection)
+                ? collectionElements.computeIfAbsent(elementType, _ -> new HashMap<>())
+                : null;
+        int depth = listDepth++;
+        if (depth == elementBuffers.size()) {
+            elementBuffers.add(new int[16]);
+        }
+        var elements = elementBuffers.get(depth);
+        int size = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            int element;
+            if (field.planningListVariable()) {
+                var planningId = readReferencedId(elementType);
+                if (planningId == null) {
+                    continue;
+                }
+                listReferences.add(new ListReference(size, planningId));
+                element = 0;
+            } else if (!elementFieldType.isPrimitive()) {
+                if (elementLayout == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                element = parseObject(elementLayout, elementsById);
+            } else {
+                element = readListElement(elementType, elementFieldType);
+            }
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+                elementBuffers.set(depth, elements);
+            }
+            elements[size++] = element;
+        }
+        listDepth--;
+        int list = createList(elements, size);
+        if (!listReferences.isEmpty()) {
+            deferListReferences(list, elementType);
+        }
+        if (lists != null && strings != null) {
+            switch (elementFieldType) {
+                case INT, BOOLEAN, LOCAL_DATE -> lists.indexInts(list, elements, size);
+                case STRING -> lists.indexStrings(list, elements, size, strings);
+                default -> {
+                    // Lists of objects are not searched by content
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Parse a domain object that is not the solution; the current token is its value.
+     *
+     * @param elementsById where to record the object by its planning id, or null if it cannot be referred to
+     */
+    private int parseObject(DomainLayout layout, @Nullable Map<Object, Integer> elementsById) throws IOException {
+        int object = allocate(layout.getSize(), layout.getAlignment());
+        var seen = layout.hasListFields() ? new boolean[layout.getFields().size()] : null;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            var planningIdField = layout.getPlanningIdField();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = layout.getField(parser.currentName());
+                parser.nextToken();
+                if (field == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                int pointer = object + field.offset();
+                switch (field.fieldType()) {
+                    case LIST -> {
+                        seen[field.index()] = true;
+                        memory.writeI32(pointer, parseList(field, false));
+                    }
+                    case OBJECT -> readReference(pointer, field.type());
+                    default -> {
+                        if (field == planningIdField && elementsById != null) {
+                            var planningId = readPlanningId();
+                            if (planningId != null) {
+                                elementsById.put(planningId, object);
+                            }
+                        }
+                        writeValue(pointer, field.fieldType());
+                    }
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+        if (seen != null) {
+            // Lists missing from the input are empty
+            for (var field : layout.getFields()) {
+                if (field.fieldType() == FieldType.LIST && !seen[field.index()]) {
+                    memory.writeI32(object + field.offset(), createList());
+                }
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Read a reference to an element of one of the solution's collections, which only needs its planning id.
+     * The reference is written once all collections have been read.
+     */
+    private void readReference(int pointer, String type) throws IOException {
+        memory.writeI32(pointer, 0);
+        var planningId = readReferencedId(type);
+        if (planningId != null) {
+            pendingReferences.add(new PendingReference(pointer, type, planningId));
+        }
+    }
+
+    /**
+     * Read the planning id of the object the current value refers to, skipping the rest of it;
+     * null if it has none.
+     */
+    private @Nullable Object readReferencedId(String type) throws IOException {
+        var layout = domainLayouts.get(type);
+        var planningIdField = (layout != null) ? layout.getPlanningIdField() : null;
+        if (parser.currentToken() != JsonToken.START_OBJECT || planningIdField == null) {
+            parser.skipChildren();
+            return null;
+        }
+        Object planningId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var fieldName = parser.currentName();
+            parser.nextToken();
+            if (planningId == null && fieldName.equals(planningIdField.name())) {
+                planningId = readPlanningId();
+            }
+            parser.skipChildren();
+        }
+        return planningId;
+    }
+
+    /**
+     * Write the references of a planning list variable into its backing array once all collections are read.
+     * Only the host's lists have a backing array whose address is known.
+     */
+    private void deferListReferences(int list, String elementType) {
+        if (!HostFunctionProvider.usesHostLists(instance)) {
+            throw new IllegalArgumentException(
+                    "Planning list variables are only supported for modules that use the host's lists (hnewList).");
+        }
+        int backingArray = memory.readInt(list + BACKING_ARRAY_OFFSET);
+        for (var reference : listReferences) {
+            pendingReferences.add(new PendingReference(backingArray + reference.index() * Integer.BYTES, elementType,
+                    reference.planningId()));
+        }
+        listReferences.clear();
+    }
+
+    private void resolvePendingReferences() {
+        for (var reference : pendingReferences) {
+            var elementsById = collectionElements.get(reference.type());
+            var element = (elementsById != null) ? elementsById.get(reference.planningId()) : null;
+            if (element != null) {
+                memory.writeI32(reference.pointer(), element);
+            }
+        }
+    }
+
+    /**
+     * The planning id of the current value, without consuming it; null if it cannot be used as a key.
+     */
+    private @Nullable Object readPlanningId() throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+                case INT -> parser.getIntValue();
+                case LONG -> parser.getLongValue();
+                default -> parser.getText();
+            };
+            case START_OBJECT, START_ARRAY -> null;
+            default -> parser.getText();
+        };
+    }
+
+    /**
+     * Write the current value as a field of the given type, then skip past it.
+     */
+    private void writeValue(int pointer, FieldType fieldType) throws IOException {
+        switch (fieldType) {
+            case INT -> memory.writeI32(pointer, parser.getValueAsInt());
+            case LONG -> memory.writeLong(pointer, parser.getValueAsLong());
+            case FLOAT -> memory.writeF32(pointer, (float) parser.getValueAsDouble());
+            case DOUBLE -> memory.writeF64(pointer, parser.getValueAsDouble());
+            case BOOLEAN -> memory.writeI32(pointer, parser.getValueAsBoolean() ? 1 : 0);
+            case STRING -> memory.writeI32(pointer, allocateString(getText()));
+            case LOCAL_DATE -> memory.writeLong(pointer, readEpochDay());
+            case LOCAL_DATE_TIME -> memory.writeLong(pointer,
+                    LocalDateTime.parse(getText()).toEpochSecond(ZoneOffset.UTC));
+            default -> {
+                // Unknown type, try to write as int
+                if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT
+                        && parser.getNumberType() == JsonParser.NumberType.INT) {
+                    memory.writeI32(pointer, parser.getIntValue());
+                }
+            }
+        }
+        parser.skipChildren();
+    }
+
+    /**
+     * Read the current value as an element of a list of primitives, then skip past it.
+     */
+    private int readListElement(String elementType, FieldType elementFieldType) throws IOException {
+        int value = switch (elementFieldType) {
+            case INT, BOOLEAN -> parser.getValueAsInt();
+            case LOCAL_DATE -> (int) readEpochDay();
+            case STRING -> allocateString(getText());
+            default -> throw new IllegalArgumentException("Unsupported primitive list element type: " + elementType);
+        };
+        parser.skipChildren();
+        return value;
+    }
+
+    /**
+     * Accept either an ISO date string (e.g., "2024-01-15") or an epoch day integer.
+     */
+    private long readEpochDay() throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            return parser.getValueAsLong();
+        }
+        return LocalDate.parse(getText()).toEpochDay();
+    }
+
+    /**
+     * The text of the current scalar value, with null read as "null"; empty for objects and arrays.
+     */
+    private String getText() throws IOException {
+        return parser.currentToken().isStructStart() ? "" : parser.getText();
+    }
+
+    private int allocate(int size, int alignment) {
+        if (arena != null) {
+            return arena.allocate(size, alignment);
+        }
+        return (int) alloc.apply(size)[0];
+    }
+
+    private int allocateString(String value) {
+        if (strings != null) {
+            var interned = stringPointers.get(value);
+            if (interned != null) {
+                return interned;
+            }
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        int pointer = allocate(bytes.length + 1, 1);
+        memory.write(pointer, bytes);
+        memory.writeByte(pointer + bytes.length, (byte) 0);
+        if (strings != null) {
+            strings.add(pointer, bytes.length, StringTable.hash(bytes));
+            stringPointers.put(value, pointer);
+        }
+        return pointer;
+    }
+
+    private int createList() {
+        return createList(NO_ELEMENTS, 0);
+    }
+
+    private int createList(int[] elements, int size) {
+        if (arena != null) {
+            return arena.allocateList(elements, size);
+        }
+        int list = (int) newList.apply()[0];
+        for (int i = 0; i < size; i++) {
+            append.apply(list, elements[i]);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,162 @@
+package ai.timefold.wasm.service;
+
+import static ai.timefold.wasm.service.HostFunctionProvider.BACKING_ARRAY_OFFSET;
+import static ai.timefold.wasm.service.HostFunctionProvider.SIZE_OFFSET;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import ai.timefold.wasm.service.DomainLayout.FieldLayout;
+import ai.timefold.wasm.service.DomainLayout.FieldType;
+
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Writes a schedule in WASM memory to a {@link JsonGenerator}, following the {@link DomainLayout} of its objects;
+ * the inverse of {@link ScheduleParser}.
+ *
+ * The generator decides the encoding, so the same walk produces the JSON of {@code hscheduleString}
+ * and the CBOR of binary {@code /solve} responses.
+ * References to other objects are written as the whole object they point to.
+ *
+ * Lists created by {@code hnewList} are read from memory using their header;
+ * other lists through the module's {@code size} and {@code getItem}.
+ */
+final class ScheduleWriter {
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private final Memory memory;
+    private final boolean hostLists;
+    private final @Nullable ExportFunction listSize;
+    private final @Nullable ExportFunction getItem;
+    private final Map<String, DomainLayout> domainLayouts;
+    private final JsonGenerator generator;
+
+    ScheduleWriter(Instance instance, Map<String, DomainLayout> domainLayouts, JsonGenerator generator) {
+        this.memory = instance.memory();
+        this.hostLists = HostFunctionProvider.usesHostLists(instance);
+        this.listSize = hostLists ? null : instance.export("size");
+        this.getItem = hostLists ? null : instance.export("getItem");
+        this.domainLayouts = domainLayouts;
+        this.generator = generator;
+    }
+
+    /**
+     * Encode the solution at the given pointer as CBOR.
+     */
+    static byte[] writeCbor(Instance instance, Map<String, DomainLayout> domainLayouts, DomainLayout solutionLayout,
+            int solution) {
+        var out = new ByteArrayOutputStream();
+        try (var generator = CBOR_FACTORY.createGenerator(out)) {
+            new ScheduleWriter(instance, domainLayouts, generator).writeSolution(solution, solutionLayout);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Write the solution object, without its score, which is not part of the schedule.
+     */
+    void writeSolution(int solution, DomainLayout solutionLayout) throws IOException {
+        generator.writeStartObject();
+        for (var field : solutionLayout.getFields()) {
+            if (!field.planningScore()) {
+                generator.writeFieldName(field.name());
+                writeField(solution + field.offset(), field);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeObject(int object, DomainLayout layout) throws IOException {
+        generator.writeStartObject();
+        for (var field : layout.getFields()) {
+            generator.writeFieldName(field.name());
+            writeField(object + field.offset(), field);
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeField(int pointer, FieldLayout field) throws IOException {
+        switch (field.fieldType()) {
+            case INT -> generator.writeNumber(memory.readInt(pointer));
+            case LONG -> generator.writeNumber(memory.readLong(pointer));
+            case FLOAT -> generator.writeNumber(memory.readFloat(pointer));
+            case DOUBLE -> generator.writeNumber(memory.readDouble(pointer));
+            case BOOLEAN -> generator.writeBoolean(memory.readInt(pointer) != 0);
+            case STRING -> writeString(memory.readInt(pointer));
+            case LOCAL_DATE -> generator.writeString(LocalDate.ofEpochDay(memory.readLong(pointer)).toString());
+            case LOCAL_DATE_TIME -> generator.writeString(
+                    LocalDateTime.ofEpochSecond(memory.readLong(pointer), 0, ZoneOffset.UTC).toString());
+            case LIST -> writeList(memory.readInt(pointer), field);
+            case OBJECT -> writeReference(memory.readInt(pointer), field.type());
+        }
+    }
+
+    /**
+     * Write a C string as the UTF-8 it already is, without decoding it to a Java string.
+     */
+    private void writeString(int string) throws IOException {
+        if (string == 0) {
+            generator.writeNull();
+            return;
+        }
+        int length = 0;
+        while (memory.read(string + length) != 0) {
+            length++;
+        }
+        generator.writeUTF8String(memory.readBytes(string, length), 0, length);
+    }
+
+    private void writeReference(int object, String type) throws IOException {
+        var layout = domainLayouts.get(type);
+        if (object == 0 || layout == null) {
+            generator.writeNull();
+        } else {
+            writeObject(object, layout);
+        }
+    }
+
+    /**
+     * Write a list; dates in lists are written as their epoch day or second, the way they are stored.
+     */
+    private void writeList(int list, FieldLayout field) throws IOException {
+        generator.writeStartArray();
+        if (list != 0) {
+            var elementFieldType = field.elementFieldType();
+            var elementLayout = (elementFieldType == FieldType.OBJECT) ? domainLayouts.get(field.elementType()) : null;
+            int size = hostLists ? memory.readInt(list + SIZE_OFFSET) : (int) listSize.apply(list)[0];
+            int backingArray = hostLists ? memory.readInt(list + BACKING_ARRAY_OFFSET) : 0;
+            for (int i = 0; i < size; i++) {
+                int element = hostLists
+                        ? memory.readInt(backingArray + i * Integer.BYTES)
+                        : (int) getItem.apply(list, i)[0];
+                switch (elementFieldType) {
+                    case INT, LOCAL_DATE, LOCAL_DATE_TIME -> generator.writeNumber(element);
+                    case BOOLEAN -> generator.writeBoolean(element != 0);
+                    case STRING -> writeString(element);
+                    default -> {
+                        if (elementLayout != null) {
+                            writeObject(element, elementLayout);
+                        } else {
+                            generator.writeNull();
+                        }
+                    }
+                }
+            }
+        }
+        generator.writeEndArray();
+    }
+}
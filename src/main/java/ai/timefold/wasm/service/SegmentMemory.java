@@ -0,0 +1,357 @@
+package ai.timefold.wasm.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Function;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.runtime.WasmRuntimeException;
+import com.dylibso.chicory.wasm.ChicoryException;
+import com.dylibso.chicory.wasm.UninstantiableException;
+import com.dylibso.chicory.wasm.types.ActiveDataSegment;
+import com.dylibso.chicory.wasm.types.DataSegment;
+import com.dylibso.chicory.wasm.types.Instruction;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import com.dylibso.chicory.wasm.types.PassiveDataSegment;
+
+/**
+ * A WASM linear memory backed by a {@link MemorySegment} outside the Java heap.
+ *
+ * {@link com.dylibso.chicory.runtime.ByteArrayMemory} keeps the whole linear memory in one
+ * {@code byte[]}, which the garbage collector has to account for and, on every grow, copy.
+ * For problems with hundreds of MB of linear memory this memory lives off-heap instead:
+ * <ul>
+ * <li>{@link #offHeap(MemoryLimits)} allocates native memory, reallocating it with
+ * doubling capacity when the module grows its memory.</li>
+ * <li>{@link #mapped(MemoryLimits)} maps a sparse temporary file sized to the maximum
+ * number of pages, so growing never copies and the OS pages unused memory out.</li>
+ * </ul>
+ * Every access is checked against the current size of the memory and traps like
+ * {@code ByteArrayMemory}. Shared memories are not supported.
+ */
+public final class SegmentMemory implements Memory {
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final int initialPages;
+    private final int maximumPages;
+    private final boolean mapped;
+
+    private MemorySegment segment;
+    private int pages;
+    private int sizeInBytes;
+    private DataSegment[] dataSegments = new DataSegment[0];
+
+    private SegmentMemory(MemoryLimits limits, boolean mapped) {
+        if (limits.shared()) {
+            throw new IllegalArgumentException("Shared memories are not supported by %s."
+                    .formatted(SegmentMemory.class.getSimpleName()));
+        }
+        this.initialPages = limits.initialPages();
+        this.maximumPages = Math.min(limits.maximumPages(), RUNTIME_MAX_PAGES);
+        this.mapped = mapped;
+        this.pages = initialPages;
+        this.sizeInBytes = Memory.bytes(initialPages);
+        this.segment = mapped ? mapTemporaryFile(Memory.bytes(maximumPages)) : allocate(sizeInBytes);
+    }
+
+    /**
+     * A memory in native memory allocated by the JVM.
+     */
+    public static SegmentMemory offHeap(MemoryLimits limits) {
+        return new SegmentMemory(limits, false);
+    }
+
+    /**
+     * A memory in a memory-mapped temporary file, reserved upfront for the maximum number of pages.
+     */
+    public static SegmentMemory mapped(MemoryLimits limits) {
+        return new SegmentMemory(limits, true);
+    }
+
+    private static MemorySegment allocate(long byteSize) {
+        // An automatic arena per segment, so a segment replaced on grow is freed once unreachable
+        return Arena.ofAuto().allocate(byteSize, Long.BYTES);
+    }
+
+    private static MemorySegment mapTemporaryFile(long byteSize) {
+        try {
+            var file = Files.createTempFile("wasm-memory-", ".bin");
+            // The mapping outlives the channel, and the file is unlinked as soon as the channel is closed
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize, Arena.ofAuto());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map WASM linear memory of %d bytes.".formatted(byteSize), e);
+        }
+    }
+
+    private void checkBounds(int address, int size) {
+        checkBounds(address, size, WasmRuntimeException::new);
+    }
+
+    private void checkBounds(int address, int size, Function<String, ChicoryException> exceptionFactory) {
+        if (address < 0 || size < 0 || (long) address + size > sizeInBytes) {
+            throw exceptionFactory.apply("out of bounds memory access: attempted to access address: "
+                    + address + " but limit is: " + sizeInBytes + " and size: " + size);
+        }
+    }
+
+    @Override
+    public int pages() {
+        return pages;
+    }
+
+    @Override
+    public int grow(int size) {
+        var previousPages = pages;
+        var newPages = previousPages + size;
+        if (newPages > maximumPages || newPages < previousPages) {
+            return -1;
+        }
+        var newSize = Memory.bytes(newPages);
+        if (newSize > segment.byteSize()) {
+            // Only off-heap memories get here; mapped memories are reserved for their maximum size
+            var capacity = Math.max(newSize, Math.min(segment.byteSize() * 2, Memory.bytes(maximumPages)));
+            var grown = allocate(capacity);
+            MemorySegment.copy(segment, 0, grown, 0, sizeInBytes);
+            segment = grown;
+        }
+        pages = newPages;
+        sizeInBytes = newSize;
+        return previousPages;
+    }
+
+    @Override
+    public int initialPages() {
+        return initialPages;
+    }
+
+    @Override
+    public int maximumPages() {
+        return maximumPages;
+    }
+
+    @Override
+    public boolean shared() {
+        return false;
+    }
+
+    @Override
+    public Object lock(int address) {
+        // Nothing can contend on a non-shared memory
+        return new Object();
+    }
+
+    @Override
+    public int waitOn(int address, int expected, long timeout) {
+        throw new ChicoryException("Attempt to wait on a non-shared memory, not supported.");
+    }
+
+    @Override
+    public int waitOn(int address, long expected, long timeout) {
+        throw new ChicoryException("Attempt to wait on a non-shared memory, not supported.");
+    }
+
+    @Override
+    public int notify(int address, int maxThreads) {
+        return 0;
+    }
+
+    @Override
+    public void initialize(Instance instance, DataSegment[] dataSegments) {
+        if (dataSegments == null) {
+            return;
+        }
+        this.dataSegments = dataSegments;
+        for (var dataSegment : dataSegments) {
+            if (dataSegment instanceof ActiveDataSegment activeDataSegment) {
+                var offset = evaluateOffset(instance, activeDataSegment.offsetInstructions());
+                var data = activeDataSegment.data();
+                checkBounds(offset, data.length, UninstantiableException::new);
+                MemorySegment.copy(data, 0, segment, ValueLayout.JAVA_BYTE, offset, data.length);
+            } else if (!(dataSegment instanceof PassiveDataSegment)) {
+                throw new ChicoryException("Data segment should be active or passive: " + dataSegment);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the constant expression giving the offset of an active data segment.
+     * Chicory's own evaluator is not accessible, and offsets only use this subset of instructions.
+     */
+    private static int evaluateOffset(Instance instance, List<Instruction> instructions) {
+        var stack = new int[instructions.size()];
+        var top = 0;
+        for (var instruction : instructions) {
+            switch (instruction.opcode()) {
+                case I32_CONST -> stack[top++] = (int) instruction.operand(0);
+                case GLOBAL_GET -> stack[top++] = (int) instance.global((int) instruction.operand(0)).getValueLow();
+                case I32_ADD -> {
+                    top--;
+                    stack[top - 1] += stack[top];
+                }
+                case I32_SUB -> {
+                    top--;
+                    stack[top - 1] -= stack[top];
+                }
+                case I32_MUL -> {
+                    top--;
+                    stack[top - 1] *= stack[top];
+                }
+                case END -> {
+                }
+                default -> throw new UninstantiableException("Unsupported instruction in data segment offset: "
+                        + instruction);
+            }
+        }
+        return stack[top - 1];
+    }
+
+    @Override
+    public void initPassiveSegment(int segmentId, int destination, int offset, int size) {
+        write(destination, dataSegments[segmentId].data(), offset, size);
+    }
+
+    @Override
+    public void write(int address, byte[] data, int offset, int size) {
+        checkBounds(address, size);
+        if (offset < 0 || (long) offset + size > data.length) {
+            throw new WasmRuntimeException("out of bounds memory access: attempted to copy " + size
+                    + " bytes from offset " + offset + " of data of size " + data.length);
+        }
+        MemorySegment.copy(data, offset, segment, ValueLayout.JAVA_BYTE, address, size);
+    }
+
+    @Override
+    public byte read(int address) {
+        checkBounds(address, Byte.BYTES);
+        return segment.get(ValueLayout.JAVA_BYTE, address);
+    }
+
+    @Override
+    public byte[] readBytes(int address, int length) {
+        checkBounds(address, length);
+        var bytes = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, address, bytes, 0, length);
+        return bytes;
+    }
+
+    @Override
+    public void writeI32(int address, int value) {
+        checkBounds(address, Integer.BYTES);
+        segment.set(INT, address, value);
+    }
+
+    @Override
+    public int readInt(int address) {
+        checkBounds(address, Integer.BYTES);
+        return segment.get(INT, address);
+    }
+
+    @Override
+    public void writeLong(int address, long value) {
+        checkBounds(address, Long.BYTES);
+        segment.set(LONG, address, value);
+    }
+
+    @Override
+    public long readLong(int address) {
+        checkBounds(address, Long.BYTES);
+        return segment.get(LONG, address);
+    }
+
+    @Override
+    public void writeShort(int address, short value) {
+        checkBounds(address, Short.BYTES);
+        segment.set(SHORT, address, value);
+    }
+
+    @Override
+    public short readShort(int address) {
+        checkBounds(address, Short.BYTES);
+        return segment.get(SHORT, address);
+    }
+
+    @Override
+    public long readU16(int address) {
+        return readShort(address) & 0xFFFF;
+    }
+
+    @Override
+    public void writeByte(int address, byte value) {
+        checkBounds(address, Byte.BYTES);
+        segment.set(ValueLayout.JAVA_BYTE, address, value);
+    }
+
+    @Override
+    public void writeF32(int address, float value) {
+        checkBounds(address, Float.BYTES);
+        segment.set(FLOAT, address, value);
+    }
+
+    @Override
+    public long readF32(int address) {
+        return readInt(address);
+    }
+
+    @Override
+    public float readFloat(int address) {
+        checkBounds(address, Float.BYTES);
+        return segment.get(FLOAT, address);
+    }
+
+    @Override
+    public void writeF64(int address, double value) {
+        checkBounds(address, Double.BYTES);
+        segment.set(DOUBLE, address, value);
+    }
+
+    @Override
+    public double readDouble(int address) {
+        checkBounds(address, Double.BYTES);
+        return segment.get(DOUBLE, address);
+    }
+
+    @Override
+    public long readF64(int address) {
+        return readLong(address);
+    }
+
+    @Override
+    public void zero() {
+        fill((byte) 0, 0, sizeInBytes);
+    }
+
+    @Override
+    public void fill(byte value, int fromIndex, int toIndex) {
+        checkBounds(fromIndex, toIndex - fromIndex);
+        segment.asSlice(fromIndex, toIndex - fromIndex).fill(value);
+    }
+
+    @Override
+    public void copy(int destination, int source, int size) {
+        checkBounds(source, size);
+        checkBounds(destination, size);
+        // Handles overlapping ranges like memmove
+        MemorySegment.copy(segment, source, segment, destination, size);
+    }
+
+    @Override
+    public void drop(int segment) {
+        dataSegments[segment] = PassiveDataSegment.EMPTY;
+    }
+}
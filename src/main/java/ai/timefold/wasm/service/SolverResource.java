@@ -2,223 +2,332 @@ package ai.timefold.wasm.service;
 
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import jakarta.inject.Inject;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
+import ai.timefold.solver.core.api.score.Score;
 import ai.timefold.solver.core.api.score.analysis.ScoreAnalysis;
 import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolverConfigOverride;
 import ai.timefold.solver.core.api.solver.SolverFactory;
-import ai.timefold.solver.core.api.solver.SolverManager;
 import ai.timefold.solver.core.config.solver.SolverConfig;
 import ai.timefold.solver.core.impl.util.MutableReference;
+import ai.timefold.wasm.service.CompiledSessionCache.CompiledSession;
 import ai.timefold.wasm.service.classgen.Allocator;
 import ai.timefold.wasm.service.classgen.ConstraintProviderClassGenerator;
 import ai.timefold.wasm.service.classgen.DomainObjectClassGenerator;
 import ai.timefold.wasm.service.classgen.DomainObjectClassLoader;
 import ai.timefold.wasm.service.classgen.WasmListAccessor;
+import ai.timefold.wasm.service.classgen.WasmObject;
+import ai.timefold.wasm.service.dto.BinarySolveResult;
 import ai.timefold.wasm.service.dto.PlanningProblem;
 import ai.timefold.wasm.service.dto.SolveResult;
+import ai.timefold.wasm.service.dto.SolverStats;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.jspecify.annotations.Nullable;
 
-import com.dylibso.chicory.compiler.MachineFactoryCompiler;
-import com.dylibso.chicory.runtime.ByteArrayMemory;
-import com.dylibso.chicory.runtime.HostFunction;
-import com.dylibso.chicory.runtime.ImportFunction;
-import com.dylibso.chicory.runtime.ImportValues;
 import com.dylibso.chicory.runtime.Instance;
-import com.dylibso.chicory.wasi.WasiOptions;
-import com.dylibso.chicory.wasi.WasiPreview1;
-import com.dylibso.chicory.wasm.Parser;
-import com.dylibso.chicory.wasm.WasmModule;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.dylibso.chicory.runtime.Memory;
 
 @Path("/")
 public class SolverResource {
     private static final Logger LOG = Logger.getLogger(SolverResource.class);
 
-    // Cache parsed WASM modules by SHA-256 hash to avoid re-parsing
-    private static final ConcurrentHashMap<String, WasmModule> MODULE_CACHE = new ConcurrentHashMap<>();
-
     public static ThreadLocal<Instance> INSTANCE = new ThreadLocal<>();
     public static ThreadLocal<ExportCache> EXPORT_CACHE = new ThreadLocal<>();
     public static ThreadLocal<FunctionCache> FUNCTION_CACHE = new ThreadLocal<>();
     public static ThreadLocal<WasmListAccessor> LIST_ACCESSOR = new ThreadLocal<>();
     public static ThreadLocal<Allocator> ALLOCATOR = new ThreadLocal<>();
     public static ThreadLocal<DomainObjectClassLoader> GENERATED_CLASS_LOADER = new ThreadLocal<>();
+    // Set if host function calls are profiled, see wasm.host-function-stats.enabled
+    static ThreadLocal<HostFunctionProfile> HOST_FUNCTION_PROFILE = new ThreadLocal<>();
+
+    @Inject
+    WasmModuleRegistry moduleRegistry;
+
+    @Inject
+    WasmInstancePool instancePool;
 
     @Inject
-    ObjectMapper objectMapper;
+    ProblemSnapshotCache problemSnapshotCache;
+
+    @Inject
+    CompiledSessionCache sessionCache;
 
     @ConfigProperty(name = "generatedClassPath", defaultValue = "")
     Optional<String> generatedClassPath;
 
-    /**
-     * Compute SHA-256 hash of WASM bytes for cache key.
-     */
-    private static String computeWasmHash(byte[] wasmBytes) {
+    @ConfigProperty(name = "wasm.function-cache.max-entries", defaultValue = "262144")
+    int functionCacheMaxEntries;
+
+    private Object convertPlanningProblem(CompiledWasmModule compiledModule,
+            WasmInstancePool.PooledInstance pooledInstance, Class<?> solutionClass, PlanningProblem planningProblem) {
+        var wasmInstance = pooledInstance.instance();
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(wasmBytes);
-            return HexFormat.of().formatHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
+            if (!problemSnapshotCache.isEnabled()) {
+                return parseProblem(wasmInstance, solutionClass, planningProblem);
+            }
+            // Parsing only depends on the module, the domain and the problem, so restore the memory it produced last time
+            var problemKey = ProblemSnapshotCache.computeProblemKey(compiledModule, planningProblem);
+            var problemSnapshot = problemSnapshotCache.get(problemKey);
+            if (problemSnapshot != null) {
+                long start = System.nanoTime();
+                problemSnapshot.memory().restore(wasmInstance);
+                pooledInstance.hostFunctions().restoreProblemIndexes(problemSnapshot.strings(), problemSnapshot.lists());
+                problemSnapshotCache.recordRestore(System.nanoTime() - start);
+                return solutionClass.getConstructor(Instance.class, int.class).newInstance(wasmInstance, problemSnapshot.solutionPointer());
+            }
+            var solution = parseProblem(wasmInstance, solutionClass, planningProblem);
+            // Only copy the memory if it is small enough for the cache to keep
+            var memory = wasmInstance.memory();
+            if (problemSnapshotCache.fits((memory != null) ? (long) memory.pages() * Memory.PAGE_SIZE : 0)) {
+                problemSnapshotCache.put(problemKey, new ProblemSnapshotCache.ProblemSnapshot(MemorySnapshot.capture(wasmInstance), solution.getMemoryPointer(),
+                        pooledInstance.hostFunctions().getStringTable(), pooledInstance.hostFunctions().getListIndexes()));
+            }
+            return solution;
+        } catch (InvocationTargetException e) {
+            // Extract the actual cause from the reflection wrapper
+            throw new RuntimeException("Failed to construct solution: " + e.getTargetException().getMessage(), e.getTargetException());
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException e) {
+            throw new RuntimeException(e);
         }
     }
 
-    /**
-     * Get or parse WASM module, using cache to avoid re-parsing.
-     */
-    private static WasmModule getOrParseModule(byte[] wasmBytes) {
-        String hash = computeWasmHash(wasmBytes);
-        return MODULE_CACHE.computeIfAbsent(hash, k -> {
-            LOG.infof("Parsing new WASM module (hash=%s, size=%d bytes)", hash.substring(0, 16), wasmBytes.length);
-            return Parser.parse(wasmBytes);
-        });
+    private WasmObject parseProblem(Instance wasmInstance, Class<?> solutionClass, PlanningProblem planningProblem)
+            throws InvocationTargetException, InstantiationException, IllegalAccessException, NoSuchMethodException {
+        var allocator = ALLOCATOR.get();
+        var binaryProblem = planningProblem.getBinaryProblem();
+        if (binaryProblem == null) {
+            return (WasmObject) solutionClass.getConstructor(Allocator.class, Instance.class, String.class)
+                    .newInstance(allocator, wasmInstance, planningProblem.getProblem());
+        }
+        // The generated constructor takes text, so bytes are passed to the solution's parse function here
+        var domainObjectMapper = planningProblem.getDomainObjectMap().get(planningProblem.getSolutionClass())
+                .getDomainObjectMapper();
+        int pointer = allocator.allocate(binaryProblem.length);
+        wasmInstance.memory().write(pointer, binaryProblem);
+        int solution = (int) wasmInstance.export(domainObjectMapper.stringToInstanceFunction())
+                .apply(binaryProblem.length, pointer)[0];
+        allocator.free(pointer);
+        return (WasmObject) solutionClass.getConstructor(Instance.class, int.class).newInstance(wasmInstance, solution);
     }
 
-    private Instance createWasmInstance(PlanningProblem planningProblem) {
-        var hostFunctions = new HostFunctionProvider(objectMapper, planningProblem).createHostFunctions();
-
-        // Use cached WASM module to avoid re-parsing
-        var module = getOrParseModule(planningProblem.getWasm());
-
-        var instanceBuilder = Instance.builder(module)
-                .withMemoryFactory(ByteArrayMemory::new)
-                .withMachineFactory(MachineFactoryCompiler::compile);
+    /**
+     * Generate the domain and constraint provider classes of the planning problem and build their solver factory.
+     * Expects {@link #GENERATED_CLASS_LOADER} and {@link #EXPORT_CACHE} to be set to the session's.
+     */
+    private CompiledSession compileSession(@Nullable String sessionKey, PlanningProblem planningProblem,
+            DomainObjectClassLoader classLoader, ExportCache exports) {
+        long start = System.nanoTime();
+        var solverConfig = new SolverConfig();
 
-        var optionsBuilder = WasiOptions.builder()
-                .inheritSystem();
+        new DomainObjectClassGenerator().prepareClassesForPlanningProblem(planningProblem);
 
-        for (var environmentEntry : System.getenv().entrySet()) {
-            optionsBuilder.withEnvironment(environmentEntry.getKey(), environmentEntry.getValue());
+        var solutionClass = classLoader.getClassForDomainClassName(planningProblem.getSolutionClass());
+        var entityClassList = new ArrayList<Class<?>>(planningProblem.getEntityClassList().size());
+        for (var entityClass : planningProblem.getEntityClassList()) {
+            entityClassList.add(classLoader.getClassForDomainClassName(entityClass));
         }
 
-        var options = optionsBuilder.build();
-        // create our instance of wasip1
-        var wasi = WasiPreview1.builder().withOptions(options).build();
+        solverConfig.setSolutionClass(solutionClass);
+        solverConfig.setEntityClassList(entityClassList);
+        solverConfig.setEnvironmentMode(planningProblem.getEnvironmentMode());
 
-        var importFunctions = hostFunctions.toArray(new ImportFunction[0]);
-        instanceBuilder.withImportValues(ImportValues.builder()
-                .addFunction(importFunctions)
-                .addFunction(wasi.toHostFunctions())
-                .build());
+        var constraintProviderClass = new ConstraintProviderClassGenerator()
+                .defineConstraintProviderClass(planningProblem);
 
-        var out = instanceBuilder.build();
-        out.initialize(true);
-        return out;
-    }
+        generatedClassPath.ifPresent(s -> classLoader.dumpGeneratedClasses(Paths.get(s)));
 
-    private Object convertPlanningProblem(Instance wasmInstance, DomainObjectClassLoader classLoader, PlanningProblem planningProblem) {
-        var solutionClass = classLoader.getClassForDomainClassName(planningProblem.getSolutionClass());
-        var allocator = ALLOCATOR.get();
-        try {
-            return solutionClass.getConstructor(Allocator.class, Instance.class, String.class).newInstance(allocator, wasmInstance, planningProblem.getProblem());
-        } catch (InvocationTargetException e) {
-            // Extract the actual cause from the reflection wrapper
-            throw new RuntimeException("Failed to construct solution: " + e.getTargetException().getMessage(), e.getTargetException());
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException e) {
-            throw new RuntimeException(e);
-        }
-    }
+        solverConfig.withConstraintProviderClass(constraintProviderClass);
 
-    private <T> T usingGeneratedSolverAndPlanningProblem(PlanningProblem planningProblem, BiFunction<Object, SolverFactory<Object>, T> resultFunction) {
-        var solverConfig = new SolverConfig();
+        // The termination is not part of the session key, so each solver gets the request's through a SolverConfigOverride
+        SolverFactory<Object> solverFactory = SolverFactory.create(solverConfig);
+        sessionCache.recordCompilation(System.nanoTime() - start);
+        return new CompiledSession(sessionKey, classLoader, solutionClass, solverFactory, exports);
+    }
 
-        var domainObjectClassGenerator = new DomainObjectClassGenerator();
-        var wasmInstance = createWasmInstance(planningProblem);
+    /**
+     * @param resultOutlivesRequest true if the result holds objects backed by the WASM instance's memory,
+     *        in which case the instance is not reused by later requests
+     */
+    private <T> T usingGeneratedSolverAndPlanningProblem(PlanningProblem planningProblem, boolean resultOutlivesRequest,
+            BiFunction<Object, SolverFactory<Object>, T> resultFunction) {
+        // Reuse the parsed module and its compiled machine code across requests
+        var compiledModule = moduleRegistry.resolve(planningProblem);
+        var pooledInstance = instancePool.acquire(compiledModule, planningProblem);
+        var wasmInstance = pooledInstance.instance();
+        boolean reusable = false;
+        CompiledSession session = null;
 
         try {
-            var classLoader = new DomainObjectClassLoader();
-            GENERATED_CLASS_LOADER.set(classLoader);
+            // Reuse the generated classes and solver factory of an earlier request with the same schema
+            var sessionKey = sessionCache.isEnabled() ? sessionCache.computeSessionKey(compiledModule, planningProblem) : null;
+            session = (sessionKey != null) ? sessionCache.acquire(sessionKey, wasmInstance) : null;
+            if (session != null) {
+                GENERATED_CLASS_LOADER.set(session.classLoader());
+                EXPORT_CACHE.set(session.exports());
+            } else {
+                var classLoader = new DomainObjectClassLoader();
+                var exports = new ExportCache(wasmInstance);
+                GENERATED_CLASS_LOADER.set(classLoader);
+                EXPORT_CACHE.set(exports);
+            }
             INSTANCE.set(wasmInstance);
-            EXPORT_CACHE.set(new ExportCache(wasmInstance));
-            FUNCTION_CACHE.set(new FunctionCache());
+            var hostFunctionProfile = pooledInstance.hostFunctions().getProfile();
+            if (hostFunctionProfile != null) {
+                HOST_FUNCTION_PROFILE.set(hostFunctionProfile);
+            }
+            FUNCTION_CACHE.set(new FunctionCache(functionCacheMaxEntries));
             LIST_ACCESSOR.set(new WasmListAccessor(wasmInstance, planningProblem.getListAccessor()));
             ALLOCATOR.set(new Allocator(wasmInstance, planningProblem.getAllocator(), planningProblem.getDeallocator(),
                     planningProblem.getSolutionDeallocator()));
 
-            domainObjectClassGenerator.prepareClassesForPlanningProblem(planningProblem);
-
-            var solutionClass = classLoader.getClassForDomainClassName(planningProblem.getSolutionClass());
-            var entityClassList = new ArrayList<Class<?>>(planningProblem.getEntityClassList().size());
-            for (var entityClass : planningProblem.getEntityClassList()) {
-                entityClassList.add(classLoader.getClassForDomainClassName(entityClass));
+            if (session == null) {
+                session = compileSession(sessionKey, planningProblem, GENERATED_CLASS_LOADER.get(), EXPORT_CACHE.get());
             }
 
-            solverConfig.setSolutionClass(solutionClass);
-            solverConfig.setEntityClassList(entityClassList);
-            solverConfig.setEnvironmentMode(planningProblem.getEnvironmentMode());
-
-            var constraintProviderClass = new ConstraintProviderClassGenerator()
-                    .defineConstraintProviderClass(planningProblem);
-
-            generatedClassPath.ifPresent(s -> classLoader.dumpGeneratedClasses(Paths.get(s)));
-
-            solverConfig.withConstraintProviderClass(constraintProviderClass);
-
-            solverConfig.withTerminationConfig(planningProblem.terminationConfig());
+            var solverInput = convertPlanningProblem(compiledModule, pooledInstance, session.solutionClass(), planningProblem);
 
-            var solverFactory = SolverFactory.create(solverConfig);
-            var solverInput = convertPlanningProblem(wasmInstance, classLoader, planningProblem);
-
-            return resultFunction.apply(solverInput, solverFactory);
+            var result = resultFunction.apply(solverInput, session.solverFactory());
+            reusable = !resultOutlivesRequest;
+            return result;
         } finally {
+            // Free what the Cleaners queued so far on this thread; what they queue later is dropped,
+            // since the instance is then reset or used by another request
+            try {
+                var allocator = ALLOCATOR.get();
+                if (allocator != null) {
+                    allocator.close();
+                }
+                var listAccessor = LIST_ACCESSOR.get();
+                if (listAccessor != null) {
+                    listAccessor.close();
+                }
+            } catch (RuntimeException e) {
+                // The module failed to free its own objects, so its state is not trusted for another request
+                LOG.warn("Failed to free the objects released during the request; discarding the instance", e);
+                reusable = false;
+            }
             GENERATED_CLASS_LOADER.remove();
             LIST_ACCESSOR.remove();
             FUNCTION_CACHE.remove();
             EXPORT_CACHE.remove();
             INSTANCE.remove();
+            HOST_FUNCTION_PROFILE.remove();
             ALLOCATOR.remove();
+            if (session != null) {
+                sessionCache.release(session);
+            }
+            if (reusable) {
+                instancePool.release(pooledInstance);
+            } else {
+                instancePool.discard(pooledInstance);
+            }
         }
     }
 
+    /**
+     * Answers with CBOR when the request prefers it to JSON, see {@link #solveBinary(PlanningProblem)}.
+     */
     @POST
     @Path("solve")
+    @Produces({ MediaType.APPLICATION_JSON, CborMessageBodyHandler.APPLICATION_CBOR })
+    public Response solve(PlanningProblem planningProblem, @Context HttpHeaders headers) {
+        for (var mediaType : headers.getAcceptableMediaTypes()) {
+            if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                break;
+            }
+            if (mediaType.isCompatible(CborMessageBodyHandler.APPLICATION_CBOR_TYPE)) {
+                return Response.ok(solveBinary(planningProblem), CborMessageBodyHandler.APPLICATION_CBOR_TYPE).build();
+            }
+        }
+        return Response.ok(solve(planningProblem), MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
     public SolveResult solve(PlanningProblem planningProblem) {
-        return usingGeneratedSolverAndPlanningProblem(planningProblem, (solverInput, solverFactory) -> {
-            var solver = solverFactory.buildSolver();
+        return solve(planningProblem, planningProblem.getProblem(), Object::toString, SolveResult::new);
+    }
+
+    /**
+     * Solve, returning the best solution encoded as CBOR.
+     * It is written from memory by the host, as {@code hscheduleString} would, instead of by the solution's
+     * string function.
+     */
+    public BinarySolveResult solveBinary(PlanningProblem planningProblem) {
+        var domainLayouts = DomainLayout.of(planningProblem.getDomainObjectMap());
+        var solutionLayout = domainLayouts.get(planningProblem.getSolutionClass());
+        return solve(planningProblem, null, solution -> ScheduleWriter.writeCbor(INSTANCE.get(), domainLayouts,
+                solutionLayout, ((WasmObject) solution).getMemoryPointer()), BinarySolveResult::new);
+    }
+
+    private interface SolveResultFactory<S, R> {
+        R create(S solution, @Nullable Score<?> score, @Nullable SolverStats stats);
+    }
+
+    /**
+     * @param problem the problem in the encoding of the result, if the request has it, to answer with
+     *        when the solver never finds a best solution
+     * @param solutionEncoder encodes a best solution while the solver is paused, before it is modified
+     */
+    private <S, R> R solve(PlanningProblem planningProblem, @Nullable S problem, Function<Object, S> solutionEncoder,
+            SolveResultFactory<S, R> resultFactory) {
+        return usingGeneratedSolverAndPlanningProblem(planningProblem, false, (solverInput, solverFactory) -> {
+            var solver = solverFactory.buildSolver(new SolverConfigOverride<>()
+                    .withTerminationConfig(planningProblem.terminationConfig()));
 
             // Copy the solution into a map; we don't know enough from the WASM
             // to create an accurate planning clone that cannot be corrupted by
             // constraints/setters
-            MutableReference<SolveResult> bestSolutionRef = new MutableReference<>(
-                    new SolveResult(planningProblem.getProblem(), null, null));
+            MutableReference<@Nullable S> bestSolutionRef = new MutableReference<>(problem);
+            MutableReference<@Nullable Score<?>> bestScoreRef = new MutableReference<>(null);
             solver.addEventListener(event -> {
-                bestSolutionRef.setValue(new SolveResult(event.getNewBestSolution().toString(), event.getNewBestScore(), null));
+                bestSolutionRef.setValue(solutionEncoder.apply(event.getNewBestSolution()));
+                bestScoreRef.setValue(event.getNewBestScore());
             });
 
             solver.solve(solverInput);
 
+            var bestSolution = bestSolutionRef.getValue();
+            if (bestSolution == null) {
+                bestSolution = solutionEncoder.apply(solverInput);
+            }
             // Extract metrics from DefaultSolver
-            var result = bestSolutionRef.getValue();
             var defaultSolver = (ai.timefold.solver.core.impl.solver.DefaultSolver<?>) solver;
-            var stats = new ai.timefold.wasm.service.dto.SolverStats(
+            var hostFunctionProfile = HOST_FUNCTION_PROFILE.get();
+            var functionCacheStats = FUNCTION_CACHE.get().getFunctionStats();
+            var stats = new SolverStats(
                     defaultSolver.getTimeMillisSpent(),
                     defaultSolver.getScoreCalculationCount(),
                     defaultSolver.getScoreCalculationSpeed(),
                     defaultSolver.getMoveEvaluationCount(),
-                    defaultSolver.getMoveEvaluationSpeed());
-            return new SolveResult(result.solution(), result.score(), stats);
+                    defaultSolver.getMoveEvaluationSpeed(),
+                    (hostFunctionProfile != null) ? hostFunctionProfile.getStats() : null,
+                    functionCacheStats.functions().isEmpty() ? null : functionCacheStats);
+            return resultFactory.create(bestSolution, bestScoreRef.getValue(), stats);
         });
     }
 
     @POST
     @Path("analyze")
     public ScoreAnalysis<?> analyze(PlanningProblem planningProblem) {
-        return usingGeneratedSolverAndPlanningProblem(planningProblem, (solverInput, solverFactory) -> {
-            var solutionManager = SolutionManager.create(SolverManager.create(solverFactory));
+        // The analysis references the planning entities and facts, which are read when it is serialized
+        return usingGeneratedSolverAndPlanningProblem(planningProblem, true, (solverInput, solverFactory) -> {
+            // Not through a SolverManager, which would start a solver thread pool that is never closed
+            var solutionManager = SolutionManager.create(solverFactory);
             return solutionManager.analyze(solverInput);
         });
     }
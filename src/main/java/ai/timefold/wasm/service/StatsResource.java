@@ -0,0 +1,45 @@
+package ai.timefold.wasm.service;
+
+import java.util.Map;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import ai.timefold.wasm.service.dto.HostFunctionCallStats;
+
+import org.jspecify.annotations.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@Path("/stats")
+public class StatsResource {
+    @Inject
+    WasmModuleCache moduleCache;
+
+    @Inject
+    WasmModuleDiskCache moduleDiskCache;
+
+    @Inject
+    WasmInstancePool instancePool;
+
+    @Inject
+    ProblemSnapshotCache problemSnapshotCache;
+
+    @Inject
+    CompiledSessionCache sessionCache;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public ServiceStats stats() {
+        return new ServiceStats(moduleCache.getStats(), moduleDiskCache.getStats(), instancePool.getStats(),
+                problemSnapshotCache.getStats(), sessionCache.getStats(), instancePool.getHostFunctionStats());
+    }
+
+    public record ServiceStats(WasmModuleCache.Stats moduleCache, WasmModuleDiskCache.Stats moduleDiskCache,
+            WasmInstancePool.Stats instancePool, ProblemSnapshotCache.Stats problemCache,
+            CompiledSessionCache.Stats sessionCache,
+            @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable Map<String, HostFunctionCallStats> hostFunctions) {}
+}
@@ -0,0 +1,139 @@
+package ai.timefold.wasm.service;
+
+import com.dylibso.chicory.runtime.Memory;
+
+/**
+ * The strings {@code hparseSchedule} wrote into WASM memory for a problem, with their length and hash by pointer.
+ *
+ * The parser writes each distinct string once and reuses its pointer for every occurrence,
+ * so two strings of the table are equal if and only if their pointers are.
+ * Only strings the module created itself have to be compared byte by byte.
+ *
+ * The table is filled while parsing and only read afterwards,
+ * so it is shared by every instance a snapshot of the parsed problem is restored into.
+ */
+final class StringTable {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    // Open addressing on the pointer, which is never 0 for a string
+    private int[] pointers = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    void add(int pointer, int length, int hash) {
+        if ((size + 1) * 2 > pointers.length) {
+            resize(pointers.length * 2);
+        }
+        int slot = slotOf(pointer, pointers);
+        if (pointers[slot] == 0) {
+            size++;
+        }
+        pointers[slot] = pointer;
+        lengths[slot] = length;
+        hashes[slot] = hash;
+    }
+
+    /**
+     * The slot of the given string, or -1 if the parser did not write it.
+     */
+    int indexOf(int pointer) {
+        if (pointer == 0) {
+            return -1;
+        }
+        int slot = slotOf(pointer, pointers);
+        return (pointers[slot] == pointer) ? slot : -1;
+    }
+
+    boolean contains(int pointer) {
+        return indexOf(pointer) >= 0;
+    }
+
+    int lengthAt(int slot) {
+        return lengths[slot];
+    }
+
+    int hashAt(int slot) {
+        return hashes[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int slotOf(int pointer, int[] pointers) {
+        int mask = pointers.length - 1;
+        int hash = pointer * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (pointers[slot] != 0 && pointers[slot] != pointer) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        var oldPointers = pointers;
+        var oldLengths = lengths;
+        var oldHashes = hashes;
+        pointers = new int[capacity];
+        lengths = new int[capacity];
+        hashes = new int[capacity];
+        for (int i = 0; i < oldPointers.length; i++) {
+            if (oldPointers[i] != 0) {
+                int slot = slotOf(oldPointers[i], pointers);
+                pointers[slot] = oldPointers[i];
+                lengths[slot] = oldLengths[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    // ========== Strings in WASM memory ==========
+
+    /**
+     * FNV-1a hash of UTF-8 bytes, the same as {@link #hash(Memory, int, int)} computes for them in memory.
+     */
+    static int hash(byte[] bytes) {
+        int hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    static int hash(Memory memory, int pointer, int length) {
+        int hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (memory.read(pointer + i) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * The number of bytes of the C string at the given pointer, without its terminating 0.
+     */
+    static int length(Memory memory, int pointer) {
+        int length = 0;
+        while (memory.read(pointer + length) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Compare two C strings byte by byte, without decoding them.
+     */
+    static boolean contentEquals(Memory memory, int pointer1, int pointer2) {
+        for (int i = 0;; i++) {
+            byte b = memory.read(pointer1 + i);
+            if (b != memory.read(pointer2 + i)) {
+                return false;
+            }
+            if (b == 0) {
+                return true;
+            }
+        }
+    }
+}
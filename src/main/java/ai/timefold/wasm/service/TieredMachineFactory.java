@@ -0,0 +1,219 @@
+package ai.timefold.wasm.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+import org.jboss.logging.Logger;
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.compiler.internal.Compiler;
+import com.dylibso.chicory.compiler.internal.CompilerResult;
+import com.dylibso.chicory.compiler.internal.MachineFactory;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.InterpreterMachine;
+import com.dylibso.chicory.runtime.Machine;
+import com.dylibso.chicory.wasm.WasmModule;
+import com.dylibso.chicory.wasm.types.ExternalType;
+import com.dylibso.chicory.wasm.types.OpCode;
+
+/**
+ * A machine factory for {@link ExecutionMode#TIERED}: instances run on Chicory's interpreter
+ * while the module is compiled in the background.
+ *
+ * Instances count the calls the host makes into each WASM function. Once the profiling time has
+ * passed, the most called functions, and the functions they call, are compiled first, up to half
+ * of the module, with the rest left to the interpreter. The whole module is compiled next. Each instance
+ * switches to the newest compiled code at its next call from the host; memory, globals and tables
+ * belong to the instance, so the machine running its functions can change between calls.
+ */
+public final class TieredMachineFactory implements Function<Instance, Machine> {
+    private static final Logger LOG = Logger.getLogger(TieredMachineFactory.class);
+
+    private final String hash;
+    private final WasmModule module;
+    private final int importedFunctionCount;
+    private final int definedFunctionCount;
+    private final AtomicLongArray callCounts;
+    private final LongConsumer compileTimeListener;
+    private final Consumer<Map<String, byte[]>> classBytesListener;
+
+    private volatile @Nullable Function<Instance, Machine> compiledMachineFactory;
+    private volatile boolean fullyCompiled;
+    private volatile boolean cancelled;
+    private volatile long compiledClassBytes;
+
+    TieredMachineFactory(String hash, WasmModule module, LongConsumer compileTimeListener,
+            Consumer<Map<String, byte[]>> classBytesListener) {
+        this.hash = hash;
+        this.module = module;
+        this.importedFunctionCount = module.importSection().count(ExternalType.FUNCTION);
+        this.definedFunctionCount = module.functionSection().functionCount();
+        this.callCounts = new AtomicLongArray(importedFunctionCount + definedFunctionCount);
+        this.compileTimeListener = compileTimeListener;
+        this.classBytesListener = classBytesListener;
+    }
+
+    @Override
+    public Machine apply(Instance instance) {
+        return new TieredMachine(instance);
+    }
+
+    /**
+     * Schedule the background compilation, after giving instances the profiling time to find the hot functions.
+     */
+    void startCompilation(ScheduledExecutorService executor, long profilingTimeNanos) {
+        executor.schedule(this::compile, profilingTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Skip the compilation if it has not finished yet, for modules that will not be used anymore.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isFullyCompiled() {
+        return fullyCompiled;
+    }
+
+    /**
+     * The size of the classes compiled from the whole module, or 0 until they are.
+     */
+    public long getCompiledClassBytes() {
+        return compiledClassBytes;
+    }
+
+    private void compile() {
+        try {
+            long start = System.nanoTime();
+            var hotFunctions = getHotFunctions();
+            if (!cancelled && !hotFunctions.isEmpty()) {
+                var interpretedFunctions = new HashSet<Integer>();
+                for (int i = importedFunctionCount; i < importedFunctionCount + definedFunctionCount; i++) {
+                    if (!hotFunctions.contains(i)) {
+                        interpretedFunctions.add(i);
+                    }
+                }
+                var result = Compiler.builder(module).withInterpretedFunctions(interpretedFunctions).build().compile();
+                compiledMachineFactory = new MachineFactory(module, result.machineFactory());
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                LOG.debugf("Compiled %d hot functions of WASM module (hash=%s) in %d ms",
+                        (Object) hotFunctions.size(), hash.substring(0, 16), elapsed);
+            }
+            if (cancelled) {
+                return;
+            }
+
+            var result = Compiler.builder(module).build().compile();
+            compiledMachineFactory = new MachineFactory(module, result.machineFactory());
+            compiledClassBytes = getClassBytes(result);
+            fullyCompiled = true;
+
+            long elapsed = System.nanoTime() - start;
+            compileTimeListener.accept(elapsed);
+            LOG.infof("Compiled WASM module (hash=%s, %d bytes of classes) in the background in %d ms",
+                    hash.substring(0, 16), compiledClassBytes, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            classBytesListener.accept(result.classBytes());
+        } catch (RuntimeException | Error e) {
+            LOG.errorf(e, "Background compilation of WASM module (hash=%s) failed; it keeps running interpreted",
+                    hash.substring(0, 16));
+        }
+    }
+
+    static long getClassBytes(CompilerResult result) {
+        long classBytes = 0;
+        for (var bytes : result.classBytes().values()) {
+            classBytes += bytes.length;
+        }
+        return classBytes;
+    }
+
+    /**
+     * The defined functions called from the host so far, most called first, each with the functions it calls,
+     * as long as they fit in half of the module; compiling most of the module first would only delay
+     * the full compilation. A function whose callees would not fit is left out, but less called ones may still fit.
+     * Functions only reached through {@code call_indirect} stay interpreted until the full compilation.
+     */
+    Set<Integer> getHotFunctions() {
+        // The counts keep changing while instances run, so they are read once to rank the functions
+        var counts = new long[callCounts.length()];
+        var calledFunctions = new ArrayList<Integer>();
+        for (int i = importedFunctionCount; i < counts.length; i++) {
+            counts[i] = callCounts.get(i);
+            if (counts[i] > 0) {
+                calledFunctions.add(i);
+            }
+        }
+        calledFunctions.sort(Comparator.comparingLong((Integer function) -> counts[function]).reversed());
+
+        int maxHotFunctions = definedFunctionCount / 2;
+        var hotFunctions = new HashSet<Integer>();
+        for (var calledFunction : calledFunctions) {
+            var callees = getCallees(calledFunction, hotFunctions);
+            if (hotFunctions.size() + callees.size() <= maxHotFunctions) {
+                hotFunctions.addAll(callees);
+            }
+        }
+        return hotFunctions;
+    }
+
+    /**
+     * The given defined function and the functions it calls, directly or through others, that are not hot already.
+     */
+    private Set<Integer> getCallees(int function, Set<Integer> hotFunctions) {
+        var callees = new HashSet<Integer>();
+        var pending = new ArrayDeque<Integer>();
+        pending.add(function);
+        while (!pending.isEmpty()) {
+            var callee = pending.poll();
+            if (callee < importedFunctionCount || hotFunctions.contains(callee) || !callees.add(callee)) {
+                continue;
+            }
+            var body = module.codeSection().getFunctionBody(callee - importedFunctionCount);
+            for (var instruction : body.instructions()) {
+                if (instruction.opcode() == OpCode.CALL || instruction.opcode() == OpCode.RETURN_CALL) {
+                    pending.add((int) instruction.operand(0));
+                }
+            }
+        }
+        return callees;
+    }
+
+    /**
+     * The machine of one instance. Instances are used by one thread at a time, so it needs no synchronization.
+     */
+    private final class TieredMachine implements Machine {
+        private final Instance instance;
+        private @Nullable Machine machine;
+        private @Nullable Function<Instance, Machine> machineFactory;
+
+        private TieredMachine(Instance instance) {
+            this.instance = instance;
+        }
+
+        @Override
+        public long[] call(int funcId, long[] args) {
+            var latestMachineFactory = compiledMachineFactory;
+            if (machine == null || latestMachineFactory != machineFactory) {
+                machine = (latestMachineFactory != null)
+                        ? latestMachineFactory.apply(instance)
+                        : new InterpreterMachine(instance);
+                machineFactory = latestMachineFactory;
+            }
+            if (!fullyCompiled) {
+                callCounts.incrementAndGet(funcId);
+            }
+            return machine.call(funcId, args);
+        }
+    }
+}
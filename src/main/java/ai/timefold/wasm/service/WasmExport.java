@@ -0,0 +1,142 @@
+package ai.timefold.wasm.service;
+
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.ExportFunction;
+import com.dylibso.chicory.runtime.Instance;
+
+/**
+ * A WASM export with typed calls that reuse their argument arrays.
+ *
+ * {@link ExportFunction#apply(long...)} takes its arguments as varargs, so every call from Java allocates
+ * an argument array, on top of the result array Chicory allocates.
+ * Chicory copies the arguments into the callee's frame before running it, so an array can be filled again
+ * as soon as the call entered WASM, even by a reentrant call from a host function.
+ * An instance is only used by one thread at a time, so the arrays are not shared across threads.
+ *
+ * The {@code call(Instance, ...)} variants are for generated domain classes, whose objects know their instance:
+ * they take the bound export if it is the export of that instance, and look it up otherwise,
+ * like a class generated for a cached session being used before the session was bound.
+ */
+public final class WasmExport implements ExportFunction {
+    private final String name;
+    private @Nullable Instance instance;
+    private @Nullable ExportFunction function;
+
+    private final long[] arguments1 = new long[1];
+    private final long[] arguments2 = new long[2];
+    private final long[] arguments3 = new long[3];
+    private final long[] arguments4 = new long[4];
+    private final long[] arguments5 = new long[5];
+
+    public WasmExport(@Nullable Instance instance, String name) {
+        this.name = name;
+        bind(instance);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Point this export at the export of the same name of another instance, or at none.
+     */
+    public void bind(@Nullable Instance instance) {
+        this.instance = instance;
+        this.function = (instance != null) ? instance.export(name) : null;
+    }
+
+    @Override
+    public long[] apply(long... args) {
+        return function.apply(args);
+    }
+
+    public long call() {
+        return function.apply()[0];
+    }
+
+    public long call(long a) {
+        var arguments = arguments1;
+        arguments[0] = a;
+        return function.apply(arguments)[0];
+    }
+
+    public long call(long a, long b) {
+        var arguments = arguments2;
+        arguments[0] = a;
+        arguments[1] = b;
+        return function.apply(arguments)[0];
+    }
+
+    public long call(long a, long b, long c) {
+        var arguments = arguments3;
+        arguments[0] = a;
+        arguments[1] = b;
+        arguments[2] = c;
+        return function.apply(arguments)[0];
+    }
+
+    public long call(long a, long b, long c, long d) {
+        var arguments = arguments4;
+        arguments[0] = a;
+        arguments[1] = b;
+        arguments[2] = c;
+        arguments[3] = d;
+        return function.apply(arguments)[0];
+    }
+
+    public long call(long a, long b, long c, long d, long e) {
+        var arguments = arguments5;
+        arguments[0] = a;
+        arguments[1] = b;
+        arguments[2] = c;
+        arguments[3] = d;
+        arguments[4] = e;
+        return function.apply(arguments)[0];
+    }
+
+    // Exports without results, like setters, return no result array
+
+    public void callVoid(long a) {
+        var arguments = arguments1;
+        arguments[0] = a;
+        function.apply(arguments);
+    }
+
+    public void callVoid(long a, long b) {
+        var arguments = arguments2;
+        arguments[0] = a;
+        arguments[1] = b;
+        function.apply(arguments);
+    }
+
+    public void callVoid(long a, long b, long c) {
+        var arguments = arguments3;
+        arguments[0] = a;
+        arguments[1] = b;
+        arguments[2] = c;
+        function.apply(arguments);
+    }
+
+    public long call(Instance instance, long a) {
+        if (instance != this.instance) {
+            return instance.export(name).apply(a)[0];
+        }
+        return call(a);
+    }
+
+    public long call(Instance instance, long a, long b) {
+        if (instance != this.instance) {
+            return instance.export(name).apply(a, b)[0];
+        }
+        return call(a, b);
+    }
+
+    public void callVoid(Instance instance, long a, long b) {
+        if (instance != this.instance) {
+            instance.export(name).apply(a, b);
+            return;
+        }
+        callVoid(a, b);
+    }
+}
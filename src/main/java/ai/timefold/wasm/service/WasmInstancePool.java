@@ -0,0 +1,389 @@
+package ai.timefold.wasm.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import ai.timefold.wasm.service.dto.HostFunctionCallStats;
+import ai.timefold.wasm.service.dto.MemoryBackend;
+import ai.timefold.wasm.service.dto.PlanningProblem;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.runtime.ByteArrayMemory;
+import com.dylibso.chicory.runtime.ImportFunction;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.wasi.WasiOptions;
+import com.dylibso.chicory.wasi.WasiPreview1;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Keeps initialized WASM instances per module, so a request does not have to
+ * build an instance, its WASI context and its import table and run the
+ * module's initialization.
+ *
+ * Right after initialization, the memory and globals of a pooled instance are
+ * captured in a {@link MemorySnapshot}. When a request releases the instance,
+ * the snapshot is restored and the instance goes back to the pool.
+ *
+ * Each module has at most {@code wasm.instance-pool.max-size} pooled instances.
+ * When all of them are in use, requests get a transient instance that is
+ * dropped afterward. Idle instances unused for {@code wasm.instance-pool.idle-timeout}
+ * are dropped, keeping at least {@code wasm.instance-pool.min-idle} per module.
+ *
+ * Instances store their linear memory in the {@link MemoryBackend} requested by the
+ * planning problem, or {@code wasm.memory.backend} by default. Instances with different
+ * backends are pooled separately.
+ */
+@ApplicationScoped
+public class WasmInstancePool {
+    private static final Logger LOG = Logger.getLogger(WasmInstancePool.class);
+
+    private final ObjectMapper objectMapper;
+    private final int maxSize;
+    private final int minIdle;
+    private final long idleTimeoutNanos;
+    private final MemoryBackend defaultMemoryBackend;
+    private final int parseArenaChunkSize;
+    private final boolean hostFunctionStatsEnabled;
+    // Calls of the host functions of all requests so far, if enabled; created with the first profile added
+    private volatile @Nullable HostFunctionProfile hostFunctionStats;
+
+    private final ConcurrentHashMap<PoolKey, ModulePool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong saturated = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong idleEvicted = new AtomicLong();
+    private final AtomicLong resetNanos = new AtomicLong();
+
+    @Inject
+    public WasmInstancePool(ObjectMapper objectMapper, WasmModuleCache moduleCache,
+            @ConfigProperty(name = "wasm.instance-pool.max-size", defaultValue = "4") int maxSize,
+            @ConfigProperty(name = "wasm.instance-pool.min-idle", defaultValue = "1") int minIdle,
+            @ConfigProperty(name = "wasm.instance-pool.idle-timeout", defaultValue = "5m") Duration idleTimeout,
+            @ConfigProperty(name = "wasm.memory.backend", defaultValue = "heap") MemoryBackend defaultMemoryBackend,
+            @ConfigProperty(name = "wasm.parse.arena-chunk-size", defaultValue = "1M") MemorySize parseArenaChunkSize,
+            @ConfigProperty(name = "wasm.host-function-stats.enabled", defaultValue = "false") boolean hostFunctionStatsEnabled) {
+        this.objectMapper = objectMapper;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.defaultMemoryBackend = defaultMemoryBackend;
+        this.parseArenaChunkSize = (int) Math.min(parseArenaChunkSize.asLongValue(), Integer.MAX_VALUE / 2);
+        this.hostFunctionStatsEnabled = hostFunctionStatsEnabled;
+        // Pooled instances keep their module alive, so drop them together with the module
+        moduleCache.addEvictionListener(this::dropPool);
+    }
+
+    /**
+     * A WASM instance checked out of the pool.
+     * The holder must give it back through {@link #release(PooledInstance)} or {@link #discard(PooledInstance)}.
+     */
+    public static final class PooledInstance {
+        private final Instance instance;
+        private final HostFunctionProvider hostFunctions;
+        // Null for transient instances, which are never reused
+        private final @Nullable ModulePool pool;
+        private final @Nullable MemorySnapshot snapshot;
+        private long releasedAtNanos;
+
+        private PooledInstance(Instance instance, HostFunctionProvider hostFunctions, @Nullable ModulePool pool,
+                @Nullable MemorySnapshot snapshot) {
+            this.instance = instance;
+            this.hostFunctions = hostFunctions;
+            this.pool = pool;
+            this.snapshot = snapshot;
+        }
+
+        public Instance instance() {
+            return instance;
+        }
+
+        public HostFunctionProvider hostFunctions() {
+            return hostFunctions;
+        }
+    }
+
+    private record PoolKey(String hash, MemoryBackend memoryBackend) {
+    }
+
+    private final class ModulePool {
+        private final CompiledWasmModule module;
+        private final MemoryBackend memoryBackend;
+        // Most recently released first, so the least recently used instances sit at the tail
+        private final ArrayDeque<PooledInstance> idle = new ArrayDeque<>();
+        private int inUse;
+        private boolean closed;
+
+        private ModulePool(CompiledWasmModule module, MemoryBackend memoryBackend) {
+            this.module = module;
+            this.memoryBackend = memoryBackend;
+        }
+
+        private PooledInstance acquire() {
+            boolean hasFreeSlot;
+            synchronized (this) {
+                var pooled = idle.pollFirst();
+                if (pooled != null) {
+                    inUse++;
+                    reused.incrementAndGet();
+                    return pooled;
+                }
+                hasFreeSlot = !closed && inUse < maxSize;
+                if (hasFreeSlot) {
+                    inUse++;
+                }
+            }
+            if (!hasFreeSlot) {
+                saturated.incrementAndGet();
+                return createInstance(module, memoryBackend, null);
+            }
+            try {
+                return createInstance(module, memoryBackend, this);
+            } catch (RuntimeException | Error e) {
+                synchronized (this) {
+                    inUse--;
+                }
+                throw e;
+            }
+        }
+
+        private synchronized void giveBack(PooledInstance pooled, boolean reusable) {
+            inUse--;
+            if (reusable && !closed) {
+                pooled.releasedAtNanos = System.nanoTime();
+                idle.addFirst(pooled);
+            }
+        }
+
+        private synchronized void evictIdle(long now) {
+            while (idle.size() > minIdle && now - idle.peekLast().releasedAtNanos > idleTimeoutNanos) {
+                idle.pollLast();
+                idleEvicted.incrementAndGet();
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            idle.clear();
+        }
+    }
+
+    static Function<MemoryLimits, Memory> getMemoryFactory(MemoryBackend memoryBackend) {
+        return switch (memoryBackend) {
+            case HEAP -> ByteArrayMemory::new;
+            // SegmentMemory does not implement the atomics of shared memories
+            case OFF_HEAP -> limits -> limits.shared() ? new ByteArrayMemory(limits) : SegmentMemory.offHeap(limits);
+            case MAPPED -> limits -> limits.shared() ? new ByteArrayMemory(limits) : SegmentMemory.mapped(limits);
+        };
+    }
+
+    private PooledInstance createInstance(CompiledWasmModule module, MemoryBackend memoryBackend,
+            @Nullable ModulePool pool) {
+        var hostFunctions = new HostFunctionProvider(objectMapper, parseArenaChunkSize, hostFunctionStatsEnabled);
+
+        var instanceBuilder = Instance.builder(module.module())
+                .withMemoryFactory(getMemoryFactory(memoryBackend))
+                .withMachineFactory(module.machineFactory());
+
+        var optionsBuilder = WasiOptions.builder()
+                .inheritSystem();
+
+        for (var environmentEntry : System.getenv().entrySet()) {
+            optionsBuilder.withEnvironment(environmentEntry.getKey(), environmentEntry.getValue());
+        }
+
+        var options = optionsBuilder.build();
+        // create our instance of wasip1
+        var wasi = WasiPreview1.builder().withOptions(options).build();
+
+        var importFunctions = hostFunctions.createHostFunctions().toArray(new ImportFunction[0]);
+        instanceBuilder.withImportValues(ImportValues.builder()
+                .addFunction(importFunctions)
+                .addFunction(wasi.toHostFunctions())
+                .build());
+
+        var instance = instanceBuilder.build();
+        instance.initialize(true);
+        created.incrementAndGet();
+
+        var snapshot = (pool != null) ? MemorySnapshot.capture(instance) : null;
+        return new PooledInstance(instance, hostFunctions, pool, snapshot);
+    }
+
+    /**
+     * Check out an initialized instance of the given module, with its host functions bound to the planning problem.
+     */
+    public PooledInstance acquire(CompiledWasmModule module, PlanningProblem planningProblem) {
+        acquired.incrementAndGet();
+        evictIdleInstances();
+        var memoryBackend = (planningProblem.getMemory() != null) ? planningProblem.getMemory() : defaultMemoryBackend;
+        var pooled = getPool(module, memoryBackend).acquire();
+        pooled.hostFunctions.bind(planningProblem);
+        return pooled;
+    }
+
+    /**
+     * Reset the instance to its post-initialization state and return it to the pool.
+     */
+    public void release(PooledInstance pooled) {
+        var pool = pooled.pool;
+        addHostFunctionStats(pooled.hostFunctions);
+        pooled.hostFunctions.unbind();
+        if (pool == null) {
+            return;
+        }
+        boolean reusable = false;
+        try {
+            long start = System.nanoTime();
+            pooled.snapshot.restore(pooled.instance);
+            resetNanos.addAndGet(System.nanoTime() - start);
+            reusable = true;
+        } catch (RuntimeException e) {
+            LOG.warnf(e, "Failed to reset WASM instance of module (hash=%s); dropping it",
+                    pool.module.hash().substring(0, 16));
+        } finally {
+            pool.giveBack(pooled, reusable);
+        }
+    }
+
+    /**
+     * Drop the instance instead of returning it to the pool,
+     * for when objects backed by its memory outlive the request.
+     */
+    public void discard(PooledInstance pooled) {
+        addHostFunctionStats(pooled.hostFunctions);
+        pooled.hostFunctions.unbind();
+        if (pooled.pool != null) {
+            discarded.incrementAndGet();
+            pooled.pool.giveBack(pooled, false);
+        }
+    }
+
+    /**
+     * Create idle instances of the module up to {@code wasm.instance-pool.min-idle},
+     * so the first requests using the module do not pay the instantiation cost.
+     * Only the default memory backend is prewarmed.
+     */
+    public void prewarm(CompiledWasmModule module) {
+        var pool = getPool(module, defaultMemoryBackend);
+        var warmed = new ArrayList<PooledInstance>(minIdle);
+        for (int i = 0; i < minIdle; i++) {
+            synchronized (pool) {
+                if (pool.closed || pool.idle.size() + pool.inUse + warmed.size() >= minIdle) {
+                    break;
+                }
+            }
+            warmed.add(createInstance(module, defaultMemoryBackend, pool));
+        }
+        synchronized (pool) {
+            for (var pooled : warmed) {
+                pooled.releasedAtNanos = System.nanoTime();
+                pool.idle.addLast(pooled);
+            }
+        }
+    }
+
+    private ModulePool getPool(CompiledWasmModule module, MemoryBackend memoryBackend) {
+        var key = new PoolKey(module.hash(), memoryBackend);
+        var pool = pools.computeIfAbsent(key, _ -> new ModulePool(module, memoryBackend));
+        if (pool.module != module) {
+            // The module was evicted and compiled again; instances of the old compilation cannot be reused
+            dropPool(pool.module);
+            pool = pools.computeIfAbsent(key, _ -> new ModulePool(module, memoryBackend));
+        }
+        return pool;
+    }
+
+    private void dropPool(CompiledWasmModule module) {
+        for (var memoryBackend : MemoryBackend.values()) {
+            var key = new PoolKey(module.hash(), memoryBackend);
+            var pool = pools.get(key);
+            if (pool != null && pool.module == module && pools.remove(key, pool)) {
+                pool.close();
+            }
+        }
+    }
+
+    private void evictIdleInstances() {
+        long now = System.nanoTime();
+        for (var pool : pools.values()) {
+            pool.evictIdle(now);
+        }
+    }
+
+    private void addHostFunctionStats(HostFunctionProvider hostFunctions) {
+        var profile = hostFunctions.getProfile();
+        if (profile == null) {
+            return;
+        }
+        var stats = hostFunctionStats;
+        if (stats == null) {
+            synchronized (this) {
+                stats = hostFunctionStats;
+                if (stats == null) {
+                    stats = profile.emptyCopy();
+                    hostFunctionStats = stats;
+                }
+            }
+        }
+        stats.add(profile);
+    }
+
+    /**
+     * The calls of each host function over all requests, by name, or null unless
+     * {@code wasm.host-function-stats.enabled} is set.
+     */
+    public @Nullable Map<String, HostFunctionCallStats> getHostFunctionStats() {
+        if (!hostFunctionStatsEnabled) {
+            return null;
+        }
+        var stats = hostFunctionStats;
+        return (stats != null) ? stats.getStats() : Map.of();
+    }
+
+    public Stats getStats() {
+        int idleCount = 0;
+        int inUseCount = 0;
+        List<ModulePool> modulePools = List.copyOf(pools.values());
+        var moduleHashes = new HashSet<String>();
+        for (var pool : modulePools) {
+            moduleHashes.add(pool.module.hash());
+            synchronized (pool) {
+                idleCount += pool.idle.size();
+                inUseCount += pool.inUse;
+            }
+        }
+        return new Stats(moduleHashes.size(), idleCount, inUseCount, maxSize, created.get(), acquired.get(),
+                reused.get(), saturated.get(), discarded.get(), idleEvicted.get(),
+                TimeUnit.NANOSECONDS.toMillis(resetNanos.get()));
+    }
+
+    /**
+     * Snapshot of the instance pool counters.
+     * {@code saturated} counts the requests that got a transient instance because their module's pool was exhausted.
+     */
+    public record Stats(int modules, int idle, int inUse, int maxSizePerModule, long created, long acquired,
+            long reused, long saturated, long discarded, long idleEvicted, long resetTimeMillis) {
+    }
+}
@@ -0,0 +1,290 @@
+package ai.timefold.wasm.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.compiler.internal.Compiler;
+import com.dylibso.chicory.compiler.internal.MachineFactory;
+import com.dylibso.chicory.wasm.Parser;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Caches parsed and compiled WASM modules by SHA-256 hash.
+ *
+ * Compiling a module translates every WASM function to JVM bytecode, which
+ * takes seconds for large constraint modules. The compiled machine factory
+ * can be shared by any number of instances of the same module, so repeat
+ * requests only pay the instantiation cost.
+ *
+ * The cache is a bounded LRU: once either {@code wasm.module-cache.max-entries}
+ * or {@code wasm.module-cache.max-bytes} is exceeded, the least recently used
+ * modules are dropped. An entry's weight is the size of its WASM binary plus
+ * the size of the JVM classes compiled from it. Evicted entries are only
+ * referenced by instances still in use, so their generated classes unload
+ * once those requests finish.
+ *
+ * With {@code wasm.execution-mode=tiered}, a miss only parses the module: its
+ * instances start on the interpreter and a {@link TieredMachineFactory} compiles
+ * it in the background. Such an entry's weight grows once its classes are
+ * compiled, which the cache accounts for at the next insertion.
+ *
+ * Compiled classes are also written to the {@link WasmModuleDiskCache} when it
+ * is enabled, and a miss loads them from there before compiling.
+ */
+@ApplicationScoped
+public class WasmModuleCache {
+    private static final Logger LOG = Logger.getLogger(WasmModuleCache.class);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ExecutionMode executionMode;
+    private final long profilingTimeNanos;
+    private final WasmModuleDiskCache diskCache;
+    // Only created in tiered mode
+    private final @Nullable ScheduledExecutorService compilerExecutor;
+
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by itself
+    private final LinkedHashMap<String, CompiledWasmModule> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Compilations in progress, so concurrent requests for the same module compile it once
+    private final ConcurrentHashMap<String, CompletableFuture<CompiledWasmModule>> inFlight = new ConcurrentHashMap<>();
+
+    private final List<Consumer<CompiledWasmModule>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    @Inject
+    public WasmModuleCache(@ConfigProperty(name = "wasm.module-cache.max-entries", defaultValue = "32") int maxEntries,
+            @ConfigProperty(name = "wasm.module-cache.max-bytes", defaultValue = "512M") MemorySize maxBytes,
+            @ConfigProperty(name = "wasm.execution-mode", defaultValue = "compiled") ExecutionMode executionMode,
+            @ConfigProperty(name = "wasm.tiered.profiling-time", defaultValue = "200ms") Duration profilingTime,
+            WasmModuleDiskCache diskCache) {
+        this(maxEntries, maxBytes.asLongValue(), executionMode, profilingTime, diskCache);
+    }
+
+    WasmModuleCache(int maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, ExecutionMode.COMPILED, Duration.ZERO, WasmModuleDiskCache.disabled());
+    }
+
+    WasmModuleCache(int maxEntries, long maxBytes, ExecutionMode executionMode, Duration profilingTime,
+            WasmModuleDiskCache diskCache) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("wasm.module-cache.max-entries must be at least 1, but was " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.executionMode = executionMode;
+        this.profilingTimeNanos = profilingTime.toNanos();
+        this.diskCache = diskCache;
+        this.compilerExecutor = (executionMode == ExecutionMode.TIERED)
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("wasm-compiler").daemon().factory())
+                : null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (compilerExecutor != null) {
+            compilerExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Register a callback run with every module evicted from the cache,
+     * so holders of per-module resources can release them.
+     */
+    public void addEvictionListener(Consumer<CompiledWasmModule> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Compute SHA-256 hash of WASM bytes for cache key.
+     */
+    public static String computeWasmHash(byte[] wasmBytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(wasmBytes);
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Get the compiled module for the given WASM bytes, parsing and compiling it on a cache miss.
+     * Concurrent requests for the same module wait for a single compilation.
+     */
+    public CompiledWasmModule getOrCompile(byte[] wasmBytes) {
+        return getOrCompile(computeWasmHash(wasmBytes), wasmBytes);
+    }
+
+    /**
+     * Same as {@link #getOrCompile(byte[])}, for callers that already know the module's hash.
+     */
+    public CompiledWasmModule getOrCompile(String hash, byte[] wasmBytes) {
+        var cached = lookup(hash);
+        if (cached != null) {
+            return cached;
+        }
+
+        var compilation = new CompletableFuture<CompiledWasmModule>();
+        var existing = inFlight.putIfAbsent(hash, compilation);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            // Another thread may have finished compiling between the lookup and claiming the compilation
+            cached = lookup(hash);
+            if (cached == null) {
+                cached = compile(hash, wasmBytes);
+                insert(cached);
+            }
+            compilation.complete(cached);
+            return cached;
+        } catch (RuntimeException | Error e) {
+            compilation.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(hash, compilation);
+        }
+    }
+
+    private CompiledWasmModule lookup(String hash) {
+        CompiledWasmModule cached;
+        synchronized (cache) {
+            cached = cache.get(hash);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    private static CompiledWasmModule await(CompletableFuture<CompiledWasmModule> compilation) {
+        try {
+            return compilation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private CompiledWasmModule compile(String hash, byte[] wasmBytes) {
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        var module = Parser.parse(wasmBytes);
+        var persisted = diskCache.load(hash, module, wasmBytes.length);
+        if (persisted != null) {
+            return persisted;
+        }
+        if (compilerExecutor != null) {
+            var tieredMachineFactory = new TieredMachineFactory(hash, module, compileNanos::addAndGet,
+                    classBytes -> diskCache.store(hash, classBytes));
+            tieredMachineFactory.startCompilation(compilerExecutor, profilingTimeNanos);
+            LOG.infof("Parsed new WASM module (hash=%s, size=%d bytes); compiling it in the background",
+                    hash.substring(0, 16), wasmBytes.length);
+            return new CompiledWasmModule(hash, module, tieredMachineFactory, wasmBytes.length);
+        }
+        var compilerResult = Compiler.builder(module).build().compile();
+        long elapsed = System.nanoTime() - start;
+        compileNanos.addAndGet(elapsed);
+
+        long classBytes = TieredMachineFactory.getClassBytes(compilerResult);
+        LOG.infof("Compiled new WASM module (hash=%s, size=%d bytes, %d bytes of classes) in %d ms",
+                hash.substring(0, 16), wasmBytes.length, classBytes, TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        diskCache.store(hash, compilerResult.classBytes());
+
+        // Same as MachineFactoryCompiler.compile(module), which does not expose the generated class bytes
+        var machineFactory = new MachineFactory(module, compilerResult.machineFactory());
+        return new CompiledWasmModule(hash, module, machineFactory, wasmBytes.length + classBytes);
+    }
+
+    private void insert(CompiledWasmModule compiledModule) {
+        var evicted = new ArrayList<CompiledWasmModule>();
+        synchronized (cache) {
+            cache.put(compiledModule.hash(), compiledModule);
+
+            // Never evict the entry just inserted, even if it alone exceeds the byte limit
+            var totalBytes = getTotalBytes();
+            var iterator = cache.values().iterator();
+            while ((cache.size() > maxEntries || totalBytes > maxBytes) && cache.size() > 1) {
+                var eldest = iterator.next();
+                iterator.remove();
+                totalBytes -= eldest.currentWeight();
+                evictions.incrementAndGet();
+                evicted.add(eldest);
+                LOG.infof("Evicted WASM module (hash=%s, weight=%d bytes) from module cache",
+                        eldest.hash().substring(0, 16), eldest.currentWeight());
+            }
+        }
+        for (var module : evicted) {
+            if (module.machineFactory() instanceof TieredMachineFactory tieredMachineFactory) {
+                tieredMachineFactory.cancel();
+            }
+            for (var listener : evictionListeners) {
+                listener.accept(module);
+            }
+        }
+    }
+
+    // Summed on demand, since modules compiled in the background get heavier after insertion; guarded by cache
+    private long getTotalBytes() {
+        long totalBytes = 0;
+        for (var module : cache.values()) {
+            totalBytes += module.currentWeight();
+        }
+        return totalBytes;
+    }
+
+    public Stats getStats() {
+        int size;
+        long bytes;
+        synchronized (cache) {
+            size = cache.size();
+            bytes = getTotalBytes();
+        }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        double hitRatio = lookups == 0 ? 0.0 : (double) hitCount / lookups;
+        return new Stats(size, maxEntries, bytes, maxBytes, hitCount, missCount, hitRatio, evictions.get(),
+                TimeUnit.NANOSECONDS.toMillis(compileNanos.get()));
+    }
+
+    /**
+     * Snapshot of the module cache counters.
+     * Every miss is one compilation or one load from the disk cache.
+     */
+    public record Stats(int size, int maxEntries, long bytes, long maxBytes,
+            long hits, long misses, double hitRatio, long evictions, long compileTimeMillis) {
+    }
+}
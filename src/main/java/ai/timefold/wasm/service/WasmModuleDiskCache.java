@@ -0,0 +1,361 @@
+package ai.timefold.wasm.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.jspecify.annotations.Nullable;
+
+import com.dylibso.chicory.compiler.internal.Compiler;
+import com.dylibso.chicory.compiler.internal.MachineFactory;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Machine;
+import com.dylibso.chicory.wasm.WasmModule;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Keeps the JVM classes compiled from WASM modules in a local directory, so a
+ * restarted service loads them instead of compiling every module again.
+ *
+ * Each module is one file named after its hash and the Chicory version that
+ * compiled it, holding the compiled classes followed by a SHA-256 checksum of
+ * them. Files are only read when their module is first requested; a file that
+ * fails its checksum or does not load is deleted and the module is compiled
+ * again. Files of other Chicory versions are deleted, and the least recently
+ * used files are deleted while the directory holds more than
+ * {@code wasm.module-cache.directory-max-bytes}.
+ *
+ * Disabled unless {@code wasm.module-cache.directory} is set.
+ */
+@ApplicationScoped
+public class WasmModuleDiskCache {
+    private static final Logger LOG = Logger.getLogger(WasmModuleDiskCache.class);
+
+    private static final int MAGIC = 0x5746434D;
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".classes";
+    // The name Chicory's compiler gives the machine class unless told otherwise
+    private static final String MACHINE_CLASS_NAME = "com.dylibso.chicory.$gen.CompiledMachine";
+    private static final String COMPILER_VERSION = readCompilerVersion();
+
+    private final @Nullable Path directory;
+    private final long maxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong corrupted = new AtomicLong();
+
+    @Inject
+    public WasmModuleDiskCache(@ConfigProperty(name = "wasm.module-cache.directory") Optional<String> directory,
+            @ConfigProperty(name = "wasm.module-cache.directory-max-bytes", defaultValue = "1G") MemorySize maxBytes) {
+        this(directory.map(Path::of).orElse(null), maxBytes.asLongValue());
+    }
+
+    WasmModuleDiskCache(@Nullable Path directory, long maxBytes) {
+        if (directory != null && COMPILER_VERSION.equals("unknown")) {
+            // Without the version, classes of an older compiler could be loaded after an upgrade
+            LOG.warnf("Cannot determine the Chicory compiler version; not caching compiled WASM modules in (%s)", directory);
+            directory = null;
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    static WasmModuleDiskCache disabled() {
+        return new WasmModuleDiskCache(null, 0);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    private static String readCompilerVersion() {
+        try (InputStream in = Compiler.class.getResourceAsStream("/META-INF/maven/com.dylibso.chicory/compiler/pom.properties")) {
+            if (in != null) {
+                var properties = new Properties();
+                properties.load(in);
+                return properties.getProperty("version", "unknown");
+            }
+        } catch (IOException e) {
+            LOG.debug("Cannot read the Chicory compiler version", e);
+        }
+        return "unknown";
+    }
+
+    private Path getFile(String hash) {
+        return directory.resolve(hash + "-chicory-" + COMPILER_VERSION + FILE_EXTENSION);
+    }
+
+    /**
+     * Load the module's compiled classes from the directory, or return null if they are not there.
+     */
+    public @Nullable CompiledWasmModule load(String hash, WasmModule module, int wasmSize) {
+        if (directory == null) {
+            return null;
+        }
+        var file = getFile(hash);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException e) {
+            LOG.warnf(e, "Failed to read compiled WASM module from (%s)", file);
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try {
+            var classBytes = decode(content);
+            var machineFactory = new MachineFactory(module, loadMachineFactory(classBytes));
+            long classSize = 0;
+            for (var bytes : classBytes.values()) {
+                classSize += bytes.length;
+            }
+            touch(file);
+            hits.incrementAndGet();
+            LOG.infof("Loaded compiled WASM module (hash=%s, %d bytes of classes) from (%s)",
+                    hash.substring(0, 16), classSize, file);
+            return new CompiledWasmModule(hash, module, machineFactory, wasmSize + classSize);
+        } catch (IOException | ReflectiveOperationException | LinkageError e) {
+            LOG.warnf(e, "Deleting corrupted compiled WASM module (%s)", file);
+            corrupted.incrementAndGet();
+            misses.incrementAndGet();
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * Write the classes compiled from a module to the directory, then delete files over the size limit.
+     * Failures are logged, since the module is already compiled and usable.
+     */
+    public void store(String hash, Map<String, byte[]> classBytes) {
+        if (directory == null || !classBytes.containsKey(MACHINE_CLASS_NAME)) {
+            return;
+        }
+        var file = getFile(hash);
+        try {
+            Files.createDirectories(directory);
+            var temporaryFile = Files.createTempFile(directory, hash, ".tmp");
+            try {
+                Files.write(temporaryFile, encode(classBytes));
+                try {
+                    Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            LOG.warnf(e, "Failed to write compiled WASM module to (%s)", file);
+            return;
+        }
+        cleanUp(file);
+    }
+
+    private static byte[] encode(Map<String, byte[]> classBytes) throws IOException {
+        var buffer = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(buffer)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(COMPILER_VERSION);
+            out.writeInt(classBytes.size());
+            for (var entry : classBytes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+            out.flush();
+            out.write(sha256(buffer.toByteArray(), buffer.size()));
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Map<String, byte[]> decode(byte[] content) throws IOException {
+        var digestLength = 32;
+        if (content.length < digestLength) {
+            throw new IOException("Truncated file");
+        }
+        var dataLength = content.length - digestLength;
+        if (!MessageDigest.isEqual(sha256(content, dataLength), Arrays.copyOfRange(content, dataLength, content.length))) {
+            throw new IOException("Checksum mismatch");
+        }
+        try (var in = new DataInputStream(new ByteArrayInputStream(content, 0, dataLength))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(COMPILER_VERSION)) {
+                throw new IOException("Unsupported file format");
+            }
+            var classCount = in.readInt();
+            var classBytes = new LinkedHashMap<String, byte[]>();
+            for (int i = 0; i < classCount; i++) {
+                var name = in.readUTF();
+                var bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                classBytes.put(name, bytes);
+            }
+            return classBytes;
+        }
+    }
+
+    private static byte[] sha256(byte[] data, int length) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, 0, length);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    private static Function<Instance, Machine> loadMachineFactory(Map<String, byte[]> classBytes)
+            throws ReflectiveOperationException {
+        var classLoader = new CompiledClassLoader(classBytes);
+        // Define every class now, so a class that does not verify is found before any instance uses it
+        for (var className : classBytes.keySet()) {
+            Class.forName(className, true, classLoader);
+        }
+        Constructor<? extends Machine> constructor = classLoader.loadClass(MACHINE_CLASS_NAME)
+                .asSubclass(Machine.class)
+                .getConstructor(Instance.class);
+        return instance -> {
+            try {
+                return constructor.newInstance(instance);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Defines the classes of one compiled module, like the class loader of Chicory's compiler.
+     */
+    private static final class CompiledClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classBytes;
+
+        private CompiledClassLoader(Map<String, byte[]> classBytes) {
+            super(Compiler.class.getClassLoader());
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            var bytes = classBytes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOG.debugf(e, "Failed to update the last use of (%s)", file);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warnf(e, "Failed to delete (%s)", file);
+        }
+    }
+
+    private record CachedFile(Path path, long size, FileTime lastModified) {
+    }
+
+    /**
+     * Delete files of other Chicory versions, then the least recently used files until the directory fits its limit.
+     * The file just written is kept even if it alone exceeds the limit.
+     */
+    private synchronized void cleanUp(Path writtenFile) {
+        var files = new ArrayList<CachedFile>();
+        var versionSuffix = "-chicory-" + COMPILER_VERSION + FILE_EXTENSION;
+        try (var stream = Files.list(directory)) {
+            for (var path : (Iterable<Path>) stream::iterator) {
+                var name = path.getFileName().toString();
+                if (!name.endsWith(FILE_EXTENSION)) {
+                    continue;
+                }
+                if (!name.endsWith(versionSuffix)) {
+                    delete(path);
+                    continue;
+                }
+                try {
+                    files.add(new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path)));
+                } catch (NoSuchFileException e) {
+                    // Deleted concurrently
+                }
+            }
+        } catch (IOException e) {
+            LOG.warnf(e, "Failed to clean up compiled WASM modules in (%s)", directory);
+            return;
+        }
+
+        long totalBytes = 0;
+        for (var file : files) {
+            totalBytes += file.size();
+        }
+        files.sort(Comparator.comparing(CachedFile::lastModified));
+        for (var file : files) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            if (!file.path().equals(writtenFile)) {
+                delete(file.path());
+                totalBytes -= file.size();
+                LOG.infof("Deleted least recently used compiled WASM module (%s)", file.path());
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(isEnabled(), hits.get(), misses.get(), writes.get(), corrupted.get());
+    }
+
+    /**
+     * Snapshot of the disk cache counters.
+     * {@code corrupted} counts files that failed their checksum or did not load, and were deleted.
+     */
+    public record Stats(boolean enabled, long hits, long misses, long writes, long corrupted) {
+    }
+}
@@ -0,0 +1,83 @@
+package ai.timefold.wasm.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import ai.timefold.wasm.service.dto.PlanningProblem;
+import ai.timefold.wasm.service.dto.RegisteredModule;
+
+import org.jboss.logging.Logger;
+
+/**
+ * WASM modules uploaded through {@code POST /modules}, so planning problems can
+ * reference them by hash ({@code wasmRef}) instead of embedding them.
+ *
+ * Modules are compiled, and their instance pool is filled, when they are
+ * registered. The registry keeps the raw bytes, so a registered module that
+ * was evicted from the {@link WasmModuleCache} is recompiled on its next use
+ * instead of failing the request.
+ */
+@ApplicationScoped
+public class WasmModuleRegistry {
+    private static final Logger LOG = Logger.getLogger(WasmModuleRegistry.class);
+
+    private final ConcurrentHashMap<String, byte[]> registeredModules = new ConcurrentHashMap<>();
+
+    @Inject
+    WasmModuleCache moduleCache;
+
+    @Inject
+    WasmInstancePool instancePool;
+
+    public RegisteredModule register(byte[] wasmBytes) {
+        if (wasmBytes.length == 0) {
+            throw new IllegalArgumentException("The WASM module is empty.");
+        }
+        var hash = WasmModuleCache.computeWasmHash(wasmBytes);
+        // Compile before registering, so an invalid module is rejected and never becomes referenceable
+        var compiledModule = moduleCache.getOrCompile(hash, wasmBytes);
+        instancePool.prewarm(compiledModule);
+        if (registeredModules.putIfAbsent(hash, wasmBytes) == null) {
+            LOG.infof("Registered WASM module (hash=%s, size=%d bytes)", hash.substring(0, 16), wasmBytes.length);
+        }
+        return new RegisteredModule(hash, wasmBytes.length);
+    }
+
+    public Optional<RegisteredModule> get(String hash) {
+        return Optional.ofNullable(registeredModules.get(hash))
+                .map(wasmBytes -> new RegisteredModule(hash, wasmBytes.length));
+    }
+
+    public List<RegisteredModule> list() {
+        return registeredModules.entrySet().stream()
+                .map(entry -> new RegisteredModule(entry.getKey(), entry.getValue().length))
+                .sorted(Comparator.comparing(RegisteredModule::hash))
+                .toList();
+    }
+
+    public boolean unregister(String hash) {
+        return registeredModules.remove(hash) != null;
+    }
+
+    /**
+     * Get the compiled module a planning problem runs against, either its inline {@code wasm}
+     * or the registered module its {@code wasmRef} points to.
+     */
+    public CompiledWasmModule resolve(PlanningProblem planningProblem) {
+        var wasmRef = planningProblem.getWasmRef();
+        if (wasmRef == null) {
+            return moduleCache.getOrCompile(planningProblem.getWasm());
+        }
+        var wasmBytes = registeredModules.get(wasmRef);
+        if (wasmBytes == null) {
+            throw new IllegalArgumentException("No WASM module is registered with hash (%s); upload it to /modules first."
+                    .formatted(wasmRef));
+        }
+        return moduleCache.getOrCompile(wasmRef, wasmBytes);
+    }
+}
@@ -1,15 +1,29 @@
 package ai.timefold.wasm.service.classgen;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.IntConsumer;
 import java.util.function.IntUnaryOperator;
 
 import com.dylibso.chicory.runtime.Instance;
 
+/**
+ * Allocates and frees memory through the module's exports.
+ *
+ * An instance must only be used by the thread of the request that owns it, but the clones of the solution
+ * are freed by a {@link java.lang.ref.Cleaner} thread. Their pointers are therefore only queued
+ * by {@link #freeSolutionLater(int)}, and freed by the owning thread on its next allocation or on {@link #close()}.
+ */
 public class Allocator {
     private final IntUnaryOperator alloc;
     private final IntConsumer dealloc;
     private final IntConsumer solutionDealloc;
 
+    private final Queue<Integer> pendingSolutionFrees = new ConcurrentLinkedQueue<>();
+    // Set once the request that owns the instance finished; pointers queued after that are dropped,
+    // since the instance may already have been reset and handed to another request
+    private volatile boolean closed;
+
     public Allocator(Instance instance, String allocFunctionName, String deallocFunctionName,
             String solutionDeallocFunctionName) {
         var allocFunction = instance.export(allocFunctionName);
@@ -22,6 +36,7 @@ public class Allocator {
     }
 
     public int allocate(int memorySize) {
+        freePending();
         return alloc.applyAsInt(memorySize);
     }
 
@@ -32,4 +47,31 @@ public class Allocator {
     public void freeSolution(int pointer) {
         solutionDealloc.accept(pointer);
     }
+
+    /**
+     * Queue a solution to be freed by the thread using the instance; safe to call from any thread.
+     */
+    public void freeSolutionLater(int pointer) {
+        if (!closed) {
+            pendingSolutionFrees.add(pointer);
+        }
+    }
+
+    /**
+     * Free the solutions queued by {@link #freeSolutionLater(int)}; only called by the thread using the instance.
+     */
+    public void freePending() {
+        Integer pointer;
+        while ((pointer = pendingSolutionFrees.poll()) != null) {
+            solutionDealloc.accept(pointer);
+        }
+    }
+
+    /**
+     * Free the queued solutions and drop any queued later, before the instance is released.
+     */
+    public void close() {
+        closed = true;
+        freePending();
+    }
 }
@@ -50,6 +50,8 @@ public class ConstraintProviderClassGenerator {
     private int functionCount = 0;
     private final List<Consumer<Class<?>>> classInitializerList = new ArrayList<>();
     private final ConstantPoolBuilder constantPool;
+    // The constraint whose body is being generated, which memoized functions count their cache hits under
+    private String currentConstraintName = "";
 
     static final ClassDesc constraintProviderDesc = getDescriptor(ConstraintProvider.class);
     static final ClassDesc constraintFactoryDesc = getDescriptor(ConstraintFactory.class);
@@ -149,9 +151,14 @@ public class ConstraintProviderClassGenerator {
 
     public ClassDesc loadFunctionOfSize(DataStreamInfo dataStreamInfo, int argCount, FunctionType functionType,
             WasmFunction function) {
-        var functionInstance = functionType.getFunction(argCount, function);
+        function.setConstraintName(currentConstraintName);
+        var functionClass = functionType.getFunctionClass(dataStreamInfo.dataStream(), argCount);
+        // Functions that only convert the result of the call get a class of their own, which the JIT can inline
+        var functionInstance = functionType.hasBridge()
+                ? FunctionBridgeClassGenerator.newBridge(functionType, functionClass, argCount, function, functionCount)
+                : functionType.getFunction(argCount, function);
         var functionFieldName = "$function" + functionCount;
-        var functionClassDesc = functionType.getClassDescriptor(dataStreamInfo.dataStream(), argCount);
+        var functionClassDesc = getDescriptor(functionClass);
         functionCount++;
         dataStreamInfo.classBuilder().withField(functionFieldName, functionClassDesc, ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC);
         classInitializerList.add(clazz -> {
@@ -172,6 +179,7 @@ public class ConstraintProviderClassGenerator {
             ClassBuilder classBuilder,
             CodeBuilder codeBuilder,
             WasmConstraint wasmConstraint) {
+        currentConstraintName = wasmConstraint.getName();
         DataStream dataStream = new DataStream();
         var dataStreamInfo = new DataStreamInfo(this, classBuilder, codeBuilder, dataStream, generatedClass);
         var classLoader = SolverResource.GENERATED_CLASS_LOADER.get();
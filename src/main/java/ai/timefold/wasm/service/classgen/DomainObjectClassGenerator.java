@@ -22,6 +22,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -31,14 +32,16 @@ import ai.timefold.solver.core.api.domain.solution.PlanningSolution;
 import ai.timefold.solver.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 import ai.timefold.solver.core.api.score.buildin.hardsoft.HardSoftScore;
 import ai.timefold.solver.core.api.score.buildin.simple.SimpleScore;
+import ai.timefold.wasm.service.ExportCache;
 import ai.timefold.wasm.service.SolverResource;
+import ai.timefold.wasm.service.WasmExport;
 import ai.timefold.wasm.service.dto.DomainObject;
 import ai.timefold.wasm.service.dto.FieldDescriptor;
 import ai.timefold.wasm.service.dto.PlanningProblem;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningListVariable;
 import ai.timefold.wasm.service.dto.annotation.DomainPlanningScore;
 import ai.timefold.wasm.service.dto.annotation.DomainPlanningVariable;
 
-import com.dylibso.chicory.runtime.ExportFunction;
 import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.runtime.Memory;
 
@@ -47,6 +50,7 @@ public class DomainObjectClassGenerator {
     static final ClassDesc allocatorDesc = getDescriptor(Allocator.class);
     static final ClassDesc instanceDesc = getDescriptor(Instance.class);
     static final ClassDesc mapDesc = getDescriptor(Map.class);
+    static final ClassDesc wasmExportDesc = getDescriptor(WasmExport.class);
 
     static final ClassDesc booleanDesc = ClassDesc.ofDescriptor("Z");
     static final ClassDesc byteDesc = ClassDesc.ofDescriptor("B");
@@ -151,9 +155,11 @@ public class DomainObjectClassGenerator {
     public void prepareClassForDomainObject(DomainObject domainObject) {
         var wasmOffsets = calculateWasmOffsets(domainObject);
         var classFile = ClassFile.of();
+        var classDesc = ClassDesc.of(domainObject.getName());
+        // Static fields holding the exports the accessors call, by function name
+        var exportFields = new LinkedHashMap<String, String>();
 
-
-        var classBytes = classFile.build(ClassDesc.of(domainObject.getName()), classBuilder -> {
+        var classBytes = classFile.build(classDesc, classBuilder -> {
             var isPlanningEntity = false;
             var isPlanningSolution = false;
             classBuilder.withSuperclass(wasmObjectDesc);
@@ -191,9 +197,8 @@ public class DomainObjectClassGenerator {
                     codeBuilder.aload(0);
                     codeBuilder.aload(2);
 
+                    loadExport(codeBuilder, classDesc, exportFields, domainObjectMapper.stringToInstanceFunction());
                     codeBuilder.aload(2);
-                    codeBuilder.loadConstant(domainObjectMapper.stringToInstanceFunction());
-                    codeBuilder.invokevirtual(instanceDesc, "export", MethodTypeDesc.of(getDescriptor(ExportFunction.class), stringDesc));
 
                     // pointer = allocator.allocate(str.getBytes().length + 1);
                     var STRING_LENGTH_LOCAL = 4;
@@ -216,25 +221,12 @@ public class DomainObjectClassGenerator {
                     codeBuilder.aload(3);
                     codeBuilder.invokeinterface(getDescriptor(Memory.class), "writeCString", MethodTypeDesc.of(voidDesc, intDesc, stringDesc));
 
-                    // long[] temp = new long[] {size, pointer};
-                    codeBuilder.loadConstant(2);
-                    codeBuilder.newarray(TypeKind.LONG);
-                    codeBuilder.dup();
-                    codeBuilder.dup();
-
-                    codeBuilder.loadConstant(0);
+                    // export.call(instance, size, pointer);
                     codeBuilder.loadLocal(TypeKind.INT, STRING_LENGTH_LOCAL);
                     codeBuilder.i2l();
-                    codeBuilder.lastore();
-
-                    codeBuilder.loadConstant(1);
                     codeBuilder.loadLocal(TypeKind.INT, POINTER_LOCAL);
                     codeBuilder.i2l();
-                    codeBuilder.lastore();
-
-                    codeBuilder.invokeinterface(getDescriptor(ExportFunction.class), "apply", MethodTypeDesc.of(longDesc.arrayType(), longDesc.arrayType()));
-                    codeBuilder.loadConstant(0);
-                    codeBuilder.laload();
+                    codeBuilder.invokevirtual(wasmExportDesc, "call", MethodTypeDesc.of(longDesc, instanceDesc, longDesc, longDesc));
                     codeBuilder.l2i();
 
                     codeBuilder.aload(1);
@@ -255,14 +247,17 @@ public class DomainObjectClassGenerator {
 
                 var isPlanningScore = false;
                 var isPlanningVariable = false;
+                var isPlanningListVariable = false;
                 for (var annotation : annotations) {
                     isPlanningEntity |= annotation.definesPlanningEntity();
                     isPlanningSolution |= annotation.definesPlanningSolution();
                     isPlanningScore |= annotation instanceof DomainPlanningScore;
                     isPlanningVariable |= annotation instanceof DomainPlanningVariable;
+                    isPlanningListVariable |= annotation instanceof DomainPlanningListVariable;
                 }
                 var finalIsPlanningScore = isPlanningScore;
-                var finalIsPlanningVariable = isPlanningVariable;
+                var finalIsPlanningVariable = isPlanningVariable || isPlanningListVariable;
+                var finalIsPlanningListVariable = isPlanningListVariable;
 
                 var wrapperTypeDesc = getWasmWrapperTypeDesc(field.getValue().getType());
                 classBuilder.withField(field.getKey(), wrapperTypeDesc, ClassFile.ACC_PRIVATE);
@@ -298,7 +293,13 @@ public class DomainObjectClassGenerator {
                                         codeBuilder.block(block -> {
                                             codeBuilder.if_acmpne(block.endLabel());
                                             codeBuilder.pop();
-                                            readWasmFieldUsingAccessor(field.getValue(), codeBuilder);
+                                            readWasmFieldUsingAccessor(field.getValue(), codeBuilder, classDesc, exportFields);
+                                            if (finalIsPlanningListVariable) {
+                                                // The solver changes the list in place, which must invalidate this entity
+                                                codeBuilder.dup();
+                                                codeBuilder.aload(0);
+                                                codeBuilder.invokevirtual(getDescriptor(WasmList.class), "setOwner", MethodTypeDesc.of(voidDesc, wasmObjectDesc));
+                                            }
                                             codeBuilder.dup();
                                             codeBuilder.aload(0);
                                             codeBuilder.swap();
@@ -334,6 +335,11 @@ public class DomainObjectClassGenerator {
                 // Setter
                 classBuilder.withMethodBody(getSetterName(field.getKey()),
                         MethodTypeDesc.of(voidDesc, typeDesc), ClassFile.ACC_PUBLIC, codeBuilder -> {
+                                // Invalidate cached function results of the old value, which loses this entity
+                                if (finalIsPlanningVariable) {
+                                    codeBuilder.aload(0);
+                                    codeBuilder.invokevirtual(wasmObjectDesc, "invalidateFunctionCache", MethodTypeDesc.of(voidDesc));
+                                }
                                 codeBuilder.aload(0);
                                 codeBuilder.loadLocal(getTypeKind(field.getValue().getType()), 1);
                                 if (!wrapperTypeDesc.equals(typeDesc)) {
@@ -341,19 +347,19 @@ public class DomainObjectClassGenerator {
                                 }
                                 codeBuilder.putfield(ClassDesc.of(domainObject.getName()), field.getKey(), wrapperTypeDesc);
 
-                                // Invalidate predicate cache when planning variable changes
-                                if (finalIsPlanningVariable) {
-                                    codeBuilder.aload(0);
-                                    codeBuilder.invokevirtual(wasmObjectDesc, "invalidateFunctionCache", MethodTypeDesc.of(voidDesc));
-                                }
-
                                 if (finalIsPlanningScore) {
                                     codeBuilder.return_();
                                 } else {
                                     if (field.getValue().getAccessor() != null && field.getValue().getAccessor().setterFunctionName() != null) {
-                                        writeWasmFieldUsingAccessor(field.getValue(), codeBuilder, valueBuilder -> {
+                                        writeWasmFieldUsingAccessor(field.getValue(), codeBuilder, classDesc, exportFields, valueBuilder -> {
                                             valueBuilder.loadLocal(getTypeKind(field.getValue().getType()), 1);
                                         });
+                                        // Invalidate cached function results of this entity and the new value,
+                                        // once it is in memory, where a null value would be read from
+                                        if (finalIsPlanningVariable) {
+                                            codeBuilder.aload(0);
+                                            codeBuilder.invokevirtual(wasmObjectDesc, "invalidateFunctionCache", MethodTypeDesc.of(voidDesc));
+                                        }
                                         codeBuilder.return_();
                                     }else {
                                         codeBuilder.new_(getDescriptor(UnsupportedOperationException.class));
@@ -381,25 +387,14 @@ public class DomainObjectClassGenerator {
             if (domainObject.getDomainObjectMapper() != null) {
                 var domainObjectMapper = domainObject.getDomainObjectMapper();
                 classBuilder.withMethodBody("toString", MethodTypeDesc.of(stringDesc), ClassFile.ACC_PUBLIC, codeBuilder -> {
+                    // export.call(instance, pointer);
+                    loadExport(codeBuilder, classDesc, exportFields, domainObjectMapper.instanceToStringFunction());
                     codeBuilder.aload(0);
                     codeBuilder.getfield(wasmObjectDesc, "wasmInstance", instanceDesc);
-                    codeBuilder.loadConstant(domainObjectMapper.instanceToStringFunction());
-                    codeBuilder.invokevirtual(instanceDesc, "export", MethodTypeDesc.of(getDescriptor(ExportFunction.class), stringDesc));
-
-                    // long[] temp = new long[] {pointer};
-                    codeBuilder.loadConstant(1);
-                    codeBuilder.newarray(TypeKind.LONG);
-                    codeBuilder.dup();
-                    codeBuilder.loadConstant(0);
                     codeBuilder.aload(0);
                     codeBuilder.getfield(wasmObjectDesc, "memoryPointer", intDesc);
                     codeBuilder.i2l();
-                    codeBuilder.lastore();
-
-                    codeBuilder.invokeinterface(getDescriptor(ExportFunction.class), "apply", MethodTypeDesc.of(longDesc.arrayType(), longDesc.arrayType()));
-
-                    codeBuilder.loadConstant(0);
-                    codeBuilder.laload();
+                    codeBuilder.invokevirtual(wasmExportDesc, "call", MethodTypeDesc.of(longDesc, instanceDesc, longDesc));
                     codeBuilder.l2i();
                     codeBuilder.dup();
 
@@ -419,30 +414,43 @@ public class DomainObjectClassGenerator {
                     codeBuilder.return_(TypeKind.REFERENCE);
                 });
             }
+
+            // Resolve the exports once per class, instead of per call
+            if (!exportFields.isEmpty()) {
+                for (var fieldName : exportFields.values()) {
+                    classBuilder.withField(fieldName, wasmExportDesc, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC | ClassFile.ACC_FINAL);
+                }
+                classBuilder.withMethodBody("<clinit>", MethodTypeDesc.of(voidDesc), ClassFile.ACC_STATIC, codeBuilder -> {
+                    for (var exportField : exportFields.entrySet()) {
+                        codeBuilder.loadConstant(exportField.getKey());
+                        codeBuilder.invokestatic(getDescriptor(ExportCache.class), "current", MethodTypeDesc.of(wasmExportDesc, stringDesc));
+                        codeBuilder.putstatic(classDesc, exportField.getValue(), wasmExportDesc);
+                    }
+                    codeBuilder.return_();
+                });
+            }
         });
 
         SolverResource.GENERATED_CLASS_LOADER.get().addClass(domainObject.getName(), classBytes);
     }
 
+    // Loads the export of the function from a static field of the class, declared once the class is built
+    private static void loadExport(CodeBuilder codeBuilder, ClassDesc classDesc, Map<String, String> exportFields,
+            String functionName) {
+        var fieldName = exportFields.computeIfAbsent(functionName, _ -> "$export" + exportFields.size());
+        codeBuilder.getstatic(classDesc, fieldName, wasmExportDesc);
+    }
+
     private static void readWasmFieldUsingAccessor(FieldDescriptor fieldDescriptor,
-            CodeBuilder codeBuilder) {
+            CodeBuilder codeBuilder, ClassDesc classDesc, Map<String, String> exportFields) {
         var getterFunctionName = fieldDescriptor.getAccessor().getterFunctionName();
+        loadExport(codeBuilder, classDesc, exportFields, getterFunctionName);
         codeBuilder.aload(0);
         codeBuilder.getfield(wasmObjectDesc, "wasmInstance", instanceDesc);
-        codeBuilder.loadConstant(getterFunctionName);
-        codeBuilder.invokevirtual(instanceDesc, "export", MethodTypeDesc.of(getDescriptor(ExportFunction.class), stringDesc));
-        codeBuilder.loadConstant(1);
-        codeBuilder.newarray(TypeKind.LONG);
-        codeBuilder.dup();
-        codeBuilder.loadConstant(0);
         codeBuilder.aload(0);
         codeBuilder.getfield(wasmObjectDesc, "memoryPointer", intDesc);
         codeBuilder.i2l();
-        codeBuilder.lastore();
-
-        codeBuilder.invokeinterface(getDescriptor(ExportFunction.class), "apply", MethodTypeDesc.of(longDesc.arrayType(), longDesc.arrayType()));
-        codeBuilder.loadConstant(0);
-        codeBuilder.laload();
+        codeBuilder.invokevirtual(wasmExportDesc, "call", MethodTypeDesc.of(longDesc, instanceDesc, longDesc));
 
         switch (fieldDescriptor.getType()) {
             case "int" -> {
@@ -511,24 +519,16 @@ public class DomainObjectClassGenerator {
         }
     }
 
-    private void writeWasmFieldUsingAccessor(FieldDescriptor fieldDescriptor, CodeBuilder codeBuilder, Consumer<CodeBuilder> valueBuilder) {
+    private void writeWasmFieldUsingAccessor(FieldDescriptor fieldDescriptor, CodeBuilder codeBuilder, ClassDesc classDesc,
+            Map<String, String> exportFields, Consumer<CodeBuilder> valueBuilder) {
         var setterFunctionName = fieldDescriptor.getAccessor().setterFunctionName();
+        loadExport(codeBuilder, classDesc, exportFields, setterFunctionName);
         codeBuilder.aload(0);
         codeBuilder.getfield(wasmObjectDesc, "wasmInstance", instanceDesc);
-        codeBuilder.loadConstant(setterFunctionName);
-        codeBuilder.invokevirtual(instanceDesc, "export", MethodTypeDesc.of(getDescriptor(ExportFunction.class), stringDesc));
-
-        codeBuilder.loadConstant(2);
-        codeBuilder.newarray(TypeKind.LONG);
-        codeBuilder.dup();
-        codeBuilder.dup();
-        codeBuilder.loadConstant(0);
         codeBuilder.aload(0);
         codeBuilder.getfield(wasmObjectDesc, "memoryPointer", intDesc);
         codeBuilder.i2l();
-        codeBuilder.lastore();
 
-        codeBuilder.loadConstant(1);
         valueBuilder.accept(codeBuilder);
         switch (fieldDescriptor.getType()) {
             case "int" -> {
@@ -570,8 +570,6 @@ public class DomainObjectClassGenerator {
                 codeBuilder.labelBinding(doneLabel);
             }
         }
-        codeBuilder.lastore();
-
-        codeBuilder.invokeinterface(getDescriptor(ExportFunction.class), "apply", MethodTypeDesc.of(longDesc.arrayType(), longDesc.arrayType()));
+        codeBuilder.invokevirtual(wasmExportDesc, "callVoid", MethodTypeDesc.of(voidDesc, instanceDesc, longDesc, longDesc));
     }
 }
@@ -0,0 +1,172 @@
+package ai.timefold.wasm.service.classgen;
+
+import static ai.timefold.wasm.service.classgen.DomainObjectClassGenerator.*;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import ai.timefold.wasm.service.FunctionCache;
+import ai.timefold.wasm.service.SolverResource;
+import ai.timefold.wasm.service.WasmExport;
+import ai.timefold.wasm.service.dto.WasmFunction;
+
+/**
+ * Generates a final class per WASM function a constraint calls, implementing the functional interface
+ * the constraint stream takes.
+ *
+ * Lambdas picked by arity would share one class per arity and function type across all constraints,
+ * so the solver's call sites would see many receivers for the same lambda class and the JIT could not inline
+ * through them to the WASM call. A bridge class holds the export, or the memoized function,
+ * in a final field and is named after the export, so it also shows up by name in profiles:
+ *
+ * <pre>{@code
+ * public final class WasmFunction$overlaps$3 implements BiPredicate {
+ *     private final WasmExport function;
+ *
+ *     public boolean test(Object a, Object b) {
+ *         return function.call(((WasmObject) a).getMemoryPointer(), ((WasmObject) b).getMemoryPointer()) != 0;
+ *     }
+ * }
+ * }</pre>
+ */
+public final class FunctionBridgeClassGenerator {
+    private static final ClassDesc memoizedDesc = ClassDesc.of(FunctionCache.Memoized.class.getName());
+    private static final ClassDesc functionCacheDesc = getDescriptor(FunctionCache.class);
+
+    private FunctionBridgeClassGenerator() {
+    }
+
+    /**
+     * Define the bridge class of a function in the current request's class loader and create its instance.
+     *
+     * @param index unique among the bridges of the class loader, since a function may be called by several constraints
+     */
+    public static Object newBridge(FunctionType functionType, Class<?> functionClass, int argCount,
+            WasmFunction function, int index) {
+        if (!functionType.hasBridge()) {
+            throw new IllegalArgumentException("Function type %s has no bridge".formatted(functionType));
+        }
+        var className = "WasmFunction$%s$%d".formatted(toIdentifier(function.getWasmFunctionName()), index);
+        var classDesc = ClassDesc.of(className);
+        var functionMethod = getFunctionMethod(functionClass, argCount);
+        var exports = SolverResource.EXPORT_CACHE.get();
+        var memoized = function.isMemoized();
+        var fieldDesc = memoized ? memoizedDesc : wasmExportDesc;
+
+        var classBytes = ClassFile.of().build(classDesc, classBuilder -> {
+            classBuilder.withFlags(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL);
+            classBuilder.withInterfaceSymbols(getDescriptor(functionClass));
+            classBuilder.withField("function", fieldDesc, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL);
+
+            classBuilder.withMethodBody("<init>", MethodTypeDesc.of(voidDesc, fieldDesc), ClassFile.ACC_PUBLIC, codeBuilder -> {
+                codeBuilder.aload(0);
+                codeBuilder.invokespecial(objectDesc, "<init>", MethodTypeDesc.of(voidDesc));
+                codeBuilder.aload(0);
+                codeBuilder.aload(1);
+                codeBuilder.putfield(classDesc, "function", fieldDesc);
+                codeBuilder.return_();
+            });
+
+            var parameterDescs = new ClassDesc[argCount];
+            Arrays.fill(parameterDescs, objectDesc);
+            var returnDesc = switch (functionType) {
+                case PREDICATE -> booleanDesc;
+                case TO_INT -> intDesc;
+                default -> longDesc;
+            };
+            classBuilder.withMethodBody(functionMethod.getName(), MethodTypeDesc.of(returnDesc, parameterDescs), ClassFile.ACC_PUBLIC, codeBuilder -> {
+                if (memoized) {
+                    // SolverResource.FUNCTION_CACHE.get().call(function, a, ...)
+                    codeBuilder.getstatic(getDescriptor(SolverResource.class), "FUNCTION_CACHE", getDescriptor(ThreadLocal.class));
+                    codeBuilder.invokevirtual(getDescriptor(ThreadLocal.class), "get", MethodTypeDesc.of(objectDesc));
+                    codeBuilder.checkcast(functionCacheDesc);
+                    codeBuilder.aload(0);
+                    codeBuilder.getfield(classDesc, "function", memoizedDesc);
+                    var argumentDescs = new ClassDesc[argCount + 1];
+                    Arrays.fill(argumentDescs, wasmObjectDesc);
+                    argumentDescs[0] = memoizedDesc;
+                    for (int i = 1; i <= argCount; i++) {
+                        codeBuilder.aload(i);
+                        codeBuilder.checkcast(wasmObjectDesc);
+                    }
+                    codeBuilder.invokevirtual(functionCacheDesc, "call", MethodTypeDesc.of(longDesc, argumentDescs));
+                } else {
+                    // function.call(a.getMemoryPointer(), ...)
+                    codeBuilder.aload(0);
+                    codeBuilder.getfield(classDesc, "function", wasmExportDesc);
+                    var argumentDescs = new ClassDesc[argCount];
+                    Arrays.fill(argumentDescs, longDesc);
+                    for (int i = 1; i <= argCount; i++) {
+                        codeBuilder.aload(i);
+                        codeBuilder.checkcast(wasmObjectDesc);
+                        codeBuilder.invokevirtual(wasmObjectDesc, "getMemoryPointer", MethodTypeDesc.of(intDesc));
+                        codeBuilder.i2l();
+                    }
+                    codeBuilder.invokevirtual(wasmExportDesc, "call", MethodTypeDesc.of(longDesc, argumentDescs));
+                }
+                returnResult(codeBuilder, functionType);
+            });
+        });
+
+        var classLoader = SolverResource.GENERATED_CLASS_LOADER.get();
+        classLoader.addClass(className, classBytes);
+        var bridgeClass = classLoader.getClassForDomainClassName(className);
+        try {
+            var argument = memoized ? function.memoize(exports) : exports.get(function.getWasmFunctionName());
+            return bridgeClass.getConstructor(memoized ? FunctionCache.Memoized.class : WasmExport.class)
+                    .newInstance(argument);
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+                | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void returnResult(CodeBuilder codeBuilder, FunctionType functionType) {
+        switch (functionType) {
+            case PREDICATE -> {
+                // result != 0
+                var falseLabel = codeBuilder.newLabel();
+                codeBuilder.lconst_0();
+                codeBuilder.lcmp();
+                codeBuilder.ifeq(falseLabel);
+                codeBuilder.iconst_1();
+                codeBuilder.ireturn();
+                codeBuilder.labelBinding(falseLabel);
+                codeBuilder.iconst_0();
+                codeBuilder.ireturn();
+            }
+            case TO_INT -> {
+                codeBuilder.l2i();
+                codeBuilder.ireturn();
+            }
+            case TO_LONG -> codeBuilder.lreturn();
+            default -> throw new IllegalArgumentException("Function type %s has no bridge".formatted(functionType));
+        }
+    }
+
+    private static Method getFunctionMethod(Class<?> functionClass, int argCount) {
+        for (var method : functionClass.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers()) && method.getParameterCount() == argCount) {
+                return method;
+            }
+        }
+        throw new IllegalStateException("Impossible state: %s has no abstract method with %d parameters"
+                .formatted(functionClass, argCount));
+    }
+
+    // Export names may contain any character, but class names may not contain some
+    private static String toIdentifier(String exportName) {
+        var identifier = new StringBuilder(exportName.length());
+        for (int i = 0; i < exportName.length(); i++) {
+            var c = exportName.charAt(i);
+            identifier.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        return identifier.toString();
+    }
+}
@@ -1,40 +1,53 @@
 package ai.timefold.wasm.service.classgen;
 
-import static ai.timefold.wasm.service.classgen.DomainObjectClassGenerator.getDescriptor;
-
-import java.lang.constant.ClassDesc;
-
 import ai.timefold.solver.core.api.function.TriFunction;
+import ai.timefold.wasm.service.ExportCache;
 import ai.timefold.wasm.service.SolverResource;
 import ai.timefold.wasm.service.dto.WasmFunction;
 import ai.timefold.wasm.service.dto.constraint.DataStream;
 
-import com.dylibso.chicory.runtime.Instance;
+import org.jspecify.annotations.Nullable;
 
 public enum FunctionType {
-    PREDICATE(WasmFunction::asPredicate),
+    PREDICATE,
     MAPPER(WasmFunction::asFunction),
     LIST_MAPPER(WasmFunction::asToListFunction),
     INT_LIST_MAPPER(WasmFunction::asToIntListFunction),
-    TO_INT(WasmFunction::asToIntFunction),
-    TO_LONG(WasmFunction::asToLongFunction);
+    TO_INT,
+    TO_LONG;
+
+    // Null for the function types that have a bridge
+    private final @Nullable TriFunction<WasmFunction, Integer, ExportCache, Object> functionConvertor;
 
-    private final TriFunction<WasmFunction, Integer, Instance, Object> functionConvertor;
+    FunctionType() {
+        this.functionConvertor = null;
+    }
 
-    FunctionType(TriFunction<WasmFunction, Integer, Instance, Object> functionConvertor) {
+    FunctionType(TriFunction<WasmFunction, Integer, ExportCache, Object> functionConvertor) {
         this.functionConvertor = functionConvertor;
     }
 
-    public ClassDesc getClassDescriptor(DataStream dataStream, int argCount) {
-        return getDescriptor(switch (this) {
+    public Class<?> getFunctionClass(DataStream dataStream, int argCount) {
+        return switch (this) {
             case PREDICATE -> dataStream.getPredicateClassOfSize(argCount);
             case MAPPER, LIST_MAPPER, INT_LIST_MAPPER -> dataStream.getFunctionClassOfSize(argCount);
             case TO_INT -> dataStream.getToIntFunctionClassOfSize(argCount);
             case TO_LONG -> dataStream.getToLongFunctionClassOfSize(argCount);
-        });
+        };
+    }
+
+    /**
+     * Whether the function only converts the result of the WASM call, so it can be a generated bridge class;
+     * see {@link FunctionBridgeClassGenerator}.
+     */
+    public boolean hasBridge() {
+        return functionConvertor == null;
     }
 
     public Object getFunction(int size, WasmFunction wasmFunction) {
-        return functionConvertor.apply(wasmFunction, size, SolverResource.INSTANCE.get());
+        if (functionConvertor == null) {
+            throw new IllegalStateException("Function type %s is generated as a bridge class".formatted(this));
+        }
+        return functionConvertor.apply(wasmFunction, size, SolverResource.EXPORT_CACHE.get());
     }
 }
@@ -3,28 +3,22 @@ package ai.timefold.wasm.service.classgen;
 import java.lang.reflect.InvocationTargetException;
 import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.function.IntFunction;
 
 import ai.timefold.wasm.service.SolverResource;
 
-import org.apache.commons.collections4.map.ConcurrentReferenceHashMap;
-
 import com.dylibso.chicory.runtime.Instance;
 
 public final class WasmList<Item_ extends WasmObject> extends AbstractList<Item_> {
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private static final ConcurrentReferenceHashMap<Instance, Map<Integer, WasmList<?>>> wasmInstanceToListCache = (ConcurrentReferenceHashMap) new ConcurrentReferenceHashMap.Builder<>()
-            .weakKeys().strongValues().get();
-
     private final WasmListAccessor listAccessor;
     private final WasmObject wasmList;
     private final IntFunction<Item_> itemFromPointer;
 
     private int cachedSize;
     private List<Item_> cachedItemList;
+    // The entity whose planning list variable this is, if it is one
+    private WasmObject owner;
 
     public WasmList(WasmListAccessor listAccessor, WasmObject wasmList,
             Class<Item_> itemClass) {
@@ -47,8 +41,8 @@ public final class WasmList<Item_ extends WasmObject> extends AbstractList<Item_
             throw new RuntimeException(e);
         }
 
-        for (int i = 0; i < cachedSize; i++) {
-            cachedItemList.add(listAccessor.getItem(wasmList, i, itemFromPointer));
+        for (int itemPointer : listAccessor.getItemPointers(wasmList, cachedSize)) {
+            cachedItemList.add(WasmObject.ofExistingOrCreate(wasmInstance, itemPointer, itemFromPointer));
         }
     }
 
@@ -63,9 +57,9 @@ public final class WasmList<Item_ extends WasmObject> extends AbstractList<Item_
         if (memoryPointer == 0) {
             return null;
         }
-        return (WasmList<Item_>) wasmInstanceToListCache.computeIfAbsent(SolverResource.LIST_ACCESSOR.get().getWasmInstance(), _ ->
-                (ConcurrentReferenceHashMap) ConcurrentReferenceHashMap.builder()
-                        .weakValues().get())
+        // Cached per request rather than in a static map, so the lists (and the generated item classes
+        // they construct) become unreachable together with the request's list accessor
+        return (WasmList<Item_>) SolverResource.LIST_ACCESSOR.get().getListCache()
                 .computeIfAbsent(memoryPointer, ignored -> new WasmList<>(memoryPointer, itemClass));
     }
 
@@ -77,6 +71,29 @@ public final class WasmList<Item_ extends WasmObject> extends AbstractList<Item_
         return new WasmList<>(listAccessor, backingObject, itemClass);
     }
 
+    /**
+     * Make changes to the list invalidate the cached function results of the entity it belongs to,
+     * like setting a planning variable does.
+     */
+    public void setOwner(WasmObject owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Invalidate the owner and the items that were added to or removed from its list,
+     * whose position in the planning list variable changed.
+     */
+    private void invalidateOwner(WasmObject... items) {
+        if (owner != null) {
+            owner.invalidateFunctionCache();
+            for (var item : items) {
+                if (item != null) {
+                    item.invalidateFunctionCache();
+                }
+            }
+        }
+    }
+
     @Override
     public Item_ get(int index) {
         return cachedItemList.get(index);
@@ -88,6 +105,7 @@ public final class WasmList<Item_ extends WasmObject> extends AbstractList<Item_
         var old = get(index);
         listAccessor.setItem(wasmList, index, element);
         cachedItemList.set(index, element);
+        invalidateOwner(old, element);
         return old;
     }
 
@@ -106,6 +124,7 @@ public final class WasmList<Item_ extends WasmObject> extends AbstractList<Item_
             cachedItemList.add(index, element);
         }
         cachedSize++;
+        invalidateOwner(element);
     }
 
     @Override
@@ -114,6 +133,7 @@ public final class WasmList<Item_ extends WasmObject> extends AbstractList<Item_
         listAccessor.remove(wasmList, index);
         cachedItemList.remove(index);
         cachedSize--;
+        invalidateOwner(old);
         return old;
     }
 
@@ -1,14 +1,24 @@
 package ai.timefold.wasm.service.classgen;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.IntBinaryOperator;
 import java.util.function.IntConsumer;
 import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
 import java.util.function.IntUnaryOperator;
 
+import ai.timefold.wasm.service.HostFunctionProvider;
+import ai.timefold.wasm.service.WasmExport;
 import ai.timefold.wasm.service.dto.DomainListAccessor;
 
+import org.apache.commons.collections4.map.ConcurrentReferenceHashMap;
+import org.jspecify.annotations.Nullable;
+
 import com.dylibso.chicory.runtime.Instance;
 
 public final class WasmListAccessor {
@@ -32,56 +42,73 @@ public final class WasmListAccessor {
     private final IntTriConsumer insertListFunction;
     private final IntBiConsumer removeListFunction;
     private final IntConsumer deallocListFunction;
+    // Pointer to a list's consecutive items, if the module exposes it or its lists are the host's
+    private final @Nullable IntUnaryOperator getListDataFunction;
+
+    // Lists read from memory by pointer; weak values, so lists no longer referenced are dropped
+    private final Map<Integer, WasmList<?>> listCache = ConcurrentReferenceHashMap.<Integer, WasmList<?>> builder()
+            .weakValues().get();
+
+    // Lists released by Cleaner threads, freed by the thread using the instance; see Allocator
+    private final Queue<Integer> pendingDeallocations = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
 
     public WasmListAccessor(Instance instance, DomainListAccessor domainListAccessor) {
         this.wasmInstance = instance;
 
-        var domainCreateList = Optional.ofNullable(domainListAccessor.createFunction()).map(instance::export);
-        var domainGetListItem = Optional.ofNullable(domainListAccessor.getItemFunction()).map(instance::export);
-        var domainSetListItem = Optional.ofNullable(domainListAccessor.setItemFunction()).map(instance::export);
-        var domainGetListSize = Optional.ofNullable(domainListAccessor.getSizeFunction()).map(instance::export);
-        var domainAppendListItem = Optional.ofNullable(domainListAccessor.appendFunction()).map(instance::export);
-        var domainInsertListItem = Optional.ofNullable(domainListAccessor.insertFunction()).map(instance::export);
-        var domainRemoveListItem = Optional.ofNullable(domainListAccessor.removeFunction()).map(instance::export);
-        var domainDeallocListFunction = Optional.ofNullable(domainListAccessor.deallocator()).map(instance::export);
+        var domainCreateList = Optional.ofNullable(domainListAccessor.createFunction()).map(name -> new WasmExport(instance, name));
+        var domainGetListItem = Optional.ofNullable(domainListAccessor.getItemFunction()).map(name -> new WasmExport(instance, name));
+        var domainSetListItem = Optional.ofNullable(domainListAccessor.setItemFunction()).map(name -> new WasmExport(instance, name));
+        var domainGetListSize = Optional.ofNullable(domainListAccessor.getSizeFunction()).map(name -> new WasmExport(instance, name));
+        var domainAppendListItem = Optional.ofNullable(domainListAccessor.appendFunction()).map(name -> new WasmExport(instance, name));
+        var domainInsertListItem = Optional.ofNullable(domainListAccessor.insertFunction()).map(name -> new WasmExport(instance, name));
+        var domainRemoveListItem = Optional.ofNullable(domainListAccessor.removeFunction()).map(name -> new WasmExport(instance, name));
+        var domainDeallocListFunction = Optional.ofNullable(domainListAccessor.deallocator()).map(name -> new WasmExport(instance, name));
+        var domainGetListData = Optional.ofNullable(domainListAccessor.dataFunction()).map(name -> new WasmExport(instance, name));
 
         createListFunction = domainCreateList.map(createList ->
-                        (IntSupplier) () -> (int) createList.apply()[0])
+                        (IntSupplier) () -> (int) createList.call())
                 .orElse(() -> {
                     throw new UnsupportedOperationException("create");
                 });
         getListItemFunction = domainGetListItem.map(getItem ->
-                (IntBinaryOperator) (list, index) -> (int) getItem.apply(list, index)[0])
+                (IntBinaryOperator) (list, index) -> (int) getItem.call(list, index))
                 .orElse((_, _) -> {
                     throw new UnsupportedOperationException("get");
                 });
-        setListItemFunction = domainSetListItem.map(setItem -> (IntTriConsumer) setItem::apply)
+        setListItemFunction = domainSetListItem.map(setItem -> (IntTriConsumer) setItem::callVoid)
                 .orElse((_, _, _) -> {
                     throw new UnsupportedOperationException("set");
                 });
-        getListSizeFunction = domainGetListSize.map(getSize -> (IntUnaryOperator) list -> (int) getSize.apply(list)[0])
+        getListSizeFunction = domainGetListSize.map(getSize -> (IntUnaryOperator) list -> (int) getSize.call(list))
                 .orElse(_ -> {
                     throw new UnsupportedOperationException("size");
                 });
-        appendListFunction = domainAppendListItem.map(listAppend -> (IntBiConsumer) listAppend::apply)
+        appendListFunction = domainAppendListItem.map(listAppend -> (IntBiConsumer) listAppend::callVoid)
                 .orElse((_, _) -> {
                     throw new UnsupportedOperationException("append");
                 });
-        insertListFunction = domainInsertListItem.map(listInsert -> (IntTriConsumer) listInsert::apply)
+        insertListFunction = domainInsertListItem.map(listInsert -> (IntTriConsumer) listInsert::callVoid)
                 .orElse((_, _, _) -> {
                     throw new UnsupportedOperationException("insert");
                 });
-        removeListFunction = domainRemoveListItem.map(listRemove -> (IntBiConsumer) listRemove::apply)
+        removeListFunction = domainRemoveListItem.map(listRemove -> (IntBiConsumer) listRemove::callVoid)
                 .orElse((_, _) -> {
                     throw new UnsupportedOperationException("remove");
                 });
-        deallocListFunction = domainDeallocListFunction.map(dealloc -> (IntConsumer) dealloc::apply)
+        deallocListFunction = domainDeallocListFunction.map(dealloc -> (IntConsumer) dealloc::callVoid)
                 .orElse(_ -> {
                     throw new UnsupportedOperationException("dealloc");
                 });
+        var memory = instance.memory();
+        getListDataFunction = domainGetListData.map(getData -> (IntUnaryOperator) list -> (int) getData.call(list))
+                .orElse(HostFunctionProvider.usesHostLists(instance)
+                        ? list -> HostFunctionProvider.hostListData(memory, list)
+                        : null);
     }
 
     public WasmObject newInstance() {
+        deallocatePending();
         return WasmObject.ofExisting(wasmInstance, createListFunction.getAsInt());
     }
 
@@ -91,6 +118,29 @@ public final class WasmListAccessor {
                 memoryPointerToItem);
     }
 
+    /**
+     * The pointers to the first {@code size} items of the list; copied from memory at once
+     * if the list's items can be located, otherwise read with one {@code get} call each.
+     */
+    public int[] getItemPointers(WasmObject list, int size) {
+        var pointers = new int[size];
+        if (size == 0) {
+            return pointers;
+        }
+        if (getListDataFunction != null) {
+            int data = getListDataFunction.applyAsInt(list.memoryPointer);
+            ByteBuffer.wrap(wasmInstance.memory().readBytes(data, size * Integer.BYTES))
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer()
+                    .get(pointers);
+        } else {
+            for (int i = 0; i < size; i++) {
+                pointers[i] = getListItemFunction.applyAsInt(list.memoryPointer, i);
+            }
+        }
+        return pointers;
+    }
+
     public void setItem(WasmObject list, int index, WasmObject item) {
         setListItemFunction.accept(list.memoryPointer, index, item.memoryPointer);
     }
@@ -111,8 +161,35 @@ public final class WasmListAccessor {
         removeListFunction.accept(list.memoryPointer, index);
     }
 
-    public void deallocate(int memoryPointer) {
-        deallocListFunction.accept(memoryPointer);
+    /**
+     * Queue a list to be freed by the thread using the instance; safe to call from any thread.
+     */
+    public void deallocateLater(int memoryPointer) {
+        if (!closed) {
+            pendingDeallocations.add(memoryPointer);
+        }
+    }
+
+    /**
+     * Free the lists queued by {@link #deallocateLater(int)}; only called by the thread using the instance.
+     */
+    public void deallocatePending() {
+        Integer memoryPointer;
+        while ((memoryPointer = pendingDeallocations.poll()) != null) {
+            deallocListFunction.accept(memoryPointer);
+        }
+    }
+
+    /**
+     * Free the queued lists and drop any queued later, before the instance is released.
+     */
+    public void close() {
+        closed = true;
+        deallocatePending();
+    }
+
+    Map<Integer, WasmList<?>> getListCache() {
+        return listCache;
     }
 
     public Instance getWasmInstance() {
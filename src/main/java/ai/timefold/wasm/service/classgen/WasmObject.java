@@ -1,5 +1,9 @@
 package ai.timefold.wasm.service.classgen;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Objects;
 import java.util.function.BiPredicate;
@@ -7,9 +11,12 @@ import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.ToIntFunction;
 
+import ai.timefold.solver.core.api.domain.variable.PlanningVariable;
 import ai.timefold.wasm.service.FunctionCache;
 import ai.timefold.wasm.service.SolverResource;
 
+import org.jspecify.annotations.Nullable;
+
 import com.dylibso.chicory.runtime.Instance;
 
 public class WasmObject implements Comparable<WasmObject> {
@@ -19,14 +26,57 @@ public class WasmObject implements Comparable<WasmObject> {
     private final ToIntFunction<Integer> hasher;
     private final BiPredicate<Integer, Integer> equalRelation;
 
+    // Getters of the planning variables of each generated entity class that point to other objects
+    private static final ClassValue<MethodHandle[]> PLANNING_VARIABLE_GETTERS = new ClassValue<>() {
+        @Override
+        protected MethodHandle[] computeValue(Class<?> type) {
+            var lookup = MethodHandles.publicLookup();
+            var getters = new ArrayList<MethodHandle>();
+            for (var method : type.getMethods()) {
+                if (method.isAnnotationPresent(PlanningVariable.class) && method.getParameterCount() == 0
+                        && WasmObject.class.isAssignableFrom(method.getReturnType())) {
+                    try {
+                        getters.add(lookup.unreflect(method)
+                                .asType(MethodType.methodType(WasmObject.class, WasmObject.class)));
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+            return getters.toArray(MethodHandle[]::new);
+        }
+    };
+
     /**
-     * Called when a planning variable on this entity is modified.
-     * Invalidates any cached function results involving this entity.
+     * Called before and after a planning variable on this entity is modified.
+     * Invalidates any cached function results involving this entity or the values of its planning variables,
+     * which are the old values before and the new ones after.
      */
     public void invalidateFunctionCache() {
         FunctionCache cache = SolverResource.FUNCTION_CACHE.get();
         if (cache != null) {
-            cache.invalidateEntity(memoryPointer);
+            cache.invalidatePlanningVariables(this);
+        }
+    }
+
+    /**
+     * The number of planning variables of this entity that point to other objects; 0 for other objects.
+     */
+    public int getPlanningVariableCount() {
+        return PLANNING_VARIABLE_GETTERS.get(getClass()).length;
+    }
+
+    /**
+     * The object the planning variable at the given index points to, or null if it is unassigned.
+     * Indexed rather than returned as a list, so the function cache does not allocate to check its dependencies.
+     */
+    public @Nullable WasmObject getPlanningVariableValue(int index) {
+        try {
+            return (WasmObject) PLANNING_VARIABLE_GETTERS.get(getClass())[index].invokeExact(this);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -27,8 +27,10 @@ public class WasmSolutionCloner implements SolutionCloner<WasmObject> {
             var constructor = solutionClass.getConstructor(Allocator.class, Instance.class, String.class);
             var out = constructor.newInstance(allocator, wasmInstance, serialized);
             var outMemoryLocation = out.getMemoryPointer();
+            // The action must not capture the clone or its class, or the generated classes could never be unloaded;
+            // it runs on the Cleaner's thread, so it only queues the clone to be freed by this one
             solutionCleaner.register(out, () -> {
-                allocator.freeSolution(outMemoryLocation);
+                allocator.freeSolutionLater(outMemoryLocation);
             });
 
             for (var method : solutionClass.getMethods()) {
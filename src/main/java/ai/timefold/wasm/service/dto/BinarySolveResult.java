@@ -0,0 +1,9 @@
+package ai.timefold.wasm.service.dto;
+
+import ai.timefold.solver.core.api.score.Score;
+
+/**
+ * A {@link SolveResult} whose solution is encoded as CBOR, returned to requests accepting {@code application/cbor}.
+ */
+public record BinarySolveResult(byte[] solution, Score<?> score, SolverStats stats) {
+}
@@ -1,7 +1,13 @@
 package ai.timefold.wasm.service.dto;
 
+import org.jspecify.annotations.Nullable;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+/**
+ * @param dataFunction optional; returns the pointer to a list's items, stored as consecutive i32s,
+ *        so the whole list can be read with one copy instead of one {@code get} call per item
+ */
 public record DomainListAccessor(@JsonProperty("new") String createFunction,
                                  @JsonProperty("get") String getItemFunction,
                                  @JsonProperty("set") String setItemFunction,
@@ -9,5 +15,12 @@ public record DomainListAccessor(@JsonProperty("new") String createFunction,
                                  @JsonProperty("append") String appendFunction,
                                  @JsonProperty("insert") String insertFunction,
                                  @JsonProperty("remove") String removeFunction,
-                                 @JsonProperty("deallocator") String deallocator) {
+                                 @JsonProperty("deallocator") String deallocator,
+                                 @JsonProperty("data") @Nullable String dataFunction) {
+    public DomainListAccessor(String createFunction, String getItemFunction, String setItemFunction,
+            String getSizeFunction, String appendFunction, String insertFunction, String removeFunction,
+            String deallocator) {
+        this(createFunction, getItemFunction, setItemFunction, getSizeFunction, appendFunction, insertFunction,
+                removeFunction, deallocator, null);
+    }
 }
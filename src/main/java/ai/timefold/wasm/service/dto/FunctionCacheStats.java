@@ -0,0 +1,15 @@
+package ai.timefold.wasm.service.dto;
+
+import java.util.Map;
+
+/**
+ * The occupancy of the cache of memoized function results of a solve.
+ *
+ * @param evictions entries evicted to make room for others
+ * @param purged entries removed because one of their arguments changed since
+ * @param bytes the size of the cache's tables
+ * @param functions the calls of each memoized function, by constraint and function name
+ */
+public record FunctionCacheStats(int entries, int maxEntries, double occupancy, long evictions, long purged,
+        long bytes, Map<String, MemoizedFunctionStats> functions) {
+}
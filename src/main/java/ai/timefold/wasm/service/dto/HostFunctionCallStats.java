@@ -0,0 +1,8 @@
+package ai.timefold.wasm.service.dto;
+
+/**
+ * Calls of one host function and the time spent in them.
+ * The percentiles are the upper bound of the histogram bucket they fall in, which is at most 1/8 above them.
+ */
+public record HostFunctionCallStats(long calls, long totalNanos, long p50Nanos, long p99Nanos) {
+}
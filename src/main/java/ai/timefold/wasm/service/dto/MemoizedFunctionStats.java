@@ -0,0 +1,12 @@
+package ai.timefold.wasm.service.dto;
+
+/**
+ * Calls of a memoized function in one constraint.
+ * {@code staleReads} counts the misses on a result that was cached, but for objects that changed since.
+ */
+public record MemoizedFunctionStats(long hits, long misses, long staleReads, double hitRatio) {
+    public static MemoizedFunctionStats of(long hits, long misses, long staleReads) {
+        long calls = hits + misses;
+        return new MemoizedFunctionStats(hits, misses, staleReads, (calls == 0) ? 0.0 : (double) hits / calls);
+    }
+}
@@ -0,0 +1,20 @@
+package ai.timefold.wasm.service.dto;
+
+/**
+ * Where the linear memory of a WASM instance is stored.
+ */
+public enum MemoryBackend {
+    /**
+     * A {@code byte[]} on the Java heap; fastest for small problems.
+     */
+    HEAP,
+    /**
+     * Native memory outside the Java heap, so large memories do not burden the garbage collector.
+     */
+    OFF_HEAP,
+    /**
+     * A memory-mapped temporary file, reserved for the module's maximum memory size,
+     * so growing the memory never copies it.
+     */
+    MAPPED
+}
@@ -30,7 +30,13 @@ public class PlanningProblem {
 
     EnvironmentMode environmentMode;
 
-    byte[] wasm;
+    byte @Nullable [] wasm;
+
+    @Nullable
+    String wasmRef;
+
+    @Nullable
+    MemoryBackend memory;
 
     String allocator;
 
@@ -40,21 +46,46 @@ public class PlanningProblem {
 
     DomainListAccessor listAccessor;
 
+    @Nullable
     String problem;
 
+    byte @Nullable [] binaryProblem;
+
     @JsonProperty("termination")
     PlanningTermination terminationConfig;
 
+    public PlanningProblem(Map<String, DomainObject> domainObjectMap,
+            Map<String, WasmConstraint> constraintList,
+            @Nullable EnvironmentMode environmentMode,
+            String wasm,
+            String allocator,
+            String deallocator,
+            @Nullable String solutionDeallocator,
+            DomainListAccessor listAccessor,
+            String problem,
+            @Nullable PlanningTermination terminationConfig) {
+        this(domainObjectMap, constraintList, environmentMode, wasm, null, null, allocator, deallocator,
+                solutionDeallocator, listAccessor, problem, terminationConfig);
+    }
+
+    /**
+     * Either {@code wasm} (the Base64-encoded module) or {@code wasmRef} (the hash of a module
+     * registered through {@code POST /modules}) must be given, but not both.
+     * {@code memory} overrides the {@code wasm.memory.backend} configured for the service.
+     * {@code problem} is a string, or in CBOR requests a byte string, such as the problem encoded as CBOR.
+     */
     @JsonCreator
     public PlanningProblem(@JsonProperty("domain")  Map<String, DomainObject> domainObjectMap,
             @JsonProperty("constraints") Map<String, WasmConstraint> constraintList,
             @Nullable@JsonProperty("environmentMode") EnvironmentMode environmentMode,
-            @JsonProperty("wasm") String wasm,
+            @Nullable @JsonProperty("wasm") String wasm,
+            @Nullable @JsonProperty("wasmRef") String wasmRef,
+            @Nullable @JsonProperty("memory") MemoryBackend memory,
             @JsonProperty("allocator") String allocator,
             @JsonProperty("deallocator") String deallocator,
             @Nullable @JsonProperty("solutionDeallocator") String solutionDeallocator,
             @JsonProperty("listAccessor")  DomainListAccessor listAccessor,
-            @JsonProperty("problem") String problem,
+            @JsonProperty("problem") @Nullable Object problem,
             @Nullable @JsonProperty("termination") PlanningTermination terminationConfig) {
         this.domainObjectMap = domainObjectMap;
         this.constraintList = constraintList.entrySet()
@@ -64,8 +95,20 @@ public class PlanningProblem {
                     return entry.getValue();
                 }).toList();
         this.environmentMode = (environmentMode != null)? environmentMode : EnvironmentMode.PHASE_ASSERT;
-        this.problem = problem;
-        this.wasm = Base64.getDecoder().decode(wasm);
+        if (problem instanceof byte[] bytes) {
+            this.binaryProblem = bytes;
+        } else if (problem == null || problem instanceof String) {
+            this.problem = (String) problem;
+        } else {
+            throw new IllegalArgumentException("The problem must be a string, or a byte string in CBOR requests.");
+        }
+        if ((wasm == null) == (wasmRef == null)) {
+            throw new IllegalArgumentException("Exactly one of wasm (%s) or wasmRef (%s) must be given."
+                    .formatted(wasm == null ? "missing" : "present", wasmRef));
+        }
+        this.wasm = (wasm != null)? Base64.getDecoder().decode(wasm) : null;
+        this.wasmRef = wasmRef;
+        this.memory = memory;
         this.allocator = allocator;
         this.deallocator = deallocator;
         this.solutionDeallocator = (solutionDeallocator != null)? solutionDeallocator : deallocator;
@@ -129,18 +172,52 @@ public class PlanningProblem {
                 }).toList();
     }
 
-    public String getProblem() {
+    /**
+     * The problem as text, or null if it was given as {@link #getBinaryProblem() bytes}.
+     */
+    public @Nullable String getProblem() {
         return problem;
     }
 
     public void setProblem(String problem) {
         this.problem = problem;
+        this.binaryProblem = null;
+    }
+
+    /**
+     * The problem given as a CBOR byte string, passed to the solution's parse function as is.
+     */
+    public byte @Nullable [] getBinaryProblem() {
+        return binaryProblem;
+    }
+
+    public void setBinaryProblem(byte[] binaryProblem) {
+        this.binaryProblem = binaryProblem;
+        this.problem = null;
     }
 
-    public byte[] getWasm() {
+    /**
+     * The inline WASM module, or null when the problem references a registered module through {@link #getWasmRef()}.
+     */
+    public byte @Nullable [] getWasm() {
         return wasm;
     }
 
+    public @Nullable String getWasmRef() {
+        return wasmRef;
+    }
+
+    /**
+     * The memory backend requested for this problem, or null to use the configured default.
+     */
+    public @Nullable MemoryBackend getMemory() {
+        return memory;
+    }
+
+    public void setMemory(@Nullable MemoryBackend memory) {
+        this.memory = memory;
+    }
+
     public String getAllocator() {
         return allocator;
     }
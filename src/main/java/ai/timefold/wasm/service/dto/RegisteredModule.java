@@ -0,0 +1,8 @@
+package ai.timefold.wasm.service.dto;
+
+/**
+ * A WASM module registered through {@code POST /modules}.
+ * The {@code hash} is the value to pass as {@code wasmRef} in a planning problem.
+ */
+public record RegisteredModule(String hash, int size) {
+}
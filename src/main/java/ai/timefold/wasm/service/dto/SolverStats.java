@@ -1,12 +1,25 @@
 package ai.timefold.wasm.service.dto;
 
+import java.util.Map;
+
+import org.jspecify.annotations.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
  * Performance statistics from a solver run.
+ *
+ * @param hostFunctions the calls of each host function the module made, by name;
+ *        only recorded if {@code wasm.host-function-stats.enabled} is set
+ * @param functionCache the occupancy of the cache of memoized functions and their hits and misses;
+ *        absent if no function is memoized
  */
 public record SolverStats(
         long timeSpentMillis,
         long scoreCalculationCount,
         long scoreCalculationSpeed,
         long moveEvaluationCount,
-        long moveEvaluationSpeed) {
+        long moveEvaluationSpeed,
+        @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable Map<String, HostFunctionCallStats> hostFunctions,
+        @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable FunctionCacheStats functionCache) {
 }
@@ -1,27 +1,18 @@
 package ai.timefold.wasm.service.dto;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.function.ToIntBiFunction;
 import java.util.function.ToIntFunction;
-import java.util.function.ToLongBiFunction;
-import java.util.function.ToLongFunction;
 
 import ai.timefold.solver.core.api.function.PentaFunction;
-import ai.timefold.solver.core.api.function.PentaPredicate;
 import ai.timefold.solver.core.api.function.QuadFunction;
-import ai.timefold.solver.core.api.function.QuadPredicate;
-import ai.timefold.solver.core.api.function.ToIntQuadFunction;
-import ai.timefold.solver.core.api.function.ToIntTriFunction;
-import ai.timefold.solver.core.api.function.ToLongQuadFunction;
-import ai.timefold.solver.core.api.function.ToLongTriFunction;
 import ai.timefold.solver.core.api.function.TriFunction;
-import ai.timefold.solver.core.api.function.TriPredicate;
 import ai.timefold.wasm.service.ExportCache;
 import ai.timefold.wasm.service.FunctionCache;
 import ai.timefold.wasm.service.SolverResource;
@@ -32,16 +23,30 @@ import ai.timefold.wasm.service.classgen.WasmObject;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
-import com.dylibso.chicory.runtime.ExportFunction;
-import com.dylibso.chicory.runtime.Instance;
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
+/**
+ * A function exported by the WASM module, given either as its name
+ * or as {@code {"function": name, "memoize": true}} to cache its results in the {@link FunctionCache},
+ * optionally with the {@code "maxEntries"} of its results the cache may hold.
+ */
 @NullMarked
+@JsonDeserialize(using = WasmFunction.Deserializer.class)
 public class WasmFunction {
-    @JsonValue
     final String wasmFunctionName;
+    final boolean memoized;
+    // The most results of a memoized function cached, or 0 for no limit but the cache's
+    final int maxEntries;
+
+    // The constraint the function is used in, which the hits and misses of a memoized function are counted under
+    @Nullable
+    String constraintName;
 
     @Nullable
     String relationFunctionName;
@@ -50,128 +55,155 @@ public class WasmFunction {
     @Nullable
     String comparatorFunctionName;
 
-    @JsonCreator
     public WasmFunction(String functionName) {
+        this(functionName, false);
+    }
+
+    public WasmFunction(String functionName, boolean memoized) {
+        this(functionName, memoized, 0);
+    }
+
+    public WasmFunction(String functionName, boolean memoized, int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries (%d) of function %s must not be negative"
+                    .formatted(maxEntries, functionName));
+        }
         this.wasmFunctionName = functionName;
+        this.memoized = memoized;
+        this.maxEntries = maxEntries;
     }
 
-    private ExportFunction getExport(String name, Instance instance) {
-        ExportCache cache = SolverResource.EXPORT_CACHE.get();
-        if (cache != null) {
-            return cache.get(name);
+    @JsonValue
+    Object toJson() {
+        if (!memoized) {
+            return wasmFunctionName;
+        }
+        var json = new LinkedHashMap<String, Object>();
+        json.put("function", wasmFunctionName);
+        json.put("memoize", true);
+        if (maxEntries > 0) {
+            json.put("maxEntries", maxEntries);
         }
-        return instance.export(name);
+        return json;
     }
 
-    // ========== PREDICATES (Boolean) ==========
+    public static final class Deserializer extends StdDeserializer<WasmFunction> {
+        public Deserializer() {
+            super(WasmFunction.class);
+        }
 
-    public Object asPredicate(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
-        // NO CACHING - test if cache is the problem
-        return switch (tupleSize) {
-            case 1 -> (Predicate<WasmObject>) a -> wasmFunction.apply(a.getMemoryPointer())[0] != 0;
-            case 2 -> (BiPredicate<WasmObject, WasmObject>) (a, b) -> wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0] != 0;
-            case 3 -> (TriPredicate<WasmObject, WasmObject, WasmObject>) (a, b, c) -> wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0] != 0;
-            case 4 -> (QuadPredicate<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0] != 0;
-            case 5 -> (PentaPredicate<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d, e) -> wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer())[0] != 0;
-            default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
-        };
+        @Override
+        public WasmFunction deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                return new WasmFunction(parser.getText());
+            }
+            JsonNode node = parser.readValueAsTree();
+            var function = node.get("function");
+            if (function == null || !function.isTextual()) {
+                return context.reportInputMismatch(WasmFunction.class,
+                        "Expected a function name or an object with a \"function\" name, got %s", node);
+            }
+            var memoize = node.get("memoize");
+            var maxEntries = node.get("maxEntries");
+            return new WasmFunction(function.asText(), memoize != null && memoize.asBoolean(),
+                    (maxEntries != null) ? maxEntries.asInt() : 0);
+        }
     }
 
     // ========== MAPPERS (return WasmObject pointer) ==========
 
-    public Object asFunction(int tupleSize, Instance instance) {
+    public Object asFunction(int tupleSize, ExportCache exports) {
         if (comparatorFunctionName == null) {
             if (relationFunctionName == null) {
-                return asFunctionWithDefaultEqualsAndComparator(tupleSize, instance);
+                return asFunctionWithDefaultEqualsAndComparator(tupleSize, exports);
             } else {
-                return asFunctionWithCustomEquals(tupleSize, instance);
+                return asFunctionWithCustomEquals(tupleSize, exports);
             }
         } else {
-            return asFunctionWithCustomComparator(tupleSize, instance);
+            return asFunctionWithCustomComparator(tupleSize, exports);
         }
     }
 
     // NO CACHING - mappers read mutable fields (planning variables)
-    private Object asFunctionWithCustomComparator(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
-        var comparator = getComparator(instance);
+    private Object asFunctionWithCustomComparator(int tupleSize, ExportCache exports) {
+        var wasmFunction = exports.get(wasmFunctionName);
+        var comparator = getComparator(exports);
         return switch (tupleSize) {
-            case 1 -> (Function<WasmObject, WasmObject>) a -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer())[0], comparator);
-            case 2 -> (BiFunction<WasmObject, WasmObject, WasmObject>) (a, b) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0], comparator);
-            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0], comparator);
-            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0], comparator);
-            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d, e) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer())[0], comparator);
+            case 1 -> (Function<WasmObject, WasmObject>) a -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer()), comparator);
+            case 2 -> (BiFunction<WasmObject, WasmObject, WasmObject>) (a, b) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer()), comparator);
+            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer()), comparator);
+            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer()), comparator);
+            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d, e) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer()), comparator);
             default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
         };
     }
 
     // NO CACHING - mappers read mutable fields (planning variables)
-    private Object asFunctionWithCustomEquals(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
-        var relation = getRelation(instance);
-        var hasher = getHasher(instance);
+    private Object asFunctionWithCustomEquals(int tupleSize, ExportCache exports) {
+        var wasmFunction = exports.get(wasmFunctionName);
+        var relation = getRelation(exports);
+        var hasher = getHasher(exports);
         return switch (tupleSize) {
-            case 1 -> (Function<WasmObject, WasmObject>) a -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer())[0], relation, hasher);
-            case 2 -> (BiFunction<WasmObject, WasmObject, WasmObject>) (a, b) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0], relation, hasher);
-            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0], relation, hasher);
-            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0], relation, hasher);
-            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d, e) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer())[0], relation, hasher);
+            case 1 -> (Function<WasmObject, WasmObject>) a -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer()), relation, hasher);
+            case 2 -> (BiFunction<WasmObject, WasmObject, WasmObject>) (a, b) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer()), relation, hasher);
+            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer()), relation, hasher);
+            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer()), relation, hasher);
+            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d, e) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer()), relation, hasher);
             default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
         };
     }
 
     // NO CACHING - mappers read mutable fields (planning variables)
     // Returns null for pointer 0 to avoid all nulls being "equal" in joiners
-    private Object asFunctionWithDefaultEqualsAndComparator(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
+    private Object asFunctionWithDefaultEqualsAndComparator(int tupleSize, ExportCache exports) {
+        var wasmFunction = exports.get(wasmFunctionName);
         return switch (tupleSize) {
             case 1 -> (Function<WasmObject, WasmObject>) a -> {
-                int ptr = (int) wasmFunction.apply(a.getMemoryPointer())[0];
-                return ptr == 0 ? null : WasmObject.ofExisting(instance, ptr);
+                int ptr = (int) wasmFunction.call(a.getMemoryPointer());
+                return ptr == 0 ? null : WasmObject.ofExisting(exports.getInstance(), ptr);
             };
             case 2 -> (BiFunction<WasmObject, WasmObject, WasmObject>) (a, b) -> {
-                int ptr = (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0];
-                return ptr == 0 ? null : WasmObject.ofExisting(instance, ptr);
+                int ptr = (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer());
+                return ptr == 0 ? null : WasmObject.ofExisting(exports.getInstance(), ptr);
             };
             case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c) -> {
-                int ptr = (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0];
-                return ptr == 0 ? null : WasmObject.ofExisting(instance, ptr);
+                int ptr = (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer());
+                return ptr == 0 ? null : WasmObject.ofExisting(exports.getInstance(), ptr);
             };
             case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> {
-                int ptr = (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0];
-                return ptr == 0 ? null : WasmObject.ofExisting(instance, ptr);
+                int ptr = (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer());
+                return ptr == 0 ? null : WasmObject.ofExisting(exports.getInstance(), ptr);
             };
             case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d, e) -> {
-                int ptr = (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer())[0];
-                return ptr == 0 ? null : WasmObject.ofExisting(instance, ptr);
+                int ptr = (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer());
+                return ptr == 0 ? null : WasmObject.ofExisting(exports.getInstance(), ptr);
             };
             default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
         };
     }
 
     // NO CACHING - these read mutable fields via navigation (e.g., shift.employee.dates)
-    public Object asToListFunction(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
+    public Object asToListFunction(int tupleSize, ExportCache exports) {
+        var wasmFunction = exports.get(wasmFunctionName);
         return switch (tupleSize) {
-            case 1 -> (Function<WasmObject, WasmList<WasmObject>>) a -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer())[0]).asList();
-            case 2 -> (BiFunction<WasmObject, WasmObject, WasmList<WasmObject>>) (a, b) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0]).asList();
-            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, WasmList<WasmObject>>) (a, b, c) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0]).asList();
-            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmList<WasmObject>>) (a, b, c, d) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0]).asList();
-            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, WasmList<WasmObject>>) (a, b, c, d, e) -> WasmObject.ofExisting(instance, (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer())[0]).asList();
+            case 1 -> (Function<WasmObject, WasmList<WasmObject>>) a -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer())).asList();
+            case 2 -> (BiFunction<WasmObject, WasmObject, WasmList<WasmObject>>) (a, b) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer())).asList();
+            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, WasmList<WasmObject>>) (a, b, c) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())).asList();
+            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmList<WasmObject>>) (a, b, c, d) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())).asList();
+            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, WasmList<WasmObject>>) (a, b, c, d, e) -> WasmObject.ofExisting(exports.getInstance(), (int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer())).asList();
             default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
         };
     }
 
     // NO CACHING - these read mutable fields via navigation
-    public Object asToIntListFunction(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
+    public Object asToIntListFunction(int tupleSize, ExportCache exports) {
+        var wasmFunction = exports.get(wasmFunctionName);
         return switch (tupleSize) {
-            case 1 -> (Function<WasmObject, List<WasmObject>>) a -> readIntListWrapped((int) wasmFunction.apply(a.getMemoryPointer())[0]);
-            case 2 -> (BiFunction<WasmObject, WasmObject, List<WasmObject>>) (a, b) -> readIntListWrapped((int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0]);
-            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, List<WasmObject>>) (a, b, c) -> readIntListWrapped((int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0]);
-            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, List<WasmObject>>) (a, b, c, d) -> readIntListWrapped((int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0]);
-            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, List<WasmObject>>) (a, b, c, d, e) -> readIntListWrapped((int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer())[0]);
+            case 1 -> (Function<WasmObject, List<WasmObject>>) a -> readIntListWrapped((int) wasmFunction.call(a.getMemoryPointer()));
+            case 2 -> (BiFunction<WasmObject, WasmObject, List<WasmObject>>) (a, b) -> readIntListWrapped((int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer()));
+            case 3 -> (TriFunction<WasmObject, WasmObject, WasmObject, List<WasmObject>>) (a, b, c) -> readIntListWrapped((int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer()));
+            case 4 -> (QuadFunction<WasmObject, WasmObject, WasmObject, WasmObject, List<WasmObject>>) (a, b, c, d) -> readIntListWrapped((int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer()));
+            case 5 -> (PentaFunction<WasmObject, WasmObject, WasmObject, WasmObject, WasmObject, List<WasmObject>>) (a, b, c, d, e) -> readIntListWrapped((int) wasmFunction.call(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer(), e.getMemoryPointer()));
             default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
         };
     }
@@ -184,58 +216,44 @@ public class WasmFunction {
         var listObj = WasmObject.ofExisting(listAccessor.getWasmInstance(), listPtr);
         int size = listAccessor.getLength(listObj);
         List<WasmObject> result = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            var item = listAccessor.getItem(listObj, i, WasmObject::wrappingInt);
-            result.add(item);
+        for (int itemPointer : listAccessor.getItemPointers(listObj, size)) {
+            result.add(WasmObject.wrappingInt(itemPointer));
         }
         return result;
     }
 
-    // ========== TO INT (weighers) - NO CACHING ==========
+    // ========== COMPARATOR/RELATION/HASHER - NO CACHING ==========
 
-    public Object asToIntFunction(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
-        return switch (tupleSize) {
-            case 1 -> (ToIntFunction<WasmObject>) a -> (int) wasmFunction.apply(a.getMemoryPointer())[0];
-            case 2 -> (ToIntBiFunction<WasmObject, WasmObject>) (a, b) -> (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0];
-            case 3 -> (ToIntTriFunction<WasmObject, WasmObject, WasmObject>) (a, b, c) -> (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0];
-            case 4 -> (ToIntQuadFunction<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> (int) wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0];
-            default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
-        };
+    private Comparator<Integer> getComparator(ExportCache exports) {
+        var wasmComparator = exports.get(comparatorFunctionName);
+        return (a, b) -> (int) wasmComparator.call(a, b);
     }
 
-    // ========== TO LONG - NO CACHING ==========
-
-    public Object asToLongFunction(int tupleSize, Instance instance) {
-        var wasmFunction = getExport(wasmFunctionName, instance);
-        return switch (tupleSize) {
-            case 1 -> (ToLongFunction<WasmObject>) a -> wasmFunction.apply(a.getMemoryPointer())[0];
-            case 2 -> (ToLongBiFunction<WasmObject, WasmObject>) (a, b) -> wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer())[0];
-            case 3 -> (ToLongTriFunction<WasmObject, WasmObject, WasmObject>) (a, b, c) -> wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer())[0];
-            case 4 -> (ToLongQuadFunction<WasmObject, WasmObject, WasmObject, WasmObject>) (a, b, c, d) -> wasmFunction.apply(a.getMemoryPointer(), b.getMemoryPointer(), c.getMemoryPointer(), d.getMemoryPointer())[0];
-            default -> throw new IllegalArgumentException("Unexpected value: " + tupleSize);
-        };
+    private BiPredicate<Integer, Integer> getRelation(ExportCache exports) {
+        var wasmRelation = exports.get(relationFunctionName);
+        return (a, b) -> wasmRelation.call(a, b) != 0;
     }
 
-    // ========== COMPARATOR/RELATION/HASHER - NO CACHING ==========
+    private ToIntFunction<Integer> getHasher(ExportCache exports) {
+        var wasmHasher = exports.get(hashFunctionName);
+        return a -> (int) wasmHasher.call(a);
+    }
 
-    private Comparator<Integer> getComparator(Instance instance) {
-        var wasmComparator = getExport(comparatorFunctionName, instance);
-        return (a, b) -> (int) wasmComparator.apply(a, b)[0];
+    public String getWasmFunctionName() {
+        return wasmFunctionName;
     }
 
-    private BiPredicate<Integer, Integer> getRelation(Instance instance) {
-        var wasmRelation = getExport(relationFunctionName, instance);
-        return (a, b) -> wasmRelation.apply(a, b)[0] != 0;
+    public boolean isMemoized() {
+        return memoized;
     }
 
-    private ToIntFunction<Integer> getHasher(Instance instance) {
-        var wasmHasher = getExport(hashFunctionName, instance);
-        return a -> (int) wasmHasher.apply(a)[0];
+    public void setConstraintName(@Nullable String constraintName) {
+        this.constraintName = constraintName;
     }
 
-    public String getWasmFunctionName() {
-        return wasmFunctionName;
+    public FunctionCache.Memoized memoize(ExportCache exports) {
+        var statsName = (constraintName == null) ? wasmFunctionName : constraintName + "/" + wasmFunctionName;
+        return exports.memoize(wasmFunctionName, statsName, maxEntries);
     }
 
     public void setRelationFunctionName(@Nullable String relationFunctionName) {
@@ -22,6 +22,10 @@ public final class DomainPlanningVariable implements PlanningAnnotation {
         this.allowsUnassigned = allowsUnassigned;
     }
 
+    public boolean allowsUnassigned() {
+        return allowsUnassigned;
+    }
+
     @Override
     public Class<? extends Annotation> annotationClass() {
         return PlanningVariable.class;
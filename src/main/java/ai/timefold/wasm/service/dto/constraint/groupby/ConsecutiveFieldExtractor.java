@@ -26,13 +26,13 @@ public record ConsecutiveFieldExtractor(ConsecutiveSequenceField[] fields)
 
             out.add(fieldListBackingObject);
             CLEANER.register(fieldListBackingObject, () -> {
-                listAccessor.deallocate(fieldListBackingObjectAddress);
+                listAccessor.deallocateLater(fieldListBackingObjectAddress);
             });
         }
         var outBackingObject = out.getWasmObject();
         var outBackingObjectAddress = outBackingObject.memoryPointer;
         CLEANER.register(outBackingObject, () -> {
-            listAccessor.deallocate(outBackingObjectAddress);
+            listAccessor.deallocateLater(outBackingObjectAddress);
         });
         return outBackingObject;
     }
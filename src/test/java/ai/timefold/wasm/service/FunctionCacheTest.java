@@ -0,0 +1,177 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import ai.timefold.solver.core.api.domain.variable.PlanningVariable;
+import ai.timefold.wasm.service.classgen.WasmObject;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+public class FunctionCacheTest {
+    @Test
+    public void memoizesFunctionCalls() {
+        var cache = new FunctionCache(100_000);
+        var calls = new int[1];
+        var sum = new FunctionCache.FunctionIds().memoize("sum", "c/sum", 0, arguments -> {
+            calls[0]++;
+            return new long[] { arguments[0] + arguments[1] };
+        });
+        // Ids are dense within the session's ids, not shared by the whole service
+        assertThat(sum.id()).isZero();
+        assertThat(sum.statsId()).isOne();
+        var a = WasmObject.wrappingInt(8);
+        var b = WasmObject.wrappingInt(16);
+
+        assertThat(cache.call(sum, a, b)).isEqualTo(24);
+        assertThat(cache.call(sum, a, b)).isEqualTo(24);
+        assertThat(cache.call(sum, b, a)).isEqualTo(24);
+        assertThat(calls[0]).isEqualTo(2);
+
+        cache.invalidateEntity(16);
+        assertThat(cache.call(sum, a, b)).isEqualTo(24);
+        assertThat(cache.call(sum, a, b)).isEqualTo(24);
+        assertThat(calls[0]).isEqualTo(3);
+
+        var stats = cache.getFunctionStats().functions().get("c/sum");
+        assertThat(stats.hits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(3);
+        assertThat(stats.staleReads()).isEqualTo(1);
+        assertThat(stats.hitRatio()).isEqualTo(0.4);
+
+    }
+
+    @Test
+    public void keepsEntriesWhenTablesGrow() {
+        var cache = new FunctionCache(100_000);
+        var calls = new int[1];
+        var sum = new FunctionCache.FunctionIds().memoize("sum", "c/sum", 0, arguments -> {
+            calls[0]++;
+            return new long[] { arguments[0] + arguments[1] };
+        });
+        var b = WasmObject.wrappingInt(16);
+        long initialBytes = cache.getFunctionStats().bytes();
+
+        // Entries and versions survive the tables growing
+        for (int pointer = 1024; pointer < 41_024; pointer += 8) {
+            cache.invalidateEntity(pointer);
+            assertThat(cache.call(sum, WasmObject.wrappingInt(pointer), b)).isEqualTo(pointer + 16);
+        }
+        assertThat(cache.getFunctionStats().bytes()).isGreaterThan(initialBytes);
+        for (int pointer = 1024; pointer < 41_024; pointer += 8) {
+            assertThat(cache.call(sum, WasmObject.wrappingInt(pointer), b)).isEqualTo(pointer + 16);
+        }
+        assertThat(calls[0]).isEqualTo(5000);
+        var stats = cache.getFunctionStats();
+        assertThat(stats.entries()).isEqualTo(5000);
+        assertThat(stats.functions().get("c/sum").hits()).isEqualTo(5000);
+        assertThat(stats.evictions()).isZero();
+    }
+
+    @Test
+    public void purgesInvalidatedEntries() {
+        var cache = new FunctionCache(100_000);
+        var sum = new FunctionCache.FunctionIds().memoize("sum", "c/sum", 0,
+                arguments -> new long[] { arguments[0] + arguments[1] });
+        long initialBytes = cache.getFunctionStats().bytes();
+
+        // Every round caches results for the same few shifts, which the next move invalidates
+        for (int round = 1; round <= 2000; round++) {
+            var day = WasmObject.wrappingInt(100_000 + round * 8);
+            for (int pointer = 8; pointer <= 80; pointer += 8) {
+                cache.call(sum, WasmObject.wrappingInt(pointer), day);
+                cache.invalidateEntity(pointer);
+            }
+        }
+        var stats = cache.getFunctionStats();
+        // The stale entries are purged as new ones are added, and their tombstones reused, so the table never grows
+        assertThat(stats.entries()).isLessThan(1024 / 2);
+        assertThat(stats.purged()).isEqualTo(20_000 - stats.entries());
+        assertThat(stats.evictions()).isZero();
+        assertThat(stats.bytes()).isEqualTo(initialBytes);
+    }
+
+    @Test
+    public void invalidatesPlanningVariables() {
+        var cache = new FunctionCache(100_000);
+        var calls = new int[1];
+        var pointerOf = new FunctionCache.FunctionIds().memoize("pointerOf", "c/pointerOf", 0, arguments -> {
+            calls[0]++;
+            return new long[] { arguments[0] };
+        });
+        var ann = WasmObject.wrappingInt(1000);
+        var bob = WasmObject.wrappingInt(2000);
+        var carl = WasmObject.wrappingInt(3000);
+        var shift = new TestShift(8, ann);
+        var otherShift = new TestShift(16, carl);
+
+        // Nothing is cached yet, so there is nothing to invalidate
+        cache.invalidatePlanningVariables(shift);
+        assertThat(cache.getVersion()).isZero();
+
+        for (var object : List.of(shift, otherShift, ann, bob, carl)) {
+            cache.call(pointerOf, object);
+        }
+        assertThat(calls[0]).isEqualTo(5);
+
+        // Moving the shift from Ann to Bob invalidates the shift, Ann and Bob, but not the others
+        cache.invalidatePlanningVariables(shift);
+        shift.employee = bob;
+        cache.invalidatePlanningVariables(shift);
+        for (var object : List.of(shift, otherShift, ann, bob, carl)) {
+            assertThat(cache.call(pointerOf, object)).isEqualTo(object.getMemoryPointer());
+        }
+        assertThat(calls[0]).isEqualTo(5 + 3);
+
+        // A call on an entity also depends on the objects its planning variables point to
+        cache.invalidateEntity(carl.getMemoryPointer());
+        cache.call(pointerOf, otherShift);
+        cache.call(pointerOf, shift);
+        assertThat(calls[0]).isEqualTo(5 + 3 + 1);
+    }
+
+    @Test
+    public void boundsFunctionCache() {
+        var cache = new FunctionCache(1000);
+        var functionIds = new FunctionCache.FunctionIds();
+        var identity = functionIds.memoize("identity", "c/identity", 0, arguments -> new long[] { arguments[0] });
+        var square = functionIds.memoize("square", "c/square", 100,
+                arguments -> new long[] { arguments[0] * arguments[0] });
+        for (int pointer = 8; pointer <= 40_000; pointer += 8) {
+            assertThat(cache.call(identity, WasmObject.wrappingInt(pointer))).isEqualTo(pointer);
+            assertThat(cache.call(square, WasmObject.wrappingInt(pointer))).isEqualTo((long) pointer * pointer);
+        }
+        var stats = cache.getFunctionStats();
+        assertThat(stats.entries()).isLessThanOrEqualTo(1000);
+        assertThat(stats.occupancy()).isLessThanOrEqualTo(1.0);
+        assertThat(stats.evictions()).isGreaterThanOrEqualTo(5000 - 1000);
+        // At most 4 slots of 45 bytes per entry
+        assertThat(stats.bytes()).isLessThan(1000 * 4 * 45 + 1024 * 12 + 1);
+
+        // The entries of a function whose argument was invalidated are purged as new ones are added
+        var fresh = new FunctionCache(1000);
+        for (int pointer = 8; pointer <= 4000; pointer += 8) {
+            fresh.call(identity, WasmObject.wrappingInt(pointer));
+            fresh.invalidateEntity(pointer);
+        }
+        assertThat(fresh.getFunctionStats().purged()).isPositive();
+        assertThat(fresh.getFunctionStats().evictions()).isZero();
+    }
+
+    public static class TestShift extends WasmObject {
+        @Nullable
+        WasmObject employee;
+
+        TestShift(int memoryPointer, @Nullable WasmObject employee) {
+            super(null, memoryPointer);
+            this.employee = employee;
+        }
+
+        @PlanningVariable
+        public @Nullable WasmObject getEmployee() {
+            return employee;
+        }
+    }
+}
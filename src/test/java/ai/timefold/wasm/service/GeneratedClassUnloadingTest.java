@@ -0,0 +1,113 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.inject.Inject;
+
+import ai.timefold.solver.core.api.score.buildin.simple.SimpleScore;
+import ai.timefold.wasm.service.dto.PlanningProblem;
+import ai.timefold.wasm.service.dto.WasmConstraint;
+import ai.timefold.wasm.service.dto.constraint.ForEachComponent;
+import ai.timefold.wasm.service.dto.constraint.PenalizeComponent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class GeneratedClassUnloadingTest {
+    private static final long SOAK_REQUESTS = 10_000;
+    private static final long SOAK_WARMUP_REQUESTS = 500;
+    private static final long MAX_METASPACE_GROWTH_BYTES = 32L * 1024 * 1024;
+
+    @Inject
+    SolverResource solverResource;
+
+    @Inject
+    WasmModuleRegistry moduleRegistry;
+
+    @Inject
+    WasmInstancePool instancePool;
+
+    @Inject
+    CompiledSessionCache sessionCache;
+
+    /**
+     * A planning problem whose constraint name is unique to the given id,
+     * so its classes and solver factory are compiled in a session of their own.
+     */
+    private static PlanningProblem getPlanningProblemWithSchema(long id) {
+        var planningProblem = TestUtils.getPlanningProblem();
+        planningProblem.setConstraints(Map.of("penalizeShift" + id, new WasmConstraint(List.of(
+                new ForEachComponent("Shift"),
+                new PenalizeComponent("1", null)))));
+        return planningProblem;
+    }
+
+    private static void collectGarbageUntilCleared(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+    }
+
+    private static long getMetaspaceUsedAfterGc() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getName().equals("Metaspace"))
+                .mapToLong(pool -> pool.getUsage().getUsed())
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    public void evictedSessionClassesAreUnloaded() throws InterruptedException {
+        var planningProblem = getPlanningProblemWithSchema(-1);
+        assertThat(solverResource.solve(planningProblem).score()).isEqualTo(SimpleScore.of(-2));
+
+        // Take the idle session out of the cache and drop it, as eviction does
+        var module = moduleRegistry.resolve(planningProblem);
+        var pooledInstance = instancePool.acquire(module, planningProblem);
+        var session = sessionCache.acquire(sessionCache.computeSessionKey(module, planningProblem),
+                pooledInstance.instance());
+        assertThat(session).isNotNull();
+        var classLoaderReference = new WeakReference<>(session.classLoader());
+        var solutionClassReference = new WeakReference<Class<?>>(session.solutionClass());
+        session.exports().unbind();
+        session = null;
+        instancePool.release(pooledInstance);
+
+        collectGarbageUntilCleared(classLoaderReference);
+        assertThat(classLoaderReference.get()).isNull();
+        assertThat(solutionClassReference.get()).isNull();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "soak", matches = "true")
+    public void metaspaceIsBoundedOverManyRequests() throws InterruptedException {
+        // Every request has a schema of its own, so each one generates classes that must eventually be unloaded
+        long metaspaceAfterWarmup = 0;
+        for (long i = 0; i < SOAK_REQUESTS; i++) {
+            var planningProblem = getPlanningProblemWithSchema(i);
+            if (i % 2 == 0) {
+                assertThat(solverResource.solve(planningProblem).score()).isEqualTo(SimpleScore.of(-2));
+            } else {
+                assertThat(solverResource.analyze(planningProblem).score()).isEqualTo(SimpleScore.ZERO);
+            }
+            if (i == SOAK_WARMUP_REQUESTS) {
+                metaspaceAfterWarmup = getMetaspaceUsedAfterGc();
+            }
+        }
+        assertThat(sessionCache.getStats().size()).isLessThanOrEqualTo(sessionCache.getStats().maxEntries());
+        assertThat(getMetaspaceUsedAfterGc()).isLessThan(metaspaceAfterWarmup + MAX_METASPACE_GROWTH_BYTES);
+    }
+}
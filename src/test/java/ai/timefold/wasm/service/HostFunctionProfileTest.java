@@ -0,0 +1,68 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import jakarta.inject.Inject;
+
+import ai.timefold.solver.core.api.score.buildin.simple.SimpleScore;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+@QuarkusTest
+@TestProfile(HostFunctionProfileTest.HostFunctionStatsEnabled.class)
+public class HostFunctionProfileTest {
+    public static class HostFunctionStatsEnabled implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("wasm.host-function-stats.enabled", "true");
+        }
+    }
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    SolverResource solverResource;
+
+    @Test
+    public void reportsHostFunctionCallsOfSolve() {
+        var out = solverResource.solve(TestUtils.getPlanningProblem());
+        assertThat(out.score()).isEqualTo(SimpleScore.of(18));
+        var hostFunctions = out.stats().hostFunctions();
+        // The JSON solution is written by the module's string function
+        assertThat(hostFunctions).containsKey("hscheduleString");
+        assertThat(hostFunctions.values()).allSatisfy(function -> assertThat(function.calls()).isPositive());
+        assertThat(objectMapper.valueToTree(out.stats()).has("hostFunctions")).isTrue();
+    }
+
+    @Test
+    public void profilesHostFunctionCalls() {
+        var instance = TestUtils.createListInstance();
+        var hostFunctions = new HostFunctionProvider(objectMapper, 0, true);
+        var list = (int) instance.export("newList").apply()[0];
+        for (int i = 0; i < 3; i++) {
+            TestUtils.callHostFunction(hostFunctions, "hlistContainsInt", instance, list, i);
+        }
+
+        var stats = hostFunctions.getProfile().getStats();
+        assertThat(stats).containsOnlyKeys("hlistContainsInt");
+        var containsInt = stats.get("hlistContainsInt");
+        assertThat(containsInt.calls()).isEqualTo(3);
+        assertThat(containsInt.p50Nanos()).isPositive().isLessThanOrEqualTo(containsInt.p99Nanos());
+        assertThat(containsInt.totalNanos()).isGreaterThanOrEqualTo(containsInt.p50Nanos() * 7 / 8);
+
+        // Buckets are a power of two split in 8, so each value is within 1/8 of the upper bound of its bucket
+        for (long nanos : new long[] { 0, 1, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, 1L << 40 }) {
+            long upperBound = HostFunctionProfile.bucketUpperBound(HostFunctionProfile.bucketOf(nanos));
+            assertThat(upperBound).isGreaterThanOrEqualTo(nanos).isLessThanOrEqualTo(nanos + nanos / 8);
+        }
+    }
+}
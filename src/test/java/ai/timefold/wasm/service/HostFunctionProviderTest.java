@@ -0,0 +1,47 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class HostFunctionProviderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static int getItem(Instance instance, int list, int index) {
+        return (int) instance.export("getItem").apply(list, index)[0];
+    }
+
+    @Test
+    public void insertsAndRemovesListItems() {
+        var instance = TestUtils.createListInstance();
+        var memory = instance.memory();
+        var hostFunctions = new HostFunctionProvider(objectMapper);
+        var insert = TestUtils.getHostFunction(hostFunctions, "hinsert").handle();
+        var remove = TestUtils.getHostFunction(hostFunctions, "hremove").handle();
+        var list = (int) instance.export("newList").apply()[0];
+        for (int item = 1; item <= 3; item++) {
+            instance.export("append").apply(list, item * 10);
+        }
+
+        insert.apply(instance, list, 0, 5);
+        insert.apply(instance, list, 2, 15);
+        // Past the initial capacity of 4, so the backing array grows
+        insert.apply(instance, list, 5, 35);
+        assertThat(memory.readInt(list + HostFunctionProvider.CAPACITY_OFFSET)).isEqualTo(8);
+        remove.apply(instance, list, 0);
+        remove.apply(instance, list, 2);
+        remove.apply(instance, list, 3);
+
+        assertThat(memory.readInt(list)).isEqualTo(3);
+        assertThat(List.of(getItem(instance, list, 0), getItem(instance, list, 1), getItem(instance, list, 2)))
+                .containsExactly(10, 15, 30);
+        assertThatThrownBy(() -> insert.apply(instance, list, 4, 1)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> remove.apply(instance, list, 3)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
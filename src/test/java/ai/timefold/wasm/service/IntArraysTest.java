@@ -0,0 +1,59 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class IntArraysTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void scansAndReducesIntLists() {
+        var instance = TestUtils.createListInstance();
+        var hostFunctions = new HostFunctionProvider(objectMapper);
+        var dates = (int) instance.export("newList").apply()[0];
+        var shiftDates = (int) instance.export("newList").apply()[0];
+        for (int day = 10; day <= 30; day += 2) {
+            instance.export("append").apply(dates, day);
+        }
+        for (int day = 20; day <= 25; day++) {
+            instance.export("append").apply(shiftDates, day);
+        }
+
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistCountInRange", instance, dates, 13, 22)).isEqualTo(5);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistMin", instance, dates)).isEqualTo(10);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistMax", instance, dates)).isEqualTo(30);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistSum", instance, dates)).isEqualTo(220);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistSortedIntersectionSize", instance, dates, shiftDates))
+                .isEqualTo(3);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsInt", instance, dates, 11)).isZero();
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistCountInRange", instance, 0, 0, 100)).isZero();
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistSortedIntersectionSize", instance, dates, 0)).isZero();
+    }
+
+    @Test
+    public void vectorIntArraysMatchScalar() {
+        // Only built and loaded by the vector profile
+        assumeThat(IntArrays.VECTOR).isNotNull();
+        var vector = IntArrays.VECTOR;
+        var scalar = IntArrays.SCALAR;
+        var random = new Random(0);
+        // Sizes around the vector length, so the loops over the remaining values are covered too
+        for (int size = 0; size <= 70; size++) {
+            var values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(200) - 100 + ((i % 7 == 0) ? Integer.MAX_VALUE - 100 : 0);
+            }
+            assertThat(vector.contains(values, 5)).isEqualTo(scalar.contains(values, 5));
+            assertThat(vector.countInRange(values, -50, 50)).isEqualTo(scalar.countInRange(values, -50, 50));
+            assertThat(vector.min(values)).isEqualTo(scalar.min(values));
+            assertThat(vector.max(values)).isEqualTo(scalar.max(values));
+            assertThat(vector.sum(values)).isEqualTo(scalar.sum(values));
+        }
+    }
+}
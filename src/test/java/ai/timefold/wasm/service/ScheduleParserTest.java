@@ -0,0 +1,490 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.timefold.wasm.service.classgen.Allocator;
+import ai.timefold.wasm.service.dto.DomainAccessor;
+import ai.timefold.wasm.service.dto.DomainObject;
+import ai.timefold.wasm.service.dto.DomainObjectMapper;
+import ai.timefold.wasm.service.dto.FieldDescriptor;
+import ai.timefold.wasm.service.dto.PlanningProblem;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningId;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningListVariable;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningScore;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningVariable;
+import ai.timefold.wasm.service.dto.annotation.PlanningAnnotation;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+import com.dylibso.chicory.wasm.Parser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ScheduleParserTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static FieldDescriptor field(String type, PlanningAnnotation... annotations) {
+        return new FieldDescriptor(type, new DomainAccessor("get", "set"), List.of(annotations));
+    }
+
+    /**
+     * Shifts come before the employees they refer to, both in the schedule and in the input.
+     */
+    static Map<String, DomainObject> getDomainObjectMap() {
+        var employeeFields = new LinkedHashMap<String, FieldDescriptor>();
+        employeeFields.put("id", field("int", new DomainPlanningId()));
+        employeeFields.put("name", field("String"));
+        employeeFields.put("skills", field("String[]"));
+        employeeFields.put("salary", field("long"));
+
+        var shiftFields = new LinkedHashMap<String, FieldDescriptor>();
+        shiftFields.put("employee", field("Employee"));
+        shiftFields.put("day", field("LocalDate"));
+        shiftFields.put("start", field("LocalDateTime"));
+        shiftFields.put("weight", field("double"));
+
+        var scheduleFields = new LinkedHashMap<String, FieldDescriptor>();
+        scheduleFields.put("shifts", field("Shift[]"));
+        scheduleFields.put("employees", field("Employee[]"));
+        scheduleFields.put("score", new FieldDescriptor("SimpleScore", List.of(new DomainPlanningScore())));
+
+        var domainObjects = new LinkedHashMap<String, DomainObject>();
+        domainObjects.put("Employee", new DomainObject(employeeFields, null));
+        domainObjects.put("Shift", new DomainObject(shiftFields, null));
+        domainObjects.put("Schedule", new DomainObject(scheduleFields, new DomainObjectMapper("parseSchedule", "scheduleString")));
+        return domainObjects;
+    }
+
+    private int parse(Instance instance, Map<String, DomainLayout> domainLayouts, String json) throws IOException {
+        return parse(instance, domainLayouts, json, null);
+    }
+
+    private int parse(Instance instance, Map<String, DomainLayout> domainLayouts, String json,
+            @Nullable ParseArena arena) throws IOException {
+        return parse(instance, domainLayouts, json, arena, null, null);
+    }
+
+    private int parse(Instance instance, Map<String, DomainLayout> domainLayouts, String json,
+            @Nullable ParseArena arena, @Nullable StringTable strings, @Nullable ListIndexes lists) throws IOException {
+        try (var parser = objectMapper.getFactory().createParser(json.getBytes(StandardCharsets.UTF_8))) {
+            return new ScheduleParser(instance, domainLayouts, parser, arena, strings, lists)
+                    .parseSolution(domainLayouts.get("Schedule"));
+        }
+    }
+
+    private static int getAllocCount(Instance instance) {
+        return (int) instance.export("allocCount").apply()[0];
+    }
+
+    private static int getItem(Instance instance, int list, int index) {
+        return (int) instance.export("getItem").apply(list, index)[0];
+    }
+
+    @Test
+    public void computesAlignedLayout() {
+        var domainLayouts = DomainLayout.of(getDomainObjectMap());
+        var shift = domainLayouts.get("Shift");
+        // The 8 byte fields are aligned to 8 bytes, and so is the object size
+        assertThat(shift.getFields()).extracting(DomainLayout.FieldLayout::offset).containsExactly(0, 8, 16, 24);
+        assertThat(shift.getSize()).isEqualTo(32);
+        assertThat(domainLayouts.get("Employee").getPlanningIdField().name()).isEqualTo("id");
+        assertThat(domainLayouts.get("Schedule").isSolution()).isTrue();
+    }
+
+    @Test
+    public void parsesFieldsAndForwardReferences() throws IOException {
+        var instance = TestUtils.createListInstance();
+        var memory = instance.memory();
+        var domainLayouts = DomainLayout.of(getDomainObjectMap());
+        var schedule = parse(instance, domainLayouts, """
+                {
+                    "score": "ignored",
+                    "shifts": [
+                        {"employee": {"id": 1, "name": "ignored"}, "day": "2024-01-15", "start": "2024-01-15T14:30:00",
+                         "weight": 1.5},
+                        {"employee": null, "day": 3, "unknown": {"nested": [1, 2]}}
+                    ],
+                    "employees": [
+                        {"id": 0, "name": "Ann", "skills": ["a", "b"], "salary": 5000000000},
+                        {"id": 1, "name": "Bob"}
+                    ]
+                }
+                """);
+
+        var shifts = memory.readInt(schedule);
+        var employees = memory.readInt(schedule + 4);
+        var ann = getItem(instance, employees, 0);
+        var bob = getItem(instance, employees, 1);
+        assertThat(memory.readInt(ann)).isZero();
+        assertThat(memory.readCString(memory.readInt(ann + 4))).isEqualTo("Ann");
+        var annSkills = memory.readInt(ann + 8);
+        assertThat(memory.readInt(annSkills)).isEqualTo(2);
+        assertThat(memory.readCString(getItem(instance, annSkills, 1))).isEqualTo("b");
+        assertThat(memory.readLong(ann + 16)).isEqualTo(5_000_000_000L);
+        // Missing lists are empty
+        assertThat(memory.readInt(memory.readInt(bob + 8))).isZero();
+
+        var first = getItem(instance, shifts, 0);
+        var second = getItem(instance, shifts, 1);
+        // The reference is resolved even though the employees are read after the shifts
+        assertThat(memory.readInt(first)).isEqualTo(bob);
+        assertThat(memory.readLong(first + 8)).isEqualTo(LocalDate.of(2024, 1, 15).toEpochDay());
+        assertThat(memory.readLong(first + 16))
+                .isEqualTo(LocalDateTime.of(2024, 1, 15, 14, 30).toEpochSecond(ZoneOffset.UTC));
+        assertThat(memory.readDouble(first + 24)).isEqualTo(1.5);
+        assertThat(memory.readInt(second)).isZero();
+        assertThat(memory.readLong(second + 8)).isEqualTo(3);
+    }
+
+    @Test
+    public void arenaAllocatesFewChunks() throws IOException {
+        var instance = TestUtils.createListInstance();
+        var memory = instance.memory();
+        var domainLayouts = DomainLayout.of(getDomainObjectMap());
+        int shiftCount = 500;
+        var json = new StringBuilder("{\"shifts\": [");
+        for (int i = 0; i < shiftCount; i++) {
+            json.append(i > 0 ? ", " : "").append("{\"employee\": {\"id\": ").append(i % 2)
+                    .append("}, \"weight\": ").append(i).append('}');
+        }
+        json.append("], \"employees\": [{\"id\": 0, \"name\": \"Ann\", \"skills\": [\"a\"]}, {\"id\": 1}]}");
+
+        var arena = new ParseArena(memory, instance.export("alloc"), 1024);
+        var schedule = parse(instance, domainLayouts, json.toString(), arena);
+
+        // Only the chunks are allocated by the module, whose lists are never appended to
+        assertThat(getAllocCount(instance)).isEqualTo(arena.getChunkCount()).isLessThan(10);
+        var shifts = memory.readInt(schedule);
+        var employees = memory.readInt(schedule + 4);
+        assertThat(memory.readInt(shifts)).isEqualTo(shiftCount);
+        var ann = getItem(instance, employees, 0);
+        var bob = getItem(instance, employees, 1);
+        assertThat(memory.readCString(memory.readInt(ann + 4))).isEqualTo("Ann");
+        assertThat(memory.readCString(getItem(instance, memory.readInt(ann + 8), 0))).isEqualTo("a");
+        assertThat(memory.readInt(memory.readInt(bob + 8))).isZero();
+        for (int i = 0; i < shiftCount; i++) {
+            var shift = getItem(instance, shifts, i);
+            // Objects with 8 byte fields stay aligned
+            assertThat(shift % 8).isZero();
+            assertThat(memory.readInt(shift)).isEqualTo(i % 2 == 0 ? ann : bob);
+            assertThat(memory.readDouble(shift + 24)).isEqualTo(i);
+        }
+
+        // Parsed lists can still grow through the host's append
+        instance.export("append").apply(memory.readInt(bob + 8), 42);
+        assertThat(getItem(instance, memory.readInt(bob + 8), 0)).isEqualTo(42);
+    }
+
+    @Test
+    public void parsesClonesWithoutArena() {
+        // Logs the pointers alloc returns from 128 KiB on, and the ones dealloc is given from 160 KiB on
+        var wasm = Wat2Wasm.parse("""
+                (module
+                    (import "host" "hnewList" (func $hnewList (result i32)))
+                    (import "host" "hgetItem" (func $hgetItem (param i32 i32) (result i32)))
+                    (import "host" "happend" (func $happend (param i32 i32)))
+                    (memory 3)
+                    (global $heap (mut i32) (i32.const 8))
+                    (global $allocated (mut i32) (i32.const 131072))
+                    (global $freed (mut i32) (i32.const 163840))
+                    (func (export "alloc") (param $size i32) (result i32)
+                        (local $out i32)
+                        (local.set $out (global.get $heap))
+                        (global.set $heap (i32.and (i32.add (i32.add (global.get $heap) (local.get $size)) (i32.const 7)) (i32.const -8)))
+                        (i32.store (global.get $allocated) (local.get $out))
+                        (global.set $allocated (i32.add (global.get $allocated) (i32.const 4)))
+                        (local.get $out)
+                    )
+                    (func (export "dealloc") (param $pointer i32)
+                        (i32.store (global.get $freed) (local.get $pointer))
+                        (global.set $freed (i32.add (global.get $freed) (i32.const 4)))
+                    )
+                    (func (export "allocatedEnd") (result i32)
+                        (global.get $allocated)
+                    )
+                    (func (export "freedEnd") (result i32)
+                        (global.get $freed)
+                    )
+                    (func (export "newList") (result i32)
+                        (call $hnewList)
+                    )
+                    (func (export "getItem") (param $list i32) (param $index i32) (result i32)
+                        (local.get $list) (local.get $index) (call $hgetItem)
+                    )
+                    (func (export "append") (param $list i32) (param $item i32)
+                        (local.get $list) (local.get $item) (call $happend)
+                    )
+                )
+                """);
+        var instance = Instance.builder(Parser.parse(wasm))
+                .withImportValues(ImportValues.builder().addFunction(TestUtils.getListHostFunctions()).build())
+                .build();
+        var memory = instance.memory();
+        var hostFunctions = new HostFunctionProvider(objectMapper, 1024);
+        var domainObjects = getDomainObjectMap();
+        domainObjects.get("Shift").getFieldDescriptorMap().put("employee", field("Employee", new DomainPlanningVariable()));
+        hostFunctions.bind(new PlanningProblem(domainObjects, Map.of(), null, "", "alloc", "dealloc", null,
+                null, null, null));
+        var parseSchedule = TestUtils.getHostFunction(hostFunctions, "hparseSchedule").handle();
+        var json = """
+                {
+                    "shifts": [{"employee": {"id": 0}, "weight": 1}, {"employee": {"id": 1}, "weight": 2}],
+                    "employees": [{"id": 0, "name": "Ann"}, {"id": 1}]
+                }
+                """.getBytes(StandardCharsets.UTF_8);
+        var jsonPointer = (int) instance.export("alloc").apply(json.length)[0];
+        memory.write(jsonPointer, json);
+
+        var problem = (int) parseSchedule.apply(instance, json.length, jsonPointer)[0];
+        // Then a clone of the solution, which the cloner's Cleaner frees through the module
+        var clone = (int) parseSchedule.apply(instance, json.length, jsonPointer)[0];
+
+        var allocated = readPointerLog(instance, 131072, "allocatedEnd");
+        // The problem is in the arena's chunks, so alloc never returned its objects but the first
+        var problemShifts = memory.readInt(problem);
+        assertThat(allocated).doesNotContain(problemShifts, getItem(instance, problemShifts, 0),
+                getItem(instance, problemShifts, 1));
+        var shifts = memory.readInt(clone);
+        var employees = memory.readInt(clone + 4);
+        var ann = getItem(instance, employees, 0);
+        var clonePointers = List.of(clone, shifts, employees, getItem(instance, shifts, 0),
+                getItem(instance, shifts, 1), ann, getItem(instance, employees, 1), memory.readInt(ann + 4));
+        var allocator = new Allocator(instance, "alloc", "dealloc", "dealloc");
+        allocator.freeSolution(clone);
+        for (var pointer : clonePointers.subList(1, clonePointers.size())) {
+            allocator.free(pointer);
+        }
+
+        // Every object of the clone was allocated on its own, so the module can free them one by one
+        var freed = readPointerLog(instance, 163840, "freedEnd");
+        assertThat(freed).containsExactlyElementsOf(clonePointers);
+        assertThat(allocated).containsAll(freed);
+    }
+
+    private static List<Integer> readPointerLog(Instance instance, int start, String endFunction) {
+        var end = (int) instance.export(endFunction).apply()[0];
+        var pointers = new ArrayList<Integer>();
+        for (int entry = start; entry < end; entry += 4) {
+            pointers.add(instance.memory().readInt(entry));
+        }
+        return pointers;
+    }
+
+    @Test
+    public void internsParsedStrings() throws IOException {
+        var instance = TestUtils.createListInstance();
+        var memory = instance.memory();
+        var domainLayouts = DomainLayout.of(getDomainObjectMap());
+        var json = """
+                {
+                    "shifts": [],
+                    "employees": [
+                        {"id": 0, "name": "Ann", "skills": ["a", "b"]},
+                        {"id": 1, "name": "Bob", "skills": ["b", "Ann"]}
+                    ]
+                }
+                """;
+        var strings = new StringTable();
+        var schedule = parse(instance, domainLayouts, json, null, strings, null);
+
+        var employees = memory.readInt(schedule + 4);
+        var ann = getItem(instance, employees, 0);
+        var bob = getItem(instance, employees, 1);
+        var annName = memory.readInt(ann + 4);
+        var annSkills = memory.readInt(ann + 8);
+        var bobSkills = memory.readInt(bob + 8);
+        // Equal strings are written once
+        assertThat(strings.size()).isEqualTo(4);
+        assertThat(getItem(instance, bobSkills, 1)).isEqualTo(annName);
+        assertThat(getItem(instance, bobSkills, 0)).isEqualTo(getItem(instance, annSkills, 1));
+        var a = getItem(instance, annSkills, 0);
+        assertThat(strings.contains(a)).isTrue();
+        assertThat(strings.lengthAt(strings.indexOf(annName))).isEqualTo(3);
+
+        // Strings the module creates itself are compared by content
+        var moduleString = (int) instance.export("alloc").apply(2)[0];
+        memory.write(moduleString, "a\0".getBytes(StandardCharsets.UTF_8));
+        assertThat(strings.contains(moduleString)).isFalse();
+
+        var hostFunctions = new HostFunctionProvider(objectMapper);
+        hostFunctions.restoreProblemIndexes(strings, null);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hstringEquals", instance, a, moduleString)).isEqualTo(1);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hstringEquals", instance, a, annName)).isZero();
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hstringEquals", instance, a, a)).isEqualTo(1);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, moduleString))
+                .isEqualTo(1);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, bobSkills, moduleString)).isZero();
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, bobSkills, annName)).isEqualTo(1);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, annName)).isZero();
+    }
+
+    @Test
+    public void indexesFactLists() throws IOException {
+        var instance = TestUtils.createListInstance();
+        var memory = instance.memory();
+        var domainLayouts = DomainLayout.of(getDomainObjectMap());
+        var json = """
+                {
+                    "shifts": [],
+                    "employees": [
+                        {"id": 0, "name": "Ann", "skills": ["s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7", "s8"]},
+                        {"id": 1, "name": "Bob", "skills": ["s1"]}
+                    ]
+                }
+                """;
+        var strings = new StringTable();
+        var lists = new ListIndexes();
+        var schedule = parse(instance, domainLayouts, json, null, strings, lists);
+
+        var employees = memory.readInt(schedule + 4);
+        var annSkills = memory.readInt(getItem(instance, employees, 0) + 8);
+        var bobSkills = memory.readInt(getItem(instance, employees, 1) + 8);
+        assertThat(lists.get(annSkills)).isNotNull();
+        // Too short to be worth an index
+        assertThat(lists.get(bobSkills)).isNull();
+
+        var moduleString = (int) instance.export("alloc").apply(3)[0];
+        memory.write(moduleString, "s7\0".getBytes(StandardCharsets.UTF_8));
+        var otherString = (int) instance.export("alloc").apply(3)[0];
+        memory.write(otherString, "s9\0".getBytes(StandardCharsets.UTF_8));
+
+        var hostFunctions = new HostFunctionProvider(objectMapper);
+        hostFunctions.restoreProblemIndexes(strings, lists);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, moduleString))
+                .isEqualTo(1);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, getItem(instance, bobSkills, 0)))
+                .isEqualTo(1);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, 0)).isZero();
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, otherString)).isZero();
+
+        // A changed list loses its index in the provider, but not in the snapshot's indexes it was restored from
+        TestUtils.getHostFunction(hostFunctions, "happend").handle().apply(instance, annSkills, otherString);
+        assertThat(hostFunctions.getListIndexes().get(annSkills)).isNull();
+        assertThat(lists.get(annSkills)).isNotNull();
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, otherString))
+                .isEqualTo(1);
+
+        var values = new int[] { 3, 1, 4, 1, 5, 9, 2, 6, 5, 3, -5 };
+        var intList = (int) instance.export("newList").apply()[0];
+        for (var value : values) {
+            instance.export("append").apply(intList, value);
+        }
+        var intLists = new ListIndexes();
+        intLists.indexInts(intList, values, values.length);
+        hostFunctions.restoreProblemIndexes(null, intLists);
+        assertThat(hostFunctions.getListIndexes().get(intList)).isNotNull();
+        for (var value : values) {
+            assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsInt", instance, intList, value)).isEqualTo(1);
+        }
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsInt", instance, intList, 0)).isZero();
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsInt", instance, intList, 7)).isZero();
+    }
+
+    @Test
+    public void scansListsOfModulesWithoutHostLists() {
+        // Lists of at most 64 items, laid out like the host's, which the module changes without calling the host
+        var wasm = Wat2Wasm.parse("""
+                (module
+                    (memory 2)
+                    (global $heap (mut i32) (i32.const 8))
+                    (func $alloc (export "alloc") (param $size i32) (result i32)
+                        (local $out i32)
+                        (local.set $out (global.get $heap))
+                        (global.set $heap (i32.and (i32.add (i32.add (global.get $heap) (local.get $size)) (i32.const 7)) (i32.const -8)))
+                        (local.get $out)
+                    )
+                    (func (export "newList") (result i32)
+                        (local $list i32)
+                        (local.set $list (call $alloc (i32.const 12)))
+                        (i32.store offset=4 (local.get $list) (i32.const 64))
+                        (i32.store offset=8 (local.get $list) (call $alloc (i32.const 256)))
+                        (local.get $list)
+                    )
+                    (func (export "getItem") (param $list i32) (param $index i32) (result i32)
+                        (i32.load (i32.add (i32.load offset=8 (local.get $list)) (i32.shl (local.get $index) (i32.const 2))))
+                    )
+                    (func (export "append") (param $list i32) (param $item i32)
+                        (i32.store (i32.add (i32.load offset=8 (local.get $list)) (i32.shl (i32.load (local.get $list)) (i32.const 2)))
+                                (local.get $item))
+                        (i32.store (local.get $list) (i32.add (i32.load (local.get $list)) (i32.const 1)))
+                    )
+                )
+                """);
+        var instance = Instance.builder(Parser.parse(wasm)).build();
+        var memory = instance.memory();
+        var hostFunctions = new HostFunctionProvider(objectMapper);
+        var domainObjects = getDomainObjectMap();
+        domainObjects.get("Shift").getFieldDescriptorMap().put("employee", field("Employee", new DomainPlanningVariable()));
+        hostFunctions.bind(new PlanningProblem(domainObjects, Map.of(), null, "", "alloc", "dealloc", null,
+                null, null, null));
+        var json = """
+                {
+                    "shifts": [],
+                    "employees": [{"id": 0, "name": "Ann", "skills": ["s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7", "s8"]}]
+                }
+                """.getBytes(StandardCharsets.UTF_8);
+        var jsonPointer = (int) instance.export("alloc").apply(json.length)[0];
+        memory.write(jsonPointer, json);
+        var schedule = (int) TestUtils.getHostFunction(hostFunctions, "hparseSchedule").handle()
+                .apply(instance, json.length, jsonPointer)[0];
+
+        var annSkills = memory.readInt(getItem(instance, memory.readInt(schedule + 4), 0) + 8);
+        assertThat(hostFunctions.getListIndexes()).isNull();
+        var skill = (int) instance.export("alloc").apply(3)[0];
+        memory.write(skill, "s9\0".getBytes(StandardCharsets.UTF_8));
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, skill)).isZero();
+
+        // The module changes the list on its own, so the host must not answer from an index of the parsed list
+        instance.export("append").apply(annSkills, skill);
+        assertThat(TestUtils.callHostFunction(hostFunctions, "hlistContainsString", instance, annSkills, skill)).isEqualTo(1);
+    }
+
+    @Test
+    public void parsesPlanningListVariableAsReferences() throws IOException {
+        var instance = TestUtils.createListInstance();
+        var memory = instance.memory();
+        var vehicleFields = new LinkedHashMap<String, FieldDescriptor>();
+        vehicleFields.put("id", field("int", new DomainPlanningId()));
+        vehicleFields.put("visits", field("Visit[]", new DomainPlanningListVariable()));
+        var visitFields = new LinkedHashMap<String, FieldDescriptor>();
+        visitFields.put("id", field("int", new DomainPlanningId()));
+        var routeFields = new LinkedHashMap<String, FieldDescriptor>();
+        routeFields.put("vehicles", field("Vehicle[]"));
+        routeFields.put("visits", field("Visit[]"));
+        var domainObjects = new LinkedHashMap<String, DomainObject>();
+        domainObjects.put("Vehicle", new DomainObject(vehicleFields, null));
+        domainObjects.put("Visit", new DomainObject(visitFields, null));
+        domainObjects.put("Schedule", new DomainObject(routeFields, new DomainObjectMapper("parseSchedule", "scheduleString")));
+        var domainLayouts = DomainLayout.of(domainObjects);
+        assertThat(domainLayouts.get("Vehicle").getField("visits").planningListVariable()).isTrue();
+
+        // The vehicles refer to visits that are only read later
+        var schedule = parse(instance, domainLayouts, """
+                {
+                    "vehicles": [{"id": 0, "visits": [{"id": 2}, {"id": 0}, {"unknown": 1}]}, {"id": 1, "visits": []}],
+                    "visits": [{"id": 0}, {"id": 1}, {"id": 2}]
+                }
+                """);
+
+        var vehicles = memory.readInt(schedule);
+        var visits = memory.readInt(schedule + 4);
+        var route = memory.readInt(getItem(instance, vehicles, 0) + 4);
+        assertThat(memory.readInt(route)).isEqualTo(2);
+        assertThat(getItem(instance, route, 0)).isEqualTo(getItem(instance, visits, 2));
+        assertThat(getItem(instance, route, 1)).isEqualTo(getItem(instance, visits, 0));
+        assertThat(memory.readInt(memory.readInt(getItem(instance, vehicles, 1) + 4))).isZero();
+    }
+}
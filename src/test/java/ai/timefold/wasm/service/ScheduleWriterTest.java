@@ -0,0 +1,52 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ScheduleWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private int parse(Instance instance, Map<String, DomainLayout> domainLayouts, String json) throws IOException {
+        try (var parser = objectMapper.getFactory().createParser(json.getBytes(StandardCharsets.UTF_8))) {
+            return new ScheduleParser(instance, domainLayouts, parser, null, null, null)
+                    .parseSolution(domainLayouts.get("Schedule"));
+        }
+    }
+
+    @Test
+    public void writesScheduleIntoGrowingBuffer() throws IOException {
+        var instance = TestUtils.createListInstance();
+        var domainLayouts = DomainLayout.of(ScheduleParserTest.getDomainObjectMap());
+        var json = """
+                {
+                    "shifts": [
+                        {"employee": {"id": 1, "name": "B\\"ob\u00e9", "skills": [], "salary": 0}, "day": "2024-01-15",
+                         "start": "2024-01-15T14:30", "weight": 1.5},
+                        {"employee": null, "day": "1970-01-01", "start": "1970-01-01T00:00", "weight": 0.0}
+                    ],
+                    "employees": [
+                        {"id": 0, "name": "Ann", "skills": ["a", "b"], "salary": 5000000000},
+                        {"id": 1, "name": "B\\"ob\u00e9", "skills": [], "salary": 0}
+                    ]
+                }
+                """;
+        var schedule = parse(instance, domainLayouts, json);
+
+        // Far too small, so the buffer is reallocated while writing
+        var out = new LinearMemoryOutputStream(instance, null, 16);
+        try (var generator = objectMapper.getFactory().createGenerator(out)) {
+            new ScheduleWriter(instance, domainLayouts, generator).writeSolution(schedule, domainLayouts.get("Schedule"));
+        }
+        var written = instance.memory().readCString(out.finish(), StandardCharsets.UTF_8);
+        assertThat(written.getBytes(StandardCharsets.UTF_8)).hasSize(out.size());
+        assertThat(objectMapper.readTree(written)).isEqualTo(objectMapper.readTree(json));
+    }
+}
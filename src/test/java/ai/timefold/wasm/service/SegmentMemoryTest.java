@@ -0,0 +1,120 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.function.Function;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.dylibso.chicory.runtime.ByteArrayMemory;
+import com.dylibso.chicory.runtime.GlobalInstance;
+import com.dylibso.chicory.runtime.ImportGlobal;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.runtime.Memory;
+import com.dylibso.chicory.runtime.WasmRuntimeException;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+import com.dylibso.chicory.wasm.Parser;
+import com.dylibso.chicory.wasm.types.MemoryLimits;
+import com.dylibso.chicory.wasm.types.Value;
+
+public class SegmentMemoryTest {
+    enum Backend {
+        HEAP(ByteArrayMemory::new),
+        OFF_HEAP(SegmentMemory::offHeap),
+        MAPPED(SegmentMemory::mapped);
+
+        private final Function<MemoryLimits, Memory> memoryFactory;
+
+        Backend(Function<MemoryLimits, Memory> memoryFactory) {
+            this.memoryFactory = memoryFactory;
+        }
+    }
+
+    private static Instance instantiate(Backend backend) {
+        var module = Parser.parse(Wat2Wasm.parse("""
+                (module
+                    (global $base (import "env" "base") i32)
+                    (memory (export "memory") 1 4)
+                    (data (i32.const 8) "\\2a\\00\\00\\00")
+                    (data (global.get $base) "hello\\00")
+                    (func (export "load") (param i32) (result i32)
+                        (i32.load (local.get 0))
+                    )
+                    (func (export "store") (param i32) (param i64)
+                        (i64.store (local.get 0) (local.get 1))
+                    )
+                    (func (export "grow") (param i32) (result i32)
+                        (memory.grow (local.get 0))
+                    )
+                )
+                """));
+        return Instance.builder(module)
+                .withMemoryFactory(backend.memoryFactory)
+                .withImportValues(ImportValues.builder()
+                        .addGlobal(new ImportGlobal("env", "base", new GlobalInstance(Value.i32(16))))
+                        .build())
+                .build();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    public void initializesDataSegments(Backend backend) {
+        var instance = instantiate(backend);
+        assertThat(instance.export("load").apply(8)[0]).isEqualTo(42);
+        assertThat(instance.memory().readCString(16)).isEqualTo("hello");
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    public void readsLittleEndianValues(Backend backend) {
+        var instance = instantiate(backend);
+        instance.export("store").apply(100, 0x0102030405060708L);
+
+        var memory = instance.memory();
+        assertThat(memory.readLong(100)).isEqualTo(0x0102030405060708L);
+        assertThat(memory.readInt(100)).isEqualTo(0x05060708);
+        assertThat(memory.readU16(100)).isEqualTo(0x0708);
+        assertThat(memory.read(100)).isEqualTo((byte) 0x08);
+        assertThat(memory.readBytes(100, 2)).containsExactly(0x08, 0x07);
+
+        memory.copy(200, 100, 8);
+        assertThat(memory.readLong(200)).isEqualTo(0x0102030405060708L);
+        memory.fill((byte) 0, 200, 204);
+        assertThat(memory.readLong(200)).isEqualTo(0x0102030400000000L);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    public void growsAndKeepsContents(Backend backend) {
+        var instance = instantiate(backend);
+        var memory = instance.memory();
+
+        assertThat(instance.export("grow").apply(2)[0]).isEqualTo(1);
+        assertThat(memory.pages()).isEqualTo(3);
+        assertThat(memory.readInt(8)).isEqualTo(42);
+        memory.writeI32(Memory.bytes(3) - 4, 7);
+        assertThat(memory.readInt(Memory.bytes(3) - 4)).isEqualTo(7);
+
+        // Growing past the maximum fails without changing the memory
+        assertThat(instance.export("grow").apply(2)[0]).isEqualTo(-1);
+        assertThat(memory.pages()).isEqualTo(3);
+    }
+
+    @ParameterizedTest
+    // ByteArrayMemory over-allocates its buffer and does not trap on every access past the memory size
+    @EnumSource(value = Backend.class, names = { "OFF_HEAP", "MAPPED" })
+    public void trapsOnOutOfBoundsAccess(Backend backend) {
+        var instance = instantiate(backend);
+        var load = instance.export("load");
+
+        assertThatThrownBy(() -> load.apply(Memory.PAGE_SIZE - 2))
+                .isInstanceOf(WasmRuntimeException.class)
+                .hasMessageContaining("out of bounds memory access");
+        // Mapped memories reserve the maximum size upfront, which must still be out of bounds until grown
+        assertThatThrownBy(() -> instance.memory().readInt(Memory.bytes(2)))
+                .isInstanceOf(WasmRuntimeException.class);
+    }
+}
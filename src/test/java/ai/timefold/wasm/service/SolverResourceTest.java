@@ -1,18 +1,25 @@
 package ai.timefold.wasm.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
 import jakarta.inject.Inject;
 
 import ai.timefold.solver.core.api.score.buildin.simple.SimpleScore;
+import ai.timefold.wasm.service.dto.MemoryBackend;
+import ai.timefold.wasm.service.dto.WasmConstraint;
+import ai.timefold.wasm.service.dto.constraint.ForEachComponent;
+import ai.timefold.wasm.service.dto.constraint.PenalizeComponent;
 
 import org.junit.jupiter.api.Test;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORMapper;
 
 import io.quarkus.test.junit.QuarkusTest;
 
@@ -24,6 +31,18 @@ public class SolverResourceTest {
     @Inject
     SolverResource solverResource;
 
+    @Inject
+    WasmModuleRegistry moduleRegistry;
+
+    @Inject
+    WasmInstancePool instancePool;
+
+    @Inject
+    ProblemSnapshotCache problemSnapshotCache;
+
+    @Inject
+    CompiledSessionCache sessionCache;
+
     @Test
     public void solveTest() throws JsonProcessingException {
         var planningProblem = TestUtils.getPlanningProblem();
@@ -34,6 +53,120 @@ public class SolverResourceTest {
                 Map.of("employee", Map.of("id", 0)), Map.of("employee", Map.of("id", 1))
         ));
         assertThat(out.score()).isEqualTo(SimpleScore.of(18));
+        // Host function calls are only profiled if wasm.host-function-stats.enabled is set
+        assertThat(out.stats().hostFunctions()).isNull();
+        assertThat(objectMapper.valueToTree(out.stats()).has("hostFunctions")).isFalse();
+    }
+
+    @Test
+    public void solveListVariableTest() throws JsonProcessingException {
+        var planningProblem = TestUtils.getListVariablePlanningProblem();
+        var out = solverResource.solve(planningProblem);
+        var solution = (Map) objectMapper.readerFor(Map.class).readValue(out.solution());
+        // The visits are inserted into and removed from the lists of the vehicles as the solver moves them,
+        // in clones of the solution too, and all end up with vehicle 1
+        assertThat(solution.get("vehicles")).usingRecursiveComparison().ignoringCollectionOrder().isEqualTo(List.of(
+                Map.of("id", 0, "visits", List.of()),
+                Map.of("id", 1, "visits", List.of(Map.of("id", 0), Map.of("id", 1), Map.of("id", 2)))
+        ));
+        assertThat(out.score()).isEqualTo(SimpleScore.ZERO);
+    }
+
+    @Test
+    public void solveBinaryTest() throws IOException {
+        var cborMapper = new CBORMapper();
+        var planningProblem = TestUtils.getPlanningProblem();
+        planningProblem.setBinaryProblem(cborMapper.writeValueAsBytes(objectMapper.readTree(planningProblem.getProblem())));
+        var out = solverResource.solveBinary(planningProblem);
+        var solution = (Map) cborMapper.readerFor(Map.class).readValue(out.solution());
+        assertThat(solution).containsKeys("employees", "shifts");
+        assertThat(solution.get("shifts")).usingRecursiveComparison().ignoringCollectionOrder().isEqualTo(List.of(
+                Map.of("employee", Map.of("id", 0)), Map.of("employee", Map.of("id", 1))
+        ));
+        assertThat(out.score()).isEqualTo(SimpleScore.of(18));
+    }
+
+    @Test
+    public void solveReusesPooledInstanceTest() {
+        assertThat(solverResource.solve(TestUtils.getPlanningProblem()).score()).isEqualTo(SimpleScore.of(18));
+        var reusedBefore = instancePool.getStats().reused();
+
+        // The second solve runs on the instance released by the first one, reset to its initial memory
+        assertThat(solverResource.solve(TestUtils.getPlanningProblem()).score()).isEqualTo(SimpleScore.of(18));
+        assertThat(instancePool.getStats().reused()).isGreaterThan(reusedBefore);
+        assertThat(instancePool.getStats().inUse()).isZero();
+    }
+
+    @Test
+    public void solveCachedProblemTest() throws JsonProcessingException {
+        var planningProblem = TestUtils.getPlanningProblem();
+        planningProblem.setProblem("""
+                {"employees": [{"id": 0}, {"id": 1}, {"id": 2}], "shifts": [{}, {}]}
+                """);
+        solverResource.solve(planningProblem);
+        var hitsBefore = problemSnapshotCache.getStats().hits();
+
+        // The second solve restores the memory of the first parse instead of parsing again
+        var out = solverResource.solve(planningProblem);
+        assertThat(problemSnapshotCache.getStats().hits()).isEqualTo(hitsBefore + 1);
+        var solution = (Map) objectMapper.readerFor(Map.class).readValue(out.solution());
+        assertThat((List) solution.get("employees")).hasSize(3);
+        assertThat(out.score()).isEqualTo(SimpleScore.of(18));
+    }
+
+    @Test
+    public void solveReusesCompiledSessionTest() {
+        assertThat(solverResource.solve(TestUtils.getPlanningProblem()).score()).isEqualTo(SimpleScore.of(18));
+        var hitsBefore = sessionCache.getStats().hits();
+
+        // The second solve reuses the generated classes and solver factory, bound to the instance it runs on
+        var planningProblem = TestUtils.getPlanningProblem();
+        planningProblem.setProblem("""
+                {"employees": [{"id": 0}, {"id": 1}, {"id": 2}], "shifts": [{}, {}]}
+                """);
+        assertThat(solverResource.solve(planningProblem).score()).isEqualTo(SimpleScore.of(18));
+        assertThat(sessionCache.getStats().hits()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    public void sessionKeyDependsOnSchemaTest() {
+        var planningProblem = TestUtils.getPlanningProblem();
+        var module = moduleRegistry.resolve(planningProblem);
+        var key = sessionCache.computeSessionKey(module, planningProblem);
+
+        var otherProblem = TestUtils.getPlanningProblem();
+        otherProblem.setProblem("{}");
+        assertThat(sessionCache.computeSessionKey(module, otherProblem)).isEqualTo(key);
+
+        otherProblem.setConstraints(Map.of("penalizeId0", new WasmConstraint(List.of(
+                new ForEachComponent("Shift"),
+                new PenalizeComponent("2", null)))));
+        assertThat(sessionCache.computeSessionKey(module, otherProblem)).isNotEqualTo(key);
+    }
+
+    @Test
+    public void solveOffHeapMemoryTest() throws JsonProcessingException {
+        var planningProblem = TestUtils.getPlanningProblem();
+        planningProblem.setMemory(MemoryBackend.OFF_HEAP);
+        var out = solverResource.solve(planningProblem);
+        var solution = (Map) objectMapper.readerFor(Map.class).readValue(out.solution());
+        assertThat(solution).containsKeys("employees", "shifts");
+        assertThat(out.score()).isEqualTo(SimpleScore.of(18));
+    }
+
+    @Test
+    public void solveRegisteredModuleTest() {
+        var registeredModule = moduleRegistry.register(TestUtils.getWasm());
+        assertThat(moduleRegistry.get(registeredModule.hash())).contains(registeredModule);
+
+        var planningProblem = TestUtils.getPlanningProblemForRegisteredModule(registeredModule.hash());
+        var out = solverResource.solve(planningProblem);
+        assertThat(out.score()).isEqualTo(SimpleScore.of(18));
+
+        assertThat(moduleRegistry.unregister(registeredModule.hash())).isTrue();
+        assertThatThrownBy(() -> solverResource.solve(planningProblem))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(registeredModule.hash());
     }
 
     @Test
@@ -4,6 +4,7 @@ import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import ai.timefold.solver.core.config.solver.EnvironmentMode;
 import ai.timefold.wasm.service.dto.DomainAccessor;
@@ -17,6 +18,7 @@ import ai.timefold.wasm.service.dto.WasmConstraint;
 import ai.timefold.wasm.service.dto.WasmFunction;
 import ai.timefold.wasm.service.dto.annotation.DomainPlanningEntityCollectionProperty;
 import ai.timefold.wasm.service.dto.annotation.DomainPlanningId;
+import ai.timefold.wasm.service.dto.annotation.DomainPlanningListVariable;
 import ai.timefold.wasm.service.dto.annotation.DomainPlanningScore;
 import ai.timefold.wasm.service.dto.annotation.DomainPlanningVariable;
 import ai.timefold.wasm.service.dto.annotation.DomainProblemFactCollectionProperty;
@@ -29,11 +31,25 @@ import ai.timefold.wasm.service.dto.constraint.PenalizeComponent;
 import ai.timefold.wasm.service.dto.constraint.RewardComponent;
 import ai.timefold.wasm.service.dto.constraint.groupby.CountAggregator;
 
+import com.dylibso.chicory.runtime.HostFunction;
+import com.dylibso.chicory.runtime.ImportValues;
+import com.dylibso.chicory.runtime.Instance;
 import com.dylibso.chicory.wabt.Wat2Wasm;
+import com.dylibso.chicory.wasm.Parser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class TestUtils {
+    private static final Set<String> LIST_FUNCTIONS = Set.of("hnewList", "hgetItem", "happend");
+
     public static PlanningProblem getPlanningProblem() {
+        return getPlanningProblem(Base64.getEncoder().encodeToString(getWasm()), null);
+    }
+
+    public static PlanningProblem getPlanningProblemForRegisteredModule(String wasmRef) {
+        return getPlanningProblem(null, wasmRef);
+    }
+
+    private static PlanningProblem getPlanningProblem(String wasm, String wasmRef) {
         // Use LinkedHashMap to preserve field order - critical for WASM memory layout
         var employeeFields = new LinkedHashMap<String, FieldDescriptor>();
         employeeFields.put("id", new FieldDescriptor("int", new DomainAccessor("getEmployeeId", null), List.of(new DomainPlanningId())));
@@ -78,125 +94,9 @@ public class TestUtils {
                         )
                 ),
                 EnvironmentMode.FULL_ASSERT,
-                Base64.getEncoder().encodeToString(Wat2Wasm.parse(
-                        """
-                        (module
-                            (type (;0;) (func (param i32) (result i32)))
-                            (type (;1;) (func (result i32)))
-                            (type (;2;) (func (param i32 i32) (result i32)))
-                            (type (;3;) (func (param i32 i32 i32)))
-                            (type (;4;) (func (param i32 i32)))
-                            (type (;5;) (func (param i32) (result i32)))
-                            (type (;6;) (func (param f32) (result i32)))
-                            (import "host" "hparseSchedule" (func $hparseSchedule (type 2)))
-                            (import "host" "hscheduleString" (func $hscheduleString (type 5)))
-                            (import "host" "hnewList" (func $hnewList (type 1)))
-                            (import "host" "hgetItem" (func $hgetItem (type 2)))
-                            (import "host" "hsetItem" (func $hsetItem (type 3)))
-                            (import "host" "hsize" (func $hsize (type 0)))
-                            (import "host" "happend" (func $happend (type 4)))
-                            (import "host" "hinsert" (func $hinsert (type 3)))
-                            (import "host" "hremove" (func $hremove (type 4)))
-                            (import "host" "hround" (func $hround (type 6)))
-                            (memory 1)
-                            (func (export "parseSchedule") (param $length i32) (param $schedule i32) (result i32)
-                                (local.get $length) (local.get $schedule) (call $hparseSchedule)
-                            )
-                            (func (export "scheduleString") (param $schedule i32) (result i32)
-                                (local.get $schedule) (call $hscheduleString)
-                            )
-                            (func (export "newList") (result i32)
-                                (call $hnewList)
-                            )
-                            (func (export "round") (param $value f32) (result i32)
-                                (local.get $value) (call $hround)
-                            )
-                            (func (export "getItem") (param $list i32) (param $index i32) (result i32)
-                                (local.get $list) (local.get $index) (call $hgetItem)
-                            )
-                            (func (export "setItem") (param $list i32) (param $index i32) (param $item i32)
-                                (local.get $list) (local.get $index) (local.get $item) (call $hsetItem)
-                            )
-                            (func (export "size") (param $list i32) (result i32)
-                                (local.get $list) (call $hsize)
-                            )
-                            (func (export "append") (param $list i32) (param $item i32)
-                                (local.get $list) (local.get $item) (call $happend)
-                            )
-                            (func (export "insert") (param $list i32) (param $index i32) (param $item i32)
-                                (local.get $list) (local.get $index) (local.get $item) (call $hinsert)
-                            )
-                            (func (export "remove") (param $list i32) (param $index i32)
-                                (local.get $list) (local.get $index) (call $hremove)
-                            )
-                            (func (export "getEmployee") (param $shift i32) (result i32)
-                                (local.get $shift) (i32.load)
-                            )
-                            (func (export "getShiftEmployeeId") (param $shift i32) (result i32)
-                                (local.get $shift) (i32.load) (i32.load)
-                            )
-                            (func (export "getEmployeeId") (param $employee i32) (result i32)
-                                (local.get $employee) (i32.load)
-                            )
-                            (func (export "getEmployeePlus2") (param $employee i32) (result i32)
-                                (i32.add (local.get $employee) (i32.load) (i32.const 2))
-                            )
-                            (func (export "setEmployee") (param $shift i32) (param $employee i32) (result)
-                                (local.get $shift) (local.get $employee) (i32.store)
-                            )
-                            (func (export "getEmployees") (param $schedule i32) (result i32)
-                                (local.get $schedule) (i32.load)
-                            )
-                            (func (export "setEmployees") (param $schedule i32) (param $employees i32) (result)
-                                (local.get $schedule) (local.get $employees) (i32.store)
-                            )
-                            (func (export "getShifts") (param $schedule i32) (result i32)
-                                (i32.add (local.get $schedule) (i32.const 4)) (i32.load)
-                            )
-                            (func (export "setShifts") (param $schedule i32) (param $shifts i32) (result)
-                                (i32.add (local.get $schedule) (i32.const 4)) (local.get $shifts) (i32.store)
-                            )
-                            (func (export "isEmployeeId0") (param $shift i32) (param $employee i32) (result i32)
-                                (i32.eq (local.get $shift) (i32.load) (i32.load) (i32.const 0))
-                            )
-                            (func (export "scaleByCount") (param $count i32) (result i32)
-                                (local.get $count)
-                            )
-                            (func (export "scaleByFloat") (param $value f32) (result i32)
-                                (local.get $value) (call $hround)
-                            )
-                            (func (export "scaleByCountItemSquared") (param $list i32) (result i32)
-                                (local $x i32) (i32.mul (local.get $list) (i32.const 0) (call $hgetItem) (local.tee $x) (local.get $x))
-                            )
-                            (func (export "compareInt") (param $a i32) (param $b i32) (result i32)
-                                (i32.sub (local.get $a) (local.get $b))
-                            )
-                            (func (export "sameParity") (param $a i32) (param $b i32) (result i32)
-                                (local.get $a) (i32.const 2) (i32.rem_u) (local.get $b) (i32.const 2) (i32.rem_u) (i32.eq)
-                            )
-                            (func (export "parity") (param $a i32) (result i32)
-                                (local.get $a) (i32.const 2) (i32.rem_u)
-                            )
-                            (func (export "id") (param $a i32) (result i32)
-                                (local.get $a)
-                            )
-                            (func (export "pick1") (param $a i32) (param $b i32) (result i32)
-                                (local.get $a)
-                            )
-                            (func (export "pick2") (param $a i32) (param $b i32) (result i32)
-                                (local.get $b)
-                            )
-                            (func (export "alloc") (param $size i32) (result i32)
-                                (local $out i32) (i32.const 0) (i32.load) (local.set $out) (i32.const 0) (i32.add (local.get $out) (local.get $size)) (i32.store) (local.get $out)
-                            )
-                            (func (export "dealloc") (param $pointer i32) (result)
-                                return
-                            )
-                            (func (export "_start") (result)
-                                (i32.const 0) (i32.const 32) (i32.store)
-                            )
-                        )
-                        """)),
+                wasm,
+                wasmRef,
+                null,
                 "alloc",
                 "dealloc",
                 null,
@@ -216,6 +116,279 @@ public class TestUtils {
         );
     }
 
+    /**
+     * Vehicles with a planning list variable of the visits they make; each visit made by vehicle 0 is penalized.
+     */
+    public static PlanningProblem getListVariablePlanningProblem() {
+        var vehicleFields = new LinkedHashMap<String, FieldDescriptor>();
+        vehicleFields.put("id", new FieldDescriptor("int", new DomainAccessor("getVehicleId", null), List.of(new DomainPlanningId())));
+        vehicleFields.put("visits", new FieldDescriptor("Visit[]",
+                new DomainAccessor("getVehicleVisits", "setVehicleVisits"),
+                List.of(new DomainPlanningListVariable())));
+
+        var visitFields = new LinkedHashMap<String, FieldDescriptor>();
+        visitFields.put("id", new FieldDescriptor("int", new DomainAccessor("getVisitId", null), List.of(new DomainPlanningId())));
+
+        var routeFields = new LinkedHashMap<String, FieldDescriptor>();
+        routeFields.put("vehicles", new FieldDescriptor("Vehicle[]",
+                new DomainAccessor("getVehicles", "setVehicles"),
+                List.of(new DomainPlanningEntityCollectionProperty())));
+        routeFields.put("visits", new FieldDescriptor("Visit[]",
+                new DomainAccessor("getVisits", "setVisits"),
+                List.of(new DomainProblemFactCollectionProperty(), new DomainValueRangeProvider())));
+        routeFields.put("score", new FieldDescriptor("SimpleScore", List.of(new DomainPlanningScore())));
+
+        var domainObjects = new LinkedHashMap<String, DomainObject>();
+        domainObjects.put("Vehicle", new DomainObject(vehicleFields, null));
+        domainObjects.put("Visit", new DomainObject(visitFields, null));
+        domainObjects.put("Route", new DomainObject(routeFields, new DomainObjectMapper("parseSchedule", "scheduleString")));
+
+        return new PlanningProblem(
+                domainObjects,
+                Map.of(
+                        "penalizeVehicle0Visits", new WasmConstraint(
+                                List.of(
+                                        new ForEachComponent("Vehicle"),
+                                        new PenalizeComponent("1", new WasmFunction("countVehicle0Visits")))
+                        )
+                ),
+                EnvironmentMode.FULL_ASSERT,
+                Base64.getEncoder().encodeToString(getWasm()),
+                null,
+                null,
+                "alloc",
+                "dealloc",
+                null,
+                new DomainListAccessor(
+                        "newList",
+                        "getItem",
+                        "setItem",
+                        "size",
+                        "append",
+                        "insert",
+                        "remove",
+                        "dealloc"
+                ),
+                """
+                {"vehicles": [{"id": 0, "visits": []}, {"id": 1, "visits": []}], "visits": [{"id": 0}, {"id": 1}, {"id": 2}]}
+                """, new PlanningTermination(null, null, null, null, null, 10, null, null, null)
+        );
+    }
+
+    public static byte[] getWasm() {
+        return Wat2Wasm.parse(
+                """
+                (module
+                    (type (;0;) (func (param i32) (result i32)))
+                    (type (;1;) (func (result i32)))
+                    (type (;2;) (func (param i32 i32) (result i32)))
+                    (type (;3;) (func (param i32 i32 i32)))
+                    (type (;4;) (func (param i32 i32)))
+                    (type (;5;) (func (param i32) (result i32)))
+                    (type (;6;) (func (param f32) (result i32)))
+                    (import "host" "hparseSchedule" (func $hparseSchedule (type 2)))
+                    (import "host" "hscheduleString" (func $hscheduleString (type 5)))
+                    (import "host" "hnewList" (func $hnewList (type 1)))
+                    (import "host" "hgetItem" (func $hgetItem (type 2)))
+                    (import "host" "hsetItem" (func $hsetItem (type 3)))
+                    (import "host" "hsize" (func $hsize (type 0)))
+                    (import "host" "happend" (func $happend (type 4)))
+                    (import "host" "hinsert" (func $hinsert (type 3)))
+                    (import "host" "hremove" (func $hremove (type 4)))
+                    (import "host" "hround" (func $hround (type 6)))
+                    (memory 1)
+                    (func (export "parseSchedule") (param $length i32) (param $schedule i32) (result i32)
+                        (local.get $length) (local.get $schedule) (call $hparseSchedule)
+                    )
+                    (func (export "scheduleString") (param $schedule i32) (result i32)
+                        (local.get $schedule) (call $hscheduleString)
+                    )
+                    (func (export "newList") (result i32)
+                        (call $hnewList)
+                    )
+                    (func (export "round") (param $value f32) (result i32)
+                        (local.get $value) (call $hround)
+                    )
+                    (func (export "getItem") (param $list i32) (param $index i32) (result i32)
+                        (local.get $list) (local.get $index) (call $hgetItem)
+                    )
+                    (func (export "setItem") (param $list i32) (param $index i32) (param $item i32)
+                        (local.get $list) (local.get $index) (local.get $item) (call $hsetItem)
+                    )
+                    (func (export "size") (param $list i32) (result i32)
+                        (local.get $list) (call $hsize)
+                    )
+                    (func (export "append") (param $list i32) (param $item i32)
+                        (local.get $list) (local.get $item) (call $happend)
+                    )
+                    (func (export "insert") (param $list i32) (param $index i32) (param $item i32)
+                        (local.get $list) (local.get $index) (local.get $item) (call $hinsert)
+                    )
+                    (func (export "remove") (param $list i32) (param $index i32)
+                        (local.get $list) (local.get $index) (call $hremove)
+                    )
+                    (func (export "getEmployee") (param $shift i32) (result i32)
+                        (local.get $shift) (i32.load)
+                    )
+                    (func (export "getShiftEmployeeId") (param $shift i32) (result i32)
+                        (local.get $shift) (i32.load) (i32.load)
+                    )
+                    (func (export "getEmployeeId") (param $employee i32) (result i32)
+                        (local.get $employee) (i32.load)
+                    )
+                    (func (export "getEmployeePlus2") (param $employee i32) (result i32)
+                        (i32.add (local.get $employee) (i32.load) (i32.const 2))
+                    )
+                    (func (export "setEmployee") (param $shift i32) (param $employee i32) (result)
+                        (local.get $shift) (local.get $employee) (i32.store)
+                    )
+                    (func (export "getEmployees") (param $schedule i32) (result i32)
+                        (local.get $schedule) (i32.load)
+                    )
+                    (func (export "setEmployees") (param $schedule i32) (param $employees i32) (result)
+                        (local.get $schedule) (local.get $employees) (i32.store)
+                    )
+                    (func (export "getShifts") (param $schedule i32) (result i32)
+                        (i32.add (local.get $schedule) (i32.const 4)) (i32.load)
+                    )
+                    (func (export "setShifts") (param $schedule i32) (param $shifts i32) (result)
+                        (i32.add (local.get $schedule) (i32.const 4)) (local.get $shifts) (i32.store)
+                    )
+                    (func (export "isEmployeeId0") (param $shift i32) (param $employee i32) (result i32)
+                        (i32.eq (local.get $shift) (i32.load) (i32.load) (i32.const 0))
+                    )
+                    (func (export "is-employee.id0") (param $shift i32) (param $employee i32) (result i32)
+                        (i32.eq (local.get $shift) (i32.load) (i32.load) (i32.const 0))
+                    )
+                    (func (export "scaleByCount") (param $count i32) (result i32)
+                        (local.get $count)
+                    )
+                    (func (export "scaleByFloat") (param $value f32) (result i32)
+                        (local.get $value) (call $hround)
+                    )
+                    (func (export "scaleByCountItemSquared") (param $list i32) (result i32)
+                        (local $x i32) (i32.mul (local.get $list) (i32.const 0) (call $hgetItem) (local.tee $x) (local.get $x))
+                    )
+                    (func (export "compareInt") (param $a i32) (param $b i32) (result i32)
+                        (i32.sub (local.get $a) (local.get $b))
+                    )
+                    (func (export "sameParity") (param $a i32) (param $b i32) (result i32)
+                        (local.get $a) (i32.const 2) (i32.rem_u) (local.get $b) (i32.const 2) (i32.rem_u) (i32.eq)
+                    )
+                    (func (export "parity") (param $a i32) (result i32)
+                        (local.get $a) (i32.const 2) (i32.rem_u)
+                    )
+                    (func (export "id") (param $a i32) (result i32)
+                        (local.get $a)
+                    )
+                    (func (export "pick1") (param $a i32) (param $b i32) (result i32)
+                        (local.get $a)
+                    )
+                    (func (export "pick2") (param $a i32) (param $b i32) (result i32)
+                        (local.get $b)
+                    )
+                    (func (export "getVehicleId") (param $vehicle i32) (result i32)
+                        (local.get $vehicle) (i32.load)
+                    )
+                    (func (export "getVehicleVisits") (param $vehicle i32) (result i32)
+                        (i32.add (local.get $vehicle) (i32.const 4)) (i32.load)
+                    )
+                    (func (export "setVehicleVisits") (param $vehicle i32) (param $visits i32) (result)
+                        (i32.add (local.get $vehicle) (i32.const 4)) (local.get $visits) (i32.store)
+                    )
+                    (func (export "getVisitId") (param $visit i32) (result i32)
+                        (local.get $visit) (i32.load)
+                    )
+                    (func (export "getVehicles") (param $route i32) (result i32)
+                        (local.get $route) (i32.load)
+                    )
+                    (func (export "setVehicles") (param $route i32) (param $vehicles i32) (result)
+                        (local.get $route) (local.get $vehicles) (i32.store)
+                    )
+                    (func (export "getVisits") (param $route i32) (result i32)
+                        (i32.add (local.get $route) (i32.const 4)) (i32.load)
+                    )
+                    (func (export "setVisits") (param $route i32) (param $visits i32) (result)
+                        (i32.add (local.get $route) (i32.const 4)) (local.get $visits) (i32.store)
+                    )
+                    (func (export "countVehicle0Visits") (param $vehicle i32) (result i32)
+                        (if (result i32) (i32.eqz (i32.load (local.get $vehicle)))
+                            (then (i32.add (local.get $vehicle) (i32.const 4)) (i32.load) (call $hsize))
+                            (else (i32.const 0))
+                        )
+                    )
+                    (func (export "alloc") (param $size i32) (result i32)
+                        (local $out i32) (i32.const 0) (i32.load) (local.set $out) (i32.const 0) (i32.add (local.get $out) (local.get $size)) (i32.store) (local.get $out)
+                    )
+                    (func (export "dealloc") (param $pointer i32) (result)
+                        return
+                    )
+                    (func (export "_start") (result)
+                        (i32.const 0) (i32.const 32) (i32.store)
+                    )
+                )
+                """);
+    }
+
+    /**
+     * An instance of a module whose lists are the host's, with an {@code alloc} that counts its calls
+     * in {@code allocCount}.
+     */
+    public static Instance createListInstance() {
+        var wasm = Wat2Wasm.parse("""
+                (module
+                    (import "host" "hnewList" (func $hnewList (result i32)))
+                    (import "host" "hgetItem" (func $hgetItem (param i32 i32) (result i32)))
+                    (import "host" "happend" (func $happend (param i32 i32)))
+                    (memory 2)
+                    (global $heap (mut i32) (i32.const 8))
+                    (global $allocCount (mut i32) (i32.const 0))
+                    (func (export "alloc") (param $size i32) (result i32)
+                        (local $out i32)
+                        (global.set $allocCount (i32.add (global.get $allocCount) (i32.const 1)))
+                        (local.set $out (global.get $heap))
+                        (global.set $heap (i32.and (i32.add (i32.add (global.get $heap) (local.get $size)) (i32.const 7)) (i32.const -8)))
+                        (local.get $out)
+                    )
+                    (func (export "allocCount") (result i32)
+                        (global.get $allocCount)
+                    )
+                    (func (export "newList") (result i32)
+                        (call $hnewList)
+                    )
+                    (func (export "getItem") (param $list i32) (param $index i32) (result i32)
+                        (local.get $list) (local.get $index) (call $hgetItem)
+                    )
+                    (func (export "append") (param $list i32) (param $item i32)
+                        (local.get $list) (local.get $item) (call $happend)
+                    )
+                )
+                """);
+        return Instance.builder(Parser.parse(wasm))
+                .withImportValues(ImportValues.builder().addFunction(getListHostFunctions()).build())
+                .build();
+    }
+
+    /**
+     * The host functions imported by the module of {@link #createListInstance()}.
+     */
+    public static HostFunction[] getListHostFunctions() {
+        return new HostFunctionProvider(new ObjectMapper()).createHostFunctions().stream()
+                .filter(function -> LIST_FUNCTIONS.contains(function.name()))
+                .toArray(HostFunction[]::new);
+    }
+
+    public static HostFunction getHostFunction(HostFunctionProvider hostFunctions, String name) {
+        return hostFunctions.createHostFunctions().stream()
+                .filter(function -> function.name().equals(name))
+                .findFirst().orElseThrow();
+    }
+
+    public static long callHostFunction(HostFunctionProvider hostFunctions, String name, Instance instance,
+            long... args) {
+        return getHostFunction(hostFunctions, name).handle().apply(instance, args)[0];
+    }
+
     /**
      * @deprecated Host functions are now auto-generated by HostFunctionProvider.
      *             This method is kept for backwards compatibility but does nothing.
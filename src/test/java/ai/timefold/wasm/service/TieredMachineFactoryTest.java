@@ -0,0 +1,58 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+import com.dylibso.chicory.wasm.Parser;
+
+public class TieredMachineFactoryTest {
+    private static final int HOT = 0;
+    private static final int WARM = 1;
+    private static final int HELPER = 4;
+
+    private static void call(Instance instance, String export, int times) {
+        for (int i = 0; i < times; i++) {
+            instance.export(export).apply();
+        }
+    }
+
+    @Test
+    public void compilesMostCalledFunctionsFirst() {
+        var module = Parser.parse(Wat2Wasm.parse("""
+                (module
+                    (func (export "hot") (result i32)
+                        (call $helper)
+                    )
+                    (func (export "warm") (result i32)
+                        (i32.const 2)
+                    )
+                    (func (export "cold1") (result i32)
+                        (i32.const 3)
+                    )
+                    (func (export "cold2") (result i32)
+                        (i32.const 4)
+                    )
+                    (func $helper (result i32)
+                        (i32.const 1)
+                    )
+                    (func (export "unused") (result i32)
+                        (i32.const 5)
+                    )
+                )
+                """));
+        var machineFactory = new TieredMachineFactory("0".repeat(64), module, _ -> {
+        }, _ -> {
+        });
+        var instance = Instance.builder(module).withMachineFactory(machineFactory).build();
+        call(instance, "cold1", 1);
+        call(instance, "hot", 10);
+        call(instance, "cold2", 1);
+        call(instance, "warm", 5);
+
+        // More than half of the module was called, so only the most called functions and their callees fit
+        assertThat(machineFactory.getHotFunctions()).containsExactlyInAnyOrder(HOT, HELPER, WARM);
+    }
+}
@@ -0,0 +1,34 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class WasmExportTest {
+    @Test
+    public void callsExportsWithReusedArguments() {
+        var instance = TestUtils.createListInstance();
+        var newList = new WasmExport(instance, "newList");
+        var append = new WasmExport(instance, "append");
+        var getItem = new WasmExport(instance, "getItem");
+
+        var list = newList.call();
+        for (int item = 0; item < 100; item++) {
+            append.callVoid(list, item * 3);
+        }
+        for (int index = 0; index < 100; index++) {
+            assertThat(getItem.call(list, index)).isEqualTo(index * 3L);
+        }
+
+        // Objects of another instance take its export, as does an export not bound to any instance
+        var other = TestUtils.createListInstance();
+        var otherList = (int) other.export("newList").apply()[0];
+        other.export("append").apply(otherList, 7);
+        assertThat(getItem.call(other, otherList, 0)).isEqualTo(7L);
+        assertThat(new WasmExport(null, "getItem").call(instance, list, 99)).isEqualTo(297L);
+
+        getItem.bind(other);
+        assertThat(getItem.call(otherList, 0)).isEqualTo(7L);
+        assertThat(getItem.call(instance, list, 1)).isEqualTo(3L);
+    }
+}
@@ -0,0 +1,91 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+
+public class WasmModuleCacheTest {
+    private static byte[] moduleReturning(int value) {
+        return Wat2Wasm.parse("""
+                (module
+                    (func (export "value") (result i32)
+                        (i32.const %d)
+                    )
+                )
+                """.formatted(value));
+    }
+
+    @Test
+    public void cachesCompiledModule() {
+        var cache = new WasmModuleCache(4, Long.MAX_VALUE);
+        var first = cache.getOrCompile(moduleReturning(1));
+        var second = cache.getOrCompile(moduleReturning(1));
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getStats().misses()).isEqualTo(1);
+        assertThat(cache.getStats().hits()).isEqualTo(1);
+        assertThat(cache.getStats().hitRatio()).isEqualTo(0.5);
+        assertThat(first.weight()).isGreaterThan(moduleReturning(1).length);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedModule() {
+        var cache = new WasmModuleCache(2, Long.MAX_VALUE);
+        var first = cache.getOrCompile(moduleReturning(1));
+        var second = cache.getOrCompile(moduleReturning(2));
+        cache.getOrCompile(moduleReturning(1));
+        cache.getOrCompile(moduleReturning(3));
+
+        var stats = cache.getStats();
+        assertThat(stats.size()).isEqualTo(2);
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(cache.getOrCompile(moduleReturning(1))).isSameAs(first);
+        assertThat(cache.getOrCompile(moduleReturning(2))).isNotSameAs(second);
+        assertThat(cache.getStats().misses()).isEqualTo(4);
+    }
+
+    @Test
+    public void evictsWhenOverByteLimit() {
+        var cache = new WasmModuleCache(16, 1);
+        cache.getOrCompile(moduleReturning(1));
+        var second = cache.getOrCompile(moduleReturning(2));
+
+        var stats = cache.getStats();
+        assertThat(stats.size()).isEqualTo(1);
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(stats.bytes()).isEqualTo(second.weight());
+    }
+
+    @Test
+    public void tieredModuleRunsBeforeAndAfterCompilation() throws InterruptedException {
+        var cache = new WasmModuleCache(4, Long.MAX_VALUE, ExecutionMode.TIERED, Duration.ZERO,
+                WasmModuleDiskCache.disabled());
+        try {
+            var module = cache.getOrCompile(moduleReturning(7));
+            assertThat(module.machineFactory()).isInstanceOf(TieredMachineFactory.class);
+            var tieredMachineFactory = (TieredMachineFactory) module.machineFactory();
+
+            var instance = Instance.builder(module.module())
+                    .withMachineFactory(module.machineFactory())
+                    .build();
+            assertThat(instance.export("value").apply()[0]).isEqualTo(7);
+
+            var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (!tieredMachineFactory.isFullyCompiled() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(tieredMachineFactory.isFullyCompiled()).isTrue();
+            // The same instance now runs the compiled code
+            assertThat(instance.export("value").apply()[0]).isEqualTo(7);
+            assertThat(module.currentWeight()).isGreaterThan(module.weight());
+            assertThat(cache.getStats().bytes()).isEqualTo(module.currentWeight());
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ai.timefold.wasm.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+
+public class WasmModuleDiskCacheTest {
+    @TempDir
+    Path directory;
+
+    private static byte[] moduleReturning(int value) {
+        return Wat2Wasm.parse("""
+                (module
+                    (func (export "value") (result i32)
+                        (i32.const %d)
+                    )
+                )
+                """.formatted(value));
+    }
+
+    private WasmModuleCache newModuleCache(WasmModuleDiskCache diskCache) {
+        return new WasmModuleCache(4, Long.MAX_VALUE, ExecutionMode.COMPILED, Duration.ZERO, diskCache);
+    }
+
+    private static long call(CompiledWasmModule module) {
+        var instance = Instance.builder(module.module())
+                .withMachineFactory(module.machineFactory())
+                .build();
+        return instance.export("value").apply()[0];
+    }
+
+    private Path[] listFiles() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.toArray(Path[]::new);
+        }
+    }
+
+    @Test
+    public void loadsModuleCompiledBeforeRestart() throws IOException {
+        var diskCache = new WasmModuleDiskCache(directory, Long.MAX_VALUE);
+        assertThat(call(newModuleCache(diskCache).getOrCompile(moduleReturning(1)))).isEqualTo(1);
+        assertThat(diskCache.getStats().writes()).isEqualTo(1);
+        assertThat(listFiles()).hasSize(1);
+
+        // A new cache, as after a restart, loads the classes instead of compiling them
+        var restartedDiskCache = new WasmModuleDiskCache(directory, Long.MAX_VALUE);
+        var loaded = newModuleCache(restartedDiskCache).getOrCompile(moduleReturning(1));
+        assertThat(restartedDiskCache.getStats().hits()).isEqualTo(1);
+        assertThat(restartedDiskCache.getStats().writes()).isZero();
+        assertThat(call(loaded)).isEqualTo(1);
+    }
+
+    @Test
+    public void recompilesCorruptedModule() throws IOException {
+        var diskCache = new WasmModuleDiskCache(directory, Long.MAX_VALUE);
+        newModuleCache(diskCache).getOrCompile(moduleReturning(2));
+
+        var file = listFiles()[0];
+        var content = Files.readAllBytes(file);
+        content[content.length / 2] ^= 1;
+        Files.write(file, content);
+
+        var restartedDiskCache = new WasmModuleDiskCache(directory, Long.MAX_VALUE);
+        var recompiled = newModuleCache(restartedDiskCache).getOrCompile(moduleReturning(2));
+        assertThat(call(recompiled)).isEqualTo(2);
+        assertThat(restartedDiskCache.getStats().corrupted()).isEqualTo(1);
+        // The corrupted file was replaced by the recompiled module
+        assertThat(restartedDiskCache.getStats().writes()).isEqualTo(1);
+    }
+
+    @Test
+    public void deletesLeastRecentlyUsedModulesOverSizeLimit() throws IOException {
+        var diskCache = new WasmModuleDiskCache(directory, 1);
+        var moduleCache = newModuleCache(diskCache);
+        moduleCache.getOrCompile(moduleReturning(3));
+        moduleCache.getOrCompile(moduleReturning(4));
+
+        // Only the module written last is kept
+        assertThat(listFiles()).singleElement()
+                .satisfies(file -> assertThat(file.getFileName().toString())
+                        .startsWith(WasmModuleCache.computeWasmHash(moduleReturning(4))));
+    }
+}
@@ -0,0 +1,129 @@
+package ai.timefold.wasm.service.classgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import ai.timefold.wasm.service.MemorySnapshot;
+import ai.timefold.wasm.service.dto.DomainListAccessor;
+
+import org.junit.jupiter.api.Test;
+
+import com.dylibso.chicory.runtime.Instance;
+import com.dylibso.chicory.wabt.Wat2Wasm;
+import com.dylibso.chicory.wasm.Parser;
+
+public class AllocatorTest {
+    private static final int FREED_LOG = 65536;
+
+    // Logs the pointers dealloc is given from 64 KiB on
+    private static Instance createInstance() {
+        var wasm = Wat2Wasm.parse("""
+                (module
+                    (memory 2)
+                    (global $heap (mut i32) (i32.const 8))
+                    (global $freed (mut i32) (i32.const 65536))
+                    (func (export "alloc") (param $size i32) (result i32)
+                        (local $out i32)
+                        (local.set $out (global.get $heap))
+                        (global.set $heap (i32.and (i32.add (i32.add (global.get $heap) (local.get $size)) (i32.const 7)) (i32.const -8)))
+                        (local.get $out)
+                    )
+                    (func (export "dealloc") (param $pointer i32)
+                        (i32.store (global.get $freed) (local.get $pointer))
+                        (global.set $freed (i32.add (global.get $freed) (i32.const 4)))
+                    )
+                    (func (export "freedEnd") (result i32)
+                        (global.get $freed)
+                    )
+                )
+                """);
+        return Instance.builder(Parser.parse(wasm)).build();
+    }
+
+    private static List<Integer> getFreed(Instance instance) {
+        var end = (int) instance.export("freedEnd").apply()[0];
+        var pointers = new ArrayList<Integer>();
+        for (int entry = FREED_LOG; entry < end; entry += 4) {
+            pointers.add(instance.memory().readInt(entry));
+        }
+        return pointers;
+    }
+
+    private static Thread startCleaner(CountDownLatch started, Runnable release) {
+        var cleaner = new Thread(() -> {
+            started.countDown();
+            release.run();
+        });
+        cleaner.start();
+        return cleaner;
+    }
+
+    @Test
+    public void freesReleasedSolutionsOnTheOwningThread() throws InterruptedException {
+        var instance = createInstance();
+        var allocator = new Allocator(instance, "alloc", "dealloc", "dealloc");
+        var solutions = new int[1000];
+        for (int i = 0; i < solutions.length; i++) {
+            solutions[i] = allocator.allocate(16);
+        }
+        var pooledState = MemorySnapshot.capture(instance);
+
+        // Released by a Cleaner while the request runs, and freed on the request's next allocation
+        var released = solutions.length / 2;
+        startCleaner(new CountDownLatch(1), () -> {
+            for (int i = 0; i < released; i++) {
+                allocator.freeSolutionLater(solutions[i]);
+            }
+        }).join();
+        assertThat(getFreed(instance)).isEmpty();
+        allocator.allocate(16);
+        var freed = getFreed(instance);
+        assertThat(freed).hasSize(released);
+        for (int i = 0; i < released; i++) {
+            assertThat(freed.get(i)).isEqualTo(solutions[i]);
+        }
+
+        // Released while the request ends and the pool resets the instance for the next request
+        var started = new CountDownLatch(1);
+        var cleaner = startCleaner(started, () -> {
+            for (int i = released; i < solutions.length; i++) {
+                allocator.freeSolutionLater(solutions[i]);
+            }
+        });
+        started.await();
+        allocator.close();
+        pooledState.restore(instance);
+        cleaner.join();
+        // Only the request's thread called into the instance, so nothing was freed after the reset
+        assertThat(getFreed(instance)).isEmpty();
+    }
+
+    @Test
+    public void freesReleasedListsOnTheOwningThread() throws InterruptedException {
+        var instance = createInstance();
+        var listAccessor = new WasmListAccessor(instance,
+                new DomainListAccessor(null, null, null, null, null, null, null, "dealloc"));
+        var lists = List.of(8, 16, 24);
+
+        startCleaner(new CountDownLatch(1), () -> lists.forEach(listAccessor::deallocateLater)).join();
+        assertThat(getFreed(instance)).isEmpty();
+        listAccessor.deallocatePending();
+        assertThat(getFreed(instance)).containsExactlyElementsOf(lists);
+
+        var pooledState = MemorySnapshot.capture(instance);
+        var started = new CountDownLatch(1);
+        var cleaner = startCleaner(started, () -> {
+            for (int list = 32; list < 8000; list += 8) {
+                listAccessor.deallocateLater(list);
+            }
+        });
+        started.await();
+        listAccessor.close();
+        pooledState.restore(instance);
+        cleaner.join();
+        assertThat(getFreed(instance)).containsExactlyElementsOf(lists);
+    }
+}
@@ -0,0 +1,98 @@
+package ai.timefold.wasm.service.classgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntBiFunction;
+
+import jakarta.inject.Inject;
+
+import ai.timefold.solver.core.api.score.buildin.simple.SimpleScore;
+import ai.timefold.wasm.service.CompiledSessionCache;
+import ai.timefold.wasm.service.FunctionCache;
+import ai.timefold.wasm.service.SolverResource;
+import ai.timefold.wasm.service.TestUtils;
+import ai.timefold.wasm.service.WasmExport;
+import ai.timefold.wasm.service.WasmInstancePool;
+import ai.timefold.wasm.service.WasmModuleRegistry;
+import ai.timefold.wasm.service.dto.WasmConstraint;
+import ai.timefold.wasm.service.dto.WasmFunction;
+import ai.timefold.wasm.service.dto.constraint.FilterComponent;
+import ai.timefold.wasm.service.dto.constraint.ForEachComponent;
+import ai.timefold.wasm.service.dto.constraint.JoinComponent;
+import ai.timefold.wasm.service.dto.constraint.PenalizeComponent;
+import ai.timefold.wasm.service.dto.constraint.joiner.FilteringJoiner;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class FunctionBridgeClassGeneratorTest {
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    SolverResource solverResource;
+
+    @Inject
+    WasmModuleRegistry moduleRegistry;
+
+    @Inject
+    WasmInstancePool instancePool;
+
+    @Inject
+    CompiledSessionCache sessionCache;
+
+    @Test
+    public void solvesWithBridgeClasses() throws JsonProcessingException {
+        var planningProblem = TestUtils.getPlanningProblem();
+        // The functions are numbered in the order the constraint loads them: joiner filter, filter, weigher
+        planningProblem.setConstraints(Map.of("penalizeId0", new WasmConstraint(List.of(
+                new ForEachComponent("Shift"),
+                new JoinComponent("Employee", List.of(new FilteringJoiner(new WasmFunction("is-employee.id0")))),
+                new FilterComponent(new WasmFunction("isEmployeeId0", true)),
+                new PenalizeComponent("1", new WasmFunction("isEmployeeId0"))))));
+
+        var out = solverResource.solve(planningProblem);
+        var solution = (Map) objectMapper.readerFor(Map.class).readValue(out.solution());
+        assertThat(solution.get("shifts")).usingRecursiveComparison().isEqualTo(List.of(
+                Map.of("employee", Map.of("id", 1)), Map.of("employee", Map.of("id", 1))
+        ));
+        assertThat(out.score()).isEqualTo(SimpleScore.ZERO);
+
+        // The session of the request is cached idle, with the bridge classes defined in its class loader
+        var module = moduleRegistry.resolve(planningProblem);
+        var pooledInstance = instancePool.acquire(module, planningProblem);
+        var session = sessionCache.acquire(sessionCache.computeSessionKey(module, planningProblem),
+                pooledInstance.instance());
+        assertThat(session).isNotNull();
+        try {
+            var classLoader = session.classLoader();
+            assertThat(classLoader.getClassForDomainClassName("WasmFunction$is_employee_id0$0"))
+                    .isFinal()
+                    .isAssignableTo(BiPredicate.class);
+            assertThat(classLoader.getClassForDomainClassName("WasmFunction$isEmployeeId0$1"))
+                    .isFinal()
+                    .isAssignableTo(BiPredicate.class);
+            assertThat(classLoader.getClassForDomainClassName("WasmFunction$isEmployeeId0$2"))
+                    .isFinal()
+                    .isAssignableTo(ToIntBiFunction.class);
+            assertThat(classLoader.getClassForDomainClassName("WasmFunction$isEmployeeId0$1").getDeclaredFields())
+                    .extracting(Field::getType)
+                    .containsExactly(FunctionCache.Memoized.class);
+            assertThat(classLoader.getClassForDomainClassName("WasmFunction$isEmployeeId0$2").getDeclaredFields())
+                    .extracting(Field::getType)
+                    .containsExactly(WasmExport.class);
+        } finally {
+            sessionCache.release(session);
+            instancePool.release(pooledInstance);
+        }
+    }
+}
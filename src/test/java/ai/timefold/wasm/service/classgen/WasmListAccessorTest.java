@@ -0,0 +1,25 @@
+package ai.timefold.wasm.service.classgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.timefold.wasm.service.TestUtils;
+import ai.timefold.wasm.service.dto.DomainListAccessor;
+
+import org.junit.jupiter.api.Test;
+
+public class WasmListAccessorTest {
+    @Test
+    public void readsListItemsInBulk() {
+        var instance = TestUtils.createListInstance();
+        var list = (int) instance.export("newList").apply()[0];
+        for (int item = 1; item <= 10; item++) {
+            instance.export("append").apply(list, item * 10);
+        }
+        var listAccessor = new WasmListAccessor(instance,
+                new DomainListAccessor("newList", "getItem", null, null, "append", null, null, null));
+
+        assertThat(listAccessor.getItemPointers(WasmObject.ofExisting(instance, list), 10))
+                .containsExactly(10, 20, 30, 40, 50, 60, 70, 80, 90, 100);
+        assertThat(listAccessor.getItemPointers(WasmObject.ofExisting(instance, list), 0)).isEmpty();
+    }
+}
@@ -173,4 +173,24 @@ public class PlanningProblemDeserializationTest {
           .ignoringCollectionOrderInFields("constraintList")
           .isEqualTo(expected);
     }
+
+    @Test
+    public void testDeserializeMemoizedFunction() throws IOException {
+        var reader = objectMapper.readerFor(WasmFunction.class);
+        assertThat((Object) reader.readValue("""
+                {"function": "requestedTimeOff", "memoize": true, "maxEntries": 1000}
+                """))
+                .usingRecursiveComparison()
+                .isEqualTo(new WasmFunction("requestedTimeOff", true, 1000));
+        assertThat((Object) reader.readValue("""
+                {"function": "requestedTimeOff", "memoize": true}
+                """))
+                .usingRecursiveComparison()
+                .isEqualTo(new WasmFunction("requestedTimeOff", true));
+        assertThat((Object) reader.readValue("""
+                {"function": "requestedTimeOff"}
+                """))
+                .usingRecursiveComparison()
+                .isEqualTo(new WasmFunction("requestedTimeOff"));
+    }
 }
@@ -0,0 +1,111 @@
+package ai.timefold.wasm.service;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link IntArrays} operations on the widest int vectors of the CPU; the values past the last whole vector
+ * are handled one by one.
+ *
+ * Only compiled by the {@code vector} Maven profile, and only loaded if the {@code jdk.incubator.vector} module
+ * is present, so the service builds and runs without it.
+ */
+final class VectorIntArrays implements IntArrays.Operations {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Longs of the same shape, holding half the lanes of an int vector each
+    private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class, INTS.vectorShape());
+
+    VectorIntArrays() {
+    }
+
+    /**
+     * Whether the CPU has int vectors at all; the Vector API emulates them slower than scalar code otherwise.
+     */
+    static boolean isAccelerated() {
+        return INTS.length() >= 4;
+    }
+
+    @Override
+    public boolean contains(int[] values, int value) {
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            if (IntVector.fromArray(INTS, values, i).eq(value).anyTrue()) {
+                return true;
+            }
+        }
+        for (; i < values.length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int countInRange(int[] values, int min, int max) {
+        int count = 0;
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            var vector = IntVector.fromArray(INTS, values, i);
+            count += vector.compare(VectorOperators.GE, min)
+                    .and(vector.compare(VectorOperators.LE, max))
+                    .trueCount();
+        }
+        for (; i < values.length; i++) {
+            if (values[i] >= min && values[i] <= max) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int min(int[] values) {
+        var mins = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            mins = mins.min(IntVector.fromArray(INTS, values, i));
+        }
+        int min = mins.reduceLanes(VectorOperators.MIN);
+        for (; i < values.length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public int max(int[] values) {
+        var maxes = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            maxes = maxes.max(IntVector.fromArray(INTS, values, i));
+        }
+        int max = maxes.reduceLanes(VectorOperators.MAX);
+        for (; i < values.length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Sums widened to longs, the lower and upper half of each int vector separately, so the sum cannot overflow.
+     */
+    @Override
+    public long sum(int[] values) {
+        var lowSums = LongVector.zero(LONGS);
+        var highSums = LongVector.zero(LONGS);
+        int i = 0;
+        for (int bound = INTS.loopBound(values.length); i < bound; i += INTS.length()) {
+            var vector = IntVector.fromArray(INTS, values, i);
+            lowSums = lowSums.add((LongVector) vector.convertShape(VectorOperators.I2L, LONGS, 0));
+            highSums = highSums.add((LongVector) vector.convertShape(VectorOperators.I2L, LONGS, 1));
+        }
+        long sum = lowSums.add(highSums).reduceLanes(VectorOperators.ADD);
+        for (; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+}